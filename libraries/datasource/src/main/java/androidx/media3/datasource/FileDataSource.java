@@ -16,6 +16,7 @@
 package androidx.media3.datasource;
 
 import static androidx.media3.common.util.Util.castNonNull;
+import static java.lang.Math.max;
 import static java.lang.Math.min;
 
 import android.net.Uri;
@@ -23,6 +24,7 @@ import android.system.ErrnoException;
 import android.system.OsConstants;
 import android.text.TextUtils;
 import androidx.annotation.Nullable;
+import androidx.annotation.VisibleForTesting;
 import androidx.media3.common.C;
 import androidx.media3.common.PlaybackException;
 import androidx.media3.common.util.Assertions;
@@ -31,11 +33,25 @@ import com.google.errorprone.annotations.CanIgnoreReturnValue;
 import java.io.FileNotFoundException;
 import java.io.IOException;
 import java.io.RandomAccessFile;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
 
-/** A {@link DataSource} for reading local files. */
+/**
+ * A {@link DataSource} for reading local files.
+ *
+ * <p>By default each read is a {@link RandomAccessFile#read} system call. If {@linkplain
+ * Factory#setUseMemoryMapping memory mapping} is enabled, the opened range of the file is mapped
+ * into memory as it's read, in windows of up to {@link #MAX_MAPPING_SIZE_BYTES}, and reads are
+ * served by copying from the mapping. This avoids a system call per read, at the cost of address
+ * space that is only released once each mapping is garbage collected. It's best suited to reading
+ * cache spans of a few megabytes.
+ */
 @UnstableApi
 public final class FileDataSource extends BaseDataSource {
 
+  /** The maximum size of a single memory mapping, in bytes. */
+  public static final int MAX_MAPPING_SIZE_BYTES = 8 * 1024 * 1024;
+
   /** Thrown when a {@link FileDataSource} encounters an error reading a file. */
   public static class FileDataSourceException extends DataSourceException {
 
@@ -73,6 +89,7 @@ public final class FileDataSource extends BaseDataSource {
   public static final class Factory implements DataSource.Factory {
 
     @Nullable private TransferListener listener;
+    private boolean useMemoryMapping;
 
     /**
      * Sets a {@link TransferListener} for {@link FileDataSource} instances created by this factory.
@@ -86,9 +103,24 @@ public final class FileDataSource extends BaseDataSource {
       return this;
     }
 
+    /**
+     * Sets whether {@link FileDataSource} instances created by this factory memory-map the opened
+     * range of the file and serve reads from the mapping.
+     *
+     * <p>The default value is {@code false}.
+     *
+     * @param useMemoryMapping Whether to memory-map opened files.
+     * @return This factory.
+     */
+    @CanIgnoreReturnValue
+    public Factory setUseMemoryMapping(boolean useMemoryMapping) {
+      this.useMemoryMapping = useMemoryMapping;
+      return this;
+    }
+
     @Override
     public FileDataSource createDataSource() {
-      FileDataSource dataSource = new FileDataSource();
+      FileDataSource dataSource = new FileDataSource(useMemoryMapping);
       if (listener != null) {
         dataSource.addTransferListener(listener);
       }
@@ -96,13 +128,36 @@ public final class FileDataSource extends BaseDataSource {
     }
   }
 
+  private final boolean useMemoryMapping;
+  private final int maxMappingSizeBytes;
+
   @Nullable private RandomAccessFile file;
+  @Nullable private ByteBuffer mappedBuffer;
   @Nullable private Uri uri;
   private long bytesRemaining;
+  private long unmappedPosition;
+  private long unmappedLength;
   private boolean opened;
 
   public FileDataSource() {
+    this(/* useMemoryMapping= */ false);
+  }
+
+  /**
+   * Creates an instance.
+   *
+   * @param useMemoryMapping Whether to memory-map the opened range of the file and serve reads from
+   *     the mapping.
+   */
+  public FileDataSource(boolean useMemoryMapping) {
+    this(useMemoryMapping, MAX_MAPPING_SIZE_BYTES);
+  }
+
+  @VisibleForTesting
+  /* package */ FileDataSource(boolean useMemoryMapping, int maxMappingSizeBytes) {
     super(/* isNetwork= */ false);
+    this.useMemoryMapping = useMemoryMapping;
+    this.maxMappingSizeBytes = maxMappingSizeBytes;
   }
 
   @Override
@@ -112,9 +167,18 @@ public final class FileDataSource extends BaseDataSource {
     transferInitializing(dataSpec);
     this.file = openLocalFile(uri);
     try {
-      file.seek(dataSpec.position);
+      long fileLength = file.length();
       bytesRemaining =
-          dataSpec.length == C.LENGTH_UNSET ? file.length() - dataSpec.position : dataSpec.length;
+          dataSpec.length == C.LENGTH_UNSET ? fileLength - dataSpec.position : dataSpec.length;
+      if (useMemoryMapping) {
+        // The range is mapped in windows as it's read. Don't map beyond the end of the file. Reads
+        // return end of input once the range is exhausted, as they would when reading past the end
+        // of the file.
+        unmappedPosition = dataSpec.position;
+        unmappedLength = max(0, min(bytesRemaining, fileLength - dataSpec.position));
+      } else {
+        file.seek(dataSpec.position);
+      }
     } catch (IOException e) {
       throw new FileDataSourceException(e, PlaybackException.ERROR_CODE_IO_UNSPECIFIED);
     }
@@ -139,10 +203,19 @@ public final class FileDataSource extends BaseDataSource {
       return C.RESULT_END_OF_INPUT;
     } else {
       int bytesRead;
-      try {
-        bytesRead = castNonNull(file).read(buffer, offset, (int) min(bytesRemaining, length));
-      } catch (IOException e) {
-        throw new FileDataSourceException(e, PlaybackException.ERROR_CODE_IO_UNSPECIFIED);
+      if (useMemoryMapping) {
+        @Nullable ByteBuffer mappedBuffer = getMappedBuffer();
+        if (mappedBuffer == null) {
+          return C.RESULT_END_OF_INPUT;
+        }
+        bytesRead = (int) min(min(bytesRemaining, length), mappedBuffer.remaining());
+        mappedBuffer.get(buffer, offset, bytesRead);
+      } else {
+        try {
+          bytesRead = castNonNull(file).read(buffer, offset, (int) min(bytesRemaining, length));
+        } catch (IOException e) {
+          throw new FileDataSourceException(e, PlaybackException.ERROR_CODE_IO_UNSPECIFIED);
+        }
       }
 
       if (bytesRead > 0) {
@@ -154,6 +227,57 @@ public final class FileDataSource extends BaseDataSource {
     }
   }
 
+  /**
+   * Reads up to {@code length} bytes of data into {@code target}, starting at its current position.
+   *
+   * <p>Behaves like {@link #read(byte[], int, int)}, except that the data is written to a {@link
+   * ByteBuffer}. If the source is memory-mapped, the data is copied straight from the mapping, so
+   * a direct {@code target} is filled without passing through the Java heap.
+   *
+   * @param target The buffer into which data should be written. Its position is advanced by the
+   *     number of bytes read. Must have at least {@code length} bytes remaining.
+   * @param length The maximum number of bytes to read.
+   * @return The number of bytes read, or {@link C#RESULT_END_OF_INPUT} if the input has ended.
+   * @throws FileDataSourceException If an error occurs reading from the file.
+   */
+  public int read(ByteBuffer target, int length) throws FileDataSourceException {
+    if (length == 0) {
+      return 0;
+    } else if (bytesRemaining == 0) {
+      return C.RESULT_END_OF_INPUT;
+    }
+    int bytesToRead = (int) min(bytesRemaining, length);
+    int bytesRead;
+    if (useMemoryMapping) {
+      @Nullable ByteBuffer mappedBuffer = getMappedBuffer();
+      if (mappedBuffer == null) {
+        return C.RESULT_END_OF_INPUT;
+      }
+      bytesRead = min(bytesToRead, mappedBuffer.remaining());
+      int mappedBufferLimit = mappedBuffer.limit();
+      mappedBuffer.limit(mappedBuffer.position() + bytesRead);
+      target.put(mappedBuffer);
+      mappedBuffer.limit(mappedBufferLimit);
+    } else {
+      int targetLimit = target.limit();
+      target.limit(target.position() + bytesToRead);
+      try {
+        bytesRead = castNonNull(file).getChannel().read(target);
+      } catch (IOException e) {
+        throw new FileDataSourceException(e, PlaybackException.ERROR_CODE_IO_UNSPECIFIED);
+      } finally {
+        target.limit(targetLimit);
+      }
+    }
+
+    if (bytesRead > 0) {
+      bytesRemaining -= bytesRead;
+      bytesTransferred(bytesRead);
+    }
+
+    return bytesRead;
+  }
+
   @Override
   @Nullable
   public Uri getUri() {
@@ -171,6 +295,8 @@ public final class FileDataSource extends BaseDataSource {
       throw new FileDataSourceException(e, PlaybackException.ERROR_CODE_IO_UNSPECIFIED);
     } finally {
       file = null;
+      mappedBuffer = null;
+      unmappedLength = 0;
       if (opened) {
         opened = false;
         transferEnded();
@@ -178,6 +304,36 @@ public final class FileDataSource extends BaseDataSource {
     }
   }
 
+  /**
+   * Returns the mapping from which to serve the next read, mapping the next window of the opened
+   * range if the current mapping is exhausted, or null if the whole range has been read.
+   */
+  @Nullable
+  private ByteBuffer getMappedBuffer() throws FileDataSourceException {
+    @Nullable ByteBuffer mappedBuffer = this.mappedBuffer;
+    if (mappedBuffer != null && mappedBuffer.hasRemaining()) {
+      return mappedBuffer;
+    }
+    // Drop the exhausted mapping before creating the next one, so it can be garbage collected.
+    this.mappedBuffer = null;
+    if (unmappedLength == 0) {
+      return null;
+    }
+    long mappingLength = min(unmappedLength, maxMappingSizeBytes);
+    try {
+      mappedBuffer =
+          castNonNull(file)
+              .getChannel()
+              .map(FileChannel.MapMode.READ_ONLY, unmappedPosition, mappingLength);
+    } catch (IOException e) {
+      throw new FileDataSourceException(e, PlaybackException.ERROR_CODE_IO_UNSPECIFIED);
+    }
+    unmappedPosition += mappingLength;
+    unmappedLength -= mappingLength;
+    this.mappedBuffer = mappedBuffer;
+    return mappedBuffer;
+  }
+
   private static RandomAccessFile openLocalFile(Uri uri) throws FileDataSourceException {
     try {
       return new RandomAccessFile(Assertions.checkNotNull(uri.getPath()), "r");
@@ -0,0 +1,935 @@
+/*
+ * Copyright 2026 The Android Open Source Project
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package androidx.media3.datasource;
+
+import static androidx.media3.common.util.Assertions.checkArgument;
+import static androidx.media3.common.util.Assertions.checkNotNull;
+import static java.lang.Math.abs;
+import static java.lang.Math.max;
+import static java.lang.Math.min;
+
+import android.net.Uri;
+import androidx.annotation.GuardedBy;
+import androidx.annotation.Nullable;
+import androidx.annotation.RequiresApi;
+import androidx.media3.common.C;
+import androidx.media3.common.PlaybackException;
+import androidx.media3.common.util.UnstableApi;
+import androidx.media3.common.util.Util;
+import com.google.errorprone.annotations.CanIgnoreReturnValue;
+import java.io.IOException;
+import java.io.InterruptedIOException;
+import java.net.DatagramPacket;
+import java.net.DatagramSocket;
+import java.net.Inet6Address;
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
+import java.net.MulticastSocket;
+import java.net.NetworkInterface;
+import java.net.SocketTimeoutException;
+import java.net.StandardProtocolFamily;
+import java.net.StandardSocketOptions;
+import java.nio.ByteBuffer;
+import java.nio.channels.DatagramChannel;
+import java.util.Arrays;
+import java.util.Enumeration;
+
+/**
+ * A UDP {@link DataSource} for high bitrate multicast streams, such as MPEG-TS in IPTV networks.
+ *
+ * <p>Unlike {@link UdpDataSource}, which receives one datagram per {@link #read}, this data source
+ * receives datagrams on a dedicated thread into a ring buffer, and {@link #read} drains as many
+ * buffered datagrams as fit into the read buffer. The ring buffer is allocated when the data source
+ * is first opened, and reused when it's opened again. The loading thread is only woken
+ * up when it's waiting for data. On API 24 and above, datagrams are received with a {@link
+ * DatagramChannel}.
+ *
+ * <p>If RTP is {@linkplain Factory#setRtpEnabled(boolean) enabled}, RTP headers are stripped and
+ * packets are reordered by sequence number. A missing packet is skipped once a later packet has
+ * waited for the {@linkplain Factory#setReorderTimeoutMs(int) reorder timeout}, or once the ring
+ * buffer is full. Otherwise datagrams are returned in arrival order.
+ *
+ * <p>If the loading thread falls behind, the oldest buffered datagrams are dropped. Loss, drops and
+ * interarrival jitter are reported by {@link #getStatistics()}.
+ */
+@UnstableApi
+public final class MulticastDataSource extends BaseDataSource {
+
+  /** {@link DataSource.Factory} for {@link MulticastDataSource} instances. */
+  public static final class Factory implements DataSource.Factory {
+
+    @Nullable private TransferListener listener;
+    @Nullable private NetworkInterface networkInterface;
+    private int maxPacketSize;
+    private int bufferPacketCount;
+    private int socketReceiveBufferSize;
+    private int socketTimeoutMs;
+    private boolean rtpEnabled;
+    private int reorderTimeoutMs;
+
+    /** Creates an instance. */
+    public Factory() {
+      maxPacketSize = UdpDataSource.DEFAULT_MAX_PACKET_SIZE;
+      bufferPacketCount = DEFAULT_BUFFER_PACKET_COUNT;
+      socketReceiveBufferSize = DEFAULT_SOCKET_RECEIVE_BUFFER_SIZE;
+      socketTimeoutMs = UdpDataSource.DEFAULT_SOCKET_TIMEOUT_MILLIS;
+      reorderTimeoutMs = DEFAULT_REORDER_TIMEOUT_MS;
+    }
+
+    /**
+     * Sets a {@link TransferListener} for {@link MulticastDataSource} instances created by this
+     * factory.
+     *
+     * @param listener The {@link TransferListener}.
+     * @return This factory.
+     */
+    @CanIgnoreReturnValue
+    public Factory setListener(@Nullable TransferListener listener) {
+      this.listener = listener;
+      return this;
+    }
+
+    /**
+     * Sets the {@link NetworkInterface} on which multicast groups are joined, or null to use the
+     * first network interface that is up and supports multicast.
+     *
+     * <p>The default value is {@code null}.
+     *
+     * @param networkInterface The {@link NetworkInterface}, or null.
+     * @return This factory.
+     */
+    @CanIgnoreReturnValue
+    public Factory setNetworkInterface(@Nullable NetworkInterface networkInterface) {
+      this.networkInterface = networkInterface;
+      return this;
+    }
+
+    /**
+     * Sets the maximum datagram size, in bytes.
+     *
+     * <p>The default value is {@link UdpDataSource#DEFAULT_MAX_PACKET_SIZE}.
+     *
+     * @param maxPacketSize The maximum datagram size, in bytes.
+     * @return This factory.
+     */
+    @CanIgnoreReturnValue
+    public Factory setMaxPacketSize(int maxPacketSize) {
+      checkArgument(maxPacketSize > 0);
+      this.maxPacketSize = maxPacketSize;
+      return this;
+    }
+
+    /**
+     * Sets the number of datagrams that the ring buffer can hold. The ring buffer is allocated
+     * with {@code bufferPacketCount * maxPacketSize} bytes when a data source is first opened.
+     *
+     * <p>The default value is {@link #DEFAULT_BUFFER_PACKET_COUNT}.
+     *
+     * @param bufferPacketCount The number of datagrams that the ring buffer can hold.
+     * @return This factory.
+     */
+    @CanIgnoreReturnValue
+    public Factory setBufferPacketCount(int bufferPacketCount) {
+      checkArgument(bufferPacketCount > 1);
+      this.bufferPacketCount = bufferPacketCount;
+      return this;
+    }
+
+    /**
+     * Sets the requested size of the socket receive buffer of the operating system, in bytes.
+     *
+     * <p>The default value is {@link #DEFAULT_SOCKET_RECEIVE_BUFFER_SIZE}.
+     *
+     * @param socketReceiveBufferSize The requested socket receive buffer size, in bytes.
+     * @return This factory.
+     */
+    @CanIgnoreReturnValue
+    public Factory setSocketReceiveBufferSize(int socketReceiveBufferSize) {
+      checkArgument(socketReceiveBufferSize > 0);
+      this.socketReceiveBufferSize = socketReceiveBufferSize;
+      return this;
+    }
+
+    /**
+     * Sets the time after which a {@link #read} that doesn't receive any data fails, in
+     * milliseconds. A timeout of zero is interpreted as an infinite timeout.
+     *
+     * <p>The default value is {@link UdpDataSource#DEFAULT_SOCKET_TIMEOUT_MILLIS}.
+     *
+     * @param socketTimeoutMs The timeout, in milliseconds.
+     * @return This factory.
+     */
+    @CanIgnoreReturnValue
+    public Factory setSocketTimeoutMs(int socketTimeoutMs) {
+      checkArgument(socketTimeoutMs >= 0);
+      this.socketTimeoutMs = socketTimeoutMs;
+      return this;
+    }
+
+    /**
+     * Sets whether datagrams are RTP packets whose headers are stripped and that are reordered by
+     * sequence number.
+     *
+     * <p>The default value is {@code false}.
+     *
+     * @param rtpEnabled Whether datagrams are RTP packets.
+     * @return This factory.
+     */
+    @CanIgnoreReturnValue
+    public Factory setRtpEnabled(boolean rtpEnabled) {
+      this.rtpEnabled = rtpEnabled;
+      return this;
+    }
+
+    /**
+     * Sets how long a missing RTP packet is waited for after a later packet was received, in
+     * milliseconds. Only applies if RTP is enabled.
+     *
+     * <p>The default value is {@link #DEFAULT_REORDER_TIMEOUT_MS}.
+     *
+     * @param reorderTimeoutMs The reorder timeout, in milliseconds.
+     * @return This factory.
+     */
+    @CanIgnoreReturnValue
+    public Factory setReorderTimeoutMs(int reorderTimeoutMs) {
+      checkArgument(reorderTimeoutMs >= 0);
+      this.reorderTimeoutMs = reorderTimeoutMs;
+      return this;
+    }
+
+    @Override
+    public MulticastDataSource createDataSource() {
+      MulticastDataSource dataSource =
+          new MulticastDataSource(
+              networkInterface,
+              maxPacketSize,
+              bufferPacketCount,
+              socketReceiveBufferSize,
+              socketTimeoutMs,
+              rtpEnabled,
+              reorderTimeoutMs);
+      if (listener != null) {
+        dataSource.addTransferListener(listener);
+      }
+      return dataSource;
+    }
+  }
+
+  /** Thrown when an error is encountered when trying to read from a {@link MulticastDataSource}. */
+  public static final class MulticastDataSourceException extends DataSourceException {
+
+    /**
+     * Creates a {@code MulticastDataSourceException}.
+     *
+     * @param cause The error cause.
+     * @param errorCode Reason of the error, should be one of the {@code ERROR_CODE_IO_*} in {@link
+     *     PlaybackException.ErrorCode}.
+     */
+    public MulticastDataSourceException(
+        Throwable cause, @PlaybackException.ErrorCode int errorCode) {
+      super(cause, errorCode);
+    }
+  }
+
+  /** Reception statistics since the data source was last opened. */
+  public static final class Statistics {
+
+    /** The number of received datagrams. */
+    public final long receivedPacketCount;
+
+    /** The number of RTP packets that were skipped because they didn't arrive in time. */
+    public final long lostPacketCount;
+
+    /** The number of datagrams that were discarded because they were late, duplicate or invalid. */
+    public final long discardedPacketCount;
+
+    /** The number of datagrams that were dropped because the ring buffer was full. */
+    public final long overflowPacketCount;
+
+    /**
+     * The RTP interarrival jitter, in microseconds, or {@link C#TIME_UNSET} if RTP isn't enabled or
+     * no packet was received.
+     */
+    public final long jitterUs;
+
+    private Statistics(
+        long receivedPacketCount,
+        long lostPacketCount,
+        long discardedPacketCount,
+        long overflowPacketCount,
+        long jitterUs) {
+      this.receivedPacketCount = receivedPacketCount;
+      this.lostPacketCount = lostPacketCount;
+      this.discardedPacketCount = discardedPacketCount;
+      this.overflowPacketCount = overflowPacketCount;
+      this.jitterUs = jitterUs;
+    }
+  }
+
+  /** The default number of datagrams that the ring buffer can hold. */
+  public static final int DEFAULT_BUFFER_PACKET_COUNT = 2048;
+
+  /** The default requested socket receive buffer size, in bytes. */
+  public static final int DEFAULT_SOCKET_RECEIVE_BUFFER_SIZE = 2 * 1024 * 1024;
+
+  /** The default reorder timeout, in milliseconds. */
+  public static final int DEFAULT_REORDER_TIMEOUT_MS = 50;
+
+  /** The maximum sequence number discontinuity allowed without resetting the ring buffer. */
+  private static final int MAX_SEQUENCE_LEAP_ALLOWED = 1000;
+
+  private static final int RTP_VERSION = 2;
+  private static final int RTP_MIN_HEADER_LENGTH = 12;
+  // MPEG-TS over RTP uses a 90 kHz timestamp clock, see RFC 2250.
+  private static final int RTP_CLOCK_RATE = 90_000;
+
+  @Nullable private final NetworkInterface networkInterface;
+  private final int maxPacketSize;
+  private final int bufferPacketCount;
+  private final int socketReceiveBufferSize;
+  private final int socketTimeoutMs;
+  private final boolean rtpEnabled;
+  private final long reorderTimeoutUs;
+
+  // Allocated in open(), so that unopened instances don't hold the memory.
+  @GuardedBy("this")
+  private byte[] ringBuffer;
+
+  @GuardedBy("this")
+  private int[] slotLengths;
+
+  @GuardedBy("this")
+  private long[] slotReceivedTimesUs;
+
+  @Nullable private Uri uri;
+  @Nullable private PacketReceiver packetReceiver;
+  private boolean opened;
+
+  @GuardedBy("this")
+  @Nullable
+  private ReceiveLoop activeReceiveLoop;
+
+  @GuardedBy("this")
+  @Nullable
+  private IOException receiveException;
+
+  @GuardedBy("this")
+  private boolean readerWaiting;
+
+  @GuardedBy("this")
+  private boolean started;
+
+  @GuardedBy("this")
+  private long nextReadSequence;
+
+  @GuardedBy("this")
+  private long highestSequence;
+
+  @GuardedBy("this")
+  private int bufferedPacketCount;
+
+  @GuardedBy("this")
+  private int readOffsetInSlot;
+
+  @GuardedBy("this")
+  private long receivedPacketCount;
+
+  @GuardedBy("this")
+  private long lostPacketCount;
+
+  @GuardedBy("this")
+  private long discardedPacketCount;
+
+  @GuardedBy("this")
+  private long overflowPacketCount;
+
+  @GuardedBy("this")
+  private long lastRtpTransit;
+
+  @GuardedBy("this")
+  private double rtpJitter;
+
+  /** Creates an instance with default parameters. */
+  public MulticastDataSource() {
+    this(
+        /* networkInterface= */ null,
+        UdpDataSource.DEFAULT_MAX_PACKET_SIZE,
+        DEFAULT_BUFFER_PACKET_COUNT,
+        DEFAULT_SOCKET_RECEIVE_BUFFER_SIZE,
+        UdpDataSource.DEFAULT_SOCKET_TIMEOUT_MILLIS,
+        /* rtpEnabled= */ false,
+        DEFAULT_REORDER_TIMEOUT_MS);
+  }
+
+  private MulticastDataSource(
+      @Nullable NetworkInterface networkInterface,
+      int maxPacketSize,
+      int bufferPacketCount,
+      int socketReceiveBufferSize,
+      int socketTimeoutMs,
+      boolean rtpEnabled,
+      int reorderTimeoutMs) {
+    super(/* isNetwork= */ true);
+    this.networkInterface = networkInterface;
+    this.maxPacketSize = maxPacketSize;
+    this.bufferPacketCount = bufferPacketCount;
+    this.socketReceiveBufferSize = socketReceiveBufferSize;
+    this.socketTimeoutMs = socketTimeoutMs;
+    this.rtpEnabled = rtpEnabled;
+    this.reorderTimeoutUs = Util.msToUs(reorderTimeoutMs);
+    ringBuffer = Util.EMPTY_BYTE_ARRAY;
+    slotLengths = new int[0];
+    slotReceivedTimesUs = new long[0];
+    synchronized (this) {
+      resetBuffer();
+      resetStatistics();
+    }
+  }
+
+  @Override
+  public long open(DataSpec dataSpec) throws MulticastDataSourceException {
+    uri = dataSpec.uri;
+    String host = checkNotNull(uri.getHost());
+    int port = uri.getPort();
+    transferInitializing(dataSpec);
+    byte[] packetBuffer = new byte[maxPacketSize];
+    try {
+      InetSocketAddress socketAddress = new InetSocketAddress(InetAddress.getByName(host), port);
+      packetReceiver =
+          Util.SDK_INT >= 24
+              ? new DatagramChannelPacketReceiver(
+                  packetBuffer, socketAddress, networkInterface, socketReceiveBufferSize)
+              : new SocketPacketReceiver(
+                  packetBuffer, socketAddress, networkInterface, socketReceiveBufferSize);
+    } catch (SecurityException e) {
+      throw new MulticastDataSourceException(e, PlaybackException.ERROR_CODE_IO_NO_PERMISSION);
+    } catch (IOException e) {
+      throw new MulticastDataSourceException(
+          e, PlaybackException.ERROR_CODE_IO_NETWORK_CONNECTION_FAILED);
+    }
+
+    ReceiveLoop receiveLoop = new ReceiveLoop(packetReceiver, packetBuffer);
+    synchronized (this) {
+      if (slotLengths.length == 0) {
+        ringBuffer = new byte[bufferPacketCount * maxPacketSize];
+        slotLengths = new int[bufferPacketCount];
+        slotReceivedTimesUs = new long[bufferPacketCount];
+      }
+      resetBuffer();
+      resetStatistics();
+      activeReceiveLoop = receiveLoop;
+    }
+    new Thread(receiveLoop, "ExoPlayer:MulticastDataSource").start();
+
+    opened = true;
+    transferStarted(dataSpec);
+    return C.LENGTH_UNSET;
+  }
+
+  @Override
+  public int read(byte[] buffer, int offset, int length) throws IOException {
+    if (length == 0) {
+      return 0;
+    }
+
+    int bytesRead;
+    synchronized (this) {
+      long timeoutUs = socketTimeoutMs == 0 ? C.TIME_UNSET : Util.msToUs(socketTimeoutMs);
+      long deadlineUs = timeoutUs == C.TIME_UNSET ? Long.MAX_VALUE : getNowUs() + timeoutUs;
+      while (true) {
+        if (receiveException != null) {
+          throw new MulticastDataSourceException(
+              receiveException, PlaybackException.ERROR_CODE_IO_NETWORK_CONNECTION_FAILED);
+        }
+        bytesRead = readFromBuffer(buffer, offset, length);
+        if (bytesRead > 0) {
+          break;
+        }
+        long nowUs = getNowUs();
+        if (nowUs >= deadlineUs) {
+          throw new MulticastDataSourceException(
+              new SocketTimeoutException(),
+              PlaybackException.ERROR_CODE_IO_NETWORK_CONNECTION_TIMEOUT);
+        }
+        long waitUs = deadlineUs - nowUs;
+        long missingPacketWaitUs = getMissingPacketWaitUs(nowUs);
+        if (missingPacketWaitUs != C.TIME_UNSET) {
+          waitUs = min(waitUs, missingPacketWaitUs);
+        }
+        readerWaiting = true;
+        try {
+          wait(max(1, Util.usToMs(waitUs)));
+        } catch (InterruptedException e) {
+          Thread.currentThread().interrupt();
+          throw new InterruptedIOException();
+        } finally {
+          readerWaiting = false;
+        }
+      }
+    }
+    bytesTransferred(bytesRead);
+    return bytesRead;
+  }
+
+  @Override
+  @Nullable
+  public Uri getUri() {
+    return uri;
+  }
+
+  @Override
+  public void close() {
+    uri = null;
+    synchronized (this) {
+      activeReceiveLoop = null;
+      resetBuffer();
+    }
+    if (packetReceiver != null) {
+      // Closing the receiver unblocks and ends the receive loop.
+      packetReceiver.close();
+      packetReceiver = null;
+    }
+    if (opened) {
+      opened = false;
+      transferEnded();
+    }
+  }
+
+  /**
+   * Returns the local port number opened for the UDP connection, or {@link
+   * UdpDataSource#UDP_PORT_UNSET} if no connection is open.
+   */
+  public int getLocalPort() {
+    return packetReceiver == null ? UdpDataSource.UDP_PORT_UNSET : packetReceiver.getLocalPort();
+  }
+
+  /** Returns the reception {@link Statistics} since the data source was last opened. */
+  public synchronized Statistics getStatistics() {
+    long jitterUs =
+        lastRtpTransit != C.TIME_UNSET
+            ? (long) (rtpJitter * C.MICROS_PER_SECOND / RTP_CLOCK_RATE)
+            : C.TIME_UNSET;
+    return new Statistics(
+        receivedPacketCount, lostPacketCount, discardedPacketCount, overflowPacketCount, jitterUs);
+  }
+
+  // Internal methods.
+
+  @GuardedBy("this")
+  private void resetBuffer() {
+    Arrays.fill(slotLengths, C.LENGTH_UNSET);
+    receiveException = null;
+    started = false;
+    bufferedPacketCount = 0;
+    readOffsetInSlot = 0;
+    notifyAll();
+  }
+
+  @GuardedBy("this")
+  private void resetStatistics() {
+    receivedPacketCount = 0;
+    lostPacketCount = 0;
+    discardedPacketCount = 0;
+    overflowPacketCount = 0;
+    lastRtpTransit = C.TIME_UNSET;
+    rtpJitter = 0;
+  }
+
+  /** Copies consecutive buffered packets to {@code buffer}, returning the number of bytes read. */
+  @GuardedBy("this")
+  private int readFromBuffer(byte[] buffer, int offset, int length) {
+    int bytesRead = 0;
+    long nowUs = C.TIME_UNSET;
+    while (bytesRead < length && bufferedPacketCount > 0) {
+      int slot = getSlot(nextReadSequence);
+      int slotLength = slotLengths[slot];
+      if (slotLength == C.LENGTH_UNSET) {
+        if (nowUs == C.TIME_UNSET) {
+          nowUs = getNowUs();
+        }
+        if (getMissingPacketWaitUs(nowUs) > 0) {
+          break;
+        }
+        lostPacketCount++;
+        nextReadSequence++;
+        continue;
+      }
+      int bytesToRead = min(slotLength - readOffsetInSlot, length - bytesRead);
+      System.arraycopy(
+          ringBuffer,
+          slot * maxPacketSize + readOffsetInSlot,
+          buffer,
+          offset + bytesRead,
+          bytesToRead);
+      bytesRead += bytesToRead;
+      readOffsetInSlot += bytesToRead;
+      if (readOffsetInSlot == slotLength) {
+        slotLengths[slot] = C.LENGTH_UNSET;
+        bufferedPacketCount--;
+        readOffsetInSlot = 0;
+        nextReadSequence++;
+      }
+    }
+    return bytesRead;
+  }
+
+  /**
+   * Returns how much longer the packet at {@code nextReadSequence} is waited for before it's
+   * skipped, or {@link C#TIME_UNSET} if it isn't missing.
+   */
+  @GuardedBy("this")
+  private long getMissingPacketWaitUs(long nowUs) {
+    if (bufferedPacketCount == 0 || slotLengths[getSlot(nextReadSequence)] != C.LENGTH_UNSET) {
+      return C.TIME_UNSET;
+    }
+    if (highestSequence - nextReadSequence >= slotLengths.length - 1) {
+      // The ring buffer is full.
+      return 0;
+    }
+    long earliestReceivedTimeUs = Long.MAX_VALUE;
+    for (long sequence = nextReadSequence + 1; sequence <= highestSequence; sequence++) {
+      int slot = getSlot(sequence);
+      if (slotLengths[slot] != C.LENGTH_UNSET) {
+        earliestReceivedTimeUs = min(earliestReceivedTimeUs, slotReceivedTimesUs[slot]);
+      }
+    }
+    return max(0, earliestReceivedTimeUs + reorderTimeoutUs - nowUs);
+  }
+
+  private synchronized void onPacketReceived(
+      ReceiveLoop receiveLoop, byte[] packet, int length, long receivedTimeUs) {
+    if (receiveLoop != activeReceiveLoop) {
+      return;
+    }
+    receivedPacketCount++;
+    int payloadOffset = 0;
+    int payloadLength = length;
+    long sequence;
+    if (rtpEnabled) {
+      int headerLength = getRtpHeaderLength(packet, length);
+      if (headerLength == C.LENGTH_UNSET) {
+        discardedPacketCount++;
+        return;
+      }
+      payloadOffset = headerLength;
+      payloadLength = length - headerLength;
+      if ((packet[0] & 0x20) != 0) {
+        // Remove padding, whose length is given by the last byte.
+        payloadLength -= packet[length - 1] & 0xFF;
+        if (payloadLength < 0) {
+          discardedPacketCount++;
+          return;
+        }
+      }
+      int sequenceNumber = ((packet[2] & 0xFF) << 8) | (packet[3] & 0xFF);
+      sequence =
+          started
+              ? highestSequence + (short) (sequenceNumber - (int) (highestSequence & 0xFFFF))
+              : sequenceNumber;
+      updateJitter(readUnsignedInt(packet, /* offset= */ 4), receivedTimeUs);
+    } else {
+      sequence = started ? highestSequence + 1 : 0;
+    }
+
+    if (!started || abs(sequence - highestSequence) >= MAX_SEQUENCE_LEAP_ALLOWED) {
+      // First packet, or the stream restarted. Start reading from this packet.
+      if (started) {
+        Arrays.fill(slotLengths, C.LENGTH_UNSET);
+        bufferedPacketCount = 0;
+        readOffsetInSlot = 0;
+      }
+      started = true;
+      nextReadSequence = sequence;
+      highestSequence = sequence;
+    }
+    if (sequence < nextReadSequence) {
+      // A succeeding packet has already been read or skipped.
+      discardedPacketCount++;
+      return;
+    }
+    int slotCount = slotLengths.length;
+    if (sequence >= nextReadSequence + slotCount) {
+      // The reader has fallen behind. Drop the oldest packets to make room.
+      long newNextReadSequence = sequence - slotCount + 1;
+      for (long dropped = nextReadSequence; dropped < newNextReadSequence; dropped++) {
+        int slot = getSlot(dropped);
+        if (slotLengths[slot] != C.LENGTH_UNSET) {
+          slotLengths[slot] = C.LENGTH_UNSET;
+          bufferedPacketCount--;
+          overflowPacketCount++;
+        } else {
+          lostPacketCount++;
+        }
+      }
+      nextReadSequence = newNextReadSequence;
+      readOffsetInSlot = 0;
+    }
+
+    int slot = getSlot(sequence);
+    if (slotLengths[slot] != C.LENGTH_UNSET) {
+      // Duplicate packet.
+      discardedPacketCount++;
+      return;
+    }
+    System.arraycopy(packet, payloadOffset, ringBuffer, slot * maxPacketSize, payloadLength);
+    slotLengths[slot] = payloadLength;
+    slotReceivedTimesUs[slot] = receivedTimeUs;
+    bufferedPacketCount++;
+    highestSequence = max(highestSequence, sequence);
+    if (readerWaiting) {
+      notifyAll();
+    }
+  }
+
+  private synchronized void onReceiveError(ReceiveLoop receiveLoop, IOException e) {
+    if (receiveLoop == activeReceiveLoop) {
+      receiveException = e;
+      notifyAll();
+    }
+  }
+
+  /** Updates the RTP interarrival jitter as defined in RFC 3550, section 6.4.1. */
+  @GuardedBy("this")
+  private void updateJitter(long rtpTimestamp, long receivedTimeUs) {
+    long arrival = receivedTimeUs * RTP_CLOCK_RATE / C.MICROS_PER_SECOND;
+    long transit = (arrival - rtpTimestamp) & 0xFFFFFFFFL;
+    if (lastRtpTransit != C.TIME_UNSET) {
+      long difference = abs((int) (transit - lastRtpTransit));
+      rtpJitter += (difference - rtpJitter) / 16;
+    }
+    lastRtpTransit = transit;
+  }
+
+  @GuardedBy("this")
+  private int getSlot(long sequence) {
+    // Extended RTP sequence numbers can become negative when the stream restarts.
+    int slotCount = slotLengths.length;
+    return (int) (((sequence % slotCount) + slotCount) % slotCount);
+  }
+
+  /** Returns the RTP header length, or {@link C#LENGTH_UNSET} if the packet isn't valid RTP. */
+  private static int getRtpHeaderLength(byte[] packet, int length) {
+    if (length < RTP_MIN_HEADER_LENGTH || ((packet[0] & 0xFF) >> 6) != RTP_VERSION) {
+      return C.LENGTH_UNSET;
+    }
+    int headerLength = RTP_MIN_HEADER_LENGTH + 4 * (packet[0] & 0x0F);
+    if ((packet[0] & 0x10) != 0) {
+      // Header extension, whose length in 32-bit words follows a 16-bit profile identifier.
+      if (length < headerLength + 4) {
+        return C.LENGTH_UNSET;
+      }
+      int extensionLength =
+          ((packet[headerLength + 2] & 0xFF) << 8) | (packet[headerLength + 3] & 0xFF);
+      headerLength += 4 + 4 * extensionLength;
+    }
+    return headerLength <= length ? headerLength : C.LENGTH_UNSET;
+  }
+
+  private static long readUnsignedInt(byte[] data, int offset) {
+    return ((data[offset] & 0xFFL) << 24)
+        | ((data[offset + 1] & 0xFFL) << 16)
+        | ((data[offset + 2] & 0xFFL) << 8)
+        | (data[offset + 3] & 0xFFL);
+  }
+
+  private static long getNowUs() {
+    return System.nanoTime() / 1000;
+  }
+
+  private static NetworkInterface getDefaultMulticastInterface(InetAddress groupAddress)
+      throws IOException {
+    @Nullable NetworkInterface fallbackInterface = null;
+    Enumeration<NetworkInterface> networkInterfaces = NetworkInterface.getNetworkInterfaces();
+    while (networkInterfaces != null && networkInterfaces.hasMoreElements()) {
+      NetworkInterface networkInterface = networkInterfaces.nextElement();
+      if (!networkInterface.isUp() || !networkInterface.supportsMulticast()) {
+        continue;
+      }
+      if (!networkInterface.isLoopback()
+          && hasAddressOfSameFamily(networkInterface, groupAddress)) {
+        return networkInterface;
+      }
+      if (fallbackInterface == null) {
+        fallbackInterface = networkInterface;
+      }
+    }
+    if (fallbackInterface == null) {
+      throw new IOException("No network interface supports multicast");
+    }
+    return fallbackInterface;
+  }
+
+  private static boolean hasAddressOfSameFamily(
+      NetworkInterface networkInterface, InetAddress address) {
+    Enumeration<InetAddress> interfaceAddresses = networkInterface.getInetAddresses();
+    while (interfaceAddresses.hasMoreElements()) {
+      if ((interfaceAddresses.nextElement() instanceof Inet6Address)
+          == (address instanceof Inet6Address)) {
+        return true;
+      }
+    }
+    return false;
+  }
+
+  /** Receives datagrams on a dedicated thread until its {@link PacketReceiver} is closed. */
+  private final class ReceiveLoop implements Runnable {
+
+    private final PacketReceiver packetReceiver;
+    private final byte[] packetBuffer;
+
+    public ReceiveLoop(PacketReceiver packetReceiver, byte[] packetBuffer) {
+      this.packetReceiver = packetReceiver;
+      this.packetBuffer = packetBuffer;
+    }
+
+    @Override
+    public void run() {
+      while (true) {
+        int length;
+        try {
+          length = packetReceiver.receive();
+        } catch (IOException e) {
+          onReceiveError(this, e);
+          return;
+        }
+        onPacketReceived(this, packetBuffer, length, getNowUs());
+      }
+    }
+  }
+
+  /** Receives datagrams into a packet buffer. */
+  private interface PacketReceiver {
+
+    /** Blocks until a datagram is received into the packet buffer and returns its length. */
+    int receive() throws IOException;
+
+    /** Returns the local port. */
+    int getLocalPort();
+
+    /** Closes the receiver, unblocking any pending {@link #receive()}. */
+    void close();
+  }
+
+  @RequiresApi(24)
+  private static final class DatagramChannelPacketReceiver implements PacketReceiver {
+
+    private final DatagramChannel channel;
+    private final ByteBuffer packetBuffer;
+
+    public DatagramChannelPacketReceiver(
+        byte[] packetBuffer,
+        InetSocketAddress socketAddress,
+        @Nullable NetworkInterface networkInterface,
+        int socketReceiveBufferSize)
+        throws IOException {
+      this.packetBuffer = ByteBuffer.wrap(packetBuffer);
+      InetAddress address = socketAddress.getAddress();
+      channel =
+          DatagramChannel.open(
+              address instanceof Inet6Address
+                  ? StandardProtocolFamily.INET6
+                  : StandardProtocolFamily.INET);
+      try {
+        channel.setOption(StandardSocketOptions.SO_REUSEADDR, true);
+        channel.setOption(StandardSocketOptions.SO_RCVBUF, socketReceiveBufferSize);
+        channel.bind(socketAddress);
+        if (address.isMulticastAddress()) {
+          channel.join(
+              address,
+              networkInterface != null
+                  ? networkInterface
+                  : getDefaultMulticastInterface(address));
+        }
+      } catch (IOException | RuntimeException e) {
+        channel.close();
+        throw e;
+      }
+    }
+
+    @Override
+    public int receive() throws IOException {
+      packetBuffer.clear();
+      channel.receive(packetBuffer);
+      return packetBuffer.position();
+    }
+
+    @Override
+    public int getLocalPort() {
+      return channel.socket().getLocalPort();
+    }
+
+    @Override
+    public void close() {
+      try {
+        // Closing the channel also drops its multicast memberships.
+        channel.close();
+      } catch (IOException e) {
+        // Do nothing.
+      }
+    }
+  }
+
+  private static final class SocketPacketReceiver implements PacketReceiver {
+
+    private final DatagramSocket socket;
+    private final DatagramPacket packet;
+
+    public SocketPacketReceiver(
+        byte[] packetBuffer,
+        InetSocketAddress socketAddress,
+        @Nullable NetworkInterface networkInterface,
+        int socketReceiveBufferSize)
+        throws IOException {
+      packet = new DatagramPacket(packetBuffer, packetBuffer.length);
+      InetAddress address = socketAddress.getAddress();
+      if (address.isMulticastAddress()) {
+        MulticastSocket multicastSocket = new MulticastSocket(socketAddress);
+        socket = multicastSocket;
+        try {
+          if (networkInterface != null) {
+            multicastSocket.joinGroup(socketAddress, networkInterface);
+          } else {
+            multicastSocket.joinGroup(address);
+          }
+        } catch (IOException | RuntimeException e) {
+          socket.close();
+          throw e;
+        }
+      } else {
+        socket = new DatagramSocket(socketAddress);
+      }
+      socket.setReceiveBufferSize(socketReceiveBufferSize);
+    }
+
+    @Override
+    public int receive() throws IOException {
+      packet.setLength(packet.getData().length);
+      socket.receive(packet);
+      return packet.getLength();
+    }
+
+    @Override
+    public int getLocalPort() {
+      return socket.getLocalPort();
+    }
+
+    @Override
+    public void close() {
+      // Closing the socket also drops its multicast memberships.
+      socket.close();
+    }
+  }
+}
@@ -269,6 +269,23 @@ public interface Cache {
    */
   boolean isCached(String key, long position, long length);
 
+  /**
+   * Returns whether the file of a cached {@link CacheSpan} still holds the span's data.
+   *
+   * <p>A cache that writes new data into the file of a removed span returns false once the span
+   * has been removed, and data read from the file after that may belong to another span. The
+   * default implementation returns true, for caches that never write into the file of a removed
+   * span.
+   *
+   * <p>This method may be called on every read from a cached span, so it should be fast.
+   *
+   * @param span A cached {@link CacheSpan} obtained from this cache.
+   * @return Whether the span's file still holds the span's data.
+   */
+  default boolean isSpanValid(CacheSpan span) {
+    return true;
+  }
+
   /**
    * Returns the length of continuously cached data starting from {@code position}, up to a maximum
    * of {@code maxLength}, of a resource. If {@code position} isn't cached then {@code -holeLength}
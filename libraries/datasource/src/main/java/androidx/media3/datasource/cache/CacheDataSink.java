@@ -15,6 +15,7 @@
  */
 package androidx.media3.datasource.cache;
 
+import static androidx.media3.common.util.Assertions.checkArgument;
 import static androidx.media3.common.util.Assertions.checkNotNull;
 import static androidx.media3.common.util.Util.castNonNull;
 import static java.lang.Math.min;
@@ -30,9 +31,11 @@ import androidx.media3.datasource.DataSpec;
 import androidx.media3.datasource.cache.Cache.CacheException;
 import com.google.errorprone.annotations.CanIgnoreReturnValue;
 import java.io.File;
-import java.io.FileOutputStream;
 import java.io.IOException;
 import java.io.OutputStream;
+import java.io.RandomAccessFile;
+import java.nio.channels.Channels;
+import java.util.concurrent.Executor;
 import org.checkerframework.checker.nullness.qual.MonotonicNonNull;
 
 /**
@@ -51,6 +54,8 @@ public final class CacheDataSink implements DataSink {
     private @MonotonicNonNull Cache cache;
     private long fragmentSize;
     private int bufferSize;
+    @Nullable private Executor writeBehindExecutor;
+    private int writeBehindBufferSize;
 
     /** Creates an instance. */
     public Factory() {
@@ -106,9 +111,41 @@ public final class CacheDataSink implements DataSink {
       return this;
     }
 
+    /**
+     * Sets an {@link Executor} on which data is written to the cache, so that slow cache writes
+     * don't block the thread reading the data.
+     *
+     * <p>Data is buffered in memory until it's written. If the writer falls behind and the buffer
+     * is full, the rest of the data for the current {@link DataSpec} isn't cached, leaving the
+     * cached span incomplete. Errors writing to the cache are logged rather than thrown.
+     *
+     * <p>Closing the sink doesn't wait for the data to be written. A {@link CacheDataSource} using
+     * the sink keeps its lock on the cache hole until the data has been written and committed on
+     * the executor. Other users of the sink mustn't assume that the data has been committed when
+     * closing the sink returns.
+     *
+     * <p>The default is null, in which case data is written to the cache on the calling thread.
+     *
+     * @param executor The {@link Executor} on which data is written, or null to write data on the
+     *     calling thread.
+     * @param bufferSize The maximum number of bytes waiting to be written to the cache. Must be
+     *     positive if {@code executor} is non-null.
+     * @return This factory.
+     */
+    @CanIgnoreReturnValue
+    public Factory setWriteBehind(@Nullable Executor executor, int bufferSize) {
+      checkArgument(executor == null || bufferSize > 0);
+      this.writeBehindExecutor = executor;
+      this.writeBehindBufferSize = bufferSize;
+      return this;
+    }
+
     @Override
     public DataSink createDataSink() {
-      return new CacheDataSink(checkNotNull(cache), fragmentSize, bufferSize);
+      DataSink sink = new CacheDataSink(checkNotNull(cache), fragmentSize, bufferSize);
+      return writeBehindExecutor == null
+          ? sink
+          : new WriteBehindDataSink(sink, writeBehindExecutor, writeBehindBufferSize);
     }
   }
 
@@ -245,7 +282,10 @@ public final class CacheDataSink implements DataSink {
     file =
         cache.startFile(
             castNonNull(dataSpec.key), dataSpec.position + dataSpecBytesWritten, length);
-    FileOutputStream underlyingFileOutputStream = new FileOutputStream(file);
+    // Don't truncate the file, so that a cache can write into the allocated space of the file of a
+    // removed span. Only the committed length of the file is read.
+    OutputStream underlyingFileOutputStream =
+        Channels.newOutputStream(new RandomAccessFile(file, "rw").getChannel());
     if (bufferSize > 0) {
       if (bufferedOutputStream == null) {
         bufferedOutputStream =
@@ -49,6 +49,7 @@ import java.lang.annotation.Documented;
 import java.lang.annotation.Retention;
 import java.lang.annotation.RetentionPolicy;
 import java.lang.annotation.Target;
+import java.nio.ByteBuffer;
 import java.util.Collections;
 import java.util.List;
 import java.util.Map;
@@ -108,7 +109,9 @@ public final class CacheDataSource implements DataSource {
      * Sets the {@link DataSource.Factory} for {@link DataSource DataSources} for reading from the
      * cache.
      *
-     * <p>The default is a {@link FileDataSource.Factory} in its default configuration.
+     * <p>The default is a {@link FileDataSource.Factory} in its default configuration. Pass a
+     * {@link FileDataSource.Factory} with {@linkplain FileDataSource.Factory#setUseMemoryMapping
+     * memory mapping} enabled to serve cached reads from memory-mapped cache files.
      *
      * @param cacheReadDataSourceFactory The {@link DataSource.Factory} for reading from the cache.
      * @return This factory.
@@ -405,6 +408,7 @@ public final class CacheDataSource implements DataSource {
   private final Cache cache;
   private final DataSource cacheReadDataSource;
   @Nullable private final DataSource cacheWriteDataSource;
+  @Nullable private final WriteBehindDataSink writeBehindDataSink;
   private final DataSource upstreamDataSource;
   private final CacheKeyFactory cacheKeyFactory;
   @Nullable private final EventListener eventListener;
@@ -421,10 +425,12 @@ public final class CacheDataSource implements DataSource {
   private long readPosition;
   private long bytesRemaining;
   @Nullable private CacheSpan currentHoleSpan;
+  @Nullable private CacheSpan currentCachedSpan;
   private boolean seenCacheError;
   private boolean currentRequestIgnoresCache;
   private long totalCachedBytesRead;
   private long checkCachePosition;
+  @Nullable private byte[] scratchBuffer;
 
   /**
    * Constructs an instance with default {@link DataSource} and {@link DataSink} instances for
@@ -558,6 +564,10 @@ public final class CacheDataSource implements DataSource {
       this.upstreamDataSource = PlaceholderDataSource.INSTANCE;
       this.cacheWriteDataSource = null;
     }
+    this.writeBehindDataSink =
+        this.cacheWriteDataSource != null && cacheWriteDataSink instanceof WriteBehindDataSink
+            ? (WriteBehindDataSink) cacheWriteDataSink
+            : null;
     this.eventListener = eventListener;
   }
 
@@ -623,6 +633,30 @@ public final class CacheDataSource implements DataSource {
 
   @Override
   public int read(byte[] buffer, int offset, int length) throws IOException {
+    return readInternal(buffer, offset, /* target= */ null, length);
+  }
+
+  /**
+   * Reads up to {@code length} bytes of data into {@code target}, starting at its current position.
+   *
+   * <p>Behaves like {@link #read(byte[], int, int)}, except that the data is written to a {@link
+   * ByteBuffer}. Data read from the cache through a {@link FileDataSource} is written to {@code
+   * target} directly, which avoids any intermediate copy if the {@link FileDataSource} is
+   * memory-mapped. Data from other sources is staged through an array.
+   *
+   * @param target The buffer into which data should be written. Its position is advanced by the
+   *     number of bytes read. Must have at least {@code length} bytes remaining.
+   * @param length The maximum number of bytes to read.
+   * @return The number of bytes read, or {@link C#RESULT_END_OF_INPUT} if the input has ended.
+   * @throws IOException If an error occurs reading from the source.
+   */
+  public int read(ByteBuffer target, int length) throws IOException {
+    return readInternal(/* buffer= */ null, /* offset= */ 0, target, length);
+  }
+
+  private int readInternal(
+      @Nullable byte[] buffer, int offset, @Nullable ByteBuffer target, int length)
+      throws IOException {
     if (length == 0) {
       return 0;
     }
@@ -635,7 +669,21 @@ public final class CacheDataSource implements DataSource {
       if (readPosition >= checkCachePosition) {
         openNextSource(requestDataSpec, true);
       }
-      int bytesRead = checkNotNull(currentDataSource).read(buffer, offset, length);
+      int targetPosition = target != null ? target.position() : 0;
+      int bytesRead =
+          target != null
+              ? readFromCurrentDataSource(target, length)
+              : checkNotNull(currentDataSource).read(castNonNull(buffer), offset, length);
+      if (bytesRead > 0 && currentCachedSpan != null && !cache.isSpanValid(currentCachedSpan)) {
+        // The cache has written other data into the file of the span, so the data that was just
+        // read may not belong to it. Discard the data and read from the next source instead.
+        if (target != null) {
+          target.position(targetPosition);
+        }
+        closeCurrentSource();
+        openNextSource(requestDataSpec, false);
+        return readInternal(buffer, offset, target, length);
+      }
       if (bytesRead != C.RESULT_END_OF_INPUT) {
         if (isReadingFromCache()) {
           totalCachedBytesRead += bytesRead;
@@ -655,7 +703,7 @@ public final class CacheDataSource implements DataSource {
       } else if (bytesRemaining > 0 || bytesRemaining == C.LENGTH_UNSET) {
         closeCurrentSource();
         openNextSource(requestDataSpec, false);
-        return read(buffer, offset, length);
+        return readInternal(buffer, offset, target, length);
       }
       return bytesRead;
     } catch (Throwable e) {
@@ -664,6 +712,23 @@ public final class CacheDataSource implements DataSource {
     }
   }
 
+  private int readFromCurrentDataSource(ByteBuffer target, int length) throws IOException {
+    DataSource currentDataSource = checkNotNull(this.currentDataSource);
+    if (currentDataSource instanceof FileDataSource) {
+      return ((FileDataSource) currentDataSource).read(target, length);
+    }
+    byte[] scratchBuffer = this.scratchBuffer;
+    if (scratchBuffer == null || scratchBuffer.length < length) {
+      scratchBuffer = new byte[length];
+      this.scratchBuffer = scratchBuffer;
+    }
+    int bytesRead = currentDataSource.read(scratchBuffer, /* offset= */ 0, length);
+    if (bytesRead > 0) {
+      target.put(scratchBuffer, /* offset= */ 0, bytesRead);
+    }
+    return bytesRead;
+  }
+
   @Override
   @Nullable
   public Uri getUri() {
@@ -795,6 +860,8 @@ public final class CacheDataSource implements DataSource {
 
     if (nextSpan != null && nextSpan.isHoleSpan()) {
       currentHoleSpan = nextSpan;
+    } else if (nextSpan != null && nextSpan.isCached) {
+      currentCachedSpan = nextSpan;
     }
     currentDataSource = nextDataSource;
     currentDataSpec = nextDataSpec;
@@ -856,9 +923,16 @@ public final class CacheDataSource implements DataSource {
     } finally {
       currentDataSpec = null;
       currentDataSource = null;
+      currentCachedSpan = null;
       if (currentHoleSpan != null) {
-        cache.releaseHoleSpan(currentHoleSpan);
+        CacheSpan holeSpan = currentHoleSpan;
         currentHoleSpan = null;
+        if (writeBehindDataSink != null) {
+          // The sink may still be writing into the hole, so only release it once that's done.
+          writeBehindDataSink.runAfterClose(() -> cache.releaseHoleSpan(holeSpan));
+        } else {
+          cache.releaseHoleSpan(holeSpan);
+        }
       }
     }
   }
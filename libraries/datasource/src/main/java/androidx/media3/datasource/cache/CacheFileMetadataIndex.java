@@ -21,8 +21,10 @@ import android.content.ContentValues;
 import android.database.Cursor;
 import android.database.SQLException;
 import android.database.sqlite.SQLiteDatabase;
+import androidx.annotation.Nullable;
 import androidx.annotation.WorkerThread;
 import androidx.media3.common.util.Assertions;
+import androidx.media3.common.util.NullableType;
 import androidx.media3.database.DatabaseIOException;
 import androidx.media3.database.DatabaseProvider;
 import androidx.media3.database.VersionTable;
@@ -232,6 +234,45 @@ import org.checkerframework.checker.nullness.qual.MonotonicNonNull;
     }
   }
 
+  /**
+   * Sets or removes metadata for a number of files in a single transaction.
+   *
+   * <p>This method may be slow and shouldn't normally be called on the main thread.
+   *
+   * @param updates The new metadata keyed by file name, or {@code null} values for files whose
+   *     metadata is to be removed.
+   * @throws DatabaseIOException If an error occurs updating the metadata.
+   */
+  @WorkerThread
+  public void update(Map<String, @NullableType CacheFileMetadata> updates)
+      throws DatabaseIOException {
+    Assertions.checkNotNull(tableName);
+    try {
+      SQLiteDatabase writableDatabase = databaseProvider.getWritableDatabase();
+      writableDatabase.beginTransactionNonExclusive();
+      try {
+        for (Map.Entry<String, @NullableType CacheFileMetadata> update : updates.entrySet()) {
+          String name = update.getKey();
+          @Nullable CacheFileMetadata metadata = update.getValue();
+          if (metadata == null) {
+            writableDatabase.delete(tableName, WHERE_NAME_EQUALS, new String[] {name});
+          } else {
+            ContentValues values = new ContentValues();
+            values.put(COLUMN_NAME, name);
+            values.put(COLUMN_LENGTH, metadata.length);
+            values.put(COLUMN_LAST_TOUCH_TIMESTAMP, metadata.lastTouchTimestamp);
+            writableDatabase.replaceOrThrow(tableName, /* nullColumnHack= */ null, values);
+          }
+        }
+        writableDatabase.setTransactionSuccessful();
+      } finally {
+        writableDatabase.endTransaction();
+      }
+    } catch (SQLException e) {
+      throw new DatabaseIOException(e);
+    }
+  }
+
   private Cursor getCursor() {
     Assertions.checkNotNull(tableName);
     return databaseProvider
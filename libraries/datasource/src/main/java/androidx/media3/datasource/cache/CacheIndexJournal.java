@@ -0,0 +1,129 @@
+/*
+ * Copyright 2026 The Android Open Source Project
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package androidx.media3.datasource.cache;
+
+import androidx.annotation.Nullable;
+import androidx.annotation.WorkerThread;
+import androidx.media3.common.util.Log;
+import androidx.media3.common.util.Util;
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.EOFException;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+
+/**
+ * An append-only journal of {@link CachedContent} updates that have not yet been written to the
+ * {@link CachedContentIndex} storage.
+ *
+ * <p>When index writes are deferred, a committed span refers to a content id that may only exist in
+ * memory. The journal records the id, key and metadata of such content before the commit returns,
+ * so that the span can still be resolved if the process dies before the deferred write. Records
+ * are flushed to the file system but not synced, which matches the durability of the span files.
+ */
+/* package */ final class CacheIndexJournal {
+
+  /* package */ static final String FILE_NAME = CachedContentIndex.FILE_NAME_ATOMIC + ".journal";
+
+  private static final String TAG = "CacheIndexJournal";
+
+  private static final int VERSION = 1;
+
+  private final File file;
+
+  @Nullable private DataOutputStream output;
+
+  /**
+   * @param cacheDir The directory in which the journal file is stored.
+   */
+  public CacheIndexJournal(File cacheDir) {
+    file = new File(cacheDir, FILE_NAME);
+  }
+
+  /**
+   * Appends the current state of {@code cachedContent} to the journal.
+   *
+   * @param cachedContent The content to record.
+   * @throws IOException If an error occurs writing to the journal.
+   */
+  @WorkerThread
+  public void append(CachedContent cachedContent) throws IOException {
+    DataOutputStream output = this.output;
+    if (output == null) {
+      boolean isNewFile = !file.exists() || file.length() == 0;
+      output =
+          new DataOutputStream(
+              new BufferedOutputStream(new FileOutputStream(file, /* append= */ true)));
+      if (isNewFile) {
+        output.writeInt(VERSION);
+      }
+      this.output = output;
+    }
+    output.writeInt(cachedContent.id);
+    output.writeUTF(cachedContent.key);
+    CachedContentIndex.writeContentMetadata(cachedContent.getMetadata(), output);
+    output.flush();
+  }
+
+  /**
+   * Restores all content recorded in the journal into {@code contentIndex}. A record that was only
+   * partially written, for example because the process died while appending it, ends the replay.
+   *
+   * @param contentIndex The index into which content is restored.
+   * @return The number of restored records.
+   */
+  @WorkerThread
+  public int replay(CachedContentIndex contentIndex) {
+    if (!file.exists()) {
+      return 0;
+    }
+    int recordCount = 0;
+    @Nullable DataInputStream input = null;
+    try {
+      input = new DataInputStream(new BufferedInputStream(new FileInputStream(file)));
+      if (input.readInt() != VERSION) {
+        Log.w(TAG, "Ignoring journal with unsupported version");
+        return 0;
+      }
+      while (true) {
+        int id = input.readInt();
+        String key = input.readUTF();
+        DefaultContentMetadata metadata = CachedContentIndex.readContentMetadata(input);
+        contentIndex.restore(id, key, metadata);
+        recordCount++;
+      }
+    } catch (EOFException e) {
+      // End of the journal, or a partially written last record.
+    } catch (IOException e) {
+      Log.w(TAG, "Failed to read journal", e);
+    } finally {
+      Util.closeQuietly(input);
+    }
+    return recordCount;
+  }
+
+  /** Deletes the journal. Called once all recorded content has been written to the index. */
+  @WorkerThread
+  public void clear() {
+    Util.closeQuietly(output);
+    output = null;
+    file.delete();
+  }
+}
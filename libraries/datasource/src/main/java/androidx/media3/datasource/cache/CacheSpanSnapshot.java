@@ -0,0 +1,144 @@
+/*
+ * Copyright 2026 The Android Open Source Project
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package androidx.media3.datasource.cache;
+
+import static androidx.media3.common.util.Assertions.checkNotNull;
+
+import androidx.annotation.Nullable;
+import androidx.annotation.WorkerThread;
+import androidx.media3.common.util.AtomicFile;
+import androidx.media3.common.util.Log;
+import androidx.media3.common.util.Util;
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+
+/**
+ * A snapshot of the cached spans of a {@link SimpleCache}, used to initialize the cache without
+ * listing the cache directories and querying the length of every cache file.
+ *
+ * <p>The snapshot records the relative path, length and last touch timestamp of every span. It may
+ * be stale: files written after the snapshot are missing from it, and files deleted after the
+ * snapshot are still listed. {@link SimpleCache} reconciles the spans with the file system in the
+ * background after initialization.
+ */
+/* package */ final class CacheSpanSnapshot {
+
+  /* package */ static final String FILE_NAME = CachedContentIndex.FILE_NAME_ATOMIC + ".spans";
+
+  private static final String TAG = "CacheSpanSnapshot";
+
+  private static final int VERSION = 1;
+
+  private final File cacheDir;
+  private final AtomicFile atomicFile;
+
+  /**
+   * @param cacheDir The cache directory, in which the snapshot file is stored.
+   */
+  public CacheSpanSnapshot(File cacheDir) {
+    this.cacheDir = cacheDir;
+    atomicFile = new AtomicFile(new File(cacheDir, FILE_NAME));
+  }
+
+  /**
+   * Writes the spans of {@code contents} to the snapshot.
+   *
+   * @param uid The cache UID.
+   * @param contents The cached content.
+   * @throws IOException If an error occurs writing the snapshot.
+   */
+  @WorkerThread
+  public void store(long uid, Collection<CachedContent> contents) throws IOException {
+    int spanCount = 0;
+    for (CachedContent cachedContent : contents) {
+      spanCount += cachedContent.getSpans().size();
+    }
+    @Nullable DataOutputStream output = null;
+    try {
+      output = new DataOutputStream(new BufferedOutputStream(atomicFile.startWrite()));
+      output.writeInt(VERSION);
+      output.writeLong(uid);
+      output.writeInt(spanCount);
+      for (CachedContent cachedContent : contents) {
+        for (SimpleCacheSpan span : cachedContent.getSpans()) {
+          output.writeUTF(getRelativePath(checkNotNull(span.file)));
+          output.writeLong(span.length);
+          output.writeLong(span.lastTouchTimestamp);
+        }
+      }
+      atomicFile.endWrite(output);
+      output = null;
+    } finally {
+      Util.closeQuietly(output);
+    }
+  }
+
+  /**
+   * Reads the spans recorded in the snapshot. Files aren't accessed, so the spans may refer to
+   * files that no longer exist.
+   *
+   * @param uid The cache UID.
+   * @param contentIndex The index used to resolve the content of each span.
+   * @return The spans, or null if there's no valid snapshot for {@code uid}.
+   */
+  @WorkerThread
+  @Nullable
+  public List<SimpleCacheSpan> load(long uid, CachedContentIndex contentIndex) {
+    if (!atomicFile.exists()) {
+      return null;
+    }
+    @Nullable DataInputStream input = null;
+    try {
+      input = new DataInputStream(new BufferedInputStream(atomicFile.openRead()));
+      if (input.readInt() != VERSION || input.readLong() != uid) {
+        return null;
+      }
+      int spanCount = input.readInt();
+      List<SimpleCacheSpan> spans = new ArrayList<>();
+      for (int i = 0; i < spanCount; i++) {
+        File file = new File(cacheDir, input.readUTF());
+        long length = input.readLong();
+        long lastTouchTimestamp = input.readLong();
+        @Nullable
+        SimpleCacheSpan span =
+            SimpleCacheSpan.createCacheEntry(file, length, lastTouchTimestamp, contentIndex);
+        if (span != null) {
+          spans.add(span);
+        }
+      }
+      return input.read() == -1 ? spans : null;
+    } catch (IOException e) {
+      Log.w(TAG, "Failed to read snapshot", e);
+      return null;
+    } finally {
+      Util.closeQuietly(input);
+    }
+  }
+
+  private String getRelativePath(File file) {
+    @Nullable File parent = file.getParentFile();
+    return parent == null || parent.equals(cacheDir)
+        ? file.getName()
+        : parent.getName() + File.separator + file.getName();
+  }
+}
@@ -336,6 +336,26 @@ import org.checkerframework.checker.nullness.qual.MonotonicNonNull;
     return cachedContent != null ? cachedContent.getMetadata() : DefaultContentMetadata.EMPTY;
   }
 
+  /**
+   * Restores a resource recorded by a {@link CacheIndexJournal}. Must be called before any spans
+   * are added to the index. The resource is ignored if its key or id is already used by a
+   * different resource.
+   *
+   * @param id The cache id of the resource.
+   * @param key The cache key of the resource.
+   * @param metadata The metadata of the resource.
+   */
+  public void restore(int id, String key, DefaultContentMetadata metadata) {
+    @Nullable CachedContent existingContent = keyToContent.get(key);
+    if (existingContent != null ? existingContent.id != id : idToKey.get(id) != null) {
+      return;
+    }
+    CachedContent cachedContent = new CachedContent(id, key, metadata);
+    keyToContent.put(key, cachedContent);
+    idToKey.put(id, key);
+    storage.onUpdate(cachedContent);
+  }
+
   private CachedContent addNew(String key) {
     int id = getNewId(idToKey);
     CachedContent cachedContent = new CachedContent(id, key);
@@ -373,7 +393,7 @@ import org.checkerframework.checker.nullness.qual.MonotonicNonNull;
    * @return a {@link DefaultContentMetadata} instance.
    * @throws IOException If an error occurs during reading from the input.
    */
-  private static DefaultContentMetadata readContentMetadata(DataInputStream input)
+  /* package */ static DefaultContentMetadata readContentMetadata(DataInputStream input)
       throws IOException {
     int size = input.readInt();
     HashMap<String, byte[]> metadata = new HashMap<>();
@@ -406,8 +426,8 @@ import org.checkerframework.checker.nullness.qual.MonotonicNonNull;
    * @param output Output stream to store the values.
    * @throws IOException If an error occurs writing to the output.
    */
-  private static void writeContentMetadata(DefaultContentMetadata metadata, DataOutputStream output)
-      throws IOException {
+  /* package */ static void writeContentMetadata(
+      DefaultContentMetadata metadata, DataOutputStream output) throws IOException {
     Set<Map.Entry<String, byte[]>> entrySet = metadata.entrySet();
     output.writeInt(entrySet.size());
     for (Map.Entry<String, byte[]> entry : entrySet) {
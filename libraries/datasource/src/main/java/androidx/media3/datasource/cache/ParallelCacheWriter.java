@@ -0,0 +1,366 @@
+/*
+ * Copyright 2026 The Android Open Source Project
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package androidx.media3.datasource.cache;
+
+import static androidx.media3.common.util.Assertions.checkArgument;
+import static androidx.media3.common.util.Assertions.checkNotNull;
+import static java.lang.Math.min;
+
+import androidx.annotation.Nullable;
+import androidx.annotation.WorkerThread;
+import androidx.media3.common.C;
+import androidx.media3.common.PriorityTaskManager;
+import androidx.media3.common.PriorityTaskManager.PriorityTooLowException;
+import androidx.media3.common.util.UnstableApi;
+import androidx.media3.common.util.Util;
+import androidx.media3.datasource.DataSourceUtil;
+import androidx.media3.datasource.DataSpec;
+import java.io.IOException;
+import java.io.InterruptedIOException;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CompletionService;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ExecutorCompletionService;
+import java.util.concurrent.Future;
+
+/**
+ * Caches data like {@link CacheWriter}, but splits the uncached ranges into chunks that are
+ * requested in parallel.
+ *
+ * <p>Each chunk is requested with its own {@link CacheDataSource} using a bounded range request,
+ * and is committed to the cache as independent spans. This can significantly speed up caching of
+ * large resources from servers that throttle each connection.
+ *
+ * <p>The chunks can only be determined once the length of the resource is known. If neither the
+ * {@link DataSpec} nor the cache specify it, the start of the resource is first cached with a
+ * single unbounded request, from which the length is resolved. If the length is still unknown,
+ * the rest of the resource is cached sequentially.
+ */
+@UnstableApi
+public final class ParallelCacheWriter {
+
+  /** Default maximum number of chunks requested in parallel. */
+  public static final int DEFAULT_MAX_PARALLEL_REQUESTS = 4;
+
+  /** Default chunk size in bytes. */
+  public static final long DEFAULT_CHUNK_SIZE = 8 * 1024 * 1024;
+
+  private final CacheDataSource.Factory cacheDataSourceFactory;
+  private final Cache cache;
+  private final DataSpec dataSpec;
+  private final String cacheKey;
+  private final Executor executor;
+  private final int maxParallelRequests;
+  private final long chunkSize;
+  @Nullable private final CacheWriter.ProgressListener progressListener;
+  private final ArrayDeque<CacheDataSource> idleDataSources;
+  private final List<ChunkWriter> activeChunkWriters;
+
+  private long length;
+  private long bytesCached;
+
+  private volatile boolean isCanceled;
+
+  /**
+   * @param cacheDataSourceFactory A {@link CacheDataSource.Factory} for the cache into which data
+   *     will be written. {@link CacheDataSource.Factory#createDataSourceForDownloading()} is called
+   *     to create a {@link CacheDataSource} for each chunk being requested in parallel.
+   * @param dataSpec Defines the data to be written.
+   * @param executor The {@link Executor} on which chunks are requested. Should use at least {@code
+   *     maxParallelRequests} threads for the chunks to be requested in parallel.
+   * @param maxParallelRequests The maximum number of chunks requested in parallel.
+   * @param chunkSize The maximum size of a chunk in bytes. Values under the cache file fragment
+   *     size are not recommended.
+   * @param progressListener An optional progress listener. May be called on the thread calling
+   *     {@link #cache} or on the threads of {@code executor}, but never concurrently.
+   */
+  public ParallelCacheWriter(
+      CacheDataSource.Factory cacheDataSourceFactory,
+      DataSpec dataSpec,
+      Executor executor,
+      int maxParallelRequests,
+      long chunkSize,
+      @Nullable CacheWriter.ProgressListener progressListener) {
+    checkArgument(maxParallelRequests > 0);
+    checkArgument(chunkSize > 0);
+    this.cacheDataSourceFactory = cacheDataSourceFactory;
+    this.cache = checkNotNull(cacheDataSourceFactory.getCache());
+    this.dataSpec = dataSpec;
+    this.executor = executor;
+    this.maxParallelRequests = maxParallelRequests;
+    this.chunkSize = chunkSize;
+    this.progressListener = progressListener;
+    cacheKey = cacheDataSourceFactory.getCacheKeyFactory().buildCacheKey(dataSpec);
+    idleDataSources = new ArrayDeque<>();
+    activeChunkWriters = new ArrayList<>();
+  }
+
+  /**
+   * Cancels this writer's caching operation. {@link #cache} checks for cancelation frequently
+   * during execution, and throws an {@link InterruptedIOException} if it sees that the caching
+   * operation has been canceled.
+   */
+  public void cancel() {
+    isCanceled = true;
+    cancelActiveChunkWriters();
+  }
+
+  /**
+   * Caches the requested data, skipping any that's already cached.
+   *
+   * <p>If the {@link CacheDataSource.Factory} used by the writer has a {@link
+   * PriorityTaskManager}, then it's the responsibility of the caller to call {@link
+   * PriorityTaskManager#add} to register with the manager before calling this method, and to call
+   * {@link PriorityTaskManager#remove} afterwards to unregister. {@link PriorityTooLowException}
+   * will be thrown if the priority required by the {@link CacheDataSource} is not high enough for
+   * progress to be made.
+   *
+   * <p>This method blocks until all of the chunks have been requested, and shouldn't be called on
+   * a thread of the executor if the executor can't run the chunks on other threads.
+   *
+   * @throws IOException If an error occurs reading the data, or writing the data into the cache, or
+   *     if the operation is canceled. If canceled, an {@link InterruptedIOException} is thrown. The
+   *     method may be called again to continue the operation from where the error occurred.
+   */
+  @WorkerThread
+  public void cache() throws IOException {
+    throwIfCanceled();
+    long endPosition = resolveEndPosition();
+    if (endPosition == C.INDEX_UNSET) {
+      // The chunks can't be determined, so fall back to caching sequentially.
+      ChunkWriter chunkWriter = new ChunkWriter(dataSpec, progressListener);
+      addActiveChunkWriter(chunkWriter);
+      try {
+        chunkWriter.call();
+      } finally {
+        removeActiveChunkWriter(chunkWriter);
+        idleDataSources.addFirst(chunkWriter.dataSource);
+      }
+      return;
+    }
+
+    length = endPosition - dataSpec.position;
+    bytesCached = cache.getCachedBytes(cacheKey, dataSpec.position, length);
+    if (progressListener != null) {
+      progressListener.onProgress(length, bytesCached, /* newBytesCached= */ 0);
+    }
+    ArrayDeque<DataSpec> pendingChunks = getUncachedChunks(endPosition);
+    CompletionService<ChunkWriter> completionService = new ExecutorCompletionService<>(executor);
+    @Nullable IOException exception = null;
+    boolean wasInterrupted = false;
+    int activeChunkCount = 0;
+    while (activeChunkCount > 0 || (exception == null && !pendingChunks.isEmpty())) {
+      if (exception == null && isCanceled) {
+        exception = new InterruptedIOException();
+      }
+      if (exception == null
+          && !pendingChunks.isEmpty()
+          && activeChunkCount < maxParallelRequests) {
+        ChunkWriter chunkWriter =
+            new ChunkWriter(
+                pendingChunks.removeFirst(),
+                (requestLength, chunkBytesCached, newBytesCached) ->
+                    onChunkProgress(newBytesCached));
+        addActiveChunkWriter(chunkWriter);
+        completionService.submit(chunkWriter);
+        activeChunkCount++;
+        continue;
+      }
+      Future<ChunkWriter> finishedChunk;
+      try {
+        finishedChunk = completionService.take();
+      } catch (InterruptedException e) {
+        // Stop starting chunks, but wait for the active chunks to finish.
+        wasInterrupted = true;
+        if (exception == null) {
+          exception = new InterruptedIOException();
+          cancelActiveChunkWriters();
+        }
+        continue;
+      }
+      activeChunkCount--;
+      try {
+        ChunkWriter chunkWriter = finishedChunk.get();
+        removeActiveChunkWriter(chunkWriter);
+        idleDataSources.addLast(chunkWriter.dataSource);
+      } catch (ExecutionException e) {
+        Throwable cause = checkNotNull(e.getCause());
+        if (!(cause instanceof IOException)) {
+          // The cause must be an uncaught Throwable type.
+          Util.sneakyThrow(cause);
+        }
+        if (exception == null) {
+          exception = (IOException) cause;
+          // Cancel the other chunks, but wait for them to finish before throwing.
+          cancelActiveChunkWriters();
+        }
+      } catch (InterruptedException e) {
+        // Not thrown, since the future is done.
+        wasInterrupted = true;
+      }
+    }
+    synchronized (activeChunkWriters) {
+      activeChunkWriters.clear();
+    }
+    if (wasInterrupted) {
+      Thread.currentThread().interrupt();
+    }
+    if (exception != null) {
+      throw exception;
+    }
+  }
+
+  /**
+   * Returns the end position of the data to be written, or {@link C#INDEX_UNSET} if it can't be
+   * resolved. Caches the first chunk with an unbounded request if necessary to resolve it.
+   */
+  private long resolveEndPosition() throws IOException {
+    if (dataSpec.length != C.LENGTH_UNSET) {
+      return dataSpec.position + dataSpec.length;
+    }
+    long contentLength = getContentLength();
+    if (contentLength != C.LENGTH_UNSET) {
+      return contentLength;
+    }
+    // CacheDataSource stores the content length when an unbounded request to upstream resolves it.
+    CacheDataSource dataSource = getIdleDataSource();
+    byte[] buffer = new byte[CacheWriter.DEFAULT_BUFFER_SIZE_BYTES];
+    long bytesRead = 0;
+    try {
+      dataSource.open(dataSpec);
+      while (bytesRead < chunkSize && getContentLength() == C.LENGTH_UNSET) {
+        throwIfCanceled();
+        int readLength = dataSource.read(buffer, /* offset= */ 0, buffer.length);
+        if (readLength == C.RESULT_END_OF_INPUT) {
+          break;
+        }
+        bytesRead += readLength;
+      }
+    } catch (IOException e) {
+      DataSourceUtil.closeQuietly(dataSource);
+      throw e;
+    }
+    // Util.closeQuietly(dataSource) is not used here because it's important that an exception is
+    // thrown if DataSource.close fails. This is because there's no way of knowing whether the data
+    // was successfully cached in this case.
+    dataSource.close();
+    contentLength = getContentLength();
+    return contentLength == C.LENGTH_UNSET ? C.INDEX_UNSET : contentLength;
+  }
+
+  private long getContentLength() {
+    return ContentMetadata.getContentLength(cache.getContentMetadata(cacheKey));
+  }
+
+  private ArrayDeque<DataSpec> getUncachedChunks(long endPosition) {
+    ArrayDeque<DataSpec> chunks = new ArrayDeque<>();
+    long position = dataSpec.position;
+    while (position < endPosition) {
+      long blockLength = cache.getCachedLength(cacheKey, position, endPosition - position);
+      if (blockLength > 0) {
+        position += blockLength;
+        continue;
+      }
+      // There's a hole of length -blockLength.
+      long holeEndPosition = position - blockLength;
+      while (position < holeEndPosition) {
+        long chunkLength = min(chunkSize, holeEndPosition - position);
+        chunks.addLast(
+            dataSpec.buildUpon().setPosition(position).setLength(chunkLength).build());
+        position += chunkLength;
+      }
+    }
+    return chunks;
+  }
+
+  /**
+   * Returns the first idle {@link CacheDataSource}, creating one if necessary. The data source
+   * remains in the idle queue.
+   */
+  private CacheDataSource getIdleDataSource() {
+    if (idleDataSources.isEmpty()) {
+      idleDataSources.addFirst(cacheDataSourceFactory.createDataSourceForDownloading());
+    }
+    return idleDataSources.getFirst();
+  }
+
+  private void cancelActiveChunkWriters() {
+    synchronized (activeChunkWriters) {
+      for (int i = 0; i < activeChunkWriters.size(); i++) {
+        activeChunkWriters.get(i).cacheWriter.cancel();
+      }
+    }
+  }
+
+  private void addActiveChunkWriter(ChunkWriter chunkWriter) {
+    synchronized (activeChunkWriters) {
+      activeChunkWriters.add(chunkWriter);
+      if (isCanceled) {
+        chunkWriter.cacheWriter.cancel();
+      }
+    }
+  }
+
+  private void removeActiveChunkWriter(ChunkWriter chunkWriter) {
+    synchronized (activeChunkWriters) {
+      activeChunkWriters.remove(chunkWriter);
+    }
+  }
+
+  private synchronized void onChunkProgress(long newBytesCached) {
+    if (newBytesCached == 0) {
+      // Progress updates for each chunk's own request length aren't forwarded.
+      return;
+    }
+    bytesCached += newBytesCached;
+    if (progressListener != null) {
+      progressListener.onProgress(length, bytesCached, newBytesCached);
+    }
+  }
+
+  private void throwIfCanceled() throws InterruptedIOException {
+    if (isCanceled) {
+      throw new InterruptedIOException();
+    }
+  }
+
+  private final class ChunkWriter implements Callable<ChunkWriter> {
+
+    public final CacheWriter cacheWriter;
+    public final CacheDataSource dataSource;
+
+    public ChunkWriter(
+        DataSpec chunkDataSpec, @Nullable CacheWriter.ProgressListener chunkProgressListener) {
+      dataSource =
+          idleDataSources.isEmpty()
+              ? cacheDataSourceFactory.createDataSourceForDownloading()
+              : idleDataSources.removeFirst();
+      cacheWriter =
+          new CacheWriter(
+              dataSource, chunkDataSpec, /* temporaryBuffer= */ null, chunkProgressListener);
+    }
+
+    @Override
+    public ChunkWriter call() throws IOException {
+      cacheWriter.cache();
+      return this;
+    }
+  }
+}
@@ -0,0 +1,770 @@
+/*
+ * Copyright 2026 The Android Open Source Project
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package androidx.media3.datasource.cache;
+
+import static androidx.media3.common.util.Assertions.checkArgument;
+import static androidx.media3.common.util.Assertions.checkNotNull;
+import static androidx.media3.common.util.Assertions.checkState;
+import static java.lang.Math.max;
+import static java.lang.Math.min;
+
+import android.os.ConditionVariable;
+import android.util.SparseArray;
+import androidx.annotation.Nullable;
+import androidx.media3.common.C;
+import androidx.media3.common.util.AtomicFile;
+import androidx.media3.common.util.Log;
+import androidx.media3.common.util.UnstableApi;
+import androidx.media3.common.util.Util;
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.security.SecureRandom;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.NavigableSet;
+import java.util.Set;
+import java.util.TreeSet;
+
+/**
+ * A {@link Cache} for a rolling live window, such as the time-shift buffer of a live channel, that
+ * stores spans in a fixed number of slot files that are reused in place.
+ *
+ * <p>Each span occupies one slot file. Slots are written in ring order, and starting a file in a
+ * slot that holds a span removes that span. The cache therefore keeps the most recently written
+ * {@code slotCount} spans, with no per-span file creation or deletion and no evictor. The size of
+ * the window in bytes is the slot count multiplied by the size of the files written into the cache,
+ * for example the fragment size of the {@link CacheDataSink}. Slot files are never truncated, so
+ * once they've been written, or preallocated with {@code slotFileLength}, new spans are written
+ * into space that the files already occupy.
+ *
+ * <p>The index is held in memory. It's persisted in a small checkpoint file once every {@code
+ * checkpointIntervalSlots} slot writes, when spans are removed explicitly, and when the cache is
+ * released. Each checkpoint records the slots that may be overwritten before the next checkpoint
+ * as empty, so a checkpoint never maps a slot to data that has since been replaced. If the process
+ * dies, up to {@code checkpointIntervalSlots} of the most recently written spans and the content
+ * metadata changes since the last checkpoint are lost.
+ *
+ * <p>A slot is reused when the ring wraps around regardless of whether its span is being read.
+ * {@link #isSpanValid(CacheSpan)} returns false for a span once its slot has been reused, and
+ * {@link CacheDataSource} then discards the data it read from the span's file and reads from
+ * upstream instead. Readers should still stay sufficiently far behind the live edge of the window
+ * to read from the cache. Spans aren't touched, and {@link CacheSpan#lastTouchTimestamp} is the
+ * time at which the span was committed.
+ */
+@UnstableApi
+public final class RingBufferCache implements Cache {
+
+  /** The default number of slot writes between checkpoints. */
+  public static final int DEFAULT_CHECKPOINT_INTERVAL_SLOTS = 16;
+
+  private static final String TAG = "RingBufferCache";
+
+  private static final String SLOT_FILE_SUFFIX = ".ring";
+  private static final String CHECKPOINT_FILE_NAME = "ring_checkpoint.exi";
+  private static final int CHECKPOINT_VERSION = 1;
+
+  private static final HashSet<File> lockedCacheDirs = new HashSet<>();
+
+  private final File cacheDir;
+  private final Slot[] slots;
+  private final int checkpointIntervalSlots;
+  private final long slotFileLength;
+  private final AtomicFile checkpointFile;
+  private final HashMap<String, CachedContent> contents;
+  private final HashMap<String, ArrayList<Listener>> listeners;
+
+  private long uid;
+  private long totalSpace;
+  private int nextContentId;
+  private int nextSlotIndex;
+  private int reservedSlotCount;
+  private boolean released;
+  @Nullable private CacheException initializationException;
+
+  /**
+   * Constructs the cache with a checkpoint every {@link #DEFAULT_CHECKPOINT_INTERVAL_SLOTS} slot
+   * writes. The cache will delete unrecognized slot files from the directory.
+   *
+   * @param cacheDir A dedicated cache directory.
+   * @param slotCount The number of slot files, which is the maximum number of cached spans.
+   */
+  public RingBufferCache(File cacheDir, int slotCount) {
+    this(cacheDir, slotCount, DEFAULT_CHECKPOINT_INTERVAL_SLOTS);
+  }
+
+  /**
+   * Constructs the cache. The cache will delete unrecognized slot files from the directory.
+   *
+   * <p>The slot files are created and the checkpoint is loaded on a background thread.
+   *
+   * @param cacheDir A dedicated cache directory.
+   * @param slotCount The number of slot files, which is the maximum number of cached spans.
+   * @param checkpointIntervalSlots The number of slot writes between checkpoints. Values larger
+   *     than {@code slotCount} are reduced to {@code slotCount}.
+   */
+  public RingBufferCache(File cacheDir, int slotCount, int checkpointIntervalSlots) {
+    this(cacheDir, slotCount, checkpointIntervalSlots, /* slotFileLength= */ C.LENGTH_UNSET);
+  }
+
+  /**
+   * Constructs the cache. The cache will delete unrecognized slot files from the directory.
+   *
+   * <p>The slot files are created and the checkpoint is loaded on a background thread.
+   *
+   * @param cacheDir A dedicated cache directory.
+   * @param slotCount The number of slot files, which is the maximum number of cached spans.
+   * @param checkpointIntervalSlots The number of slot writes between checkpoints. Values larger
+   *     than {@code slotCount} are reduced to {@code slotCount}.
+   * @param slotFileLength The length to which shorter slot files are extended when the cache is
+   *     initialized, for example the fragment size of the {@link CacheDataSink}, or {@link
+   *     C#LENGTH_UNSET} to let the slot files grow as spans are written into them.
+   */
+  public RingBufferCache(
+      File cacheDir, int slotCount, int checkpointIntervalSlots, long slotFileLength) {
+    checkArgument(slotCount > 0);
+    checkArgument(checkpointIntervalSlots > 0);
+    checkArgument(slotFileLength > 0 || slotFileLength == C.LENGTH_UNSET);
+    if (!lockFolder(cacheDir)) {
+      throw new IllegalStateException(
+          "Another RingBufferCache instance uses the folder: " + cacheDir);
+    }
+    this.cacheDir = cacheDir;
+    this.checkpointIntervalSlots = min(checkpointIntervalSlots, slotCount);
+    this.slotFileLength = slotFileLength;
+    slots = new Slot[slotCount];
+    for (int i = 0; i < slotCount; i++) {
+      slots[i] = new Slot(new File(cacheDir, i + SLOT_FILE_SUFFIX));
+    }
+    checkpointFile = new AtomicFile(new File(cacheDir, CHECKPOINT_FILE_NAME));
+    contents = new HashMap<>();
+    listeners = new HashMap<>();
+    uid = UID_UNSET;
+
+    ConditionVariable conditionVariable = new ConditionVariable();
+    new Thread("ExoPlayer:RingBufferCacheInit") {
+      @Override
+      public void run() {
+        synchronized (RingBufferCache.this) {
+          conditionVariable.open();
+          initialize();
+        }
+      }
+    }.start();
+    conditionVariable.block();
+  }
+
+  /** Returns the number of slot files. */
+  public int getSlotCount() {
+    return slots.length;
+  }
+
+  /**
+   * Checks whether the cache was initialized successfully.
+   *
+   * @throws CacheException If an error occurred during initialization.
+   */
+  public synchronized void checkInitialization() throws CacheException {
+    if (initializationException != null) {
+      throw initializationException;
+    }
+  }
+
+  @Override
+  public synchronized long getUid() {
+    return uid;
+  }
+
+  @Override
+  public synchronized void release() {
+    if (released) {
+      return;
+    }
+    listeners.clear();
+    try {
+      if (initializationException == null) {
+        writeCheckpoint();
+      }
+    } catch (IOException e) {
+      Log.e(TAG, "Storing checkpoint failed", e);
+    } finally {
+      unlockFolder(cacheDir);
+      released = true;
+    }
+  }
+
+  @Override
+  public synchronized NavigableSet<CacheSpan> addListener(String key, Listener listener) {
+    checkState(!released);
+    checkNotNull(key);
+    checkNotNull(listener);
+    ArrayList<Listener> listenersForKey = listeners.get(key);
+    if (listenersForKey == null) {
+      listenersForKey = new ArrayList<>();
+      listeners.put(key, listenersForKey);
+    }
+    listenersForKey.add(listener);
+    return getCachedSpans(key);
+  }
+
+  @Override
+  public synchronized void removeListener(String key, Listener listener) {
+    if (released) {
+      return;
+    }
+    ArrayList<Listener> listenersForKey = listeners.get(key);
+    if (listenersForKey != null) {
+      listenersForKey.remove(listener);
+      if (listenersForKey.isEmpty()) {
+        listeners.remove(key);
+      }
+    }
+  }
+
+  @Override
+  public synchronized NavigableSet<CacheSpan> getCachedSpans(String key) {
+    checkState(!released);
+    @Nullable CachedContent cachedContent = contents.get(key);
+    return cachedContent == null || cachedContent.isEmpty()
+        ? new TreeSet<>()
+        : new TreeSet<CacheSpan>(cachedContent.getSpans());
+  }
+
+  @Override
+  public synchronized Set<String> getKeys() {
+    checkState(!released);
+    return new HashSet<>(contents.keySet());
+  }
+
+  @Override
+  public synchronized long getCacheSpace() {
+    checkState(!released);
+    return totalSpace;
+  }
+
+  @Override
+  public synchronized CacheSpan startReadWrite(String key, long position, long length)
+      throws InterruptedException, CacheException {
+    checkState(!released);
+    checkInitialization();
+
+    while (true) {
+      @Nullable CacheSpan span = startReadWriteNonBlocking(key, position, length);
+      if (span != null) {
+        return span;
+      } else {
+        // Lock not available. We'll be woken up when a span is added, or when a locked span is
+        // released.
+        wait();
+      }
+    }
+  }
+
+  @Override
+  @Nullable
+  public synchronized CacheSpan startReadWriteNonBlocking(String key, long position, long length)
+      throws CacheException {
+    checkState(!released);
+    checkInitialization();
+
+    CachedContent cachedContent = getOrAddContent(key);
+    SimpleCacheSpan span = cachedContent.getSpan(position, length);
+    if (span.isCached) {
+      // Read case.
+      return span;
+    }
+    if (cachedContent.lockRange(position, span.length)) {
+      // Write case.
+      return span;
+    }
+    // Lock not available.
+    return null;
+  }
+
+  @Override
+  public synchronized File startFile(String key, long position, long length)
+      throws CacheException {
+    checkState(!released);
+    checkInitialization();
+
+    CachedContent cachedContent = checkNotNull(contents.get(key));
+    checkState(cachedContent.isFullyLocked(position, length));
+    if (!cacheDir.exists()) {
+      createCacheDirectories(cacheDir);
+    }
+
+    Slot slot = slots[nextSlotIndex];
+    if (slot.writeKey != null) {
+      throw new CacheException("Slot is still being written: " + slot.file);
+    }
+    if (reservedSlotCount == 0) {
+      // Persist the current index, recording the next slots to be written as empty, before any of
+      // them is overwritten.
+      reservedSlotCount = checkpointIntervalSlots;
+      try {
+        writeCheckpoint();
+      } catch (IOException e) {
+        reservedSlotCount = 0;
+        throw new CacheException(e);
+      }
+    }
+    if (slot.span != null) {
+      removeSlotSpan(slot);
+    }
+    slot.writeKey = key;
+    slot.writePosition = position;
+    nextSlotIndex = (nextSlotIndex + 1) % slots.length;
+    reservedSlotCount--;
+    return slot.file;
+  }
+
+  @Override
+  public synchronized void commitFile(File file, long length) throws CacheException {
+    checkState(!released);
+    int slotIndex = getSlotIndex(file);
+    if (slotIndex == C.INDEX_UNSET) {
+      throw new CacheException("File not in cache: " + file);
+    }
+    Slot slot = slots[slotIndex];
+    String key = checkNotNull(slot.writeKey);
+    slot.writeKey = null;
+    if (length == 0 || !file.exists()) {
+      return;
+    }
+
+    CachedContent cachedContent = checkNotNull(contents.get(key));
+    checkState(cachedContent.isFullyLocked(slot.writePosition, length));
+
+    // Check if the span conflicts with the set content length
+    long contentLength = ContentMetadata.getContentLength(cachedContent.getMetadata());
+    if (contentLength != C.LENGTH_UNSET) {
+      checkState((slot.writePosition + length) <= contentLength);
+    }
+
+    SimpleCacheSpan span =
+        SimpleCacheSpan.createCacheEntry(
+            key, slot.writePosition, length, System.currentTimeMillis(), slot.file);
+    slot.span = span;
+    cachedContent.addSpan(span);
+    totalSpace += length;
+    notifySpanAdded(span);
+    notifyAll();
+  }
+
+  @Override
+  public synchronized void releaseHoleSpan(CacheSpan holeSpan) {
+    checkState(!released);
+    CachedContent cachedContent = checkNotNull(contents.get(holeSpan.key));
+    cachedContent.unlockRange(holeSpan.position);
+    // Free the slots of files that were started in the hole but never committed.
+    for (Slot slot : slots) {
+      if (holeSpan.key.equals(slot.writeKey)
+          && slot.writePosition >= holeSpan.position
+          && (holeSpan.isOpenEnded()
+              || slot.writePosition < holeSpan.position + holeSpan.length)) {
+        slot.writeKey = null;
+      }
+    }
+    maybeRemoveContent(cachedContent);
+    notifyAll();
+  }
+
+  @Override
+  public synchronized void removeResource(String key) {
+    checkState(!released);
+    for (CacheSpan span : getCachedSpans(key)) {
+      removeSpanInternal(span);
+    }
+    writeCheckpointQuietly();
+  }
+
+  @Override
+  public synchronized void removeSpan(CacheSpan span) {
+    checkState(!released);
+    removeSpanInternal(span);
+    writeCheckpointQuietly();
+  }
+
+  @Override
+  public synchronized boolean isCached(String key, long position, long length) {
+    checkState(!released);
+    @Nullable CachedContent cachedContent = contents.get(key);
+    return cachedContent != null && cachedContent.getCachedBytesLength(position, length) >= length;
+  }
+
+  /**
+   * {@inheritDoc}
+   *
+   * <p>Returns false once the slot of the span has been reused. The committed span held by a slot
+   * acts as the slot's generation, so this method doesn't block on writes to the cache.
+   */
+  @Override
+  public boolean isSpanValid(CacheSpan span) {
+    int slotIndex = span.file != null ? getSlotIndex(span.file) : C.INDEX_UNSET;
+    return slotIndex != C.INDEX_UNSET && slots[slotIndex].span == span;
+  }
+
+  @Override
+  public synchronized long getCachedLength(String key, long position, long length) {
+    checkState(!released);
+    if (length == C.LENGTH_UNSET) {
+      length = Long.MAX_VALUE;
+    }
+    @Nullable CachedContent cachedContent = contents.get(key);
+    return cachedContent != null ? cachedContent.getCachedBytesLength(position, length) : -length;
+  }
+
+  @Override
+  public synchronized long getCachedBytes(String key, long position, long length) {
+    long endPosition = length == C.LENGTH_UNSET ? Long.MAX_VALUE : position + length;
+    if (endPosition < 0) {
+      // The calculation rolled over (length is probably Long.MAX_VALUE).
+      endPosition = Long.MAX_VALUE;
+    }
+    long currentPosition = position;
+    long cachedBytes = 0;
+    while (currentPosition < endPosition) {
+      long maxRemainingLength = endPosition - currentPosition;
+      long blockLength = getCachedLength(key, currentPosition, maxRemainingLength);
+      if (blockLength > 0) {
+        cachedBytes += blockLength;
+      } else {
+        // There's a hole of length -blockLength.
+        blockLength = -blockLength;
+      }
+      currentPosition += blockLength;
+    }
+    return cachedBytes;
+  }
+
+  /**
+   * {@inheritDoc}
+   *
+   * <p>The mutations are persisted with the next checkpoint.
+   */
+  @Override
+  public synchronized void applyContentMetadataMutations(
+      String key, ContentMetadataMutations mutations) throws CacheException {
+    checkState(!released);
+    checkInitialization();
+    getOrAddContent(key).applyMetadataMutations(mutations);
+  }
+
+  @Override
+  public synchronized ContentMetadata getContentMetadata(String key) {
+    checkState(!released);
+    @Nullable CachedContent cachedContent = contents.get(key);
+    return cachedContent != null ? cachedContent.getMetadata() : DefaultContentMetadata.EMPTY;
+  }
+
+  /** Creates the slot files and restores the index from the checkpoint. */
+  private void initialize() {
+    try {
+      createCacheDirectories(cacheDir);
+    } catch (CacheException e) {
+      initializationException = e;
+      return;
+    }
+
+    @Nullable File[] files = cacheDir.listFiles();
+    if (files != null) {
+      // Delete the slot files of an instance with more slots.
+      for (File file : files) {
+        if (file.getName().endsWith(SLOT_FILE_SUFFIX) && getSlotIndex(file) == C.INDEX_UNSET) {
+          file.delete();
+        }
+      }
+    }
+
+    try {
+      for (Slot slot : slots) {
+        if (!slot.file.exists() && !slot.file.createNewFile()) {
+          throw new IOException("Failed to create slot file: " + slot.file);
+        }
+        if (slotFileLength != C.LENGTH_UNSET && slot.file.length() < slotFileLength) {
+          try (RandomAccessFile randomAccessFile = new RandomAccessFile(slot.file, "rw")) {
+            randomAccessFile.setLength(slotFileLength);
+          }
+        }
+      }
+      if (!readCheckpoint()) {
+        uid = createUid();
+        writeCheckpoint();
+      }
+    } catch (IOException e) {
+      String message = "Failed to initialize cache: " + cacheDir;
+      Log.e(TAG, message, e);
+      initializationException = new CacheException(message, e);
+    }
+  }
+
+  /**
+   * Restores the index from the checkpoint file.
+   *
+   * @return Whether a valid checkpoint was restored.
+   */
+  private boolean readCheckpoint() {
+    if (!checkpointFile.exists()) {
+      return false;
+    }
+    @Nullable DataInputStream input = null;
+    try {
+      input = new DataInputStream(new BufferedInputStream(checkpointFile.openRead()));
+      if (input.readInt() != CHECKPOINT_VERSION) {
+        return false;
+      }
+      long restoredUid = input.readLong();
+      if (input.readInt() != slots.length) {
+        // The slot count changed, so the slot files are no longer in ring order.
+        return false;
+      }
+      int restoredNextSlotIndex = input.readInt();
+      int contentCount = input.readInt();
+      SparseArray<CachedContent> contentsById = new SparseArray<>();
+      for (int i = 0; i < contentCount; i++) {
+        int id = input.readInt();
+        String key = input.readUTF();
+        DefaultContentMetadata metadata = CachedContentIndex.readContentMetadata(input);
+        contentsById.put(id, new CachedContent(id, key, metadata));
+      }
+      int spanCount = input.readInt();
+      SimpleCacheSpan[] slotSpans = new SimpleCacheSpan[slots.length];
+      for (int i = 0; i < spanCount; i++) {
+        int slotIndex = input.readInt();
+        @Nullable CachedContent cachedContent = contentsById.get(input.readInt());
+        long position = input.readLong();
+        long length = input.readLong();
+        long lastTouchTimestamp = input.readLong();
+        if (slotIndex < 0 || slotIndex >= slots.length || cachedContent == null) {
+          return false;
+        }
+        slotSpans[slotIndex] =
+            SimpleCacheSpan.createCacheEntry(
+                cachedContent.key, position, length, lastTouchTimestamp, slots[slotIndex].file);
+      }
+      if (input.read() != -1
+          || restoredNextSlotIndex < 0
+          || restoredNextSlotIndex >= slots.length) {
+        return false;
+      }
+
+      uid = restoredUid;
+      nextSlotIndex = restoredNextSlotIndex;
+      for (int i = 0; i < contentsById.size(); i++) {
+        CachedContent cachedContent = contentsById.valueAt(i);
+        contents.put(cachedContent.key, cachedContent);
+        nextContentId = max(nextContentId, cachedContent.id + 1);
+      }
+      for (int i = 0; i < slots.length; i++) {
+        @Nullable SimpleCacheSpan span = slotSpans[i];
+        // Slot files aren't truncated, so a slot file that's too short was modified after the
+        // checkpoint was written.
+        if (span != null && slots[i].file.length() >= span.length) {
+          slots[i].span = span;
+          checkNotNull(contents.get(span.key)).addSpan(span);
+          totalSpace += span.length;
+        }
+      }
+      Iterator<CachedContent> iterator = contents.values().iterator();
+      while (iterator.hasNext()) {
+        if (iterator.next().isEmpty()) {
+          iterator.remove();
+        }
+      }
+      return true;
+    } catch (IOException e) {
+      Log.w(TAG, "Failed to read checkpoint", e);
+      return false;
+    } finally {
+      Util.closeQuietly(input);
+    }
+  }
+
+  /**
+   * Writes the index to the checkpoint file. The next {@link #reservedSlotCount} slots in ring
+   * order are recorded as empty, since they may be overwritten before the next checkpoint.
+   */
+  private void writeCheckpoint() throws IOException {
+    @Nullable DataOutputStream output = null;
+    try {
+      output = new DataOutputStream(new BufferedOutputStream(checkpointFile.startWrite()));
+      output.writeInt(CHECKPOINT_VERSION);
+      output.writeLong(uid);
+      output.writeInt(slots.length);
+      output.writeInt(nextSlotIndex);
+      output.writeInt(contents.size());
+      for (CachedContent cachedContent : contents.values()) {
+        output.writeInt(cachedContent.id);
+        output.writeUTF(cachedContent.key);
+        CachedContentIndex.writeContentMetadata(cachedContent.getMetadata(), output);
+      }
+      int spanCount = 0;
+      for (int i = 0; i < slots.length; i++) {
+        if (isCheckpointedSlot(i)) {
+          spanCount++;
+        }
+      }
+      output.writeInt(spanCount);
+      for (int i = 0; i < slots.length; i++) {
+        if (isCheckpointedSlot(i)) {
+          SimpleCacheSpan span = checkNotNull(slots[i].span);
+          output.writeInt(i);
+          output.writeInt(checkNotNull(contents.get(span.key)).id);
+          output.writeLong(span.position);
+          output.writeLong(span.length);
+          output.writeLong(span.lastTouchTimestamp);
+        }
+      }
+      checkpointFile.endWrite(output);
+      output = null;
+    } finally {
+      Util.closeQuietly(output);
+    }
+  }
+
+  private void writeCheckpointQuietly() {
+    try {
+      writeCheckpoint();
+    } catch (IOException e) {
+      Log.w(TAG, "Storing checkpoint failed", e);
+    }
+  }
+
+  private boolean isCheckpointedSlot(int slotIndex) {
+    int slotsUntilWrite = (slotIndex - nextSlotIndex + slots.length) % slots.length;
+    return slots[slotIndex].span != null && slotsUntilWrite >= reservedSlotCount;
+  }
+
+  private CachedContent getOrAddContent(String key) {
+    @Nullable CachedContent cachedContent = contents.get(key);
+    if (cachedContent == null) {
+      cachedContent = new CachedContent(nextContentId++, key);
+      contents.put(key, cachedContent);
+    }
+    return cachedContent;
+  }
+
+  private void maybeRemoveContent(CachedContent cachedContent) {
+    if (cachedContent.isEmpty() && cachedContent.isFullyUnlocked()) {
+      contents.remove(cachedContent.key);
+    }
+  }
+
+  private void removeSpanInternal(CacheSpan span) {
+    int slotIndex = span.file != null ? getSlotIndex(span.file) : C.INDEX_UNSET;
+    if (slotIndex == C.INDEX_UNSET) {
+      return;
+    }
+    Slot slot = slots[slotIndex];
+    @Nullable SimpleCacheSpan slotSpan = slot.span;
+    if (slotSpan != null && slotSpan.key.equals(span.key) && slotSpan.position == span.position) {
+      removeSlotSpan(slot);
+    }
+  }
+
+  /** Removes the span held by a slot from the index. The slot file is kept for reuse. */
+  private void removeSlotSpan(Slot slot) {
+    SimpleCacheSpan span = checkNotNull(slot.span);
+    slot.span = null;
+    CachedContent cachedContent = checkNotNull(contents.get(span.key));
+    cachedContent.getSpans().remove(span);
+    totalSpace -= span.length;
+    maybeRemoveContent(cachedContent);
+    notifySpanRemoved(span);
+  }
+
+  private int getSlotIndex(File file) {
+    String name = file.getName();
+    if (!name.endsWith(SLOT_FILE_SUFFIX)) {
+      return C.INDEX_UNSET;
+    }
+    int slotIndex;
+    try {
+      slotIndex = Integer.parseInt(name.substring(0, name.length() - SLOT_FILE_SUFFIX.length()));
+    } catch (NumberFormatException e) {
+      return C.INDEX_UNSET;
+    }
+    return slotIndex >= 0 && slotIndex < slots.length ? slotIndex : C.INDEX_UNSET;
+  }
+
+  private void notifySpanRemoved(CacheSpan span) {
+    @Nullable ArrayList<Listener> keyListeners = listeners.get(span.key);
+    if (keyListeners != null) {
+      for (int i = keyListeners.size() - 1; i >= 0; i--) {
+        keyListeners.get(i).onSpanRemoved(this, span);
+      }
+    }
+  }
+
+  private void notifySpanAdded(CacheSpan span) {
+    @Nullable ArrayList<Listener> keyListeners = listeners.get(span.key);
+    if (keyListeners != null) {
+      for (int i = keyListeners.size() - 1; i >= 0; i--) {
+        keyListeners.get(i).onSpanAdded(this, span);
+      }
+    }
+  }
+
+  @SuppressWarnings("TrulyRandom")
+  private static long createUid() {
+    // Generate a non-negative UID.
+    long uid = new SecureRandom().nextLong();
+    return uid == Long.MIN_VALUE ? 0 : Math.abs(uid);
+  }
+
+  private static void createCacheDirectories(File cacheDir) throws CacheException {
+    // If mkdirs() returns false, double check that the directory doesn't exist before throwing.
+    if (!cacheDir.mkdirs() && !cacheDir.isDirectory()) {
+      String message = "Failed to create cache directory: " + cacheDir;
+      Log.e(TAG, message);
+      throw new CacheException(message);
+    }
+  }
+
+  private static synchronized boolean lockFolder(File cacheDir) {
+    return lockedCacheDirs.add(cacheDir.getAbsoluteFile());
+  }
+
+  private static synchronized void unlockFolder(File cacheDir) {
+    lockedCacheDirs.remove(cacheDir.getAbsoluteFile());
+  }
+
+  private static final class Slot {
+
+    public final File file;
+
+    /**
+     * The committed span held by the slot, or null if the slot is empty or being written. Volatile
+     * so that {@link #isSpanValid(CacheSpan)} can read it without holding the cache's lock.
+     */
+    @Nullable public volatile SimpleCacheSpan span;
+
+    /** The key of the span being written into the slot, or null if the slot isn't being written. */
+    @Nullable public String writeKey;
+
+    public long writePosition;
+
+    public Slot(File file) {
+      this.file = file;
+    }
+  }
+}
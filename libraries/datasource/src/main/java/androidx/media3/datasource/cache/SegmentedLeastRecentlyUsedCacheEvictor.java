@@ -0,0 +1,382 @@
+/*
+ * Copyright 2026 The Android Open Source Project
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package androidx.media3.datasource.cache;
+
+import static androidx.media3.common.util.Assertions.checkArgument;
+import static androidx.media3.common.util.Assertions.checkNotNull;
+import static androidx.media3.common.util.Assertions.checkState;
+
+import androidx.annotation.Nullable;
+import androidx.media3.common.C;
+import androidx.media3.common.util.UnstableApi;
+import com.google.errorprone.annotations.CanIgnoreReturnValue;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Evicts cache files with a segmented least recently used (SLRU) policy, so that a single scan
+ * through a large amount of content, such as a linear watch of a long time-shift window, doesn't
+ * flush frequently accessed content out of the cache.
+ *
+ * <p>New cache files enter a probationary segment. A file that is accessed again is promoted to a
+ * protected segment, whose size is limited to a {@linkplain Builder#setProtectedFraction(float)
+ * fraction} of the cache size. When the protected segment is full, its least recently used files
+ * are demoted back to the probationary segment. Files are evicted from the probationary segment
+ * first, in least recently used order, and only then from the protected segment.
+ *
+ * <p>Optionally, {@linkplain Builder#setKeyPrefixQuota(String, long) quotas} limit the size of
+ * the files whose cache keys start with a given prefix. The files of a prefix that exceeds its
+ * quota are evicted in the same order, without affecting other files.
+ *
+ * <p>Touching a file takes constant time. Segment membership isn't persisted: files that are
+ * loaded when the cache is initialized enter the probationary segment in order of their last touch
+ * timestamps.
+ */
+@UnstableApi
+public final class SegmentedLeastRecentlyUsedCacheEvictor implements CacheEvictor {
+
+  /** Builder for {@link SegmentedLeastRecentlyUsedCacheEvictor} instances. */
+  public static final class Builder {
+
+    private final long maxBytes;
+    private final Map<String, Long> keyPrefixQuotas;
+    private float protectedFraction;
+    private boolean buildCalled;
+
+    /**
+     * Creates a builder.
+     *
+     * @param maxBytes The maximum size of the cache, in bytes.
+     */
+    public Builder(long maxBytes) {
+      this.maxBytes = maxBytes;
+      keyPrefixQuotas = new HashMap<>();
+      protectedFraction = DEFAULT_PROTECTED_FRACTION;
+    }
+
+    /**
+     * Sets the maximum fraction of the cache size used by the protected segment.
+     *
+     * <p>The default value is {@link #DEFAULT_PROTECTED_FRACTION}.
+     *
+     * @param protectedFraction The fraction, between 0 and 1.
+     * @return This builder.
+     */
+    @CanIgnoreReturnValue
+    public Builder setProtectedFraction(float protectedFraction) {
+      checkState(!buildCalled);
+      checkArgument(protectedFraction >= 0 && protectedFraction <= 1);
+      this.protectedFraction = protectedFraction;
+      return this;
+    }
+
+    /**
+     * Limits the total size of the files whose cache keys start with {@code keyPrefix}. If a key
+     * matches several prefixes, the quota of the longest prefix applies.
+     *
+     * @param keyPrefix The cache key prefix.
+     * @param maxBytes The maximum size of the files whose cache keys start with {@code keyPrefix},
+     *     in bytes.
+     * @return This builder.
+     */
+    @CanIgnoreReturnValue
+    public Builder setKeyPrefixQuota(String keyPrefix, long maxBytes) {
+      checkState(!buildCalled);
+      checkArgument(maxBytes >= 0);
+      keyPrefixQuotas.put(keyPrefix, maxBytes);
+      return this;
+    }
+
+    /** Builds the {@link SegmentedLeastRecentlyUsedCacheEvictor}. */
+    public SegmentedLeastRecentlyUsedCacheEvictor build() {
+      checkState(!buildCalled);
+      buildCalled = true;
+      return new SegmentedLeastRecentlyUsedCacheEvictor(
+          maxBytes, protectedFraction, keyPrefixQuotas);
+    }
+  }
+
+  /** The default maximum fraction of the cache size used by the protected segment. */
+  public static final float DEFAULT_PROTECTED_FRACTION = 0.8f;
+
+  private final long maxBytes;
+  private final long maxProtectedBytes;
+  private final Group defaultGroup;
+  private final List<Group> quotaGroups;
+  private final Map<SpanId, Entry> entries;
+  private final List<CacheSpan> pendingSpans;
+
+  @Nullable private Cache pendingCache;
+  private boolean initialized;
+  private long currentSize;
+  private long protectedSize;
+  private long nextSequence;
+
+  /**
+   * Creates an instance with a protected segment of {@link #DEFAULT_PROTECTED_FRACTION} of the
+   * cache size and no key prefix quotas.
+   *
+   * @param maxBytes The maximum size of the cache, in bytes.
+   */
+  public SegmentedLeastRecentlyUsedCacheEvictor(long maxBytes) {
+    this(maxBytes, DEFAULT_PROTECTED_FRACTION, Collections.emptyMap());
+  }
+
+  private SegmentedLeastRecentlyUsedCacheEvictor(
+      long maxBytes, float protectedFraction, Map<String, Long> keyPrefixQuotas) {
+    this.maxBytes = maxBytes;
+    maxProtectedBytes = (long) (maxBytes * protectedFraction);
+    defaultGroup = new Group(/* keyPrefix= */ "", /* maxBytes= */ Long.MAX_VALUE);
+    quotaGroups = new ArrayList<>();
+    for (Map.Entry<String, Long> quota : keyPrefixQuotas.entrySet()) {
+      quotaGroups.add(new Group(quota.getKey(), quota.getValue()));
+    }
+    // Sort by descending prefix length, so that the longest matching prefix is found first.
+    Collections.sort(quotaGroups, (g1, g2) -> g2.keyPrefix.length() - g1.keyPrefix.length());
+    entries = new HashMap<>();
+    pendingSpans = new ArrayList<>();
+  }
+
+  @Override
+  public boolean requiresCacheSpanTouches() {
+    return true;
+  }
+
+  @Override
+  public void onCacheInitialized() {
+    initialized = true;
+    // Add the spans loaded during initialization in the order in which they were last used.
+    Collections.sort(
+        pendingSpans,
+        (span1, span2) -> Long.compare(span1.lastTouchTimestamp, span2.lastTouchTimestamp));
+    for (int i = 0; i < pendingSpans.size(); i++) {
+      addEntry(pendingSpans.get(i));
+    }
+    pendingSpans.clear();
+    if (pendingCache != null) {
+      for (int i = 0; i < quotaGroups.size(); i++) {
+        evictCache(pendingCache, quotaGroups.get(i), /* requiredSpace= */ 0);
+      }
+      evictCache(pendingCache, defaultGroup, /* requiredSpace= */ 0);
+      pendingCache = null;
+    }
+  }
+
+  @Override
+  public void onStartFile(Cache cache, String key, long position, long length) {
+    if (length != C.LENGTH_UNSET) {
+      evictCache(cache, getGroup(key), length);
+    }
+  }
+
+  @Override
+  public void onSpanAdded(Cache cache, CacheSpan span) {
+    if (!initialized) {
+      pendingSpans.add(span);
+      pendingCache = cache;
+      return;
+    }
+    Entry entry = addEntry(span);
+    evictCache(cache, entry.group, /* requiredSpace= */ 0);
+  }
+
+  @Override
+  public void onSpanRemoved(Cache cache, CacheSpan span) {
+    if (!initialized) {
+      pendingSpans.remove(span);
+      return;
+    }
+    @Nullable Entry entry = entries.remove(new SpanId(span));
+    if (entry == null) {
+      return;
+    }
+    entry.group.getSegment(entry.isProtected).remove(entry.id);
+    entry.group.size -= entry.span.length;
+    currentSize -= entry.span.length;
+    if (entry.isProtected) {
+      protectedSize -= entry.span.length;
+    }
+  }
+
+  @Override
+  public void onSpanTouched(Cache cache, CacheSpan oldSpan, CacheSpan newSpan) {
+    @Nullable Entry entry = initialized ? entries.get(new SpanId(oldSpan)) : null;
+    if (entry == null) {
+      onSpanRemoved(cache, oldSpan);
+      onSpanAdded(cache, newSpan);
+      return;
+    }
+    // Move the span to the most recently used end of the protected segment.
+    entry.group.getSegment(entry.isProtected).remove(entry.id);
+    entry.span = newSpan;
+    if (!entry.isProtected) {
+      entry.isProtected = true;
+      protectedSize += entry.span.length;
+    }
+    entry.sequence = nextSequence++;
+    entry.group.protectedEntries.put(entry.id, entry);
+
+    while (protectedSize > maxProtectedBytes) {
+      // Demote the least recently used protected span to the probationary segment.
+      Entry demotedEntry =
+          checkNotNull(getLeastRecentlyUsedEntryOfSegment(/* isProtected= */ true));
+      demotedEntry.group.protectedEntries.remove(demotedEntry.id);
+      demotedEntry.isProtected = false;
+      protectedSize -= demotedEntry.span.length;
+      demotedEntry.sequence = nextSequence++;
+      demotedEntry.group.probationEntries.put(demotedEntry.id, demotedEntry);
+    }
+  }
+
+  private Entry addEntry(CacheSpan span) {
+    Entry entry = new Entry(new SpanId(span), span, getGroup(span.key), nextSequence++);
+    entries.put(entry.id, entry);
+    entry.group.probationEntries.put(entry.id, entry);
+    entry.group.size += span.length;
+    currentSize += span.length;
+    return entry;
+  }
+
+  private void evictCache(Cache cache, Group group, long requiredSpace) {
+    while (group.size + requiredSpace > group.maxBytes && group.size > 0) {
+      cache.removeSpan(group.getLeastRecentlyUsedEntry().span);
+    }
+    while (currentSize + requiredSpace > maxBytes && !entries.isEmpty()) {
+      Entry entry = getLeastRecentlyUsedEntry(/* isProtected= */ false);
+      cache.removeSpan(entry.span);
+    }
+  }
+
+  /**
+   * Returns the least recently used entry of the given segment, across all groups. If that segment
+   * is empty, returns the least recently used entry of the other segment.
+   */
+  private Entry getLeastRecentlyUsedEntry(boolean isProtected) {
+    @Nullable Entry entry = getLeastRecentlyUsedEntryOfSegment(isProtected);
+    if (entry == null) {
+      entry = getLeastRecentlyUsedEntryOfSegment(!isProtected);
+    }
+    return checkNotNull(entry);
+  }
+
+  @Nullable
+  private Entry getLeastRecentlyUsedEntryOfSegment(boolean isProtected) {
+    @Nullable Entry leastRecentlyUsedEntry = defaultGroup.getEldestEntry(isProtected);
+    for (int i = 0; i < quotaGroups.size(); i++) {
+      @Nullable Entry entry = quotaGroups.get(i).getEldestEntry(isProtected);
+      if (entry != null
+          && (leastRecentlyUsedEntry == null
+              || entry.sequence < leastRecentlyUsedEntry.sequence)) {
+        leastRecentlyUsedEntry = entry;
+      }
+    }
+    return leastRecentlyUsedEntry;
+  }
+
+  private Group getGroup(String key) {
+    for (int i = 0; i < quotaGroups.size(); i++) {
+      Group group = quotaGroups.get(i);
+      if (key.startsWith(group.keyPrefix)) {
+        return group;
+      }
+    }
+    return defaultGroup;
+  }
+
+  /** The spans whose keys start with a key prefix, or all other spans for the default group. */
+  private static final class Group {
+
+    public final String keyPrefix;
+    public final long maxBytes;
+    // Both segments are ordered from least to most recently used.
+    public final LinkedHashMap<SpanId, Entry> probationEntries;
+    public final LinkedHashMap<SpanId, Entry> protectedEntries;
+
+    public long size;
+
+    public Group(String keyPrefix, long maxBytes) {
+      this.keyPrefix = keyPrefix;
+      this.maxBytes = maxBytes;
+      probationEntries = new LinkedHashMap<>();
+      protectedEntries = new LinkedHashMap<>();
+    }
+
+    public LinkedHashMap<SpanId, Entry> getSegment(boolean isProtected) {
+      return isProtected ? protectedEntries : probationEntries;
+    }
+
+    @Nullable
+    public Entry getEldestEntry(boolean isProtected) {
+      LinkedHashMap<SpanId, Entry> segment = getSegment(isProtected);
+      return segment.isEmpty() ? null : segment.values().iterator().next();
+    }
+
+    public Entry getLeastRecentlyUsedEntry() {
+      @Nullable Entry entry = getEldestEntry(/* isProtected= */ false);
+      return checkNotNull(entry != null ? entry : getEldestEntry(/* isProtected= */ true));
+    }
+  }
+
+  private static final class Entry {
+
+    public final SpanId id;
+    public final Group group;
+
+    public CacheSpan span;
+    public long sequence;
+    public boolean isProtected;
+
+    public Entry(SpanId id, CacheSpan span, Group group, long sequence) {
+      this.id = id;
+      this.span = span;
+      this.group = group;
+      this.sequence = sequence;
+    }
+  }
+
+  /** Identifies a span independently of its last touch timestamp. */
+  private static final class SpanId {
+
+    private final String key;
+    private final long position;
+
+    public SpanId(CacheSpan span) {
+      key = span.key;
+      position = span.position;
+    }
+
+    @Override
+    public boolean equals(@Nullable Object obj) {
+      if (this == obj) {
+        return true;
+      }
+      if (obj == null || getClass() != obj.getClass()) {
+        return false;
+      }
+      SpanId other = (SpanId) obj;
+      return position == other.position && key.equals(other.key);
+    }
+
+    @Override
+    public int hashCode() {
+      return 31 * key.hashCode() + (int) (position ^ (position >>> 32));
+    }
+  }
+}
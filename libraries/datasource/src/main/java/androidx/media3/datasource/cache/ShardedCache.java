@@ -0,0 +1,269 @@
+/*
+ * Copyright 2026 The Android Open Source Project
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package androidx.media3.datasource.cache;
+
+import static androidx.media3.common.util.Assertions.checkArgument;
+
+import androidx.annotation.Nullable;
+import androidx.annotation.WorkerThread;
+import androidx.media3.common.util.UnstableApi;
+import androidx.media3.database.DatabaseProvider;
+import com.google.common.base.Supplier;
+import java.io.File;
+import java.util.HashSet;
+import java.util.NavigableSet;
+import java.util.Set;
+
+/**
+ * A {@link Cache} that partitions content keys over a number of independent {@link SimpleCache}
+ * shards.
+ *
+ * <p>Every operation on a {@link SimpleCache} holds the cache's monitor, including the file and
+ * index work done when committing a file, so concurrent downloads and playback sharing one
+ * instance are serialized on it. This class routes each key to one shard by the key's hash, so
+ * operations on keys in different shards proceed in parallel. Each shard owns its
+ * own {@link CachedContentIndex}, file metadata index and {@link CacheEvictor}, which keeps index
+ * and eviction state consistent without any lock spanning the whole cache.
+ *
+ * <p>Eviction happens per shard. To bound the total size of the cache, pass a supplier of evictors
+ * that each bound their shard to a share of the total, for example {@code () -> new
+ * LeastRecentlyUsedCacheEvictor(maxBytes / shardCount)}. Eviction order is then least recently
+ * used within each shard rather than across the whole cache.
+ *
+ * <p>Shards are stored in subdirectories of the cache directory whose names include the shard
+ * count. If the shard count changes between instances, the content of the previous layout is
+ * deleted when the cache is constructed.
+ */
+@UnstableApi
+public final class ShardedCache implements Cache {
+
+  private static final String SHARD_DIRECTORY_PREFIX = "shard-";
+
+  private final File[] shardDirectories;
+  private final SimpleCache[] shards;
+
+  /**
+   * Deletes all content belonging to a sharded cache instance.
+   *
+   * <p>This method may be slow and shouldn't normally be called on the main thread.
+   *
+   * @param cacheDir The cache directory.
+   * @param databaseProvider The database in which index data is stored.
+   */
+  @WorkerThread
+  public static void delete(File cacheDir, DatabaseProvider databaseProvider) {
+    @Nullable File[] files = cacheDir.listFiles();
+    if (files != null) {
+      for (File file : files) {
+        if (file.getName().startsWith(SHARD_DIRECTORY_PREFIX)) {
+          SimpleCache.delete(file, databaseProvider);
+        }
+      }
+    }
+    cacheDir.delete();
+  }
+
+  /**
+   * Constructs the cache. The cache will delete any unrecognized files from the shard directories.
+   * Hence the directory cannot be used to store other files.
+   *
+   * <p>The constructor creates the shards on the calling thread, and each shard initializes its
+   * index on a background thread in the same way as {@link SimpleCache}.
+   *
+   * @param cacheDir A dedicated cache directory.
+   * @param shardCount The number of shards. Must be positive.
+   * @param evictorSupplier Supplies a new {@link CacheEvictor} for each shard. For download use
+   *     cases where cache eviction should not occur, supply {@link NoOpCacheEvictor} instances.
+   * @param databaseProvider Provides the database in which the shard indices are stored.
+   */
+  public ShardedCache(
+      File cacheDir,
+      int shardCount,
+      Supplier<CacheEvictor> evictorSupplier,
+      DatabaseProvider databaseProvider) {
+    checkArgument(shardCount > 0);
+    deleteShardsWithOtherCount(cacheDir, shardCount, databaseProvider);
+    shardDirectories = new File[shardCount];
+    shards = new SimpleCache[shardCount];
+    for (int i = 0; i < shardCount; i++) {
+      shardDirectories[i] = getShardDirectory(cacheDir, shardCount, i).getAbsoluteFile();
+      shards[i] = new SimpleCache(shardDirectories[i], evictorSupplier.get(), databaseProvider);
+    }
+  }
+
+  /** Returns the number of shards. */
+  public int getShardCount() {
+    return shards.length;
+  }
+
+  /**
+   * Checks whether any shard encountered an error during initialization.
+   *
+   * @see SimpleCache#checkInitialization()
+   */
+  public void checkInitialization() throws CacheException {
+    for (SimpleCache shard : shards) {
+      shard.checkInitialization();
+    }
+  }
+
+  /** Returns the unique identifier of the first shard. */
+  @Override
+  public long getUid() {
+    return shards[0].getUid();
+  }
+
+  @Override
+  public void release() {
+    for (SimpleCache shard : shards) {
+      shard.release();
+    }
+  }
+
+  @Override
+  public NavigableSet<CacheSpan> addListener(String key, Listener listener) {
+    return getShard(key).addListener(key, listener);
+  }
+
+  @Override
+  public void removeListener(String key, Listener listener) {
+    getShard(key).removeListener(key, listener);
+  }
+
+  @Override
+  public NavigableSet<CacheSpan> getCachedSpans(String key) {
+    return getShard(key).getCachedSpans(key);
+  }
+
+  @Override
+  public Set<String> getKeys() {
+    Set<String> keys = new HashSet<>();
+    for (SimpleCache shard : shards) {
+      keys.addAll(shard.getKeys());
+    }
+    return keys;
+  }
+
+  @Override
+  public long getCacheSpace() {
+    long cacheSpace = 0;
+    for (SimpleCache shard : shards) {
+      cacheSpace += shard.getCacheSpace();
+    }
+    return cacheSpace;
+  }
+
+  @Override
+  public CacheSpan startReadWrite(String key, long position, long length)
+      throws InterruptedException, CacheException {
+    return getShard(key).startReadWrite(key, position, length);
+  }
+
+  @Override
+  @Nullable
+  public CacheSpan startReadWriteNonBlocking(String key, long position, long length)
+      throws CacheException {
+    return getShard(key).startReadWriteNonBlocking(key, position, length);
+  }
+
+  @Override
+  public File startFile(String key, long position, long length) throws CacheException {
+    return getShard(key).startFile(key, position, length);
+  }
+
+  @Override
+  public void commitFile(File file, long length) throws CacheException {
+    getShardForFile(file).commitFile(file, length);
+  }
+
+  @Override
+  public void releaseHoleSpan(CacheSpan holeSpan) {
+    getShard(holeSpan.key).releaseHoleSpan(holeSpan);
+  }
+
+  @Override
+  public void removeResource(String key) {
+    getShard(key).removeResource(key);
+  }
+
+  @Override
+  public void removeSpan(CacheSpan span) {
+    getShard(span.key).removeSpan(span);
+  }
+
+  @Override
+  public boolean isCached(String key, long position, long length) {
+    return getShard(key).isCached(key, position, length);
+  }
+
+  @Override
+  public long getCachedLength(String key, long position, long length) {
+    return getShard(key).getCachedLength(key, position, length);
+  }
+
+  @Override
+  public long getCachedBytes(String key, long position, long length) {
+    return getShard(key).getCachedBytes(key, position, length);
+  }
+
+  @Override
+  public void applyContentMetadataMutations(String key, ContentMetadataMutations mutations)
+      throws CacheException {
+    getShard(key).applyContentMetadataMutations(key, mutations);
+  }
+
+  @Override
+  public ContentMetadata getContentMetadata(String key) {
+    return getShard(key).getContentMetadata(key);
+  }
+
+  private SimpleCache getShard(String key) {
+    return shards[(key.hashCode() & Integer.MAX_VALUE) % shards.length];
+  }
+
+  private SimpleCache getShardForFile(File file) throws CacheException {
+    // Files returned by startFile are stored in a subdirectory of the shard directory.
+    @Nullable File subDirectory = file.getAbsoluteFile().getParentFile();
+    @Nullable File shardDirectory = subDirectory == null ? null : subDirectory.getParentFile();
+    if (shardDirectory != null) {
+      for (int i = 0; i < shards.length; i++) {
+        if (shardDirectory.equals(shardDirectories[i])) {
+          return shards[i];
+        }
+      }
+    }
+    throw new CacheException("File not in cache: " + file);
+  }
+
+  private static File getShardDirectory(File cacheDir, int shardCount, int shardIndex) {
+    return new File(cacheDir, SHARD_DIRECTORY_PREFIX + shardCount + "-" + shardIndex);
+  }
+
+  private static void deleteShardsWithOtherCount(
+      File cacheDir, int shardCount, DatabaseProvider databaseProvider) {
+    @Nullable File[] files = cacheDir.listFiles();
+    if (files == null) {
+      return;
+    }
+    String currentPrefix = SHARD_DIRECTORY_PREFIX + shardCount + "-";
+    for (File file : files) {
+      String name = file.getName();
+      if (name.startsWith(SHARD_DIRECTORY_PREFIX) && !name.startsWith(currentPrefix)) {
+        SimpleCache.delete(file, databaseProvider);
+      }
+    }
+  }
+}
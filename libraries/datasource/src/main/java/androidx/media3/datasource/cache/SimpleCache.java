@@ -15,12 +15,17 @@
  */
 package androidx.media3.datasource.cache;
 
+import android.database.SQLException;
+import android.database.sqlite.SQLiteDatabase;
 import android.os.ConditionVariable;
+import android.util.SparseBooleanArray;
 import androidx.annotation.Nullable;
+import androidx.annotation.VisibleForTesting;
 import androidx.annotation.WorkerThread;
 import androidx.media3.common.C;
 import androidx.media3.common.util.Assertions;
 import androidx.media3.common.util.Log;
+import androidx.media3.common.util.NullableType;
 import androidx.media3.common.util.UnstableApi;
 import androidx.media3.common.util.Util;
 import androidx.media3.database.DatabaseIOException;
@@ -31,11 +36,14 @@ import java.security.SecureRandom;
 import java.util.ArrayList;
 import java.util.HashMap;
 import java.util.HashSet;
+import java.util.List;
 import java.util.Map;
 import java.util.NavigableSet;
 import java.util.Random;
 import java.util.Set;
 import java.util.TreeSet;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
 import org.checkerframework.checker.nullness.qual.MonotonicNonNull;
 
 /**
@@ -68,12 +76,22 @@ public final class SimpleCache implements Cache {
   private final CacheEvictor evictor;
   private final CachedContentIndex contentIndex;
   @Nullable private final CacheFileMetadataIndex fileIndex;
+  @Nullable private final DatabaseProvider databaseProvider;
+  private final long indexWriteBehindWindowMs;
+  private final CacheIndexJournal indexJournal;
+  @Nullable private final CacheSpanSnapshot spanSnapshot;
+  private final HashMap<String, @NullableType CacheFileMetadata> pendingFileMetadataUpdates;
+  private final SparseBooleanArray journaledContentIds;
+  @Nullable private final ScheduledExecutorService indexFlushExecutor;
   private final HashMap<String, ArrayList<Listener>> listeners;
   private final Random random;
+  private final ConditionVariable spansReconciled;
   private final boolean touchCacheSpans;
 
   private long uid;
   private long totalSpace;
+  private boolean indexFlushScheduled;
+  private boolean reconcilingSpans;
   private boolean released;
   private @MonotonicNonNull CacheException initializationException;
 
@@ -167,6 +185,90 @@ public final class SimpleCache implements Cache {
         /* preferLegacyIndex= */ false);
   }
 
+  /**
+   * Constructs the cache with deferred index writes. The cache will delete any unrecognized files
+   * from the directory. Hence the directory cannot be used to store other files.
+   *
+   * <p>Index updates made when spans are committed, touched or removed are held in memory for up to
+   * {@code indexWriteBehindWindowMs} and then written to the database in a single transaction,
+   * rather than in one transaction each. Content that committed spans depend on is first appended
+   * to a small journal file in the cache directory, which is replayed when the cache is next
+   * initialized if the process dies before the deferred write. Pending updates are also written
+   * when the cache is released.
+   *
+   * @param cacheDir A dedicated cache directory.
+   * @param evictor The evictor to be used. For download use cases where cache eviction should not
+   *     occur, use {@link NoOpCacheEvictor}.
+   * @param databaseProvider Provides the database in which the cache index is stored.
+   * @param indexWriteBehindWindowMs The maximum time for which index updates are deferred, in
+   *     milliseconds, or 0 to write them immediately.
+   */
+  public SimpleCache(
+      File cacheDir,
+      CacheEvictor evictor,
+      DatabaseProvider databaseProvider,
+      long indexWriteBehindWindowMs) {
+    this(
+        cacheDir,
+        evictor,
+        new CachedContentIndex(
+            databaseProvider,
+            cacheDir,
+            /* legacyStorageSecretKey= */ null,
+            /* legacyStorageEncrypt= */ false,
+            /* preferLegacyStorage= */ false),
+        new CacheFileMetadataIndex(databaseProvider),
+        databaseProvider,
+        indexWriteBehindWindowMs,
+        /* useSpanSnapshot= */ false);
+  }
+
+  /**
+   * Constructs the cache with deferred index writes and, optionally, initialization from a span
+   * snapshot. The cache will delete any unrecognized files from the directory. Hence the directory
+   * cannot be used to store other files.
+   *
+   * <p>See {@link #SimpleCache(File, CacheEvictor, DatabaseProvider, long)} for deferred index
+   * writes.
+   *
+   * <p>If {@code useSpanSnapshot} is true, the cached spans are written to a snapshot file in the
+   * cache directory when the cache is released, and once they have been checked against the cache
+   * files after initialization. The next instance is then initialized from the snapshot, without
+   * listing the cache directories or querying the length of each cache file. As the snapshot may be
+   * stale, the spans are reconciled with the cache files on a background thread afterwards: spans
+   * whose files are missing are removed, and cache files missing from the snapshot are added. Until
+   * then, a span whose file is found to be missing or modified when it's read is removed on its
+   * own. If there's no valid snapshot, the cache directories are listed as usual.
+   *
+   * @param cacheDir A dedicated cache directory.
+   * @param evictor The evictor to be used. For download use cases where cache eviction should not
+   *     occur, use {@link NoOpCacheEvictor}.
+   * @param databaseProvider Provides the database in which the cache index is stored.
+   * @param indexWriteBehindWindowMs The maximum time for which index updates are deferred, in
+   *     milliseconds, or 0 to write them immediately.
+   * @param useSpanSnapshot Whether to initialize the cache from a span snapshot.
+   */
+  public SimpleCache(
+      File cacheDir,
+      CacheEvictor evictor,
+      DatabaseProvider databaseProvider,
+      long indexWriteBehindWindowMs,
+      boolean useSpanSnapshot) {
+    this(
+        cacheDir,
+        evictor,
+        new CachedContentIndex(
+            databaseProvider,
+            cacheDir,
+            /* legacyStorageSecretKey= */ null,
+            /* legacyStorageEncrypt= */ false,
+            /* preferLegacyStorage= */ false),
+        new CacheFileMetadataIndex(databaseProvider),
+        databaseProvider,
+        indexWriteBehindWindowMs,
+        useSpanSnapshot);
+  }
+
   /**
    * Constructs the cache. The cache will delete any unrecognized files from the cache directory.
    * Hence the directory cannot be used to store other files.
@@ -212,6 +314,25 @@ public final class SimpleCache implements Cache {
       CacheEvictor evictor,
       CachedContentIndex contentIndex,
       @Nullable CacheFileMetadataIndex fileIndex) {
+    this(
+        cacheDir,
+        evictor,
+        contentIndex,
+        fileIndex,
+        /* databaseProvider= */ null,
+        /* indexWriteBehindWindowMs= */ 0,
+        /* useSpanSnapshot= */ false);
+  }
+
+  /* package */ SimpleCache(
+      File cacheDir,
+      CacheEvictor evictor,
+      CachedContentIndex contentIndex,
+      @Nullable CacheFileMetadataIndex fileIndex,
+      @Nullable DatabaseProvider databaseProvider,
+      long indexWriteBehindWindowMs,
+      boolean useSpanSnapshot) {
+    Assertions.checkArgument(indexWriteBehindWindowMs >= 0);
     if (!lockFolder(cacheDir)) {
       throw new IllegalStateException("Another SimpleCache instance uses the folder: " + cacheDir);
     }
@@ -220,8 +341,19 @@ public final class SimpleCache implements Cache {
     this.evictor = evictor;
     this.contentIndex = contentIndex;
     this.fileIndex = fileIndex;
+    this.databaseProvider = databaseProvider;
+    this.indexWriteBehindWindowMs = indexWriteBehindWindowMs;
+    indexJournal = new CacheIndexJournal(cacheDir);
+    spanSnapshot = useSpanSnapshot ? new CacheSpanSnapshot(cacheDir) : null;
+    pendingFileMetadataUpdates = new HashMap<>();
+    journaledContentIds = new SparseBooleanArray();
+    indexFlushExecutor =
+        indexWriteBehindWindowMs > 0
+            ? Util.newSingleThreadScheduledExecutor("ExoPlayer:SimpleCacheIndexFlush")
+            : null;
     listeners = new HashMap<>();
     random = new Random();
+    spansReconciled = new ConditionVariable();
     touchCacheSpans = evictor.requiresCacheSpanTouches();
     uid = UID_UNSET;
 
@@ -235,11 +367,24 @@ public final class SimpleCache implements Cache {
           initialize();
           SimpleCache.this.evictor.onCacheInitialized();
         }
+        if (spanSnapshot != null) {
+          reconcileSpans();
+        }
+        spansReconciled.open();
       }
     }.start();
     conditionVariable.block();
   }
 
+  /**
+   * Blocks until spans loaded from a span snapshot have been reconciled with the cache files, or
+   * returns immediately if the cache doesn't use a span snapshot.
+   */
+  @VisibleForTesting
+  /* package */ void blockUntilSpansReconciled() {
+    spansReconciled.block();
+  }
+
   /**
    * Checks whether the cache was initialized successfully.
    *
@@ -263,11 +408,15 @@ public final class SimpleCache implements Cache {
     }
     listeners.clear();
     removeStaleSpans();
+    if (indexFlushExecutor != null) {
+      indexFlushExecutor.shutdownNow();
+    }
     try {
-      contentIndex.store();
+      storeIndices();
     } catch (IOException e) {
       Log.e(TAG, "Storing index file failed", e);
     } finally {
+      storeSpanSnapshot();
       unlockFolder(cacheDir);
       released = true;
     }
@@ -414,17 +563,20 @@ public final class SimpleCache implements Cache {
       Assertions.checkState((span.position + span.length) <= contentLength);
     }
 
-    if (fileIndex != null) {
-      String fileName = file.getName();
-      try {
-        fileIndex.set(fileName, span.length, span.lastTouchTimestamp);
-      } catch (IOException e) {
-        throw new CacheException(e);
+    try {
+      if (fileIndex != null) {
+        setFileMetadata(file.getName(), span.length, span.lastTouchTimestamp);
+      }
+      if (indexFlushExecutor != null && !journaledContentIds.get(cachedContent.id)) {
+        indexJournal.append(cachedContent);
+        journaledContentIds.put(cachedContent.id, true);
       }
+    } catch (IOException e) {
+      throw new CacheException(e);
     }
     addSpan(span);
     try {
-      contentIndex.store();
+      storeContentIndex();
     } catch (IOException e) {
       throw new CacheException(e);
     }
@@ -502,7 +654,12 @@ public final class SimpleCache implements Cache {
 
     contentIndex.applyContentMetadataMutations(key, mutations);
     try {
-      contentIndex.store();
+      if (indexFlushExecutor != null) {
+        CachedContent cachedContent = Assertions.checkNotNull(contentIndex.get(key));
+        indexJournal.append(cachedContent);
+        journaledContentIds.put(cachedContent.id, true);
+      }
+      storeContentIndex();
     } catch (IOException e) {
       throw new CacheException(e);
     }
@@ -547,12 +704,15 @@ public final class SimpleCache implements Cache {
 
     try {
       contentIndex.initialize(uid);
+      indexJournal.replay(contentIndex);
       if (fileIndex != null) {
         fileIndex.initialize(uid);
-        Map<String, CacheFileMetadata> fileMetadata = fileIndex.getAll();
-        loadDirectory(cacheDir, /* isRoot= */ true, files, fileMetadata);
-        fileIndex.removeAll(fileMetadata.keySet());
-      } else {
+        if (!loadSpanSnapshot()) {
+          Map<String, CacheFileMetadata> fileMetadata = fileIndex.getAll();
+          loadDirectory(cacheDir, /* isRoot= */ true, files, fileMetadata);
+          fileIndex.removeAll(fileMetadata.keySet());
+        }
+      } else if (!loadSpanSnapshot()) {
         loadDirectory(cacheDir, /* isRoot= */ true, files, /* fileMetadata= */ null);
       }
     } catch (IOException e) {
@@ -565,6 +725,7 @@ public final class SimpleCache implements Cache {
     contentIndex.removeEmpty();
     try {
       contentIndex.store();
+      indexJournal.clear();
     } catch (IOException e) {
       Log.e(TAG, "Storing index file failed", e);
     }
@@ -624,6 +785,176 @@ public final class SimpleCache implements Cache {
     }
   }
 
+  /**
+   * Loads the spans from the span snapshot, if enabled.
+   *
+   * @return Whether the spans were loaded from a valid snapshot.
+   */
+  private boolean loadSpanSnapshot() {
+    if (spanSnapshot == null) {
+      return false;
+    }
+    @Nullable List<SimpleCacheSpan> spans = spanSnapshot.load(uid, contentIndex);
+    if (spans == null) {
+      return false;
+    }
+    for (int i = 0; i < spans.size(); i++) {
+      addSpan(spans.get(i));
+    }
+    reconcilingSpans = true;
+    return true;
+  }
+
+  /**
+   * Reconciles spans loaded from the span snapshot with the cache files, or stores the snapshot if
+   * the spans were loaded by listing the cache directories. Each directory is listed without
+   * holding the cache's monitor, which is then held only to reconcile the listed files.
+   */
+  private void reconcileSpans() {
+    HashSet<File> indexedFiles = new HashSet<>();
+    @Nullable File[] rootFiles;
+    synchronized (this) {
+      if (released || initializationException != null) {
+        return;
+      }
+      if (!reconcilingSpans) {
+        storeSpanSnapshot();
+        return;
+      }
+      for (CachedContent cachedContent : contentIndex.getAll()) {
+        for (CacheSpan span : cachedContent.getSpans()) {
+          indexedFiles.add(Assertions.checkNotNull(span.file));
+        }
+      }
+      rootFiles = cacheDir.listFiles();
+    }
+    if (rootFiles == null) {
+      return;
+    }
+
+    HashSet<File> listedFiles = new HashSet<>();
+    boolean spansChanged = false;
+    for (File rootFile : rootFiles) {
+      String fileName = rootFile.getName();
+      @Nullable File[] files;
+      if (fileName.indexOf('.') == -1) {
+        files = rootFile.listFiles();
+      } else if (CachedContentIndex.isIndexFile(fileName) || fileName.endsWith(UID_FILE_SUFFIX)) {
+        continue;
+      } else {
+        files = new File[] {rootFile};
+      }
+      if (files == null) {
+        continue;
+      }
+      synchronized (this) {
+        if (released) {
+          return;
+        }
+        for (File file : files) {
+          listedFiles.add(file);
+          if (!indexedFiles.contains(file)) {
+            spansChanged |= reconcileFile(file);
+          }
+        }
+      }
+    }
+
+    synchronized (this) {
+      if (released) {
+        return;
+      }
+      // Remove spans whose files weren't listed, unless their files were written since.
+      ArrayList<CacheSpan> spansToBeRemoved = new ArrayList<>();
+      for (CachedContent cachedContent : contentIndex.getAll()) {
+        for (CacheSpan span : cachedContent.getSpans()) {
+          File file = Assertions.checkNotNull(span.file);
+          if (!listedFiles.contains(file) && !file.exists()) {
+            spansToBeRemoved.add(span);
+          }
+        }
+      }
+      for (int i = 0; i < spansToBeRemoved.size(); i++) {
+        removeSpanInternal(spansToBeRemoved.get(i));
+      }
+      if (fileIndex != null) {
+        removeStaleFileMetadata(fileIndex);
+      }
+      reconcilingSpans = false;
+      if (spansChanged || !spansToBeRemoved.isEmpty()) {
+        storeSpanSnapshot();
+      }
+    }
+  }
+
+  /**
+   * Removes the file metadata of files that aren't cached spans. When the cache is initialized from
+   * a span snapshot, this replaces the removal of unused metadata after listing the directories.
+   */
+  private void removeStaleFileMetadata(CacheFileMetadataIndex fileIndex) {
+    try {
+      Set<String> staleFileNames = new HashSet<>(fileIndex.getAll().keySet());
+      for (CachedContent cachedContent : contentIndex.getAll()) {
+        for (CacheSpan span : cachedContent.getSpans()) {
+          staleFileNames.remove(Assertions.checkNotNull(span.file).getName());
+        }
+      }
+      fileIndex.removeAll(staleFileNames);
+    } catch (IOException e) {
+      Log.w(TAG, "Failed to remove stale file index entries", e);
+    }
+  }
+
+  /**
+   * Reconciles a cache file that isn't in the in-memory representation of the cache.
+   *
+   * @param file The cache file.
+   * @return Whether a span was added.
+   */
+  private boolean reconcileFile(File file) {
+    @Nullable String key = contentIndex.getKeyForId(SimpleCacheSpan.getContentId(file.getName()));
+    @Nullable CachedContent cachedContent = key != null ? contentIndex.get(key) : null;
+    if (cachedContent != null && !cachedContent.isFullyUnlocked()) {
+      // The file may still be being written.
+      return false;
+    }
+    @Nullable
+    SimpleCacheSpan span = SimpleCacheSpan.createCacheEntry(file, C.LENGTH_UNSET, contentIndex);
+    if (span == null) {
+      file.delete();
+      return false;
+    }
+    cachedContent = contentIndex.get(span.key);
+    @Nullable
+    SimpleCacheSpan indexedSpan =
+        cachedContent != null
+            ? cachedContent.getSpans().floor(SimpleCacheSpan.createLookup(span.key, span.position))
+            : null;
+    if (indexedSpan != null && indexedSpan.position == span.position) {
+      if (file.equals(indexedSpan.file)) {
+        return false;
+      } else if (Assertions.checkNotNull(indexedSpan.file).exists()) {
+        // The file duplicates a span that's already cached.
+        file.delete();
+        return false;
+      }
+      removeSpanInternal(indexedSpan);
+    }
+    addSpan(span);
+    return true;
+  }
+
+  private void storeSpanSnapshot() {
+    if (spanSnapshot == null || uid == UID_UNSET) {
+      return;
+    }
+    try {
+      spanSnapshot.store(uid, contentIndex.getAll());
+    } catch (IOException e) {
+      Log.e(TAG, "Storing span snapshot failed", e);
+    }
+  }
+
   /**
    * Touches a cache span, returning the updated result. If the evictor does not require cache spans
    * to be touched, then this method does nothing and the span is returned without modification.
@@ -642,7 +973,7 @@ public final class SimpleCache implements Cache {
     boolean updateFile = false;
     if (fileIndex != null) {
       try {
-        fileIndex.set(fileName, length, lastTouchTimestamp);
+        setFileMetadata(fileName, length, lastTouchTimestamp);
       } catch (IOException e) {
         Log.w(TAG, "Failed to update index with new touch timestamp.");
       }
@@ -675,9 +1006,15 @@ public final class SimpleCache implements Cache {
     while (true) {
       SimpleCacheSpan span = cachedContent.getSpan(position, length);
       if (span.isCached && Assertions.checkNotNull(span.file).length() != span.length) {
-        // The file has been modified or deleted underneath us. It's likely that other files will
-        // have been modified too, so scan the whole in-memory representation.
-        removeStaleSpans();
+        if (reconcilingSpans) {
+          // The span was loaded from a stale snapshot. Other stale spans are removed when the spans
+          // are reconciled with the cache files, so only remove this one.
+          removeSpanInternal(span);
+        } else {
+          // The file has been modified or deleted underneath us. It's likely that other files will
+          // have been modified too, so scan the whole in-memory representation.
+          removeStaleSpans();
+        }
         continue;
       }
       return span;
@@ -704,7 +1041,7 @@ public final class SimpleCache implements Cache {
     if (fileIndex != null) {
       String fileName = Assertions.checkNotNull(span.file).getName();
       try {
-        fileIndex.remove(fileName);
+        removeFileMetadata(fileName);
       } catch (IOException e) {
         // This will leave a stale entry in the file index. It will be removed next time the cache
         // is initialized.
@@ -715,6 +1052,94 @@ public final class SimpleCache implements Cache {
     notifySpanRemoved(span);
   }
 
+  private void setFileMetadata(String fileName, long length, long lastTouchTimestamp)
+      throws IOException {
+    if (indexFlushExecutor != null) {
+      pendingFileMetadataUpdates.put(fileName, new CacheFileMetadata(length, lastTouchTimestamp));
+      scheduleIndexFlush();
+    } else {
+      Assertions.checkNotNull(fileIndex).set(fileName, length, lastTouchTimestamp);
+    }
+  }
+
+  private void removeFileMetadata(String fileName) throws IOException {
+    if (indexFlushExecutor != null) {
+      pendingFileMetadataUpdates.put(fileName, null);
+      scheduleIndexFlush();
+    } else {
+      Assertions.checkNotNull(fileIndex).remove(fileName);
+    }
+  }
+
+  /** Stores the content index, or schedules it to be stored if index writes are deferred. */
+  private void storeContentIndex() throws IOException {
+    if (indexFlushExecutor != null) {
+      scheduleIndexFlush();
+    } else {
+      contentIndex.store();
+    }
+  }
+
+  private void scheduleIndexFlush() {
+    if (indexFlushScheduled) {
+      return;
+    }
+    indexFlushScheduled = true;
+    Assertions.checkNotNull(indexFlushExecutor)
+        .schedule(this::flushDeferredIndexUpdates, indexWriteBehindWindowMs, TimeUnit.MILLISECONDS);
+  }
+
+  private synchronized void flushDeferredIndexUpdates() {
+    if (released) {
+      return;
+    }
+    try {
+      storeIndices();
+    } catch (IOException e) {
+      Log.e(TAG, "Storing deferred index updates failed", e);
+    }
+  }
+
+  /**
+   * Writes pending file metadata updates and the content index, in a single transaction if both are
+   * stored in the database, and then clears the journal.
+   */
+  private void storeIndices() throws IOException {
+    indexFlushScheduled = false;
+    if (databaseProvider != null && !pendingFileMetadataUpdates.isEmpty()) {
+      try {
+        SQLiteDatabase writableDatabase = databaseProvider.getWritableDatabase();
+        writableDatabase.beginTransactionNonExclusive();
+        try {
+          storeIndicesInternal();
+          writableDatabase.setTransactionSuccessful();
+        } finally {
+          writableDatabase.endTransaction();
+        }
+      } catch (SQLException e) {
+        throw new DatabaseIOException(e);
+      }
+    } else {
+      storeIndicesInternal();
+    }
+    if (journaledContentIds.size() > 0) {
+      indexJournal.clear();
+      journaledContentIds.clear();
+    }
+  }
+
+  private void storeIndicesInternal() throws IOException {
+    if (!pendingFileMetadataUpdates.isEmpty()) {
+      // Stale or missing file metadata is recovered from the cache files on initialization, so the
+      // updates don't need to be retried if the transaction fails.
+      HashMap<String, @NullableType CacheFileMetadata> updates =
+          new HashMap<>(pendingFileMetadataUpdates);
+      pendingFileMetadataUpdates.clear();
+      Assertions.checkNotNull(fileIndex).update(updates);
+    }
+    contentIndex.store();
+  }
+
   /**
    * Scans all of the cached spans in the in-memory representation, removing any for which the
    * underlying file lengths no longer match.
@@ -50,6 +50,20 @@ import java.util.regex.Pattern;
     return new File(cacheDir, id + "." + position + "." + timestamp + SUFFIX);
   }
 
+  /**
+   * Returns the content id encoded in the name of a cache file, or {@link C#INDEX_UNSET} if the
+   * name isn't that of a cache file in the current format.
+   *
+   * @param fileName The name of the file.
+   * @return The content id, or {@link C#INDEX_UNSET}.
+   */
+  public static int getContentId(String fileName) {
+    Matcher matcher = CACHE_FILE_PATTERN_V3.matcher(fileName);
+    return matcher.matches()
+        ? Integer.parseInt(Assertions.checkNotNull(matcher.group(1)))
+        : C.INDEX_UNSET;
+  }
+
   /**
    * Creates a lookup span.
    *
@@ -73,6 +87,22 @@ import java.util.regex.Pattern;
     return new SimpleCacheSpan(key, position, length, C.TIME_UNSET, null);
   }
 
+  /**
+   * Creates a cache span for a file whose name doesn't encode the span, for example a slot file of
+   * a {@link RingBufferCache}.
+   *
+   * @param key The cache key of the resource.
+   * @param position The position of the span in the resource.
+   * @param length The length of the span in bytes.
+   * @param lastTouchTimestamp The last touch timestamp.
+   * @param file The file holding the span.
+   * @return The span.
+   */
+  public static SimpleCacheSpan createCacheEntry(
+      String key, long position, long length, long lastTouchTimestamp, File file) {
+    return new SimpleCacheSpan(key, position, length, lastTouchTimestamp, file);
+  }
+
   /**
    * Creates a cache span from an underlying cache file. Upgrades the file if necessary.
    *
@@ -0,0 +1,249 @@
+/*
+ * Copyright 2026 The Android Open Source Project
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package androidx.media3.datasource.cache;
+
+import static androidx.media3.common.util.Assertions.checkArgument;
+import static androidx.media3.common.util.Assertions.checkState;
+import static androidx.media3.common.util.Assertions.checkStateNotNull;
+import static java.lang.Math.min;
+
+import androidx.annotation.Nullable;
+import androidx.media3.common.C;
+import androidx.media3.common.util.Log;
+import androidx.media3.datasource.DataSink;
+import androidx.media3.datasource.DataSpec;
+import java.io.IOException;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.Executor;
+
+/**
+ * A {@link DataSink} that writes to a cache sink, typically a {@link CacheDataSink}, on a
+ * background {@link Executor}, so that slow cache writes don't block the thread reading the data.
+ *
+ * <p>Data passed to {@link #write(byte[], int, int)} is copied into a bounded buffer from which the
+ * executor writes it to the wrapped sink. If the buffer is full because the writer has fallen
+ * behind, the rest of the data for the current {@link DataSpec} is dropped rather than blocking the
+ * caller. The data written up to that point is still committed when the sink is closed, so the
+ * cached span is incomplete and the missing data is requested from upstream when it's next read.
+ *
+ * <p>{@link #close()} doesn't wait for the buffered data to be written. The wrapped sink is closed
+ * on the executor once the data has been written, and the sink can be opened for the next {@link
+ * DataSpec} in the meantime. A caller that holds a lock on the cache hole being written must not
+ * release it when {@link #close()} returns, but should pass the release to {@link
+ * #runAfterClose(Runnable)} instead.
+ *
+ * <p>Errors thrown by the wrapped sink are logged and cause the rest of the data for the current
+ * {@link DataSpec} to be dropped. They aren't propagated to the caller.
+ */
+/* package */ final class WriteBehindDataSink implements DataSink {
+
+  private static final String TAG = "WriteBehindDataSink";
+
+  /** The maximum number of bytes passed to the wrapped sink in a single write. */
+  private static final int MAX_WRITE_LENGTH = 64 * 1024;
+
+  private final DataSink sink;
+  private final Executor executor;
+  private final byte[] buffer;
+
+  // Guarded by this.
+  private final ArrayDeque<Segment> segments;
+  @Nullable private Segment openSegment;
+  private int readPosition;
+  private int pendingBytes;
+  private boolean writerScheduled;
+
+  /**
+   * @param sink The sink to which data is written on the executor.
+   * @param executor The executor on which data is written to {@code sink}.
+   * @param bufferSize The maximum number of bytes waiting to be written, in bytes.
+   */
+  public WriteBehindDataSink(DataSink sink, Executor executor, int bufferSize) {
+    checkArgument(bufferSize > 0);
+    this.sink = sink;
+    this.executor = executor;
+    buffer = new byte[bufferSize];
+    segments = new ArrayDeque<>();
+  }
+
+  @Override
+  public synchronized void open(DataSpec dataSpec) {
+    checkState(openSegment == null);
+    Segment segment = new Segment(dataSpec);
+    // CacheDataSink ignores the data in this case, so there's no need to buffer it.
+    segment.dropping =
+        dataSpec.length == C.LENGTH_UNSET
+            && dataSpec.isFlagSet(DataSpec.FLAG_DONT_CACHE_IF_LENGTH_UNKNOWN);
+    segments.addLast(segment);
+    openSegment = segment;
+    scheduleWriter();
+  }
+
+  @Override
+  public synchronized void write(byte[] data, int offset, int length) {
+    Segment segment = checkStateNotNull(openSegment);
+    if (segment.dropping || length == 0) {
+      return;
+    }
+    if (length > buffer.length - pendingBytes) {
+      Log.w(TAG, "Cache writer fell behind, dropping the rest of the data");
+      segment.dropping = true;
+      return;
+    }
+    int writePosition = (readPosition + pendingBytes) % buffer.length;
+    int firstLength = min(length, buffer.length - writePosition);
+    System.arraycopy(data, offset, buffer, writePosition, firstLength);
+    System.arraycopy(data, offset + firstLength, buffer, 0, length - firstLength);
+    pendingBytes += length;
+    segment.pendingBytes += length;
+    scheduleWriter();
+  }
+
+  @Override
+  public synchronized void close() {
+    if (openSegment == null) {
+      return;
+    }
+    openSegment.closeRequested = true;
+    openSegment = null;
+    scheduleWriter();
+  }
+
+  /**
+   * Runs {@code runnable} after the wrapped sink has been closed for every {@link DataSpec} opened
+   * so far. If there's nothing left to close, {@code runnable} is run immediately on the calling
+   * thread. Else it's run on the executor.
+   *
+   * @param runnable The {@link Runnable} to run.
+   */
+  public void runAfterClose(Runnable runnable) {
+    synchronized (this) {
+      @Nullable Segment lastSegment = segments.peekLast();
+      if (lastSegment != null) {
+        lastSegment.onClosedRunnables.add(runnable);
+        return;
+      }
+    }
+    runnable.run();
+  }
+
+  private void scheduleWriter() {
+    if (!writerScheduled) {
+      writerScheduled = true;
+      executor.execute(this::writeBuffered);
+    }
+  }
+
+  /** Writes buffered data to the wrapped sink until there's nothing left to do. */
+  private void writeBuffered() {
+    try {
+      while (true) {
+        Segment segment;
+        int writePosition = 0;
+        int writeLength = 0;
+        synchronized (this) {
+          @Nullable Segment firstSegment = segments.peekFirst();
+          if (firstSegment == null
+              || (firstSegment.opened
+                  && firstSegment.pendingBytes == 0
+                  && !firstSegment.closeRequested)) {
+            writerScheduled = false;
+            return;
+          }
+          segment = firstSegment;
+          if (segment.opened && segment.pendingBytes > 0) {
+            writePosition = readPosition;
+            writeLength =
+                min(min(segment.pendingBytes, buffer.length - readPosition), MAX_WRITE_LENGTH);
+          }
+        }
+        boolean closing = segment.opened && writeLength == 0;
+        @Nullable IOException error = null;
+        try {
+          if (!segment.opened) {
+            sink.open(segment.dataSpec);
+          } else if (writeLength > 0) {
+            sink.write(buffer, writePosition, writeLength);
+          } else {
+            sink.close();
+          }
+        } catch (IOException e) {
+          error = e;
+        }
+        List<Runnable> onClosedRunnables;
+        synchronized (this) {
+          if (error != null) {
+            Log.w(TAG, "Failed to write to cache, dropping the rest of the data", error);
+            segment.dropping = true;
+            skipPendingBytes(segment, segment.pendingBytes);
+          } else {
+            skipPendingBytes(segment, writeLength);
+          }
+          segment.opened = true;
+          if (!closing) {
+            continue;
+          }
+          segments.removeFirst();
+          onClosedRunnables = segment.onClosedRunnables;
+        }
+        for (int i = 0; i < onClosedRunnables.size(); i++) {
+          onClosedRunnables.get(i).run();
+        }
+      }
+    } catch (RuntimeException e) {
+      // The state of the wrapped sink is unknown, so give up on everything that's pending.
+      List<Runnable> onClosedRunnables = new ArrayList<>();
+      synchronized (this) {
+        for (Segment segment : segments) {
+          segment.dropping = true;
+          onClosedRunnables.addAll(segment.onClosedRunnables);
+        }
+        segments.clear();
+        readPosition = 0;
+        pendingBytes = 0;
+        writerScheduled = false;
+      }
+      for (int i = 0; i < onClosedRunnables.size(); i++) {
+        onClosedRunnables.get(i).run();
+      }
+      throw e;
+    }
+  }
+
+  private void skipPendingBytes(Segment segment, int length) {
+    readPosition = (readPosition + length) % buffer.length;
+    pendingBytes -= length;
+    segment.pendingBytes -= length;
+  }
+
+  /** The pending work for a single {@link DataSpec}. Mutable fields are guarded by the sink. */
+  private static final class Segment {
+
+    public final DataSpec dataSpec;
+    public final List<Runnable> onClosedRunnables;
+    public int pendingBytes;
+    public boolean dropping;
+    public boolean closeRequested;
+    public boolean opened;
+
+    public Segment(DataSpec dataSpec) {
+      this.dataSpec = dataSpec;
+      onClosedRunnables = new ArrayList<>();
+    }
+  }
+}
@@ -0,0 +1,155 @@
+/*
+ * Copyright 2026 The Android Open Source Project
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package androidx.media3.datasource;
+
+import static com.google.common.truth.Truth.assertThat;
+
+import android.net.Uri;
+import androidx.test.ext.junit.runners.AndroidJUnit4;
+import java.io.IOException;
+import java.net.DatagramPacket;
+import java.net.DatagramSocket;
+import java.net.InetAddress;
+import java.net.SocketException;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+
+/** Unit tests for {@link MulticastDataSource}. */
+@RunWith(AndroidJUnit4.class)
+public final class MulticastDataSourceTest {
+
+  private DatagramSocket senderSocket;
+  private int port;
+
+  @Before
+  public void setUp() throws SocketException {
+    senderSocket = new DatagramSocket();
+    port = findFreeUdpPort();
+  }
+
+  @After
+  public void tearDown() {
+    senderSocket.close();
+  }
+
+  @Test
+  public void read_rtpPacketsOutOfOrder_returnsPayloadsInSequenceOrder() throws IOException {
+    MulticastDataSource dataSource =
+        new MulticastDataSource.Factory()
+            .setRtpEnabled(true)
+            .setReorderTimeoutMs(5_000)
+            .createDataSource();
+    dataSource.open(new DataSpec(Uri.parse("udp://127.0.0.1:" + port)));
+
+    sendRtpPacket(/* sequenceNumber= */ 65535, /* payload= */ (byte) 'a');
+    sendRtpPacket(/* sequenceNumber= */ 1, /* payload= */ (byte) 'c');
+    sendRtpPacket(/* sequenceNumber= */ 0, /* payload= */ (byte) 'b');
+    byte[] data = DataSourceUtil.readExactly(dataSource, /* length= */ 3);
+    MulticastDataSource.Statistics statistics = dataSource.getStatistics();
+    dataSource.close();
+
+    assertThat(new String(data, "US-ASCII")).isEqualTo("abc");
+    assertThat(statistics.receivedPacketCount).isEqualTo(3);
+    assertThat(statistics.lostPacketCount).isEqualTo(0);
+    assertThat(statistics.discardedPacketCount).isEqualTo(0);
+    assertThat(statistics.jitterUs).isAtLeast(0);
+  }
+
+  @Test
+  public void read_rtpPacketMissing_skipsPacketAfterReorderTimeout() throws IOException {
+    MulticastDataSource dataSource =
+        new MulticastDataSource.Factory()
+            .setRtpEnabled(true)
+            .setReorderTimeoutMs(10)
+            .createDataSource();
+    dataSource.open(new DataSpec(Uri.parse("udp://127.0.0.1:" + port)));
+
+    sendRtpPacket(/* sequenceNumber= */ 10, /* payload= */ (byte) 'a');
+    sendRtpPacket(/* sequenceNumber= */ 12, /* payload= */ (byte) 'c');
+    byte[] data = DataSourceUtil.readExactly(dataSource, /* length= */ 2);
+    sendRtpPacket(/* sequenceNumber= */ 11, /* payload= */ (byte) 'b');
+    sendRtpPacket(/* sequenceNumber= */ 13, /* payload= */ (byte) 'd');
+    byte[] moreData = DataSourceUtil.readExactly(dataSource, /* length= */ 1);
+    MulticastDataSource.Statistics statistics = dataSource.getStatistics();
+    dataSource.close();
+
+    assertThat(new String(data, "US-ASCII")).isEqualTo("ac");
+    assertThat(new String(moreData, "US-ASCII")).isEqualTo("d");
+    assertThat(statistics.lostPacketCount).isEqualTo(1);
+    assertThat(statistics.discardedPacketCount).isEqualTo(1);
+  }
+
+  @Test
+  public void read_readerFallsBehind_dropsOldestPackets() throws Exception {
+    MulticastDataSource dataSource =
+        new MulticastDataSource.Factory().setBufferPacketCount(2).createDataSource();
+    dataSource.open(new DataSpec(Uri.parse("udp://127.0.0.1:" + port)));
+
+    sendPacket(new byte[] {1});
+    sendPacket(new byte[] {2});
+    sendPacket(new byte[] {3});
+    waitForReceivedPacketCount(dataSource, /* packetCount= */ 3);
+    byte[] data = DataSourceUtil.readExactly(dataSource, /* length= */ 2);
+    MulticastDataSource.Statistics statistics = dataSource.getStatistics();
+    dataSource.close();
+
+    assertThat(data).isEqualTo(new byte[] {2, 3});
+    assertThat(statistics.overflowPacketCount).isEqualTo(1);
+  }
+
+  private void sendRtpPacket(int sequenceNumber, byte payload) throws IOException {
+    byte[] packet = new byte[13];
+    packet[0] = (byte) 0x80; // Version 2, no padding, no extension, no CSRCs.
+    packet[1] = 33; // Payload type MP2T.
+    packet[2] = (byte) (sequenceNumber >> 8);
+    packet[3] = (byte) sequenceNumber;
+    packet[7] = (byte) sequenceNumber; // Timestamp.
+    packet[12] = payload;
+    sendPacket(packet);
+  }
+
+  private void sendPacket(byte[] packet) throws IOException {
+    senderSocket.send(
+        new DatagramPacket(packet, packet.length, InetAddress.getByName("127.0.0.1"), port));
+  }
+
+  private static void waitForReceivedPacketCount(MulticastDataSource dataSource, int packetCount)
+      throws InterruptedException {
+    long timeoutMs = System.currentTimeMillis() + 5_000;
+    while (dataSource.getStatistics().receivedPacketCount < packetCount
+        && System.currentTimeMillis() < timeoutMs) {
+      Thread.sleep(1);
+    }
+  }
+
+  /**
+   * Finds a free UDP port in the range of unreserved ports 50000-60000 that can be used from the
+   * test or throws an {@link IllegalStateException} if no port is available.
+   */
+  private static int findFreeUdpPort() {
+    for (int i = 50000; i <= 60000; i++) {
+      try {
+        new DatagramSocket(i).close();
+        return i;
+      } catch (SocketException e) {
+        // Port is occupied, continue to next port.
+      }
+    }
+    throw new IllegalStateException();
+  }
+}
@@ -23,7 +23,9 @@ import static org.junit.Assert.fail;
 import android.net.Uri;
 import androidx.annotation.Nullable;
 import androidx.media3.common.C;
+import androidx.media3.common.util.ConditionVariable;
 import androidx.media3.common.util.Util;
+import androidx.media3.datasource.DataSink;
 import androidx.media3.datasource.DataSourceUtil;
 import androidx.media3.datasource.DataSpec;
 import androidx.media3.datasource.FileDataSource;
@@ -35,10 +37,12 @@ import androidx.test.core.app.ApplicationProvider;
 import androidx.test.ext.junit.runners.AndroidJUnit4;
 import java.io.File;
 import java.io.IOException;
+import java.nio.ByteBuffer;
 import java.util.Arrays;
 import java.util.HashMap;
 import java.util.Map;
 import java.util.NavigableSet;
+import java.util.concurrent.ExecutorService;
 import org.junit.After;
 import org.junit.Before;
 import org.junit.Test;
@@ -522,6 +526,102 @@ public final class CacheDataSourceTest {
     cacheDataSource.close();
   }
 
+  @Test
+  public void readIntoByteBuffer_fromMemoryMappedCache_readsCachedData() throws Exception {
+    // Read all data from upstream and write to cache.
+    CacheDataSource cacheDataSource =
+        createCacheDataSource(/* setReadException= */ false, /* unknownLength= */ false);
+    assertReadDataContentLength(
+        cacheDataSource,
+        unboundedDataSpec,
+        /* unknownLength= */ false,
+        /* customCacheKey= */ false);
+    upstreamDataSource
+        .getDataSet()
+        .newDefaultData()
+        .appendReadError(new IOException("Shouldn't read from upstream"));
+    cacheDataSource =
+        new CacheDataSource(
+            cache,
+            upstreamDataSource,
+            new FileDataSource(/* useMemoryMapping= */ true),
+            /* cacheWriteDataSink= */ null,
+            CacheDataSource.FLAG_BLOCK_ON_CACHE,
+            /* eventListener= */ null);
+
+    // Leave space after the data, so that reading at the end of the input returns
+    // RESULT_END_OF_INPUT rather than 0 for a zero length read.
+    ByteBuffer target = ByteBuffer.allocateDirect(TEST_DATA.length + 1);
+    cacheDataSource.open(unboundedDataSpec);
+    while (cacheDataSource.read(target, target.remaining()) != C.RESULT_END_OF_INPUT) {}
+    cacheDataSource.close();
+
+    assertThat(target.position()).isEqualTo(TEST_DATA.length);
+    byte[] data = new byte[TEST_DATA.length];
+    target.flip();
+    target.get(data);
+    assertThat(data).isEqualTo(TEST_DATA);
+  }
+
+  @Test
+  public void close_withWriteBehindSinkBlocked_returnsAndKeepsHoleLockedUntilDataIsCommitted()
+      throws Exception {
+    ConditionVariable sinkUnblocked = new ConditionVariable();
+    DataSink cacheDataSink = new CacheDataSink(cache, CACHE_FRAGMENT_SIZE);
+    DataSink blockingSink =
+        new DataSink() {
+          @Override
+          public void open(DataSpec dataSpec) throws IOException {
+            cacheDataSink.open(dataSpec);
+          }
+
+          @Override
+          public void write(byte[] buffer, int offset, int length) throws IOException {
+            sinkUnblocked.blockUninterruptible();
+            cacheDataSink.write(buffer, offset, length);
+          }
+
+          @Override
+          public void close() throws IOException {
+            cacheDataSink.close();
+          }
+        };
+    ExecutorService executor = Util.newSingleThreadExecutor("CacheDataSourceTest");
+    WriteBehindDataSink writeBehindSink =
+        new WriteBehindDataSink(blockingSink, executor, /* bufferSize= */ 1024);
+    upstreamDataSource.getDataSet().newDefaultData().appendReadData(TEST_DATA);
+    CacheDataSource cacheDataSource =
+        new CacheDataSource(
+            cache,
+            upstreamDataSource,
+            new FileDataSource(),
+            writeBehindSink,
+            /* flags= */ 0,
+            /* eventListener= */ null);
+
+    try {
+      cacheDataSource.open(boundedDataSpec);
+      assertThat(DataSourceUtil.readToEnd(cacheDataSource)).isEqualTo(TEST_DATA);
+      cacheDataSource.close();
+
+      // The data hasn't been written yet, so the hole is still locked.
+      assertThat(cache.startReadWriteNonBlocking(defaultCacheKey, 0, TEST_DATA.length)).isNull();
+      assertThat(cache.isCached(defaultCacheKey, 0, TEST_DATA.length)).isFalse();
+
+      sinkUnblocked.open();
+      ConditionVariable closed = new ConditionVariable();
+      writeBehindSink.runAfterClose(closed::open);
+      closed.block();
+      assertThat(cache.isCached(defaultCacheKey, 0, TEST_DATA.length)).isTrue();
+      CacheSpan span = cache.startReadWriteNonBlocking(defaultCacheKey, 0, TEST_DATA.length);
+      assertThat(span).isNotNull();
+      assertThat(span.isCached).isTrue();
+    } finally {
+      sinkUnblocked.open();
+      executor.shutdown();
+    }
+  }
+
   private void assertCacheAndRead(DataSpec dataSpec, boolean unknownLength) throws IOException {
     assertCacheAndRead(dataSpec, unknownLength, /* cacheKeyFactory= */ null);
   }
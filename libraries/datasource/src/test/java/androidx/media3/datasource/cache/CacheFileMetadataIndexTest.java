@@ -20,6 +20,7 @@ import static com.google.common.truth.Truth.assertThat;
 import androidx.media3.database.DatabaseIOException;
 import androidx.media3.test.utils.TestUtil;
 import androidx.test.ext.junit.runners.AndroidJUnit4;
+import java.util.HashMap;
 import java.util.HashSet;
 import java.util.Map;
 import org.junit.Test;
@@ -126,6 +127,25 @@ public class CacheFileMetadataIndexTest {
     assertThat(metadata.lastTouchTimestamp).isEqualTo(123);
   }
 
+  @Test
+  public void update_setsAndRemovesInOneCall() throws DatabaseIOException {
+    CacheFileMetadataIndex index = newInitializedIndex();
+    index.set("name1", /* length= */ 123, /* lastTouchTimestamp= */ 456);
+
+    HashMap<String, CacheFileMetadata> updates = new HashMap<>();
+    updates.put("name1", null);
+    updates.put("name2", new CacheFileMetadata(/* length= */ 789, /* lastTouchTimestamp= */ 123));
+    index.update(updates);
+
+    Map<String, CacheFileMetadata> all = index.getAll();
+    assertThat(all.size()).isEqualTo(1);
+
+    CacheFileMetadata metadata = all.get("name2");
+    assertThat(metadata).isNotNull();
+    assertThat(metadata.length).isEqualTo(789);
+    assertThat(metadata.lastTouchTimestamp).isEqualTo(123);
+  }
+
   private static CacheFileMetadataIndex newInitializedIndex() throws DatabaseIOException {
     CacheFileMetadataIndex index =
         new CacheFileMetadataIndex(TestUtil.getInMemoryDatabaseProvider());
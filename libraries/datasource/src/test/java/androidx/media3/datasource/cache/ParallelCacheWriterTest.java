@@ -0,0 +1,194 @@
+/*
+ * Copyright 2026 The Android Open Source Project
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package androidx.media3.datasource.cache;
+
+import static androidx.media3.test.utils.CacheAsserts.assertCachedData;
+import static com.google.common.truth.Truth.assertThat;
+import static org.junit.Assert.assertThrows;
+
+import android.net.Uri;
+import androidx.media3.common.C;
+import androidx.media3.common.util.Util;
+import androidx.media3.datasource.DataSpec;
+import androidx.media3.test.utils.FakeDataSet;
+import androidx.media3.test.utils.FakeDataSource;
+import androidx.media3.test.utils.TestUtil;
+import androidx.test.core.app.ApplicationProvider;
+import androidx.test.ext.junit.runners.AndroidJUnit4;
+import java.io.File;
+import java.io.InterruptedIOException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+
+/** Unit tests for {@link ParallelCacheWriter}. */
+@RunWith(AndroidJUnit4.class)
+public final class ParallelCacheWriterTest {
+
+  private static final Uri TEST_URI = Uri.parse("test_data");
+
+  private File tempFolder;
+  private SimpleCache cache;
+  private ExecutorService executor;
+
+  @Before
+  public void setUp() throws Exception {
+    tempFolder =
+        Util.createTempDirectory(ApplicationProvider.getApplicationContext(), "ExoPlayerTest");
+    cache =
+        new SimpleCache(tempFolder, new NoOpCacheEvictor(), TestUtil.getInMemoryDatabaseProvider());
+    executor = Executors.newFixedThreadPool(/* nThreads= */ 3);
+  }
+
+  @After
+  public void tearDown() {
+    executor.shutdown();
+    cache.release();
+    Util.recursiveDelete(tempFolder);
+  }
+
+  @Test
+  public void cache_cachesChunksAsIndependentSpans() throws Exception {
+    FakeDataSet fakeDataSet = new FakeDataSet().setRandomData("test_data", 100);
+    CachingCounters counters = new CachingCounters();
+    ParallelCacheWriter cacheWriter =
+        new ParallelCacheWriter(
+            createCacheDataSourceFactory(fakeDataSet),
+            new DataSpec(TEST_URI),
+            executor,
+            /* maxParallelRequests= */ 3,
+            /* chunkSize= */ 30,
+            counters);
+
+    cacheWriter.cache();
+
+    assertThat(counters.contentLength).isEqualTo(100);
+    assertThat(counters.bytesAlreadyCached).isEqualTo(0);
+    assertThat(counters.bytesNewlyCached).isEqualTo(100);
+    assertThat(getCachedSpanPositions()).containsExactly(0L, 30L, 60L, 90L).inOrder();
+    assertCachedData(cache, fakeDataSet);
+  }
+
+  @Test
+  public void cache_partiallyCached_onlyRequestsUncachedData() throws Exception {
+    FakeDataSet fakeDataSet = new FakeDataSet().setRandomData("test_data", 100);
+    CacheDataSource.Factory cacheDataSourceFactory = createCacheDataSourceFactory(fakeDataSet);
+    new CacheWriter(
+            cacheDataSourceFactory.createDataSourceForDownloading(),
+            new DataSpec(TEST_URI, /* position= */ 40, /* length= */ 20),
+            /* temporaryBuffer= */ null,
+            /* progressListener= */ null)
+        .cache();
+    CachingCounters counters = new CachingCounters();
+    ParallelCacheWriter cacheWriter =
+        new ParallelCacheWriter(
+            cacheDataSourceFactory,
+            new DataSpec(TEST_URI, /* position= */ 0, /* length= */ 100),
+            executor,
+            /* maxParallelRequests= */ 3,
+            /* chunkSize= */ 30,
+            counters);
+
+    cacheWriter.cache();
+
+    assertThat(counters.contentLength).isEqualTo(100);
+    assertThat(counters.bytesAlreadyCached).isEqualTo(20);
+    assertThat(counters.bytesNewlyCached).isEqualTo(80);
+    assertThat(getCachedSpanPositions()).containsExactly(0L, 30L, 40L, 60L, 90L).inOrder();
+    assertCachedData(cache, fakeDataSet);
+  }
+
+  @Test
+  public void cache_unknownLength_cachesRemainingDataSequentially() throws Exception {
+    FakeDataSet fakeDataSet = new FakeDataSet();
+    FakeDataSet.FakeData fakeData =
+        fakeDataSet.newData("test_data").setSimulateUnknownLength(true);
+    for (int i = 0; i < 10; i++) {
+      fakeData.appendReadData(TestUtil.buildTestData(/* length= */ 10, /* seed= */ i));
+    }
+    fakeData.endData();
+    ParallelCacheWriter cacheWriter =
+        new ParallelCacheWriter(
+            createCacheDataSourceFactory(fakeDataSet),
+            new DataSpec(TEST_URI),
+            executor,
+            /* maxParallelRequests= */ 3,
+            /* chunkSize= */ 30,
+            /* progressListener= */ null);
+
+    cacheWriter.cache();
+
+    assertThat(ContentMetadata.getContentLength(cache.getContentMetadata("test_data")))
+        .isEqualTo(100);
+    assertCachedData(cache, fakeDataSet);
+  }
+
+  @Test
+  public void cache_afterCancel_throwsInterruptedIOException() {
+    FakeDataSet fakeDataSet = new FakeDataSet().setRandomData("test_data", 100);
+    ParallelCacheWriter cacheWriter =
+        new ParallelCacheWriter(
+            createCacheDataSourceFactory(fakeDataSet),
+            new DataSpec(TEST_URI),
+            executor,
+            /* maxParallelRequests= */ 3,
+            /* chunkSize= */ 30,
+            /* progressListener= */ null);
+
+    cacheWriter.cancel();
+
+    assertThrows(InterruptedIOException.class, cacheWriter::cache);
+    assertThat(cache.getCachedSpans("test_data")).isEmpty();
+  }
+
+  private CacheDataSource.Factory createCacheDataSourceFactory(FakeDataSet fakeDataSet) {
+    return new CacheDataSource.Factory()
+        .setCache(cache)
+        .setUpstreamDataSourceFactory(new FakeDataSource.Factory().setFakeDataSet(fakeDataSet));
+  }
+
+  private List<Long> getCachedSpanPositions() {
+    List<Long> positions = new ArrayList<>();
+    for (CacheSpan span : cache.getCachedSpans("test_data")) {
+      positions.add(span.position);
+    }
+    return positions;
+  }
+
+  private static final class CachingCounters implements CacheWriter.ProgressListener {
+
+    private long contentLength = C.LENGTH_UNSET;
+    private long bytesAlreadyCached;
+    private long bytesNewlyCached;
+    private boolean seenFirstProgressUpdate;
+
+    @Override
+    public synchronized void onProgress(
+        long contentLength, long bytesCached, long newBytesCached) {
+      this.contentLength = contentLength;
+      if (!seenFirstProgressUpdate) {
+        bytesAlreadyCached = bytesCached;
+        seenFirstProgressUpdate = true;
+      }
+      bytesNewlyCached = bytesCached - bytesAlreadyCached;
+    }
+  }
+}
@@ -0,0 +1,311 @@
+/*
+ * Copyright 2026 The Android Open Source Project
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package androidx.media3.datasource.cache;
+
+import static androidx.media3.common.C.LENGTH_UNSET;
+import static com.google.common.truth.Truth.assertThat;
+
+import androidx.media3.common.C;
+import androidx.media3.common.util.Util;
+import androidx.media3.datasource.ByteArrayDataSource;
+import androidx.media3.datasource.DataSpec;
+import androidx.test.core.app.ApplicationProvider;
+import androidx.test.ext.junit.runners.AndroidJUnit4;
+import com.google.common.io.ByteStreams;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.file.Files;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Random;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+
+/** Unit tests for {@link RingBufferCache}. */
+@RunWith(AndroidJUnit4.class)
+public final class RingBufferCacheTest {
+
+  private File testDir;
+  private File cacheDir;
+
+  @Before
+  public void createTestDir() throws Exception {
+    testDir =
+        Util.createTempFile(ApplicationProvider.getApplicationContext(), "RingBufferCacheTest");
+    assertThat(testDir.delete()).isTrue();
+    assertThat(testDir.mkdirs()).isTrue();
+    cacheDir = new File(testDir, "cache");
+  }
+
+  @After
+  public void deleteTestDir() {
+    Util.recursiveDelete(testDir);
+  }
+
+  @Test
+  public void newInstance_createsSlotFilesAndLoadsSameUid() {
+    RingBufferCache cache = new RingBufferCache(cacheDir, /* slotCount= */ 4);
+    long uid = cache.getUid();
+    cache.release();
+    cache = new RingBufferCache(cacheDir, /* slotCount= */ 4);
+
+    assertThat(uid).isAtLeast(0L);
+    assertThat(cache.getUid()).isEqualTo(uid);
+    assertThat(cache.getKeys()).isEmpty();
+    assertThat(getSlotFileCount()).isEqualTo(4);
+  }
+
+  @Test
+  public void write_ringWrapsAround_removesOldestSpansAndReusesSlotFiles() throws Exception {
+    RingBufferCache cache = new RingBufferCache(cacheDir, /* slotCount= */ 3);
+
+    for (int i = 0; i < 5; i++) {
+      addCache(cache, "key" + i, /* position= */ 0, /* length= */ 10 + i);
+    }
+
+    assertThat(cache.getKeys()).containsExactly("key2", "key3", "key4");
+    assertThat(cache.getCacheSpace()).isEqualTo(12 + 13 + 14);
+    assertThat(getSlotFileCount()).isEqualTo(3);
+    assertCachedDataReadCorrect(cache.startReadWrite("key3", 0, LENGTH_UNSET));
+  }
+
+  @Test
+  public void write_ringWrapsAroundTwice_writesIntoSameSlotFiles() throws Exception {
+    RingBufferCache cache = new RingBufferCache(cacheDir, /* slotCount= */ 3);
+    Map<String, Object> initialFileKeys = getSlotFileKeys();
+
+    for (int i = 0; i < 7; i++) {
+      addCache(cache, "key" + i, /* position= */ 0, /* length= */ 10 + i);
+    }
+
+    // The file keys identify the underlying files, for example by inode, so they change if a slot
+    // file is deleted and created again.
+    assertThat(initialFileKeys).hasSize(3);
+    assertThat(getSlotFileKeys()).isEqualTo(initialFileKeys);
+    assertCachedDataReadCorrect(cache.startReadWrite("key6", 0, LENGTH_UNSET));
+  }
+
+  @Test
+  public void isSpanValid_slotReused_returnsFalse() throws Exception {
+    RingBufferCache cache = new RingBufferCache(cacheDir, /* slotCount= */ 1);
+    addCache(cache, "key0", /* position= */ 0, /* length= */ 10);
+    CacheSpan cacheSpan = cache.startReadWrite("key0", 0, LENGTH_UNSET);
+    boolean isSpanValidBeforeReuse = cache.isSpanValid(cacheSpan);
+
+    addCache(cache, "key1", /* position= */ 0, /* length= */ 10);
+
+    assertThat(isSpanValidBeforeReuse).isTrue();
+    assertThat(cache.isSpanValid(cacheSpan)).isFalse();
+    assertThat(cache.isSpanValid(cache.startReadWrite("key1", 0, LENGTH_UNSET))).isTrue();
+  }
+
+  @Test
+  public void readThroughCacheDataSource_slotReusedWhileReading_readsRemainingDataFromUpstream()
+      throws Exception {
+    RingBufferCache cache = new RingBufferCache(cacheDir, /* slotCount= */ 1);
+    byte[] data = generateData("key0", /* position= */ 0, /* length= */ 100);
+    addCache(cache, "key0", /* position= */ 0, /* length= */ 100);
+    CacheDataSource cacheDataSource = new CacheDataSource(cache, new ByteArrayDataSource(data));
+    cacheDataSource.open(new DataSpec.Builder().setUri("uri").setKey("key0").build());
+    byte[] buffer = new byte[100];
+    int bytesRead = cacheDataSource.read(buffer, /* offset= */ 0, /* length= */ 10);
+
+    // Writing another span reuses the slot file that's being read.
+    addCache(cache, "key1", /* position= */ 0, /* length= */ 100);
+    while (bytesRead < buffer.length) {
+      int result = cacheDataSource.read(buffer, bytesRead, buffer.length - bytesRead);
+      if (result == C.RESULT_END_OF_INPUT) {
+        break;
+      }
+      bytesRead += result;
+    }
+    cacheDataSource.close();
+
+    assertThat(bytesRead).isEqualTo(100);
+    assertThat(buffer).isEqualTo(data);
+  }
+
+  @Test
+  public void newInstance_withSlotFileLength_extendsSlotFiles() {
+    new RingBufferCache(
+        cacheDir,
+        /* slotCount= */ 2,
+        RingBufferCache.DEFAULT_CHECKPOINT_INTERVAL_SLOTS,
+        /* slotFileLength= */ 1000);
+
+    for (File file : cacheDir.listFiles((dir, name) -> name.endsWith(".ring"))) {
+      assertThat(file.length()).isEqualTo(1000);
+    }
+  }
+
+  @Test
+  public void write_ringWrapsAround_notifiesListener() throws Exception {
+    RingBufferCache cache = new RingBufferCache(cacheDir, /* slotCount= */ 1);
+    CachingCounter counter = new CachingCounter();
+    cache.addListener("key0", counter);
+
+    addCache(cache, "key0", /* position= */ 0, /* length= */ 10);
+    addCache(cache, "key1", /* position= */ 0, /* length= */ 10);
+
+    assertThat(counter.addedCount).isEqualTo(1);
+    assertThat(counter.removedCount).isEqualTo(1);
+  }
+
+  @Test
+  public void newInstance_afterRelease_restoresSpans() throws Exception {
+    RingBufferCache cache =
+        new RingBufferCache(cacheDir, /* slotCount= */ 4, /* checkpointIntervalSlots= */ 2);
+    addCache(cache, "key", /* position= */ 0, /* length= */ 10);
+    addCache(cache, "key", /* position= */ 10, /* length= */ 10);
+    addCache(cache, "key", /* position= */ 20, /* length= */ 10);
+    cache.release();
+
+    cache = new RingBufferCache(cacheDir, /* slotCount= */ 4, /* checkpointIntervalSlots= */ 2);
+
+    assertThat(cache.getCachedBytes("key", 0, LENGTH_UNSET)).isEqualTo(30);
+    assertCachedDataReadCorrect(cache.startReadWrite("key", 10, LENGTH_UNSET));
+  }
+
+  @Test
+  public void newInstance_afterProcessDeath_dropsSpansWrittenSinceCheckpoint() throws Exception {
+    RingBufferCache cache =
+        new RingBufferCache(cacheDir, /* slotCount= */ 4, /* checkpointIntervalSlots= */ 2);
+    addCache(cache, "key", /* position= */ 0, /* length= */ 10);
+    addCache(cache, "key", /* position= */ 10, /* length= */ 10);
+    // Writing the third span checkpoints the first two.
+    addCache(cache, "key", /* position= */ 20, /* length= */ 10);
+
+    // Simulate process death by loading a copy of the cache directory without releasing the cache.
+    File copiedCacheDir = new File(testDir, "copy");
+    assertThat(copiedCacheDir.mkdirs()).isTrue();
+    for (File file : cacheDir.listFiles()) {
+      Files.copy(file.toPath(), new File(copiedCacheDir, file.getName()).toPath());
+    }
+    RingBufferCache restoredCache =
+        new RingBufferCache(copiedCacheDir, /* slotCount= */ 4, /* checkpointIntervalSlots= */ 2);
+
+    assertThat(restoredCache.getCachedBytes("key", 0, LENGTH_UNSET)).isEqualTo(20);
+    assertThat(restoredCache.isCached("key", 20, 10)).isFalse();
+  }
+
+  @Test
+  public void newInstance_withDifferentSlotCount_startsEmpty() throws Exception {
+    RingBufferCache cache = new RingBufferCache(cacheDir, /* slotCount= */ 4);
+    addCache(cache, "key", /* position= */ 0, /* length= */ 10);
+    cache.release();
+
+    cache = new RingBufferCache(cacheDir, /* slotCount= */ 2);
+
+    assertThat(cache.getKeys()).isEmpty();
+    assertThat(getSlotFileCount()).isEqualTo(2);
+  }
+
+  @Test
+  public void releaseHoleSpan_withoutCommit_freesSlot() throws Exception {
+    RingBufferCache cache = new RingBufferCache(cacheDir, /* slotCount= */ 1);
+    CacheSpan holeSpan = cache.startReadWrite("key", 0, LENGTH_UNSET);
+    cache.startFile("key", 0, LENGTH_UNSET);
+    cache.releaseHoleSpan(holeSpan);
+
+    addCache(cache, "key", /* position= */ 0, /* length= */ 10);
+
+    assertThat(cache.isCached("key", 0, 10)).isTrue();
+  }
+
+  @Test
+  public void removeResource_removesSpansAndKeepsSlotFiles() throws Exception {
+    RingBufferCache cache = new RingBufferCache(cacheDir, /* slotCount= */ 2);
+    addCache(cache, "key", /* position= */ 0, /* length= */ 10);
+
+    cache.removeResource("key");
+
+    assertThat(cache.getKeys()).isEmpty();
+    assertThat(cache.getCacheSpace()).isEqualTo(0);
+    assertThat(getSlotFileCount()).isEqualTo(2);
+  }
+
+  private int getSlotFileCount() {
+    int count = 0;
+    for (File file : cacheDir.listFiles()) {
+      if (file.getName().endsWith(".ring")) {
+        count++;
+      }
+    }
+    return count;
+  }
+
+  private Map<String, Object> getSlotFileKeys() throws IOException {
+    Map<String, Object> fileKeys = new HashMap<>();
+    for (File file : cacheDir.listFiles((dir, name) -> name.endsWith(".ring"))) {
+      fileKeys.put(
+          file.getName(),
+          Files.readAttributes(file.toPath(), BasicFileAttributes.class).fileKey());
+    }
+    return fileKeys;
+  }
+
+  private static void addCache(RingBufferCache cache, String key, int position, int length)
+      throws Exception {
+    CacheSpan holeSpan = cache.startReadWrite(key, position, length);
+    File file = cache.startFile(key, position, length);
+    // Like CacheDataSink, write without truncating the file.
+    try (RandomAccessFile randomAccessFile = new RandomAccessFile(file, "rw")) {
+      randomAccessFile.write(generateData(key, position, length));
+    }
+    cache.commitFile(file, length);
+    cache.releaseHoleSpan(holeSpan);
+  }
+
+  private static void assertCachedDataReadCorrect(CacheSpan cacheSpan) throws IOException {
+    assertThat(cacheSpan.isCached).isTrue();
+    byte[] expected = generateData(cacheSpan.key, (int) cacheSpan.position, (int) cacheSpan.length);
+    // Slot files aren't truncated, so only the span's length of the file holds its data.
+    try (FileInputStream inputStream = new FileInputStream(cacheSpan.file)) {
+      assertThat(ByteStreams.toByteArray(ByteStreams.limit(inputStream, cacheSpan.length)))
+          .isEqualTo(expected);
+    }
+  }
+
+  private static byte[] generateData(String key, int position, int length) {
+    byte[] bytes = new byte[length];
+    new Random(key.hashCode() ^ position).nextBytes(bytes);
+    return bytes;
+  }
+
+  private static final class CachingCounter implements Cache.Listener {
+
+    public int addedCount;
+    public int removedCount;
+
+    @Override
+    public void onSpanAdded(Cache cache, CacheSpan span) {
+      addedCount++;
+    }
+
+    @Override
+    public void onSpanRemoved(Cache cache, CacheSpan span) {
+      removedCount++;
+    }
+
+    @Override
+    public void onSpanTouched(Cache cache, CacheSpan oldSpan, CacheSpan newSpan) {}
+  }
+}
@@ -0,0 +1,156 @@
+/*
+ * Copyright 2026 The Android Open Source Project
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package androidx.media3.datasource.cache;
+
+import static com.google.common.truth.Truth.assertThat;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.doAnswer;
+import static org.mockito.Mockito.mock;
+
+import androidx.test.ext.junit.runners.AndroidJUnit4;
+import java.util.ArrayList;
+import java.util.List;
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+
+/** Unit tests for {@link SegmentedLeastRecentlyUsedCacheEvictor}. */
+@RunWith(AndroidJUnit4.class)
+public final class SegmentedLeastRecentlyUsedCacheEvictorTest {
+
+  private Cache cache;
+  private List<String> removedKeys;
+
+  @Before
+  public void setUp() {
+    cache = mock(Cache.class);
+    removedKeys = new ArrayList<>();
+  }
+
+  @Test
+  public void contentBiggerThanMaxSizeDoesNotThrowException() {
+    SegmentedLeastRecentlyUsedCacheEvictor evictor =
+        createEvictor(new SegmentedLeastRecentlyUsedCacheEvictor(/* maxBytes= */ 100));
+    evictor.onCacheInitialized();
+
+    evictor.onStartFile(cache, "key", /* position= */ 0, /* length= */ 101);
+  }
+
+  @Test
+  public void onSpanAdded_overMaxSize_evictsLeastRecentlyUsedSpan() {
+    SegmentedLeastRecentlyUsedCacheEvictor evictor =
+        createEvictor(new SegmentedLeastRecentlyUsedCacheEvictor(/* maxBytes= */ 30));
+    evictor.onCacheInitialized();
+
+    evictor.onSpanAdded(cache, createSpan("a", /* timestamp= */ 1));
+    evictor.onSpanAdded(cache, createSpan("b", /* timestamp= */ 2));
+    evictor.onSpanAdded(cache, createSpan("c", /* timestamp= */ 3));
+    evictor.onSpanAdded(cache, createSpan("d", /* timestamp= */ 4));
+
+    assertThat(removedKeys).containsExactly("a");
+  }
+
+  @Test
+  public void scan_doesNotEvictTouchedSpans() {
+    SegmentedLeastRecentlyUsedCacheEvictor evictor =
+        createEvictor(new SegmentedLeastRecentlyUsedCacheEvictor(/* maxBytes= */ 30));
+    evictor.onCacheInitialized();
+    CacheSpan span = createSpan("hot", /* timestamp= */ 1);
+    evictor.onSpanAdded(cache, span);
+    evictor.onSpanTouched(cache, span, createSpan("hot", /* timestamp= */ 2));
+
+    for (int i = 0; i < 10; i++) {
+      evictor.onSpanAdded(cache, createSpan("scan" + i, /* timestamp= */ 3 + i));
+    }
+
+    assertThat(removedKeys).doesNotContain("hot");
+    assertThat(removedKeys)
+        .containsExactly("scan0", "scan1", "scan2", "scan3", "scan4", "scan5", "scan6", "scan7")
+        .inOrder();
+  }
+
+  @Test
+  public void onSpanTouched_protectedSegmentFull_demotesLeastRecentlyUsedProtectedSpan() {
+    SegmentedLeastRecentlyUsedCacheEvictor evictor =
+        createEvictor(
+            new SegmentedLeastRecentlyUsedCacheEvictor.Builder(/* maxBytes= */ 30)
+                .setProtectedFraction(0.5f)
+                .build());
+    evictor.onCacheInitialized();
+    CacheSpan spanA = createSpan("a", /* timestamp= */ 1);
+    CacheSpan spanB = createSpan("b", /* timestamp= */ 2);
+    CacheSpan spanC = createSpan("c", /* timestamp= */ 3);
+    evictor.onSpanAdded(cache, spanA);
+    evictor.onSpanAdded(cache, spanB);
+    evictor.onSpanAdded(cache, spanC);
+    evictor.onSpanTouched(cache, spanA, createSpan("a", /* timestamp= */ 4));
+    // Promoting b demotes a, which then is the most recently used probationary span.
+    evictor.onSpanTouched(cache, spanB, createSpan("b", /* timestamp= */ 5));
+
+    evictor.onSpanAdded(cache, createSpan("d", /* timestamp= */ 6));
+    evictor.onSpanAdded(cache, createSpan("e", /* timestamp= */ 7));
+
+    assertThat(removedKeys).containsExactly("c", "a").inOrder();
+  }
+
+  @Test
+  public void keyPrefixQuota_evictsOnlySpansWithPrefix() {
+    SegmentedLeastRecentlyUsedCacheEvictor evictor =
+        createEvictor(
+            new SegmentedLeastRecentlyUsedCacheEvictor.Builder(/* maxBytes= */ 100)
+                .setKeyPrefixQuota("live/", /* maxBytes= */ 20)
+                .build());
+    evictor.onCacheInitialized();
+
+    evictor.onSpanAdded(cache, createSpan("vod/1", /* timestamp= */ 1));
+    evictor.onSpanAdded(cache, createSpan("live/1", /* timestamp= */ 2));
+    evictor.onSpanAdded(cache, createSpan("live/2", /* timestamp= */ 3));
+    evictor.onSpanAdded(cache, createSpan("live/3", /* timestamp= */ 4));
+
+    assertThat(removedKeys).containsExactly("live/1");
+  }
+
+  @Test
+  public void onCacheInitialized_restoredSpansOverMaxSize_evictsOldestByTimestamp() {
+    SegmentedLeastRecentlyUsedCacheEvictor evictor =
+        createEvictor(new SegmentedLeastRecentlyUsedCacheEvictor(/* maxBytes= */ 20));
+
+    evictor.onSpanAdded(cache, createSpan("b", /* timestamp= */ 2));
+    evictor.onSpanAdded(cache, createSpan("c", /* timestamp= */ 3));
+    evictor.onSpanAdded(cache, createSpan("a", /* timestamp= */ 1));
+    evictor.onCacheInitialized();
+
+    assertThat(removedKeys).containsExactly("a");
+  }
+
+  private SegmentedLeastRecentlyUsedCacheEvictor createEvictor(
+      SegmentedLeastRecentlyUsedCacheEvictor evictor) {
+    doAnswer(
+            invocation -> {
+              CacheSpan span = invocation.getArgument(0);
+              removedKeys.add(span.key);
+              evictor.onSpanRemoved(cache, span);
+              return null;
+            })
+        .when(cache)
+        .removeSpan(any());
+    return evictor;
+  }
+
+  private static CacheSpan createSpan(String key, long timestamp) {
+    return new CacheSpan(key, /* position= */ 0, /* length= */ 10, timestamp, /* file= */ null);
+  }
+}
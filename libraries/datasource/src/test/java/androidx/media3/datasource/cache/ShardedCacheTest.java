@@ -0,0 +1,145 @@
+/*
+ * Copyright 2026 The Android Open Source Project
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package androidx.media3.datasource.cache;
+
+import static androidx.media3.common.C.LENGTH_UNSET;
+import static com.google.common.truth.Truth.assertThat;
+import static org.junit.Assert.assertThrows;
+
+import androidx.media3.common.util.Util;
+import androidx.media3.database.DatabaseProvider;
+import androidx.media3.datasource.cache.Cache.CacheException;
+import androidx.media3.test.utils.TestUtil;
+import androidx.test.core.app.ApplicationProvider;
+import androidx.test.ext.junit.runners.AndroidJUnit4;
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+
+/** Unit tests for {@link ShardedCache}. */
+@RunWith(AndroidJUnit4.class)
+public class ShardedCacheTest {
+
+  // The hash codes of these keys differ by one, so they are stored in different shards when there
+  // are two shards.
+  private static final String KEY_1 = "key1";
+  private static final String KEY_2 = "key2";
+
+  private File testDir;
+  private File cacheDir;
+  private DatabaseProvider databaseProvider;
+
+  @Before
+  public void setUp() throws Exception {
+    testDir = Util.createTempFile(ApplicationProvider.getApplicationContext(), "ShardedCacheTest");
+    assertThat(testDir.delete()).isTrue();
+    assertThat(testDir.mkdirs()).isTrue();
+    cacheDir = new File(testDir, "cache");
+    databaseProvider = TestUtil.getInMemoryDatabaseProvider();
+  }
+
+  @After
+  public void tearDown() {
+    Util.recursiveDelete(testDir);
+  }
+
+  @Test
+  public void writeToKeysInDifferentShards_readsBackEachKey() throws Exception {
+    ShardedCache cache = getShardedCache(/* shardCount= */ 2);
+
+    addCache(cache, KEY_1, /* position= */ 0, /* length= */ 15);
+    addCache(cache, KEY_2, /* position= */ 0, /* length= */ 10);
+
+    assertThat(cache.getKeys()).containsExactly(KEY_1, KEY_2);
+    assertThat(cache.getCacheSpace()).isEqualTo(25);
+    assertThat(cache.getCachedBytes(KEY_1, /* position= */ 0, LENGTH_UNSET)).isEqualTo(15);
+    assertThat(cache.getCachedBytes(KEY_2, /* position= */ 0, LENGTH_UNSET)).isEqualTo(10);
+    assertThat(new File(cacheDir, "shard-2-0").exists()).isTrue();
+    assertThat(new File(cacheDir, "shard-2-1").exists()).isTrue();
+    cache.release();
+  }
+
+  @Test
+  public void lockedSpanInOneShard_doesNotBlockOtherShard() throws Exception {
+    ShardedCache cache = getShardedCache(/* shardCount= */ 2);
+
+    CacheSpan holeSpan = cache.startReadWrite(KEY_1, /* position= */ 0, LENGTH_UNSET);
+
+    assertThat(cache.startReadWriteNonBlocking(KEY_1, /* position= */ 0, LENGTH_UNSET)).isNull();
+    CacheSpan otherHoleSpan =
+        cache.startReadWriteNonBlocking(KEY_2, /* position= */ 0, LENGTH_UNSET);
+    assertThat(otherHoleSpan).isNotNull();
+    cache.releaseHoleSpan(holeSpan);
+    cache.releaseHoleSpan(otherHoleSpan);
+    cache.release();
+  }
+
+  @Test
+  public void newInstance_withSameShardCount_loadsCachedData() throws Exception {
+    ShardedCache cache = getShardedCache(/* shardCount= */ 2);
+    addCache(cache, KEY_1, /* position= */ 0, /* length= */ 15);
+    addCache(cache, KEY_2, /* position= */ 0, /* length= */ 10);
+    cache.release();
+
+    cache = getShardedCache(/* shardCount= */ 2);
+
+    assertThat(cache.getKeys()).containsExactly(KEY_1, KEY_2);
+    assertThat(cache.getCacheSpace()).isEqualTo(25);
+    cache.release();
+  }
+
+  @Test
+  public void newInstance_withDifferentShardCount_deletesCachedData() throws Exception {
+    ShardedCache cache = getShardedCache(/* shardCount= */ 2);
+    addCache(cache, KEY_1, /* position= */ 0, /* length= */ 15);
+    cache.release();
+
+    cache = getShardedCache(/* shardCount= */ 3);
+
+    assertThat(cache.getKeys()).isEmpty();
+    assertThat(new File(cacheDir, "shard-2-0").exists()).isFalse();
+    assertThat(new File(cacheDir, "shard-2-1").exists()).isFalse();
+    cache.release();
+  }
+
+  @Test
+  public void commitFile_notInCache_throwsCacheException() throws Exception {
+    ShardedCache cache = getShardedCache(/* shardCount= */ 2);
+    File file = new File(testDir, "file.v3.exo");
+
+    assertThrows(CacheException.class, () -> cache.commitFile(file, /* length= */ 0));
+    cache.release();
+  }
+
+  private ShardedCache getShardedCache(int shardCount) {
+    return new ShardedCache(cacheDir, shardCount, NoOpCacheEvictor::new, databaseProvider);
+  }
+
+  private static void addCache(Cache cache, String key, int position, int length)
+      throws IOException, InterruptedException {
+    CacheSpan holeSpan = cache.startReadWrite(key, position, length);
+    File file = cache.startFile(key, position, length);
+    try (FileOutputStream fos = new FileOutputStream(file)) {
+      fos.write(TestUtil.buildTestData(length));
+    }
+    cache.commitFile(file, length);
+    cache.releaseHoleSpan(holeSpan);
+  }
+}
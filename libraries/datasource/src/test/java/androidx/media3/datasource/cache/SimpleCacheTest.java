@@ -148,6 +148,121 @@ public class SimpleCacheTest {
         .isEqualTo(Uri.parse("https://redirect.google.com"));
   }
 
+  @Test
+  public void newInstance_afterIndexWriteBehindCacheNotReleased_restoresContentFromJournal()
+      throws Exception {
+    SimpleCache simpleCache =
+        new SimpleCache(
+            cacheDir,
+            new NoOpCacheEvictor(),
+            databaseProvider,
+            /* indexWriteBehindWindowMs= */ 60_000);
+
+    CacheSpan holeSpan = simpleCache.startReadWrite(KEY_1, 0, LENGTH_UNSET);
+    addCache(simpleCache, KEY_1, 0, 15);
+    simpleCache.releaseHoleSpan(holeSpan);
+    ContentMetadataMutations mutations = new ContentMetadataMutations();
+    ContentMetadataMutations.setRedirectedUri(mutations, Uri.parse("https://redirect.google.com"));
+    simpleCache.applyContentMetadataMutations(KEY_1, mutations);
+
+    // Don't release the cache. This means the deferred index updates won't have been written to the
+    // database. Move the cache directory instead, so we can reload it without failing the folder
+    // locking check.
+    File cacheDir2 = new File(testDir, "cache2");
+    cacheDir.renameTo(cacheDir2);
+
+    // Create a new instance pointing to the new directory.
+    simpleCache = new SimpleCache(cacheDir2, new NoOpCacheEvictor(), databaseProvider);
+
+    // The content should have been restored from the journal.
+    CacheSpan fileSpan = simpleCache.startReadWrite(KEY_1, 0, LENGTH_UNSET);
+    assertCachedDataReadCorrect(fileSpan);
+    assertThat(ContentMetadata.getRedirectedUri(simpleCache.getContentMetadata(KEY_1)))
+        .isEqualTo(Uri.parse("https://redirect.google.com"));
+    assertThat(new File(cacheDir2, CacheIndexJournal.FILE_NAME).exists()).isFalse();
+  }
+
+  @Test
+  public void release_withIndexWriteBehind_storesIndexAndDeletesJournal() throws Exception {
+    SimpleCache simpleCache =
+        new SimpleCache(
+            cacheDir,
+            new NoOpCacheEvictor(),
+            databaseProvider,
+            /* indexWriteBehindWindowMs= */ 60_000);
+    CacheSpan holeSpan = simpleCache.startReadWrite(KEY_1, 0, LENGTH_UNSET);
+    addCache(simpleCache, KEY_1, 0, 15);
+    simpleCache.releaseHoleSpan(holeSpan);
+    assertThat(new File(cacheDir, CacheIndexJournal.FILE_NAME).exists()).isTrue();
+
+    simpleCache.release();
+
+    assertThat(new File(cacheDir, CacheIndexJournal.FILE_NAME).exists()).isFalse();
+    simpleCache = getSimpleCache();
+    CacheSpan fileSpan = simpleCache.startReadWrite(KEY_1, 0, LENGTH_UNSET);
+    assertCachedDataReadCorrect(fileSpan);
+  }
+
+  @Test
+  public void newInstance_withSpanSnapshot_loadsCachedData() throws Exception {
+    SimpleCache simpleCache = getSimpleCacheWithSpanSnapshot();
+    CacheSpan holeSpan = simpleCache.startReadWrite(KEY_1, 0, LENGTH_UNSET);
+    addCache(simpleCache, KEY_1, 0, 15);
+    simpleCache.releaseHoleSpan(holeSpan);
+    simpleCache.release();
+    assertThat(new File(cacheDir, CacheSpanSnapshot.FILE_NAME).exists()).isTrue();
+
+    simpleCache = getSimpleCacheWithSpanSnapshot();
+
+    assertCachedDataReadCorrect(simpleCache.startReadWrite(KEY_1, 0, LENGTH_UNSET));
+    assertThat(simpleCache.getCacheSpace()).isEqualTo(15);
+  }
+
+  @Test
+  public void newInstance_withStaleSpanSnapshot_reconcilesSpansWithCacheFiles() throws Exception {
+    SimpleCache simpleCache = getSimpleCacheWithSpanSnapshot();
+    CacheSpan holeSpan = simpleCache.startReadWrite(KEY_1, 0, LENGTH_UNSET);
+    addCache(simpleCache, KEY_1, 0, 15);
+    simpleCache.releaseHoleSpan(holeSpan);
+    simpleCache.release();
+    // Change the cache files without updating the snapshot.
+    simpleCache = getSimpleCache();
+    holeSpan = simpleCache.startReadWrite(KEY_2, 0, LENGTH_UNSET);
+    addCache(simpleCache, KEY_2, 0, 10);
+    simpleCache.releaseHoleSpan(holeSpan);
+    File key1File = simpleCache.startReadWrite(KEY_1, 0, LENGTH_UNSET).file;
+    simpleCache.release();
+    assertThat(key1File.delete()).isTrue();
+
+    simpleCache = getSimpleCacheWithSpanSnapshot();
+    simpleCache.blockUntilSpansReconciled();
+
+    assertThat(simpleCache.isCached(KEY_1, 0, 15)).isFalse();
+    assertCachedDataReadCorrect(simpleCache.startReadWrite(KEY_2, 0, LENGTH_UNSET));
+    assertThat(simpleCache.getCacheSpace()).isEqualTo(10);
+  }
+
+  @Test
+  public void newInstance_withSpanSnapshot_removesStaleFileMetadata() throws Exception {
+    SimpleCache simpleCache = getSimpleCacheWithSpanSnapshot();
+    CacheSpan holeSpan = simpleCache.startReadWrite(KEY_1, 0, LENGTH_UNSET);
+    addCache(simpleCache, KEY_1, 0, 15);
+    simpleCache.releaseHoleSpan(holeSpan);
+    String key1FileName = simpleCache.startReadWrite(KEY_1, 0, LENGTH_UNSET).file.getName();
+    long uid = simpleCache.getUid();
+    simpleCache.release();
+    CacheFileMetadataIndex fileIndex = new CacheFileMetadataIndex(databaseProvider);
+    fileIndex.initialize(uid);
+    // Simulate an entry left behind for a file that no longer exists.
+    fileIndex.set("0.15.123.v3.exo", /* length= */ 10, /* lastTouchTimestamp= */ 123);
+
+    simpleCache = getSimpleCacheWithSpanSnapshot();
+    simpleCache.blockUntilSpansReconciled();
+
+    assertThat(fileIndex.getAll().keySet()).containsExactly(key1FileName);
+    assertCachedDataReadCorrect(simpleCache.startReadWrite(KEY_1, 0, LENGTH_UNSET));
+  }
+
   @Test
   public void newInstance_withExistingCacheInstance_fails() {
     getSimpleCache();
@@ -633,6 +748,15 @@ public class SimpleCacheTest {
     return new SimpleCache(cacheDir, new NoOpCacheEvictor(), databaseProvider);
   }
 
+  private SimpleCache getSimpleCacheWithSpanSnapshot() {
+    return new SimpleCache(
+        cacheDir,
+        new NoOpCacheEvictor(),
+        databaseProvider,
+        /* indexWriteBehindWindowMs= */ 0,
+        /* useSpanSnapshot= */ true);
+  }
+
   private static void addCache(SimpleCache simpleCache, String key, int position, int length)
       throws IOException {
     File file = simpleCache.startFile(key, position, length);
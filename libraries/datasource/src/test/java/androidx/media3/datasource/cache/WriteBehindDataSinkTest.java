@@ -0,0 +1,214 @@
+/*
+ * Copyright 2026 The Android Open Source Project
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package androidx.media3.datasource.cache;
+
+import static com.google.common.truth.Truth.assertThat;
+
+import android.net.Uri;
+import androidx.media3.common.util.ConditionVariable;
+import androidx.media3.common.util.Util;
+import androidx.media3.datasource.DataSink;
+import androidx.media3.datasource.DataSpec;
+import androidx.media3.test.utils.TestUtil;
+import androidx.test.ext.junit.runners.AndroidJUnit4;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.util.Arrays;
+import java.util.concurrent.ExecutorService;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+
+/** Unit tests for {@link WriteBehindDataSink}. */
+@RunWith(AndroidJUnit4.class)
+public final class WriteBehindDataSinkTest {
+
+  private static final DataSpec DATA_SPEC = new DataSpec(Uri.parse("test://uri"));
+
+  private ExecutorService executor;
+  private BlockingDataSink sink;
+
+  @Before
+  public void setUp() {
+    executor = Util.newSingleThreadExecutor("WriteBehindDataSinkTest");
+    sink = new BlockingDataSink();
+  }
+
+  @After
+  public void tearDown() {
+    sink.unblockWrites();
+    executor.shutdown();
+  }
+
+  @Test
+  public void write_forwardsDataToSinkAndClosesSink() throws Exception {
+    sink.unblockWrites();
+    WriteBehindDataSink writeBehindSink =
+        new WriteBehindDataSink(sink, executor, /* bufferSize= */ 10);
+    byte[] data = TestUtil.buildTestData(/* length= */ 25);
+
+    writeBehindSink.open(DATA_SPEC);
+    for (int i = 0; i < data.length; i += 5) {
+      writeBehindSink.write(data, i, 5);
+    }
+    writeBehindSink.close();
+    waitForClose(writeBehindSink);
+
+    assertThat(sink.openCount).isEqualTo(1);
+    assertThat(sink.closeCount).isEqualTo(1);
+    assertThat(sink.data.toByteArray()).isEqualTo(data);
+  }
+
+  @Test
+  public void write_writerFallsBehind_dropsRestOfData() throws Exception {
+    WriteBehindDataSink writeBehindSink =
+        new WriteBehindDataSink(sink, executor, /* bufferSize= */ 10);
+    byte[] data = TestUtil.buildTestData(/* length= */ 14);
+
+    writeBehindSink.open(DATA_SPEC);
+    writeBehindSink.write(data, /* offset= */ 0, /* length= */ 6);
+    // The first write is still pending, so there isn't space to buffer the second one.
+    writeBehindSink.write(data, /* offset= */ 6, /* length= */ 6);
+    writeBehindSink.write(data, /* offset= */ 12, /* length= */ 2);
+    sink.unblockWrites();
+    writeBehindSink.close();
+    waitForClose(writeBehindSink);
+
+    assertThat(sink.closeCount).isEqualTo(1);
+    assertThat(sink.data.toByteArray()).isEqualTo(Arrays.copyOf(data, 6));
+  }
+
+  @Test
+  public void close_writerBlocked_returnsBeforeSinkIsClosed() throws Exception {
+    WriteBehindDataSink writeBehindSink =
+        new WriteBehindDataSink(sink, executor, /* bufferSize= */ 10);
+    byte[] data = TestUtil.buildTestData(/* length= */ 8);
+    ConditionVariable closed = new ConditionVariable();
+
+    writeBehindSink.open(DATA_SPEC);
+    writeBehindSink.write(data, /* offset= */ 0, /* length= */ 6);
+    sink.writeStarted.block();
+    writeBehindSink.write(data, /* offset= */ 6, /* length= */ 2);
+    writeBehindSink.close();
+    writeBehindSink.runAfterClose(closed::open);
+
+    assertThat(closed.isOpen()).isFalse();
+    assertThat(sink.closeCount).isEqualTo(0);
+    sink.unblockWrites();
+    closed.block();
+    assertThat(sink.closeCount).isEqualTo(1);
+    assertThat(sink.data.toByteArray()).isEqualTo(data);
+  }
+
+  @Test
+  public void open_previousDataSpecStillBeingWritten_writesDataSpecsInOrder() throws Exception {
+    WriteBehindDataSink writeBehindSink =
+        new WriteBehindDataSink(sink, executor, /* bufferSize= */ 10);
+    byte[] data = TestUtil.buildTestData(/* length= */ 8);
+    ConditionVariable firstClosed = new ConditionVariable();
+
+    writeBehindSink.open(DATA_SPEC);
+    writeBehindSink.write(data, /* offset= */ 0, /* length= */ 4);
+    sink.writeStarted.block();
+    writeBehindSink.close();
+    writeBehindSink.runAfterClose(firstClosed::open);
+    writeBehindSink.open(DATA_SPEC);
+    writeBehindSink.write(data, /* offset= */ 4, /* length= */ 4);
+    writeBehindSink.close();
+    sink.unblockWrites();
+    waitForClose(writeBehindSink);
+
+    assertThat(firstClosed.isOpen()).isTrue();
+    assertThat(sink.openCount).isEqualTo(2);
+    assertThat(sink.closeCount).isEqualTo(2);
+    assertThat(sink.data.toByteArray()).isEqualTo(data);
+  }
+
+  @Test
+  public void runAfterClose_nothingPending_runsImmediately() {
+    WriteBehindDataSink writeBehindSink =
+        new WriteBehindDataSink(sink, executor, /* bufferSize= */ 10);
+    ConditionVariable ran = new ConditionVariable();
+
+    writeBehindSink.runAfterClose(ran::open);
+
+    assertThat(ran.isOpen()).isTrue();
+  }
+
+  @Test
+  public void write_sinkThrows_dropsRestOfDataAndClosesSink() throws Exception {
+    sink.unblockWrites();
+    sink.throwOnWrite = true;
+    WriteBehindDataSink writeBehindSink =
+        new WriteBehindDataSink(sink, executor, /* bufferSize= */ 10);
+
+    writeBehindSink.open(DATA_SPEC);
+    writeBehindSink.write(TestUtil.buildTestData(/* length= */ 5), /* offset= */ 0, 5);
+    writeBehindSink.close();
+    waitForClose(writeBehindSink);
+
+    assertThat(sink.closeCount).isEqualTo(1);
+    assertThat(sink.data.size()).isEqualTo(0);
+  }
+
+  private static void waitForClose(WriteBehindDataSink writeBehindSink) {
+    ConditionVariable closed = new ConditionVariable();
+    writeBehindSink.runAfterClose(closed::open);
+    closed.blockUninterruptible();
+  }
+
+  private static final class BlockingDataSink implements DataSink {
+
+    public final ByteArrayOutputStream data;
+    public final ConditionVariable writeStarted;
+    public int openCount;
+    public int closeCount;
+    public boolean throwOnWrite;
+
+    private final ConditionVariable writesUnblocked;
+
+    public BlockingDataSink() {
+      data = new ByteArrayOutputStream();
+      writeStarted = new ConditionVariable();
+      writesUnblocked = new ConditionVariable();
+    }
+
+    public void unblockWrites() {
+      writesUnblocked.open();
+    }
+
+    @Override
+    public void open(DataSpec dataSpec) {
+      openCount++;
+    }
+
+    @Override
+    public void write(byte[] buffer, int offset, int length) throws IOException {
+      writeStarted.open();
+      writesUnblocked.blockUninterruptible();
+      if (throwOnWrite) {
+        throw new IOException();
+      }
+      data.write(buffer, offset, length);
+    }
+
+    @Override
+    public void close() {
+      closeCount++;
+    }
+  }
+}
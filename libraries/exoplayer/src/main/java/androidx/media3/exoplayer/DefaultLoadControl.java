@@ -121,6 +121,7 @@ public class DefaultLoadControl implements LoadControl {
     private boolean prioritizeTimeOverSizeThresholds;
     private int backBufferDurationMs;
     private boolean retainBackBufferFromKeyframe;
+    @Nullable private LoadControlMemoryBudget memoryBudget;
     private boolean buildCalled;
 
     /** Constructs a new instance. */
@@ -240,6 +241,21 @@ public class DefaultLoadControl implements LoadControl {
       return this;
     }
 
+    /**
+     * Sets a {@link LoadControlMemoryBudget} shared with the load controls of other players. If
+     * set, the target buffer size is capped at the share of the budget given to this load control.
+     *
+     * @param memoryBudget The {@link LoadControlMemoryBudget}, or null to not use a shared budget.
+     * @return This builder, for convenience.
+     * @throws IllegalStateException If {@link #build()} has already been called.
+     */
+    @CanIgnoreReturnValue
+    public Builder setMemoryBudget(@Nullable LoadControlMemoryBudget memoryBudget) {
+      checkState(!buildCalled);
+      this.memoryBudget = memoryBudget;
+      return this;
+    }
+
     /** Creates a {@link DefaultLoadControl}. */
     public DefaultLoadControl build() {
       checkState(!buildCalled);
@@ -256,7 +272,8 @@ public class DefaultLoadControl implements LoadControl {
           targetBufferBytes,
           prioritizeTimeOverSizeThresholds,
           backBufferDurationMs,
-          retainBackBufferFromKeyframe);
+          retainBackBufferFromKeyframe,
+          memoryBudget);
     }
   }
 
@@ -271,8 +288,10 @@ public class DefaultLoadControl implements LoadControl {
   private final long backBufferDurationUs;
   private final boolean retainBackBufferFromKeyframe;
   private final HashMap<PlayerId, PlayerLoadingState> loadingStates;
+  @Nullable private final LoadControlMemoryBudget memoryBudget;
 
   private long threadId;
+  private volatile int totalTargetBufferBytes;
 
   /** Constructs a new instance, using the {@code DEFAULT_*} constants defined in this class. */
   public DefaultLoadControl() {
@@ -298,6 +317,30 @@ public class DefaultLoadControl implements LoadControl {
       boolean prioritizeTimeOverSizeThresholds,
       int backBufferDurationMs,
       boolean retainBackBufferFromKeyframe) {
+    this(
+        allocator,
+        minBufferMs,
+        maxBufferMs,
+        bufferForPlaybackMs,
+        bufferForPlaybackAfterRebufferMs,
+        targetBufferBytes,
+        prioritizeTimeOverSizeThresholds,
+        backBufferDurationMs,
+        retainBackBufferFromKeyframe,
+        /* memoryBudget= */ null);
+  }
+
+  protected DefaultLoadControl(
+      DefaultAllocator allocator,
+      int minBufferMs,
+      int maxBufferMs,
+      int bufferForPlaybackMs,
+      int bufferForPlaybackAfterRebufferMs,
+      int targetBufferBytes,
+      boolean prioritizeTimeOverSizeThresholds,
+      int backBufferDurationMs,
+      boolean retainBackBufferFromKeyframe,
+      @Nullable LoadControlMemoryBudget memoryBudget) {
     assertGreaterOrEqual(bufferForPlaybackMs, 0, "bufferForPlaybackMs", "0");
     assertGreaterOrEqual(
         bufferForPlaybackAfterRebufferMs, 0, "bufferForPlaybackAfterRebufferMs", "0");
@@ -319,6 +362,7 @@ public class DefaultLoadControl implements LoadControl {
     this.prioritizeTimeOverSizeThresholds = prioritizeTimeOverSizeThresholds;
     this.backBufferDurationUs = Util.msToUs(backBufferDurationMs);
     this.retainBackBufferFromKeyframe = retainBackBufferFromKeyframe;
+    this.memoryBudget = memoryBudget;
     loadingStates = new HashMap<>();
     threadId = C.INDEX_UNSET;
   }
@@ -335,6 +379,9 @@ public class DefaultLoadControl implements LoadControl {
       loadingStates.put(playerId, new PlayerLoadingState());
     }
     resetPlayerLoadingState(playerId);
+    if (memoryBudget != null) {
+      memoryBudget.join(this);
+    }
   }
 
   @Override
@@ -381,7 +428,7 @@ public class DefaultLoadControl implements LoadControl {
   public boolean shouldContinueLoading(Parameters parameters) {
     PlayerLoadingState playerLoadingState = checkNotNull(loadingStates.get(parameters.playerId));
     boolean targetBufferSizeReached =
-        allocator.getTotalBytesAllocated() >= calculateTotalTargetBufferBytes();
+        allocator.getTotalBytesAllocated() >= getBudgetedTotalTargetBufferBytes();
     long minBufferUs = this.minBufferUs;
     if (parameters.playbackSpeed > 1) {
       // The playback speed is faster than real time, so scale up the minimum required media
@@ -418,7 +465,7 @@ public class DefaultLoadControl implements LoadControl {
     return minBufferDurationUs <= 0
         || bufferedDurationUs >= minBufferDurationUs
         || (!prioritizeTimeOverSizeThresholds
-            && allocator.getTotalBytesAllocated() >= calculateTotalTargetBufferBytes());
+            && allocator.getTotalBytesAllocated() >= getBudgetedTotalTargetBufferBytes());
   }
 
   @Override
@@ -468,6 +515,25 @@ public class DefaultLoadControl implements LoadControl {
     return totalTargetBufferBytes;
   }
 
+  /**
+   * Called by the {@link LoadControlMemoryBudget} when the share of the budget given to this load
+   * control changes. May be called on any thread.
+   */
+  /* package */ void onMemoryBudgetChanged(int budgetBytes) {
+    int totalTargetBufferBytes = this.totalTargetBufferBytes;
+    if (totalTargetBufferBytes > 0) {
+      // Reducing the target buffer size releases unused allocations right away.
+      allocator.setTargetBufferSize(min(totalTargetBufferBytes, budgetBytes));
+    }
+  }
+
+  private int getBudgetedTotalTargetBufferBytes() {
+    int totalTargetBufferBytes = calculateTotalTargetBufferBytes();
+    return memoryBudget == null
+        ? totalTargetBufferBytes
+        : min(totalTargetBufferBytes, memoryBudget.getBudgetBytes(this));
+  }
+
   private void resetPlayerLoadingState(PlayerId playerId) {
     PlayerLoadingState playerLoadingState = checkNotNull(loadingStates.get(playerId));
     playerLoadingState.targetBufferBytes =
@@ -485,9 +551,14 @@ public class DefaultLoadControl implements LoadControl {
 
   private void updateAllocator() {
     if (loadingStates.isEmpty()) {
+      totalTargetBufferBytes = 0;
+      if (memoryBudget != null) {
+        memoryBudget.leave(this);
+      }
       allocator.reset();
     } else {
-      allocator.setTargetBufferSize(calculateTotalTargetBufferBytes());
+      totalTargetBufferBytes = calculateTotalTargetBufferBytes();
+      allocator.setTargetBufferSize(getBudgetedTotalTargetBufferBytes());
     }
   }
 
@@ -0,0 +1,213 @@
+/*
+ * Copyright 2026 The Android Open Source Project
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package androidx.media3.exoplayer;
+
+import static androidx.media3.common.util.Assertions.checkArgument;
+import static java.lang.Math.min;
+
+import android.content.ComponentCallbacks2;
+import android.content.res.Configuration;
+import androidx.annotation.GuardedBy;
+import androidx.annotation.Nullable;
+import androidx.annotation.VisibleForTesting;
+import androidx.media3.common.util.Clock;
+import androidx.media3.common.util.UnstableApi;
+import java.util.ArrayList;
+
+/**
+ * A global memory budget shared by the {@link DefaultLoadControl} instances of several players
+ * that play simultaneously, for example the tiles of a multi-view screen.
+ *
+ * <p>Each {@link DefaultLoadControl} that was built with {@link
+ * DefaultLoadControl.Builder#setMemoryBudget(LoadControlMemoryBudget)} joins the budget while it
+ * has at least one prepared player, and its target buffer size is capped at its share of the
+ * budget:
+ *
+ * <ul>
+ *   <li>If a {@linkplain #setFocusedLoadControl(DefaultLoadControl) focused load control} and
+ *       other load controls are joined, the focused load control gets {@code focusedShare} of the
+ *       budget, and the background load controls split the rest equally.
+ *   <li>Otherwise, all joined load controls split the budget equally.
+ * </ul>
+ *
+ * <p>The shares are rebalanced whenever a load control joins or leaves, or the focus changes.
+ *
+ * <p>The budget reacts to memory pressure: {@link #onTrimMemory(int)} temporarily reduces the
+ * budget according to the trim level and trims the allocators of all joined load controls right
+ * away, so that their unused allocations are released. The reduction is lifted {@link
+ * #TRIM_MEMORY_RECOVERY_MS} after the last memory pressure callback. The budget can be registered
+ * with {@link android.content.Context#registerComponentCallbacks} to receive these callbacks.
+ *
+ * <p>This class is thread-safe. The joined load controls can be used on different playback
+ * threads.
+ */
+@UnstableApi
+public final class LoadControlMemoryBudget implements ComponentCallbacks2 {
+
+  /** The default share of the budget given to the focused load control. */
+  public static final float DEFAULT_FOCUSED_SHARE = 0.5f;
+
+  /** The time after the last memory pressure callback after which the full budget is restored. */
+  public static final long TRIM_MEMORY_RECOVERY_MS = 30_000;
+
+  private final long budgetBytes;
+  private final float focusedShare;
+  private final Clock clock;
+
+  @GuardedBy("this")
+  private final ArrayList<DefaultLoadControl> loadControls;
+
+  @GuardedBy("this")
+  @Nullable
+  private DefaultLoadControl focusedLoadControl;
+
+  @GuardedBy("this")
+  private float memoryPressureFactor;
+
+  @GuardedBy("this")
+  private long memoryPressureEndRealtimeMs;
+
+  /**
+   * Creates an instance that gives {@link #DEFAULT_FOCUSED_SHARE} of the budget to the focused
+   * load control.
+   *
+   * @param budgetBytes The budget shared by all joined load controls, in bytes.
+   */
+  public LoadControlMemoryBudget(long budgetBytes) {
+    this(budgetBytes, DEFAULT_FOCUSED_SHARE);
+  }
+
+  /**
+   * Creates an instance.
+   *
+   * @param budgetBytes The budget shared by all joined load controls, in bytes.
+   * @param focusedShare The share of the budget given to the focused load control if other load
+   *     controls are joined, between 0 and 1.
+   */
+  public LoadControlMemoryBudget(long budgetBytes, float focusedShare) {
+    this(budgetBytes, focusedShare, Clock.DEFAULT);
+  }
+
+  @VisibleForTesting
+  /* package */ LoadControlMemoryBudget(long budgetBytes, float focusedShare, Clock clock) {
+    checkArgument(budgetBytes > 0);
+    checkArgument(focusedShare > 0 && focusedShare < 1);
+    this.budgetBytes = budgetBytes;
+    this.focusedShare = focusedShare;
+    this.clock = clock;
+    loadControls = new ArrayList<>();
+    memoryPressureFactor = 1;
+  }
+
+  /**
+   * Sets the load control of the player that has the focus, or null if no player has the focus.
+   *
+   * <p>The load control doesn't need to be joined yet. The shares are rebalanced right away.
+   *
+   * @param loadControl The focused {@link DefaultLoadControl}, or null.
+   */
+  public synchronized void setFocusedLoadControl(@Nullable DefaultLoadControl loadControl) {
+    if (focusedLoadControl == loadControl) {
+      return;
+    }
+    focusedLoadControl = loadControl;
+    updateLoadControls();
+  }
+
+  @SuppressWarnings("deprecation") // Handling all trim levels.
+  @Override
+  public void onTrimMemory(int level) {
+    float factor;
+    if (level >= TRIM_MEMORY_RUNNING_CRITICAL) {
+      factor = 0.25f;
+    } else if (level >= TRIM_MEMORY_RUNNING_LOW) {
+      factor = 0.5f;
+    } else if (level >= TRIM_MEMORY_RUNNING_MODERATE) {
+      factor = 0.75f;
+    } else {
+      return;
+    }
+    onMemoryPressure(factor);
+  }
+
+  @Override
+  public void onLowMemory() {
+    onMemoryPressure(/* factor= */ 0.25f);
+  }
+
+  @Override
+  public void onConfigurationChanged(Configuration newConfig) {
+    // Do nothing.
+  }
+
+  /**
+   * Returns the number of bytes that {@code loadControl} may buffer, or {@link Integer#MAX_VALUE}
+   * if it isn't joined.
+   */
+  /* package */ synchronized int getBudgetBytes(DefaultLoadControl loadControl) {
+    if (!loadControls.contains(loadControl)) {
+      return Integer.MAX_VALUE;
+    }
+    long availableBudgetBytes = (long) (budgetBytes * getMemoryPressureFactor());
+    long shareBytes;
+    boolean hasFocusedLoadControl = loadControls.contains(focusedLoadControl);
+    if (!hasFocusedLoadControl || loadControls.size() == 1) {
+      shareBytes = availableBudgetBytes / loadControls.size();
+    } else if (loadControl == focusedLoadControl) {
+      shareBytes = (long) (availableBudgetBytes * focusedShare);
+    } else {
+      shareBytes = (long) (availableBudgetBytes * (1 - focusedShare)) / (loadControls.size() - 1);
+    }
+    return (int) min(shareBytes, Integer.MAX_VALUE);
+  }
+
+  /** Adds {@code loadControl} to the load controls that share the budget. */
+  /* package */ synchronized void join(DefaultLoadControl loadControl) {
+    if (!loadControls.contains(loadControl)) {
+      loadControls.add(loadControl);
+      updateLoadControls();
+    }
+  }
+
+  /** Removes {@code loadControl} from the load controls that share the budget. */
+  /* package */ synchronized void leave(DefaultLoadControl loadControl) {
+    if (loadControls.remove(loadControl)) {
+      updateLoadControls();
+    }
+  }
+
+  private synchronized void onMemoryPressure(float factor) {
+    memoryPressureFactor = min(getMemoryPressureFactor(), factor);
+    memoryPressureEndRealtimeMs = clock.elapsedRealtime() + TRIM_MEMORY_RECOVERY_MS;
+    updateLoadControls();
+  }
+
+  @GuardedBy("this")
+  private float getMemoryPressureFactor() {
+    if (memoryPressureFactor < 1 && clock.elapsedRealtime() >= memoryPressureEndRealtimeMs) {
+      memoryPressureFactor = 1;
+    }
+    return memoryPressureFactor;
+  }
+
+  @GuardedBy("this")
+  private void updateLoadControls() {
+    for (int i = 0; i < loadControls.size(); i++) {
+      DefaultLoadControl loadControl = loadControls.get(i);
+      loadControl.onMemoryBudgetChanged(getBudgetBytes(loadControl));
+    }
+  }
+}
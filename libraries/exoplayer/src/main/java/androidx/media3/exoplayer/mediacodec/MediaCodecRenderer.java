@@ -1300,6 +1300,18 @@ public abstract class MediaCodecRenderer extends BaseRenderer {
     return largestQueuedPresentationTimeUs;
   }
 
+  /**
+   * Returns whether the {@link WakeupListener} is notified when the codec has an input buffer
+   * available. Only used if the codec notifies the renderer of available buffers.
+   *
+   * <p>Called on the thread on which the codec notifies available buffers.
+   *
+   * <p>The default implementation returns {@code true}.
+   */
+  protected boolean shouldWakeUpOnInputBufferAvailable() {
+    return true;
+  }
+
   private void resetInputBuffer() {
     inputIndex = C.INDEX_UNSET;
     buffer.data = null;
@@ -2705,7 +2717,7 @@ public abstract class MediaCodecRenderer extends BaseRenderer {
       implements MediaCodecAdapter.OnBufferAvailableListener {
     @Override
     public void onInputBufferAvailable() {
-      if (wakeupListener != null) {
+      if (wakeupListener != null && shouldWakeUpOnInputBufferAvailable()) {
         wakeupListener.onWakeup();
       }
     }
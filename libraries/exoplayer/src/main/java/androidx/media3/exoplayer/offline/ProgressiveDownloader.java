@@ -29,6 +29,7 @@ import androidx.media3.common.util.Util;
 import androidx.media3.datasource.DataSpec;
 import androidx.media3.datasource.cache.CacheDataSource;
 import androidx.media3.datasource.cache.CacheWriter;
+import androidx.media3.datasource.cache.ParallelCacheWriter;
 import java.io.IOException;
 import java.util.concurrent.ExecutionException;
 import java.util.concurrent.Executor;
@@ -41,7 +42,8 @@ public final class ProgressiveDownloader implements Downloader {
   private final Executor executor;
   private final DataSpec dataSpec;
   private final CacheDataSource dataSource;
-  private final CacheWriter cacheWriter;
+  @Nullable private final CacheWriter cacheWriter;
+  @Nullable private final ParallelCacheWriter parallelCacheWriter;
   @Nullable private final PriorityTaskManager priorityTaskManager;
 
   @Nullable private ProgressListener progressListener;
@@ -66,12 +68,43 @@ public final class ProgressiveDownloader implements Downloader {
    * @param mediaItem The media item with a uri to the stream to be downloaded.
    * @param cacheDataSourceFactory A {@link CacheDataSource.Factory} for the cache into which the
    *     download will be written.
-   * @param executor An {@link Executor} used to make requests for the media being downloaded. In
-   *     the future, providing an {@link Executor} that uses multiple threads may speed up the
-   *     download by allowing parts of it to be executed in parallel.
+   * @param executor An {@link Executor} used to make requests for the media being downloaded. Use
+   *     {@link #ProgressiveDownloader(MediaItem, CacheDataSource.Factory, Executor, int, long)} to
+   *     download parts of the media in parallel.
    */
   public ProgressiveDownloader(
       MediaItem mediaItem, CacheDataSource.Factory cacheDataSourceFactory, Executor executor) {
+    this(
+        mediaItem,
+        cacheDataSourceFactory,
+        executor,
+        /* maxParallelRequests= */ 1,
+        ParallelCacheWriter.DEFAULT_CHUNK_SIZE);
+  }
+
+  /**
+   * Creates a new instance.
+   *
+   * <p>If {@code maxParallelRequests} is greater than one, the parts of the media that aren't
+   * cached are split into chunks of {@code chunkSize} bytes, which are requested in parallel with
+   * range requests on {@code executor}. This can speed up downloads of large files from servers
+   * that throttle each connection. The executor should then use at least {@code
+   * maxParallelRequests} threads.
+   *
+   * @param mediaItem The media item with a uri to the stream to be downloaded.
+   * @param cacheDataSourceFactory A {@link CacheDataSource.Factory} for the cache into which the
+   *     download will be written.
+   * @param executor An {@link Executor} used to make requests for the media being downloaded.
+   * @param maxParallelRequests The maximum number of requests made in parallel.
+   * @param chunkSize The maximum size of each request in bytes, if {@code maxParallelRequests} is
+   *     greater than one.
+   */
+  public ProgressiveDownloader(
+      MediaItem mediaItem,
+      CacheDataSource.Factory cacheDataSourceFactory,
+      Executor executor,
+      int maxParallelRequests,
+      long chunkSize) {
     this.executor = Assertions.checkNotNull(executor);
     Assertions.checkNotNull(mediaItem.localConfiguration);
     dataSpec =
@@ -83,8 +116,21 @@ public final class ProgressiveDownloader implements Downloader {
     dataSource = cacheDataSourceFactory.createDataSourceForDownloading();
     @SuppressWarnings("nullness:methodref.receiver.bound")
     CacheWriter.ProgressListener progressListener = this::onProgress;
-    cacheWriter =
-        new CacheWriter(dataSource, dataSpec, /* temporaryBuffer= */ null, progressListener);
+    if (maxParallelRequests > 1) {
+      cacheWriter = null;
+      parallelCacheWriter =
+          new ParallelCacheWriter(
+              cacheDataSourceFactory,
+              dataSpec,
+              executor,
+              maxParallelRequests,
+              chunkSize,
+              progressListener);
+    } else {
+      cacheWriter =
+          new CacheWriter(dataSource, dataSpec, /* temporaryBuffer= */ null, progressListener);
+      parallelCacheWriter = null;
+    }
     priorityTaskManager = cacheDataSourceFactory.getUpstreamPriorityTaskManager();
   }
 
@@ -96,6 +142,11 @@ public final class ProgressiveDownloader implements Downloader {
       priorityTaskManager.add(C.PRIORITY_DOWNLOAD);
     }
     try {
+      if (parallelCacheWriter != null) {
+        downloadInParallel(parallelCacheWriter);
+        return;
+      }
+      CacheWriter cacheWriter = checkNotNull(this.cacheWriter);
       boolean finished = false;
       while (!finished && !isCanceled) {
         // Recreate downloadRunnable on each loop iteration to avoid rethrowing a previous error.
@@ -134,7 +185,10 @@ public final class ProgressiveDownloader implements Downloader {
     } finally {
       // If the main download thread was interrupted as part of cancelation, then it's possible that
       // the runnable is still doing work. We need to wait until it's finished before returning.
-      checkNotNull(downloadRunnable).blockUntilFinished();
+      @Nullable RunnableFutureTask<Void, IOException> downloadRunnable = this.downloadRunnable;
+      if (downloadRunnable != null) {
+        downloadRunnable.blockUntilFinished();
+      }
       if (priorityTaskManager != null) {
         priorityTaskManager.remove(C.PRIORITY_DOWNLOAD);
       }
@@ -144,6 +198,9 @@ public final class ProgressiveDownloader implements Downloader {
   @Override
   public void cancel() {
     isCanceled = true;
+    if (parallelCacheWriter != null) {
+      parallelCacheWriter.cancel();
+    }
     RunnableFutureTask<Void, IOException> downloadRunnable = this.downloadRunnable;
     if (downloadRunnable != null) {
       downloadRunnable.cancel(/* interruptIfRunning= */ true);
@@ -155,6 +212,23 @@ public final class ProgressiveDownloader implements Downloader {
     dataSource.getCache().removeResource(dataSource.getCacheKeyFactory().buildCacheKey(dataSpec));
   }
 
+  private void downloadInParallel(ParallelCacheWriter parallelCacheWriter) throws IOException {
+    // The writer requests the chunks on the executor, so it's run on the calling thread to avoid
+    // blocking one of the executor's threads.
+    boolean finished = false;
+    while (!finished && !isCanceled) {
+      if (priorityTaskManager != null) {
+        priorityTaskManager.proceed(C.PRIORITY_DOWNLOAD);
+      }
+      try {
+        parallelCacheWriter.cache();
+        finished = true;
+      } catch (PriorityTooLowException e) {
+        // The next loop iteration will block until the writer is able to proceed.
+      }
+    }
+  }
+
   private void onProgress(long contentLength, long bytesCached, long newBytesCached) {
     if (progressListener == null) {
       return;
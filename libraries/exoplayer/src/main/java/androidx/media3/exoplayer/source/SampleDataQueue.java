@@ -51,11 +51,13 @@ import java.util.Arrays;
 
   // Accessed only by the loading thread (or the consuming thread when there is no loading thread).
   private long totalBytesWritten;
+  private byte[] directWriteScratch;
 
   public SampleDataQueue(Allocator allocator) {
     this.allocator = allocator;
     allocationLength = allocator.getIndividualAllocationLength();
     scratch = new ParsableByteArray(INITIAL_SCRATCH_SIZE);
+    directWriteScratch = Util.EMPTY_BYTE_ARRAY;
     firstAllocationNode = new AllocationNode(/* startPosition= */ 0, allocationLength);
     readAllocationNode = firstAllocationNode;
     writeAllocationNode = firstAllocationNode;
@@ -174,11 +176,26 @@ import java.util.Arrays;
 
   public int sampleData(DataReader input, int length, boolean allowEndOfInput) throws IOException {
     length = preAppend(length);
-    int bytesAppended =
-        input.read(
-            writeAllocationNode.allocation.data,
-            writeAllocationNode.translateOffset(totalBytesWritten),
-            length);
+    @Nullable ByteBuffer writeView = writeAllocationNode.writeView;
+    int bytesAppended;
+    if (writeView == null) {
+      bytesAppended =
+          input.read(
+              writeAllocationNode.allocation.data,
+              writeAllocationNode.translateOffset(totalBytesWritten),
+              length);
+    } else {
+      // DataReader can only read into an array, so stage the data before copying it into the
+      // direct buffer.
+      if (directWriteScratch.length < length) {
+        directWriteScratch = new byte[allocationLength];
+      }
+      bytesAppended = input.read(directWriteScratch, /* offset= */ 0, length);
+      if (bytesAppended != C.RESULT_END_OF_INPUT) {
+        writeView.position(writeAllocationNode.translateOffset(totalBytesWritten));
+        writeView.put(directWriteScratch, /* offset= */ 0, bytesAppended);
+      }
+    }
     if (bytesAppended == C.RESULT_END_OF_INPUT) {
       if (allowEndOfInput) {
         return C.RESULT_END_OF_INPUT;
@@ -192,10 +209,18 @@ import java.util.Arrays;
   public void sampleData(ParsableByteArray buffer, int length) {
     while (length > 0) {
       int bytesAppended = preAppend(length);
-      buffer.readBytes(
-          writeAllocationNode.allocation.data,
-          writeAllocationNode.translateOffset(totalBytesWritten),
-          bytesAppended);
+      @Nullable ByteBuffer writeView = writeAllocationNode.writeView;
+      if (writeView == null) {
+        buffer.readBytes(
+            writeAllocationNode.allocation.data,
+            writeAllocationNode.translateOffset(totalBytesWritten),
+            bytesAppended);
+      } else {
+        int offset = writeAllocationNode.translateOffset(totalBytesWritten);
+        writeView.limit(offset + bytesAppended).position(offset);
+        buffer.readBytes(writeView, bytesAppended);
+        writeView.limit(writeView.capacity());
+      }
       length -= bytesAppended;
       postAppend(bytesAppended);
     }
@@ -404,8 +429,16 @@ import java.util.Arrays;
     int remaining = length;
     while (remaining > 0) {
       int toCopy = min(remaining, (int) (allocationNode.endPosition - absolutePosition));
-      Allocation allocation = allocationNode.allocation;
-      target.put(allocation.data, allocationNode.translateOffset(absolutePosition), toCopy);
+      int offset = allocationNode.translateOffset(absolutePosition);
+      @Nullable ByteBuffer readView = allocationNode.readView;
+      if (readView == null) {
+        target.put(allocationNode.allocation.data, offset, toCopy);
+      } else {
+        // Direct to direct copies (for example into a MediaCodec input buffer) are a native
+        // memory copy.
+        readView.limit(offset + toCopy).position(offset);
+        target.put(readView);
+      }
       remaining -= toCopy;
       absolutePosition += toCopy;
       if (absolutePosition == allocationNode.endPosition) {
@@ -430,13 +463,15 @@ import java.util.Arrays;
     int remaining = length;
     while (remaining > 0) {
       int toCopy = min(remaining, (int) (allocationNode.endPosition - absolutePosition));
-      Allocation allocation = allocationNode.allocation;
-      System.arraycopy(
-          allocation.data,
-          allocationNode.translateOffset(absolutePosition),
-          target,
-          length - remaining,
-          toCopy);
+      int offset = allocationNode.translateOffset(absolutePosition);
+      @Nullable ByteBuffer readView = allocationNode.readView;
+      if (readView == null) {
+        System.arraycopy(
+            allocationNode.allocation.data, offset, target, length - remaining, toCopy);
+      } else {
+        readView.limit(offset + toCopy).position(offset);
+        readView.get(target, length - remaining, toCopy);
+      }
       remaining -= toCopy;
       absolutePosition += toCopy;
       if (absolutePosition == allocationNode.endPosition) {
@@ -478,6 +513,20 @@ import java.util.Arrays;
      */
     @Nullable public AllocationNode next;
 
+    /**
+     * A view of the {@link Allocation#directData} of {@link #allocation} used by the loading
+     * thread, or {@code null} if the node is not initialized or the allocation is backed by an
+     * array.
+     */
+    @Nullable public ByteBuffer writeView;
+
+    /**
+     * A view of the {@link Allocation#directData} of {@link #allocation} used by the consuming
+     * thread, or {@code null} if the node is not initialized or the allocation is backed by an
+     * array.
+     */
+    @Nullable public ByteBuffer readView;
+
     /**
      * @param startPosition See {@link #startPosition}.
      * @param allocationLength The length of the {@link Allocation} with which this node will be
@@ -508,11 +557,15 @@ import java.util.Arrays;
     public void initialize(Allocation allocation, AllocationNode next) {
       this.allocation = allocation;
       this.next = next;
+      if (allocation.directData != null) {
+        writeView = allocation.directData.duplicate();
+        readView = allocation.directData.duplicate();
+      }
     }
 
     /**
-     * Gets the offset into the {@link #allocation}'s {@link Allocation#data} that corresponds to
-     * the specified absolute position.
+     * Gets the offset into the {@link #allocation}'s {@link Allocation#data}, or {@link
+     * Allocation#directData}, that corresponds to the specified absolute position.
      *
      * @param absolutePosition The absolute position.
      * @return The corresponding offset into the allocation's data.
@@ -528,6 +581,8 @@ import java.util.Arrays;
      */
     public AllocationNode clear() {
       allocation = null;
+      writeView = null;
+      readView = null;
       AllocationNode temp = next;
       next = null;
       return temp;
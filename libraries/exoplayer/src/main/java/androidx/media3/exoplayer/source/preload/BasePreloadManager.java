@@ -170,6 +170,7 @@ public abstract class BasePreloadManager<T> {
    */
   public final void invalidate() {
     synchronized (lock) {
+      onInvalidate();
       sourceHolderPriorityQueue.clear();
       sourceHolderPriorityQueue.addAll(mediaItemMediaSourceHolderMap.values());
       while (!sourceHolderPriorityQueue.isEmpty() && !maybeStartPreloadNextSource()) {
@@ -339,11 +340,20 @@ public abstract class BasePreloadManager<T> {
     return mediaSource;
   }
 
-  /** Returns whether the next {@link MediaSource} should start preloading. */
+  /**
+   * Returns whether the next {@link MediaSource} should start preloading. If not, the preloaded
+   * data of that source is cleared.
+   */
   protected boolean shouldStartPreloadingNextSource() {
     return true;
   }
 
+  /**
+   * Called when {@link #invalidate()} starts a new preload progress, before any source starts
+   * preloading. The default implementation is a no-op.
+   */
+  protected void onInvalidate() {}
+
   /**
    * Preloads the given {@link MediaSource}.
    *
@@ -374,6 +384,8 @@ public abstract class BasePreloadManager<T> {
   /**
    * Starts to preload the {@link MediaSource} at the head of the priority queue, if the {@linkplain
    * TargetPreloadStatusControl.PreloadStatus target preload status} for that source is not null.
+   * Otherwise, or if the next source {@linkplain #shouldStartPreloadingNextSource() shouldn't
+   * start preloading}, clears that source.
    *
    * @return {@code true} if the {@link MediaSource} at the head of the priority queue starts to
    *     preload, otherwise {@code false}.
@@ -381,17 +393,16 @@ public abstract class BasePreloadManager<T> {
    */
   @GuardedBy("lock")
   private boolean maybeStartPreloadNextSource() {
+    MediaSourceHolder preloadingHolder = checkNotNull(sourceHolderPriorityQueue.peek());
     if (shouldStartPreloadingNextSource()) {
-      MediaSourceHolder preloadingHolder = checkNotNull(sourceHolderPriorityQueue.peek());
       this.targetPreloadStatusOfCurrentPreloadingSource =
           targetPreloadStatusControl.getTargetPreloadStatus(preloadingHolder.rankingData);
       if (targetPreloadStatusOfCurrentPreloadingSource != null) {
         preloadSourceInternal(preloadingHolder.mediaSource, preloadingHolder.startPositionUs);
         return true;
-      } else {
-        clearSourceInternal(preloadingHolder.mediaSource);
       }
     }
+    clearSourceInternal(preloadingHolder.mediaSource);
     return false;
   }
 
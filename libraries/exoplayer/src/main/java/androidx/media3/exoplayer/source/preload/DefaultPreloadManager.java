@@ -49,12 +49,14 @@ import androidx.media3.exoplayer.upstream.DefaultBandwidthMeter;
 import com.google.common.base.Predicate;
 import com.google.common.base.Supplier;
 import com.google.common.base.Suppliers;
+import com.google.common.collect.ImmutableList;
 import com.google.errorprone.annotations.CanIgnoreReturnValue;
 import java.lang.annotation.Documented;
 import java.lang.annotation.Retention;
 import java.lang.annotation.RetentionPolicy;
 import java.lang.annotation.Target;
 import java.util.Comparator;
+import java.util.List;
 
 /**
  * A preload manager that preloads with the {@link PreloadMediaSource} to load the media data into
@@ -72,6 +74,7 @@ public final class DefaultPreloadManager extends BasePreloadManager<Integer> {
     private Supplier<BandwidthMeter> bandwidthMeterSupplier;
     private Supplier<RenderersFactory> renderersFactorySupplier;
     private Supplier<LoadControl> loadControlSupplier;
+    @Nullable private LivePreloadConfiguration livePreloadConfiguration;
     private boolean buildCalled;
     private boolean buildExoPlayerCalled;
 
@@ -206,6 +209,24 @@ public final class DefaultPreloadManager extends BasePreloadManager<Integer> {
       return this;
     }
 
+    /**
+     * Sets the {@link LivePreloadConfiguration} that enables the live channel preload mode of the
+     * built {@link DefaultPreloadManager}.
+     *
+     * <p>The default is {@code null}, which disables the live channel preload mode.
+     *
+     * @param livePreloadConfiguration A {@link LivePreloadConfiguration}, or {@code null}.
+     * @return This builder.
+     * @throws IllegalStateException If {@link #build()} has already been called.
+     */
+    @CanIgnoreReturnValue
+    public Builder setLivePreloadConfiguration(
+        @Nullable LivePreloadConfiguration livePreloadConfiguration) {
+      checkState(!buildCalled);
+      this.livePreloadConfiguration = livePreloadConfiguration;
+      return this;
+    }
+
     /**
      * Builds an {@link ExoPlayer}.
      *
@@ -268,6 +289,118 @@ public final class DefaultPreloadManager extends BasePreloadManager<Integer> {
     }
   }
 
+  /**
+   * Configuration of the live channel preload mode, which keeps a warm pool of live sources, such
+   * as the channels adjacent to the playing channel, ready to be handed over to the player on a
+   * channel change.
+   *
+   * <p>In this mode, at most {@link #maxWarmSourceCount} sources are preloaded for each {@link
+   * #invalidate()}, in the order given by the {@linkplain #setAdjacentIndexHints(List) adjacency
+   * hints} and the distance from the {@linkplain #setCurrentPlayingIndex(int) current playing
+   * index}. Sources beyond that are cleared. Each warm source keeps its playlists refreshed and
+   * keeps the data preloaded for it close to the live edge, and its preloaded period is handed to
+   * the player even though the live edge moved since preloading.
+   *
+   * <p>The target preload status of the playing source should be null, so that it doesn't count
+   * towards the warm sources.
+   */
+  public static final class LivePreloadConfiguration {
+
+    /** A builder for {@link LivePreloadConfiguration} instances. */
+    public static final class Builder {
+
+      private int maxWarmSourceCount;
+      private long maxAllocatedBytes;
+      private long liveEdgeReanchorThresholdMs;
+
+      /** Creates a builder with the default values. */
+      public Builder() {
+        maxWarmSourceCount = DEFAULT_MAX_WARM_SOURCE_COUNT;
+        maxAllocatedBytes = C.LENGTH_UNSET;
+        liveEdgeReanchorThresholdMs = DEFAULT_LIVE_EDGE_REANCHOR_THRESHOLD_MS;
+      }
+
+      /**
+       * Sets the maximum number of sources that are preloaded for each {@link #invalidate()}.
+       *
+       * <p>The default is {@link #DEFAULT_MAX_WARM_SOURCE_COUNT}.
+       *
+       * @param maxWarmSourceCount The maximum number of warm sources.
+       * @return This builder.
+       */
+      @CanIgnoreReturnValue
+      public Builder setMaxWarmSourceCount(int maxWarmSourceCount) {
+        checkArgument(maxWarmSourceCount >= 0);
+        this.maxWarmSourceCount = maxWarmSourceCount;
+        return this;
+      }
+
+      /**
+       * Sets the number of bytes allocated from the {@link Allocator} shared by the player and the
+       * preload manager, at or above which no more data is preloaded.
+       *
+       * <p>The default is {@link C#LENGTH_UNSET}, which doesn't limit preloading.
+       *
+       * @param maxAllocatedBytes The memory cap in bytes, or {@link C#LENGTH_UNSET}.
+       * @return This builder.
+       */
+      @CanIgnoreReturnValue
+      public Builder setMaxAllocatedBytes(long maxAllocatedBytes) {
+        checkArgument(maxAllocatedBytes > 0 || maxAllocatedBytes == C.LENGTH_UNSET);
+        this.maxAllocatedBytes = maxAllocatedBytes;
+        return this;
+      }
+
+      /**
+       * Sets how far the live edge may move past the position at which a warm source was
+       * preloaded, before it's preloaded again at the live edge.
+       *
+       * <p>The default is {@link #DEFAULT_LIVE_EDGE_REANCHOR_THRESHOLD_MS}.
+       *
+       * @param liveEdgeReanchorThresholdMs The threshold in milliseconds.
+       * @return This builder.
+       */
+      @CanIgnoreReturnValue
+      public Builder setLiveEdgeReanchorThresholdMs(long liveEdgeReanchorThresholdMs) {
+        checkArgument(liveEdgeReanchorThresholdMs > 0);
+        this.liveEdgeReanchorThresholdMs = liveEdgeReanchorThresholdMs;
+        return this;
+      }
+
+      /** Builds a {@link LivePreloadConfiguration}. */
+      public LivePreloadConfiguration build() {
+        return new LivePreloadConfiguration(this);
+      }
+    }
+
+    /** The default maximum number of warm sources. */
+    public static final int DEFAULT_MAX_WARM_SOURCE_COUNT = 2;
+
+    /** The default live edge re-anchor threshold, in milliseconds. */
+    public static final long DEFAULT_LIVE_EDGE_REANCHOR_THRESHOLD_MS = 4_000;
+
+    /** The maximum number of sources that are preloaded for each {@link #invalidate()}. */
+    public final int maxWarmSourceCount;
+
+    /**
+     * The number of bytes allocated from the shared {@link Allocator} at or above which no more
+     * data is preloaded, or {@link C#LENGTH_UNSET} if preloading isn't limited.
+     */
+    public final long maxAllocatedBytes;
+
+    /**
+     * How far the live edge may move past the position at which a warm source was preloaded, in
+     * milliseconds, before it's preloaded again at the live edge.
+     */
+    public final long liveEdgeReanchorThresholdMs;
+
+    private LivePreloadConfiguration(Builder builder) {
+      this.maxWarmSourceCount = builder.maxWarmSourceCount;
+      this.maxAllocatedBytes = builder.maxAllocatedBytes;
+      this.liveEdgeReanchorThresholdMs = builder.liveEdgeReanchorThresholdMs;
+    }
+  }
+
   /**
    * An implementation of {@link TargetPreloadStatusControl.PreloadStatus} that describes the
    * preload status of the {@link PreloadMediaSource}.
@@ -329,8 +462,12 @@ public final class DefaultPreloadManager extends BasePreloadManager<Integer> {
   private final PlaybackLooperProvider preloadLooperProvider;
   private final PreloadMediaSource.Factory preloadMediaSourceFactory;
   private final Handler preloadHandler;
+  private final Allocator allocator;
+  @Nullable private final LivePreloadConfiguration livePreloadConfiguration;
   private final boolean deprecatedConstructorCalled;
 
+  private int startedSourceCount;
+
   private DefaultPreloadManager(Builder builder) {
     super(
         new RankingDataComparator(),
@@ -344,6 +481,8 @@ public final class DefaultPreloadManager extends BasePreloadManager<Integer> {
     BandwidthMeter bandwidthMeter = builder.bandwidthMeterSupplier.get();
     trackSelector.init(() -> {}, bandwidthMeter);
     Looper preloadLooper = preloadLooperProvider.obtainLooper();
+    allocator = builder.loadControlSupplier.get().getAllocator();
+    livePreloadConfiguration = builder.livePreloadConfiguration;
     preloadMediaSourceFactory =
         new PreloadMediaSource.Factory(
             builder.mediaSourceFactorySupplier.get(),
@@ -351,8 +490,12 @@ public final class DefaultPreloadManager extends BasePreloadManager<Integer> {
             trackSelector,
             bandwidthMeter,
             rendererCapabilitiesList.getRendererCapabilities(),
-            builder.loadControlSupplier.get().getAllocator(),
+            allocator,
             preloadLooper);
+    if (livePreloadConfiguration != null) {
+      preloadMediaSourceFactory.setLiveEdgeReanchorThresholdUs(
+          Util.msToUs(livePreloadConfiguration.liveEdgeReanchorThresholdMs));
+    }
     preloadHandler = Util.createHandler(preloadLooper, /* callback= */ null);
     deprecatedConstructorCalled = false;
   }
@@ -385,6 +528,8 @@ public final class DefaultPreloadManager extends BasePreloadManager<Integer> {
             allocator,
             obtainedPreloadLooper);
     preloadHandler = Util.createHandler(obtainedPreloadLooper, /* callback= */ null);
+    this.allocator = allocator;
+    livePreloadConfiguration = null;
     deprecatedConstructorCalled = true;
   }
 
@@ -399,14 +544,47 @@ public final class DefaultPreloadManager extends BasePreloadManager<Integer> {
     rankingDataComparator.currentPlayingIndex = currentPlayingIndex;
   }
 
+  /**
+   * Sets the indexes of the media that are most likely to be played next, such as the channels
+   * above and below the playing channel or recently watched channels, in descending order of
+   * likelihood.
+   *
+   * <p>Sources with hinted indexes are preloaded before all other sources, in the order of the
+   * hints. The other sources are preloaded in order of their distance from the {@linkplain
+   * #setCurrentPlayingIndex(int) current playing index}. The hints take effect on the next {@link
+   * #invalidate()}.
+   *
+   * @param adjacentIndexHints The indexes of the media most likely to be played next.
+   */
+  public void setAdjacentIndexHints(List<Integer> adjacentIndexHints) {
+    RankingDataComparator rankingDataComparator =
+        (RankingDataComparator) this.rankingDataComparator;
+    rankingDataComparator.adjacentIndexHints = ImmutableList.copyOf(adjacentIndexHints);
+  }
+
   @Override
   public MediaSource createMediaSourceForPreloading(MediaSource mediaSource) {
     return preloadMediaSourceFactory.createMediaSource(mediaSource);
   }
 
+  @Override
+  protected boolean shouldStartPreloadingNextSource() {
+    if (livePreloadConfiguration == null) {
+      return true;
+    }
+    return startedSourceCount < livePreloadConfiguration.maxWarmSourceCount
+        && !isPreloadMemoryCapReached();
+  }
+
+  @Override
+  protected void onInvalidate() {
+    startedSourceCount = 0;
+  }
+
   @Override
   protected void preloadSourceInternal(MediaSource mediaSource, long startPositionsUs) {
     checkArgument(mediaSource instanceof PreloadMediaSource);
+    startedSourceCount++;
     ((PreloadMediaSource) mediaSource).preload(startPositionsUs);
   }
 
@@ -436,16 +614,34 @@ public final class DefaultPreloadManager extends BasePreloadManager<Integer> {
         });
   }
 
+  private boolean isPreloadMemoryCapReached() {
+    return livePreloadConfiguration != null
+        && livePreloadConfiguration.maxAllocatedBytes != C.LENGTH_UNSET
+        && allocator.getTotalBytesAllocated() >= livePreloadConfiguration.maxAllocatedBytes;
+  }
+
   private static final class RankingDataComparator implements Comparator<Integer> {
 
     public int currentPlayingIndex;
+    public List<Integer> adjacentIndexHints;
 
     public RankingDataComparator() {
       this.currentPlayingIndex = C.INDEX_UNSET;
+      this.adjacentIndexHints = ImmutableList.of();
     }
 
     @Override
     public int compare(Integer o1, Integer o2) {
+      int hintIndex1 = adjacentIndexHints.indexOf(o1);
+      int hintIndex2 = adjacentIndexHints.indexOf(o2);
+      if (hintIndex1 != C.INDEX_UNSET || hintIndex2 != C.INDEX_UNSET) {
+        if (hintIndex1 == C.INDEX_UNSET) {
+          return 1;
+        } else if (hintIndex2 == C.INDEX_UNSET) {
+          return -1;
+        }
+        return Integer.compare(hintIndex1, hintIndex2);
+      }
       return Integer.compare(abs(o1 - currentPlayingIndex), abs(o2 - currentPlayingIndex));
     }
   }
@@ -483,7 +679,8 @@ public final class DefaultPreloadManager extends BasePreloadManager<Integer> {
           mediaSource,
           /* continueLoadingPredicate= */ status ->
               status.getStage() == Status.STAGE_LOADED_FOR_DURATION_MS
-                  && status.getValue() > Util.usToMs(bufferedDurationUs),
+                  && status.getValue() > Util.usToMs(bufferedDurationUs)
+                  && !isPreloadMemoryCapReached(),
           /* clearExceededDataFromTargetPreloadStatus= */ false);
     }
 
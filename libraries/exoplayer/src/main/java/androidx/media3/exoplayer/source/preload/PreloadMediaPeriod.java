@@ -39,6 +39,7 @@ import java.util.Objects;
   private boolean prepareInternalCalled;
   @Nullable private Callback callback;
   @Nullable private PreloadTrackSelectionHolder preloadTrackSelectionHolder;
+  private boolean seekInsidePreloadedBufferEnabled;
 
   /**
    * Creates the {@link PreloadMediaPeriod}.
@@ -49,6 +50,17 @@ import java.util.Objects;
     this.mediaPeriod = mediaPeriod;
   }
 
+  /**
+   * Sets whether a track selection at a position other than the preload position keeps the
+   * preloaded streams and seeks inside them, if the position lies within the preloaded buffer.
+   *
+   * <p>This is used when handing a live period over to the player, whose default position moves
+   * forward while the period is preloaded.
+   */
+  public void setSeekInsidePreloadedBufferEnabled(boolean seekInsidePreloadedBufferEnabled) {
+    this.seekInsidePreloadedBufferEnabled = seekInsidePreloadedBufferEnabled;
+  }
+
   public void preload(Callback callback, long positionUs) {
     this.callback = callback;
     if (prepared) {
@@ -122,7 +134,13 @@ import java.util.Objects;
           selections, mayRetainStreamFlags, streams, streamResetFlags, positionUs);
     }
     checkState(streams.length == preloadTrackSelectionHolder.streams.length);
-    if (positionUs != preloadTrackSelectionHolder.trackSelectionPositionUs) {
+    boolean seekInsidePreloadedBuffer =
+        positionUs != preloadTrackSelectionHolder.trackSelectionPositionUs
+            && seekInsidePreloadedBufferEnabled
+            && positionUs > preloadTrackSelectionHolder.trackSelectionPositionUs
+            && positionUs < mediaPeriod.getBufferedPositionUs();
+    if (positionUs != preloadTrackSelectionHolder.trackSelectionPositionUs
+        && !seekInsidePreloadedBuffer) {
       // Position changed. Copy formerly preloaded sample streams to the track selection properties
       // to make sure we give the period the chance to release discarded sample streams.
       for (int i = 0; i < preloadTrackSelectionHolder.streams.length; i++) {
@@ -159,6 +177,9 @@ import java.util.Objects;
     System.arraycopy(
         preloadStreamResetFlags, 0, streamResetFlags, 0, preloadStreamResetFlags.length);
     preloadTrackSelectionHolder = null;
+    if (seekInsidePreloadedBuffer) {
+      trackSelectionPositionUs = mediaPeriod.seekToUs(positionUs);
+    }
     return trackSelectionPositionUs;
   }
 
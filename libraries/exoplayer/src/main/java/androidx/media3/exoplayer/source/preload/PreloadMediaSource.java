@@ -46,6 +46,7 @@ import androidx.media3.exoplayer.upstream.Allocator;
 import androidx.media3.exoplayer.upstream.BandwidthMeter;
 import androidx.media3.exoplayer.upstream.CmcdConfiguration;
 import androidx.media3.exoplayer.upstream.LoadErrorHandlingPolicy;
+import com.google.errorprone.annotations.CanIgnoreReturnValue;
 import java.io.IOException;
 import java.util.Arrays;
 
@@ -126,6 +127,7 @@ public final class PreloadMediaSource extends WrappingMediaSource {
     private final BandwidthMeter bandwidthMeter;
     private final RendererCapabilities[] rendererCapabilities;
     private final PreloadControl preloadControl;
+    private long liveEdgeReanchorThresholdUs;
 
     /**
      * Creates a new factory for {@link PreloadMediaSource}.
@@ -162,6 +164,27 @@ public final class PreloadMediaSource extends WrappingMediaSource {
       this.rendererCapabilities = Arrays.copyOf(rendererCapabilities, rendererCapabilities.length);
       this.allocator = allocator;
       this.preloadLooper = preloadLooper;
+      liveEdgeReanchorThresholdUs = C.TIME_UNSET;
+    }
+
+    /**
+     * Sets how far the default position of a live window may move past the position at which a
+     * source was preloaded, before the preloaded period is released and preloaded again at the new
+     * default position. The default is {@link C#TIME_UNSET}, which disables re-anchoring.
+     *
+     * <p>When enabled, a source preloaded for the default position of a live window keeps its
+     * period, including the data preloaded for it, close to the live edge while the source isn't
+     * played. When the player starts using the source at a later default position, the preloaded
+     * period is handed over to the player instead of being released.
+     *
+     * @param liveEdgeReanchorThresholdUs The threshold in microseconds, or {@link C#TIME_UNSET} to
+     *     disable re-anchoring.
+     * @return This factory, for convenience.
+     */
+    @CanIgnoreReturnValue
+    public Factory setLiveEdgeReanchorThresholdUs(long liveEdgeReanchorThresholdUs) {
+      this.liveEdgeReanchorThresholdUs = liveEdgeReanchorThresholdUs;
+      return this;
     }
 
     @Override
@@ -197,7 +220,8 @@ public final class PreloadMediaSource extends WrappingMediaSource {
           bandwidthMeter,
           rendererCapabilities,
           allocator,
-          preloadLooper);
+          preloadLooper,
+          liveEdgeReanchorThresholdUs);
     }
 
     public PreloadMediaSource createMediaSource(MediaSource mediaSource) {
@@ -208,7 +232,8 @@ public final class PreloadMediaSource extends WrappingMediaSource {
           bandwidthMeter,
           rendererCapabilities,
           allocator,
-          preloadLooper);
+          preloadLooper,
+          liveEdgeReanchorThresholdUs);
     }
   }
 
@@ -220,11 +245,13 @@ public final class PreloadMediaSource extends WrappingMediaSource {
   private final BandwidthMeter bandwidthMeter;
   private final RendererCapabilities[] rendererCapabilities;
   private final Allocator allocator;
+  private final long liveEdgeReanchorThresholdUs;
   private final Handler preloadHandler;
   private final Handler releaseHandler;
   private boolean preloadCalled;
   private boolean prepareChildSourceCalled;
   private long startPositionUs;
+  private long preloadedDurationUs;
   @Nullable private Timeline timeline;
   @Nullable private Pair<PreloadMediaPeriod, MediaPeriodKey> preloadingMediaPeriodAndKey;
   @Nullable private Pair<PreloadMediaPeriod, MediaPeriodId> playingPreloadedMediaPeriodAndId;
@@ -238,17 +265,20 @@ public final class PreloadMediaSource extends WrappingMediaSource {
       BandwidthMeter bandwidthMeter,
       RendererCapabilities[] rendererCapabilities,
       Allocator allocator,
-      Looper preloadLooper) {
+      Looper preloadLooper,
+      long liveEdgeReanchorThresholdUs) {
     super(mediaSource);
     this.preloadControl = preloadControl;
     this.trackSelector = trackSelector;
     this.bandwidthMeter = bandwidthMeter;
     this.rendererCapabilities = rendererCapabilities;
     this.allocator = allocator;
+    this.liveEdgeReanchorThresholdUs = liveEdgeReanchorThresholdUs;
 
     preloadHandler = Util.createHandler(preloadLooper, /* callback= */ null);
     releaseHandler = Util.createHandler(preloadLooper, /* callback= */ null);
     startPositionUs = C.TIME_UNSET;
+    preloadedDurationUs = C.TIME_UNSET;
   }
 
   /**
@@ -264,6 +294,7 @@ public final class PreloadMediaSource extends WrappingMediaSource {
         () -> {
           preloadCalled = true;
           this.startPositionUs = startPositionUs;
+          preloadedDurationUs = C.TIME_UNSET;
           onSourcePreparedNotified = false;
           if (isUsedByPlayer()) {
             onUsedByPlayer();
@@ -310,7 +341,11 @@ public final class PreloadMediaSource extends WrappingMediaSource {
     refreshSourceInfo(newTimeline);
     preloadHandler.post(
         () -> {
-          if (isUsedByPlayer() || onSourcePreparedNotified) {
+          if (isUsedByPlayer()) {
+            return;
+          }
+          if (onSourcePreparedNotified) {
+            maybeReanchorToLiveEdge(newTimeline);
             return;
           }
           onSourcePreparedNotified = true;
@@ -337,9 +372,13 @@ public final class PreloadMediaSource extends WrappingMediaSource {
   public PreloadMediaPeriod createPeriod(
       MediaPeriodId id, Allocator allocator, long startPositionUs) {
     MediaPeriodKey key = new MediaPeriodKey(id, startPositionUs);
-    if (preloadingMediaPeriodAndKey != null && key.equals(preloadingMediaPeriodAndKey.second)) {
+    if (preloadingMediaPeriodAndKey != null
+        && (key.equals(preloadingMediaPeriodAndKey.second)
+            || canHandOverLivePeriod(key, preloadingMediaPeriodAndKey.second))) {
       PreloadMediaPeriod mediaPeriod = checkNotNull(preloadingMediaPeriodAndKey).first;
       if (isUsedByPlayer()) {
+        mediaPeriod.setSeekInsidePreloadedBufferEnabled(
+            !key.equals(checkNotNull(preloadingMediaPeriodAndKey).second));
         preloadingMediaPeriodAndKey = null;
         playingPreloadedMediaPeriodAndId = new Pair<>(mediaPeriod, id);
       }
@@ -402,6 +441,7 @@ public final class PreloadMediaSource extends WrappingMediaSource {
         () -> {
           preloadCalled = false;
           startPositionUs = C.TIME_UNSET;
+          preloadedDurationUs = C.TIME_UNSET;
           onSourcePreparedNotified = false;
           if (preloadingMediaPeriodAndKey != null) {
             mediaSource.releasePeriod(preloadingMediaPeriodAndKey.first.mediaPeriod);
@@ -446,6 +486,71 @@ public final class PreloadMediaSource extends WrappingMediaSource {
     preloadHandler.removeCallbacksAndMessages(null);
   }
 
+  /**
+   * Releases the preloaded period and preloads a new one at the default position of {@code
+   * timeline}, if the source was preloaded for the default position of a live window and the
+   * default position has moved past the preloaded position by at least {@link
+   * #liveEdgeReanchorThresholdUs}.
+   *
+   * <p>The new period is loaded for the same duration as the released one, without consulting the
+   * {@link PreloadControl}, so that the amount of preloaded data stays the same.
+   */
+  private void maybeReanchorToLiveEdge(Timeline timeline) {
+    if (liveEdgeReanchorThresholdUs == C.TIME_UNSET
+        || startPositionUs != C.TIME_UNSET
+        || preloadedDurationUs == C.TIME_UNSET
+        || preloadingMediaPeriodAndKey == null
+        || timeline.isEmpty()) {
+      return;
+    }
+    Pair<PreloadMediaPeriod, MediaPeriodKey> preloadedMediaPeriodAndKey =
+        preloadingMediaPeriodAndKey;
+    Timeline.Window window = timeline.getWindow(/* windowIndex= */ 0, new Timeline.Window());
+    if (!window.isLive()) {
+      return;
+    }
+    Pair<Object, Long> periodPosition =
+        timeline.getPeriodPositionUs(
+            window,
+            new Timeline.Period(),
+            /* windowIndex= */ 0,
+            /* windowPositionUs= */ C.TIME_UNSET);
+    MediaPeriodKey preloadedKey = preloadedMediaPeriodAndKey.second;
+    if (periodPosition.first.equals(preloadedKey.mediaPeriodId.periodUid)
+        && periodPosition.second - preloadedKey.startPositionUs < liveEdgeReanchorThresholdUs) {
+      return;
+    }
+    mediaSource.releasePeriod(preloadedMediaPeriodAndKey.first.mediaPeriod);
+    preloadingMediaPeriodAndKey = null;
+    PreloadMediaPeriod mediaPeriod =
+        createPeriod(new MediaPeriodId(periodPosition.first), allocator, periodPosition.second);
+    mediaPeriod.preload(
+        new PreloadMediaPeriodCallback(
+            periodPosition.second, /* reanchorTargetDurationUs= */ preloadedDurationUs),
+        /* positionUs= */ periodPosition.second);
+  }
+
+  /**
+   * Returns whether the preloaded period with {@code preloadedKey} can be handed over to the player
+   * requesting a period with {@code key}, although the start positions differ.
+   *
+   * <p>This is the case for live windows with re-anchoring enabled, as the default position moves
+   * forward between preloading and playback.
+   */
+  private boolean canHandOverLivePeriod(MediaPeriodKey key, MediaPeriodKey preloadedKey) {
+    @Nullable Timeline timeline = this.timeline;
+    if (!isUsedByPlayer()
+        || liveEdgeReanchorThresholdUs == C.TIME_UNSET
+        || timeline == null
+        || timeline.isEmpty()
+        || !timeline.getWindow(/* windowIndex= */ 0, new Timeline.Window()).isLive()) {
+      return false;
+    }
+    return mediaPeriodIdEqualsWithoutWindowSequenceNumber(
+            key.mediaPeriodId, preloadedKey.mediaPeriodId)
+        && key.startPositionUs >= preloadedKey.startPositionUs;
+  }
+
   private static boolean mediaPeriodIdEqualsWithoutWindowSequenceNumber(
       MediaPeriodId firstPeriodId, MediaPeriodId secondPeriodId) {
     return firstPeriodId.periodUid.equals(secondPeriodId.periodUid)
@@ -457,10 +562,21 @@ public final class PreloadMediaSource extends WrappingMediaSource {
   private class PreloadMediaPeriodCallback implements MediaPeriod.Callback {
 
     private final long periodStartPositionUs;
+    private final long reanchorTargetDurationUs;
     private boolean prepared;
 
     public PreloadMediaPeriodCallback(long periodStartPositionUs) {
+      this(periodStartPositionUs, /* reanchorTargetDurationUs= */ C.TIME_UNSET);
+    }
+
+    /**
+     * @param periodStartPositionUs The position in the period from which to preload.
+     * @param reanchorTargetDurationUs The duration to preload when re-anchoring to the live edge,
+     *     or {@link C#TIME_UNSET} if the {@link PreloadControl} controls the progress.
+     */
+    public PreloadMediaPeriodCallback(long periodStartPositionUs, long reanchorTargetDurationUs) {
       this.periodStartPositionUs = periodStartPositionUs;
+      this.reanchorTargetDurationUs = reanchorTargetDurationUs;
     }
 
     @Override
@@ -488,9 +604,16 @@ public final class PreloadMediaSource extends WrappingMediaSource {
             }
             preloadMediaPeriod.selectTracksForPreloading(
                 trackSelectorResult.selections, periodStartPositionUs);
-            if (!preloadControl.onTracksSelected(PreloadMediaSource.this)) {
-              stopPreloading();
-              return;
+            if (reanchorTargetDurationUs != C.TIME_UNSET) {
+              if (reanchorTargetDurationUs == 0) {
+                return;
+              }
+            } else {
+              preloadedDurationUs = 0;
+              if (!preloadControl.onTracksSelected(PreloadMediaSource.this)) {
+                stopPreloading();
+                return;
+              }
             }
             preloadMediaPeriod.continueLoading(
                 new LoadingInfo.Builder().setPlaybackPositionUs(periodStartPositionUs).build());
@@ -507,15 +630,26 @@ public final class PreloadMediaSource extends WrappingMediaSource {
             PreloadMediaPeriod preloadMediaPeriod = (PreloadMediaPeriod) mediaPeriod;
             long bufferedPositionUs = mediaPeriod.getBufferedPositionUs();
             if (prepared && bufferedPositionUs == C.TIME_END_OF_SOURCE) {
-              preloadControl.onLoadedToTheEndOfSource(PreloadMediaSource.this);
-              stopPreloading();
+              if (reanchorTargetDurationUs == C.TIME_UNSET) {
+                preloadControl.onLoadedToTheEndOfSource(PreloadMediaSource.this);
+                stopPreloading();
+              }
               return;
             }
-            if (prepared
-                && !preloadControl.onContinueLoadingRequested(
-                    PreloadMediaSource.this, bufferedPositionUs - periodStartPositionUs)) {
-              stopPreloading();
-              return;
+            if (prepared) {
+              long bufferedDurationUs = bufferedPositionUs - periodStartPositionUs;
+              if (reanchorTargetDurationUs != C.TIME_UNSET) {
+                if (bufferedDurationUs >= reanchorTargetDurationUs) {
+                  return;
+                }
+              } else {
+                preloadedDurationUs = bufferedDurationUs;
+                if (!preloadControl.onContinueLoadingRequested(
+                    PreloadMediaSource.this, bufferedDurationUs)) {
+                  stopPreloading();
+                  return;
+                }
+              }
             }
             preloadMediaPeriod.continueLoading(
                 new LoadingInfo.Builder().setPlaybackPositionUs(periodStartPositionUs).build());
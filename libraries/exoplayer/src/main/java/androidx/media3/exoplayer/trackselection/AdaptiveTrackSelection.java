@@ -604,7 +604,7 @@ public class AdaptiveTrackSelection extends BaseTrackSelection {
    * @param chunkDurationUs The duration of a media chunk in microseconds, or {@link C#TIME_UNSET}
    *     if unknown.
    */
-  private int determineIdealSelectedIndex(long nowMs, long chunkDurationUs) {
+  protected final int determineIdealSelectedIndex(long nowMs, long chunkDurationUs) {
     long effectiveBitrate = getAllocatedBandwidth(chunkDurationUs);
     int lowestBitrateAllowedIndex = 0;
     for (int i = 0; i < length; i++) {
@@ -0,0 +1,504 @@
+/*
+ * Copyright 2026 The Android Open Source Project
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package androidx.media3.exoplayer.trackselection;
+
+import static androidx.media3.common.util.Assertions.checkArgument;
+import static java.lang.Math.max;
+import static java.lang.Math.min;
+
+import androidx.annotation.CallSuper;
+import androidx.media3.common.C;
+import androidx.media3.common.Format;
+import androidx.media3.common.TrackGroup;
+import androidx.media3.common.util.Clock;
+import androidx.media3.common.util.UnstableApi;
+import androidx.media3.common.util.Util;
+import androidx.media3.exoplayer.source.chunk.MediaChunk;
+import androidx.media3.exoplayer.source.chunk.MediaChunkIterator;
+import androidx.media3.exoplayer.upstream.BandwidthMeter;
+import com.google.common.collect.ImmutableList;
+import com.google.common.collect.Iterables;
+import java.util.List;
+
+/**
+ * A buffer-based adaptive {@link ExoTrackSelection}, whose selected track is mainly determined by
+ * the buffered duration rather than by the estimated bandwidth.
+ *
+ * <p>Once at least {@code minBufferMs} of media is buffered, the selection uses the BOLA
+ * algorithm: each track gets a utility that grows with the logarithm of its bitrate, and the track
+ * that maximizes the utility gained per byte of its next chunk, given the current buffered
+ * duration, is selected. The lowest quality is selected at {@code minBufferMs} of buffered media
+ * and the highest quality at {@code bufferTargetMs}. The sizes of the next chunks are taken from
+ * the {@link MediaChunkIterator MediaChunkIterators} if known, so that variable bitrate tracks are
+ * compared by their actual chunk sizes.
+ *
+ * <p>The selection is a hybrid: while the buffered duration is low, for example at startup or
+ * after a seek, the bandwidth estimate is used as by {@link AdaptiveTrackSelection}. The selection
+ * only switches back to the bandwidth estimate once the buffered duration falls below half of
+ * {@code minBufferMs}. In buffer-based mode the selection doesn't switch up beyond both the
+ * previous track and the track that the bandwidth estimate allows, which prevents oscillation.
+ *
+ * <p>Switches can still be deferred by overriding {@link #shouldDeferSwitching}, for example
+ * during trick play. Buffered chunks of lower quality are discarded as by {@link
+ * AdaptiveTrackSelection}, except that in buffer-based mode at least {@code bufferTargetMs} of
+ * media is retained, so that discarding doesn't lower the buffered duration below the one at which
+ * the highest quality is selected.
+ */
+@UnstableApi
+public class BufferBasedAdaptiveTrackSelection extends AdaptiveTrackSelection {
+
+  /** Factory for {@link BufferBasedAdaptiveTrackSelection} instances. */
+  public static class Factory extends AdaptiveTrackSelection.Factory {
+
+    private final int minBufferMs;
+    private final int bufferTargetMs;
+    private final float bandwidthFraction;
+    private final Clock clock;
+
+    /** Creates a buffer-based adaptive track selection factory with default parameters. */
+    public Factory() {
+      this(DEFAULT_MIN_BUFFER_MS, DEFAULT_BUFFER_TARGET_MS, DEFAULT_BANDWIDTH_FRACTION);
+    }
+
+    /**
+     * Creates a buffer-based adaptive track selection factory.
+     *
+     * @param minBufferMs The buffered duration at and below which the lowest quality is selected
+     *     in buffer-based mode, and from which the buffer-based mode is used.
+     * @param bufferTargetMs The buffered duration from which the highest quality is selected. Must
+     *     be greater than {@code minBufferMs}.
+     * @param bandwidthFraction The fraction of the available bandwidth that the selection should
+     *     consider available for use while the bandwidth estimate is used.
+     */
+    public Factory(int minBufferMs, int bufferTargetMs, float bandwidthFraction) {
+      this(minBufferMs, bufferTargetMs, bandwidthFraction, Clock.DEFAULT);
+    }
+
+    /**
+     * Creates a buffer-based adaptive track selection factory.
+     *
+     * @param minBufferMs The buffered duration at and below which the lowest quality is selected
+     *     in buffer-based mode, and from which the buffer-based mode is used.
+     * @param bufferTargetMs The buffered duration from which the highest quality is selected. Must
+     *     be greater than {@code minBufferMs}.
+     * @param bandwidthFraction The fraction of the available bandwidth that the selection should
+     *     consider available for use while the bandwidth estimate is used.
+     * @param clock A {@link Clock}.
+     */
+    public Factory(int minBufferMs, int bufferTargetMs, float bandwidthFraction, Clock clock) {
+      super(
+          DEFAULT_MIN_DURATION_FOR_QUALITY_INCREASE_MS,
+          DEFAULT_MAX_DURATION_FOR_QUALITY_DECREASE_MS,
+          DEFAULT_MIN_DURATION_TO_RETAIN_AFTER_DISCARD_MS,
+          bandwidthFraction,
+          DEFAULT_BUFFERED_FRACTION_TO_LIVE_EDGE_FOR_QUALITY_INCREASE,
+          clock);
+      checkArgument(minBufferMs > 0 && bufferTargetMs > minBufferMs);
+      this.minBufferMs = minBufferMs;
+      this.bufferTargetMs = bufferTargetMs;
+      this.bandwidthFraction = bandwidthFraction;
+      this.clock = clock;
+    }
+
+    @Override
+    protected AdaptiveTrackSelection createAdaptiveTrackSelection(
+        TrackGroup group,
+        int[] tracks,
+        int type,
+        BandwidthMeter bandwidthMeter,
+        ImmutableList<AdaptationCheckpoint> adaptationCheckpoints) {
+      return new BufferBasedAdaptiveTrackSelection(
+          group,
+          tracks,
+          type,
+          bandwidthMeter,
+          minBufferMs,
+          bufferTargetMs,
+          bandwidthFraction,
+          adaptationCheckpoints,
+          clock);
+    }
+  }
+
+  public static final int DEFAULT_MIN_BUFFER_MS = 10_000;
+  public static final int DEFAULT_BUFFER_TARGET_MS = 30_000;
+
+  private final long minBufferUs;
+  private final long bufferTargetUs;
+  private final Clock clock;
+  private final double[] nextChunkSizes;
+
+  private float playbackSpeed;
+  private int selectedIndex;
+  private @C.SelectionReason int reason;
+  private boolean bufferBasedModeActive;
+  private long placeholderBufferUs;
+  private long lastPlayoutBufferedDurationUs;
+  private double lowestBitrate;
+  private double vp;
+  private double gp;
+
+  /**
+   * @param group The {@link TrackGroup}.
+   * @param tracks The indices of the selected tracks within the {@link TrackGroup}. Must not be
+   *     empty. May be in any order.
+   * @param bandwidthMeter Provides an estimate of the currently available bandwidth.
+   */
+  public BufferBasedAdaptiveTrackSelection(
+      TrackGroup group, int[] tracks, BandwidthMeter bandwidthMeter) {
+    this(
+        group,
+        tracks,
+        TrackSelection.TYPE_UNSET,
+        bandwidthMeter,
+        DEFAULT_MIN_BUFFER_MS,
+        DEFAULT_BUFFER_TARGET_MS,
+        DEFAULT_BANDWIDTH_FRACTION,
+        /* adaptationCheckpoints= */ ImmutableList.of(),
+        Clock.DEFAULT);
+  }
+
+  /**
+   * @param group The {@link TrackGroup}.
+   * @param tracks The indices of the selected tracks within the {@link TrackGroup}. Must not be
+   *     empty. May be in any order.
+   * @param type The type that will be returned from {@link TrackSelection#getType()}.
+   * @param bandwidthMeter Provides an estimate of the currently available bandwidth.
+   * @param minBufferMs The buffered duration at and below which the lowest quality is selected in
+   *     buffer-based mode, and from which the buffer-based mode is used.
+   * @param bufferTargetMs The buffered duration from which the highest quality is selected. Must be
+   *     greater than {@code minBufferMs}.
+   * @param bandwidthFraction The fraction of the available bandwidth that the selection should
+   *     consider available for use while the bandwidth estimate is used.
+   * @param adaptationCheckpoints The {@link AdaptationCheckpoint checkpoints} that can be used to
+   *     calculate available bandwidth for this selection.
+   * @param clock The {@link Clock}.
+   */
+  protected BufferBasedAdaptiveTrackSelection(
+      TrackGroup group,
+      int[] tracks,
+      @Type int type,
+      BandwidthMeter bandwidthMeter,
+      long minBufferMs,
+      long bufferTargetMs,
+      float bandwidthFraction,
+      List<AdaptationCheckpoint> adaptationCheckpoints,
+      Clock clock) {
+    super(
+        group,
+        tracks,
+        type,
+        bandwidthMeter,
+        DEFAULT_MIN_DURATION_FOR_QUALITY_INCREASE_MS,
+        DEFAULT_MAX_DURATION_FOR_QUALITY_DECREASE_MS,
+        DEFAULT_MIN_DURATION_TO_RETAIN_AFTER_DISCARD_MS,
+        DEFAULT_MAX_WIDTH_TO_DISCARD,
+        DEFAULT_MAX_HEIGHT_TO_DISCARD,
+        bandwidthFraction,
+        DEFAULT_BUFFERED_FRACTION_TO_LIVE_EDGE_FOR_QUALITY_INCREASE,
+        adaptationCheckpoints,
+        clock);
+    checkArgument(minBufferMs > 0 && bufferTargetMs > minBufferMs);
+    this.minBufferUs = minBufferMs * 1000L;
+    this.bufferTargetUs = bufferTargetMs * 1000L;
+    this.clock = clock;
+    nextChunkSizes = new double[length];
+    playbackSpeed = 1f;
+    reason = C.SELECTION_REASON_UNKNOWN;
+  }
+
+  @CallSuper
+  @Override
+  public void enable() {
+    super.enable();
+    bufferBasedModeActive = false;
+    placeholderBufferUs = 0;
+  }
+
+  @Override
+  public void onPlaybackSpeed(float playbackSpeed) {
+    super.onPlaybackSpeed(playbackSpeed);
+    this.playbackSpeed = playbackSpeed;
+  }
+
+  @Override
+  public void updateSelectedTrack(
+      long playbackPositionUs,
+      long bufferedDurationUs,
+      long availableDurationUs,
+      List<? extends MediaChunk> queue,
+      MediaChunkIterator[] mediaChunkIterators) {
+    long nowMs = clock.elapsedRealtime();
+    long chunkDurationUs = updateNextChunkSizes(mediaChunkIterators, queue);
+    int bandwidthBasedIndex = determineIdealSelectedIndex(nowMs, chunkDurationUs);
+
+    // Make initial selection
+    if (reason == C.SELECTION_REASON_UNKNOWN) {
+      reason = C.SELECTION_REASON_INITIAL;
+      selectedIndex = bandwidthBasedIndex;
+      return;
+    }
+
+    int previousSelectedIndex = selectedIndex;
+    @C.SelectionReason int previousReason = reason;
+    int formatIndexOfPreviousChunk =
+        queue.isEmpty() ? C.INDEX_UNSET : indexOf(Iterables.getLast(queue).trackFormat);
+    if (formatIndexOfPreviousChunk != C.INDEX_UNSET) {
+      previousSelectedIndex = formatIndexOfPreviousChunk;
+      previousReason = Iterables.getLast(queue).trackSelectionReason;
+    }
+    boolean previousSelectionExcluded = isTrackExcluded(previousSelectedIndex, nowMs);
+
+    long minBufferUs = this.minBufferUs;
+    long bufferTargetUs = this.bufferTargetUs;
+    if (availableDurationUs != C.TIME_UNSET) {
+      // In a live stream, the buffer can't grow beyond the available duration, which excludes the
+      // chunk that is being selected for.
+      long achievableBufferUs =
+          availableDurationUs - (chunkDurationUs == C.TIME_UNSET ? 0 : chunkDurationUs);
+      bufferTargetUs = min(bufferTargetUs, achievableBufferUs);
+      minBufferUs = min(minBufferUs, bufferTargetUs / 2);
+    }
+    long playoutBufferedDurationUs =
+        Util.getPlayoutDurationForMediaDuration(bufferedDurationUs, playbackSpeed);
+    boolean wasBufferBasedModeActive = bufferBasedModeActive;
+    if (minBufferUs <= 0 || !updateControlParameters(nowMs, minBufferUs, bufferTargetUs)) {
+      bufferBasedModeActive = false;
+    } else if (playoutBufferedDurationUs >= minBufferUs) {
+      bufferBasedModeActive = true;
+    } else if (playoutBufferedDurationUs < minBufferUs / 2) {
+      bufferBasedModeActive = false;
+    } // Else keep the current mode.
+    updatePlaceholderBuffer(
+        nowMs,
+        wasBufferBasedModeActive,
+        previousSelectionExcluded ? C.INDEX_UNSET : previousSelectedIndex,
+        playoutBufferedDurationUs,
+        bufferTargetUs);
+
+    int newSelectedIndex = bandwidthBasedIndex;
+    if (bufferBasedModeActive) {
+      int bufferBasedIndex =
+          determineBufferBasedIndex(nowMs, playoutBufferedDurationUs + placeholderBufferUs);
+      if (bufferBasedIndex != C.INDEX_UNSET) {
+        // Don't switch up beyond both the previous track and the track that the bandwidth estimate
+        // allows. Lower indices are of higher quality.
+        int maxQualityIndex =
+            previousSelectionExcluded
+                ? bandwidthBasedIndex
+                : min(previousSelectedIndex, bandwidthBasedIndex);
+        newSelectedIndex = max(bufferBasedIndex, maxQualityIndex);
+      }
+    }
+
+    if (newSelectedIndex != previousSelectedIndex
+        && !previousSelectionExcluded
+        && shouldDeferSwitching(
+            bufferedDurationUs,
+            availableDurationUs,
+            previousSelectedIndex,
+            getFormat(newSelectedIndex),
+            chunkDurationUs)) {
+      newSelectedIndex = previousSelectedIndex;
+    }
+    // If we adapted, update the trigger.
+    reason =
+        newSelectedIndex == previousSelectedIndex ? previousReason : C.SELECTION_REASON_ADAPTIVE;
+    selectedIndex = newSelectedIndex;
+  }
+
+  /**
+   * Returns whether switching from the track at {@code currentSelectedIndex} to {@code
+   * selectedFormat} should be deferred, for example during trick play.
+   *
+   * <p>The buffer-based selection applies its own hysteresis, so the default implementation
+   * returns {@code false} rather than applying the buffer thresholds of {@link
+   * AdaptiveTrackSelection}.
+   */
+  @Override
+  protected boolean shouldDeferSwitching(
+      long bufferedDurationUs,
+      long availableDurationUs,
+      int currentSelectedIndex,
+      Format selectedFormat,
+      long chunkDurationUs) {
+    return false;
+  }
+
+  @Override
+  public int getSelectedIndex() {
+    return selectedIndex;
+  }
+
+  @Override
+  public @C.SelectionReason int getSelectionReason() {
+    return reason;
+  }
+
+  @Override
+  protected long getMinDurationToRetainAfterDiscardUs() {
+    long minDurationToRetainAfterDiscardUs = super.getMinDurationToRetainAfterDiscardUs();
+    return bufferBasedModeActive
+        ? max(minDurationToRetainAfterDiscardUs, bufferTargetUs)
+        : minDurationToRetainAfterDiscardUs;
+  }
+
+  /**
+   * Updates the BOLA control parameters, so that the lowest quality is selected at {@code
+   * minBufferUs} and the highest quality at {@code bufferTargetUs}. Returns whether the parameters
+   * could be determined, which requires known track bitrates.
+   */
+  private boolean updateControlParameters(long nowMs, long minBufferUs, long bufferTargetUs) {
+    int highestBitrateIndex = C.INDEX_UNSET;
+    int lowestBitrateIndex = C.INDEX_UNSET;
+    for (int i = 0; i < length; i++) {
+      if (isTrackExcluded(i, nowMs)) {
+        continue;
+      }
+      if (getFormat(i).bitrate <= 0) {
+        return false;
+      }
+      if (highestBitrateIndex == C.INDEX_UNSET) {
+        highestBitrateIndex = i;
+      }
+      lowestBitrateIndex = i;
+    }
+    if (highestBitrateIndex == C.INDEX_UNSET) {
+      return false;
+    }
+    lowestBitrate = getFormat(lowestBitrateIndex).bitrate;
+    double highestUtility = getUtility(highestBitrateIndex);
+    if (highestUtility <= 1) {
+      // All tracks have the same bitrate.
+      return false;
+    }
+    double minBufferSec = minBufferUs / (double) C.MICROS_PER_SECOND;
+    double bufferTargetSec = bufferTargetUs / (double) C.MICROS_PER_SECOND;
+    gp = (highestUtility - 1) / (bufferTargetSec / minBufferSec - 1);
+    vp = minBufferSec / gp;
+    return true;
+  }
+
+  /**
+   * Updates the placeholder buffer, a virtual buffered duration that is added to the actual
+   * buffered duration. When the buffer-based mode is entered, the placeholder makes the selection
+   * keep the current track instead of dropping to the lowest quality. Depletion of the actual
+   * buffer consumes the placeholder first.
+   */
+  private void updatePlaceholderBuffer(
+      long nowMs,
+      boolean wasBufferBasedModeActive,
+      int currentIndex,
+      long bufferedDurationUs,
+      long bufferTargetUs) {
+    if (!bufferBasedModeActive) {
+      placeholderBufferUs = 0;
+    } else if (!wasBufferBasedModeActive) {
+      placeholderBufferUs =
+          currentIndex == C.INDEX_UNSET
+              ? 0
+              : max(0, getMinBufferedDurationUsForTrack(nowMs, currentIndex) - bufferedDurationUs);
+    } else if (bufferedDurationUs < lastPlayoutBufferedDurationUs) {
+      placeholderBufferUs =
+          max(0, placeholderBufferUs - (lastPlayoutBufferedDurationUs - bufferedDurationUs));
+    }
+    placeholderBufferUs = min(placeholderBufferUs, max(0, bufferTargetUs - bufferedDurationUs));
+    lastPlayoutBufferedDurationUs = bufferedDurationUs;
+  }
+
+  /** Returns the index of the track that maximizes the BOLA objective. */
+  private int determineBufferBasedIndex(long nowMs, long bufferedDurationUs) {
+    double bufferedDurationSec = bufferedDurationUs / (double) C.MICROS_PER_SECOND;
+    int bestIndex = C.INDEX_UNSET;
+    double bestScore = Double.NEGATIVE_INFINITY;
+    for (int i = 0; i < length; i++) {
+      if (isTrackExcluded(i, nowMs)) {
+        continue;
+      }
+      double score = (vp * (getUtility(i) + gp) - bufferedDurationSec) / nextChunkSizes[i];
+      if (score > bestScore) {
+        bestScore = score;
+        bestIndex = i;
+      }
+    }
+    return bestIndex;
+  }
+
+  /**
+   * Returns the buffered duration from which the BOLA objective prefers the track at {@code index}
+   * over the next lower quality track, in microseconds.
+   */
+  private long getMinBufferedDurationUsForTrack(long nowMs, int index) {
+    int lowerIndex = index + 1;
+    while (lowerIndex < length && isTrackExcluded(lowerIndex, nowMs)) {
+      lowerIndex++;
+    }
+    if (lowerIndex >= length || nextChunkSizes[index] <= nextChunkSizes[lowerIndex]) {
+      return 0;
+    }
+    double size = nextChunkSizes[index];
+    double lowerSize = nextChunkSizes[lowerIndex];
+    double minBufferedDurationSec =
+        vp
+            * ((getUtility(lowerIndex) + gp) * size - (getUtility(index) + gp) * lowerSize)
+            / (size - lowerSize);
+    return max(0, (long) Math.ceil(minBufferedDurationSec * C.MICROS_PER_SECOND));
+  }
+
+  /**
+   * Updates {@link #nextChunkSizes} with the sizes of the next chunks, or with values proportional
+   * to the track bitrates if not all sizes are known, and returns the duration of the next chunk
+   * in microseconds, or {@link C#TIME_UNSET} if unknown.
+   */
+  private long updateNextChunkSizes(
+      MediaChunkIterator[] mediaChunkIterators, List<? extends MediaChunk> queue) {
+    long chunkDurationUs = C.TIME_UNSET;
+    boolean allChunkSizesKnown = mediaChunkIterators.length == length;
+    for (int i = 0; i < mediaChunkIterators.length && i < length; i++) {
+      MediaChunkIterator iterator = mediaChunkIterators[i];
+      if (!iterator.next()) {
+        allChunkSizesKnown = false;
+        continue;
+      }
+      if (chunkDurationUs == C.TIME_UNSET || i == selectedIndex) {
+        chunkDurationUs = iterator.getChunkEndTimeUs() - iterator.getChunkStartTimeUs();
+      }
+      long chunkLength = iterator.getDataSpec().length;
+      if (chunkLength <= 0) {
+        allChunkSizesKnown = false;
+      } else {
+        nextChunkSizes[i] = chunkLength;
+      }
+    }
+    if (!allChunkSizesKnown) {
+      for (int i = 0; i < length; i++) {
+        nextChunkSizes[i] = max(1, getFormat(i).bitrate);
+      }
+    }
+    if (chunkDurationUs == C.TIME_UNSET && !queue.isEmpty()) {
+      MediaChunk lastChunk = Iterables.getLast(queue);
+      if (lastChunk.startTimeUs != C.TIME_UNSET && lastChunk.endTimeUs != C.TIME_UNSET) {
+        chunkDurationUs = lastChunk.endTimeUs - lastChunk.startTimeUs;
+      }
+    }
+    return chunkDurationUs;
+  }
+
+  /** Returns the BOLA utility of the track at {@code index}, which is 1 for the lowest bitrate. */
+  private double getUtility(int index) {
+    return Math.log(getFormat(index).bitrate / lowestBitrate) + 1;
+  }
+}
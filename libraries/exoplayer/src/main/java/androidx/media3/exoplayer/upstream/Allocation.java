@@ -15,10 +15,14 @@
  */
 package androidx.media3.exoplayer.upstream;
 
+import androidx.annotation.Nullable;
+import androidx.media3.common.util.Assertions;
 import androidx.media3.common.util.UnstableApi;
+import androidx.media3.common.util.Util;
+import java.nio.ByteBuffer;
 
 /**
- * An allocation within a byte array.
+ * An allocation within a byte array, or within a direct {@link ByteBuffer}.
  *
  * <p>The allocation's length is obtained by calling {@link
  * Allocator#getIndividualAllocationLength()} on the {@link Allocator} from which it was obtained.
@@ -29,10 +33,22 @@ public final class Allocation {
   /**
    * The array containing the allocated space. The allocated space might not be at the start of the
    * array, and so {@link #offset} must be used when indexing into it.
+   *
+   * <p>Empty if the allocation is backed by {@link #directData}.
    */
   public final byte[] data;
 
-  /** The offset of the allocated space in {@link #data}. */
+  /**
+   * The direct buffer containing the allocated space, or {@code null} if the allocation is backed
+   * by {@link #data}. The allocated space might not be at the start of the buffer, and so {@link
+   * #offset} must be used when indexing into it.
+   *
+   * <p>The position and limit of this buffer must not be modified. Use {@link
+   * ByteBuffer#duplicate()} to obtain a view with an independent position and limit.
+   */
+  @Nullable public final ByteBuffer directData;
+
+  /** The offset of the allocated space in {@link #data}, or in {@link #directData} if set. */
   public final int offset;
 
   /**
@@ -42,5 +58,17 @@ public final class Allocation {
   public Allocation(byte[] data, int offset) {
     this.data = data;
     this.offset = offset;
+    this.directData = null;
+  }
+
+  /**
+   * @param directData The direct buffer containing the allocated space.
+   * @param offset The offset of the allocated space in {@code directData}.
+   */
+  public Allocation(ByteBuffer directData, int offset) {
+    Assertions.checkArgument(directData.isDirect());
+    this.directData = directData;
+    this.offset = offset;
+    this.data = Util.EMPTY_BYTE_ARRAY;
   }
 }
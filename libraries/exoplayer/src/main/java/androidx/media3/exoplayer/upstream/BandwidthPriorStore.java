@@ -0,0 +1,335 @@
+/*
+ * Copyright 2026 The Android Open Source Project
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package androidx.media3.exoplayer.upstream;
+
+import static androidx.media3.common.util.Assertions.checkArgument;
+
+import android.content.ContentValues;
+import android.content.Context;
+import android.database.Cursor;
+import android.database.SQLException;
+import android.database.sqlite.SQLiteDatabase;
+import android.net.wifi.WifiInfo;
+import android.net.wifi.WifiManager;
+import androidx.annotation.Nullable;
+import androidx.annotation.WorkerThread;
+import androidx.media3.common.C;
+import androidx.media3.common.util.UnstableApi;
+import androidx.media3.database.DatabaseIOException;
+import androidx.media3.database.DatabaseProvider;
+import androidx.media3.database.VersionTable;
+import java.nio.ByteBuffer;
+
+/**
+ * Persists the bandwidth statistics of the networks a device connects to, so that a {@link
+ * DefaultBandwidthMeter} can start from the throughput and time to first byte observed during
+ * earlier sessions on the same network, rather than from a country-wide default.
+ *
+ * <p>Statistics are keyed by a network key, as returned by {@link #getNetworkKey(Context, int)}.
+ * The store is backed by a table in the database of a {@link DatabaseProvider}.
+ */
+@UnstableApi
+public final class BandwidthPriorStore {
+
+  /** Bandwidth statistics recorded for a network. */
+  public static final class Prior {
+
+    /** The bitrate estimate in bits per second. */
+    public final long bitrateEstimate;
+
+    /**
+     * The time to first byte estimate in microseconds, or {@link C#TIME_UNSET} if no estimate was
+     * available.
+     */
+    public final long timeToFirstByteEstimateUs;
+
+    /** The weights of the recent throughput samples, oldest first. */
+    public final int[] throughputSampleWeights;
+
+    /**
+     * The bitrates of the recent throughput samples in bits per second, in the same order as
+     * {@link #throughputSampleWeights}.
+     */
+    public final float[] throughputSampleBitrates;
+
+    /** The recent time to first byte samples in microseconds, oldest first. */
+    public final long[] timeToFirstByteSamplesUs;
+
+    /**
+     * Creates an instance.
+     *
+     * @param bitrateEstimate The bitrate estimate in bits per second.
+     * @param timeToFirstByteEstimateUs The time to first byte estimate in microseconds, or {@link
+     *     C#TIME_UNSET}.
+     * @param throughputSampleWeights The weights of the recent throughput samples.
+     * @param throughputSampleBitrates The bitrates of the recent throughput samples. Must have the
+     *     same length as {@code throughputSampleWeights}.
+     * @param timeToFirstByteSamplesUs The recent time to first byte samples in microseconds.
+     */
+    public Prior(
+        long bitrateEstimate,
+        long timeToFirstByteEstimateUs,
+        int[] throughputSampleWeights,
+        float[] throughputSampleBitrates,
+        long[] timeToFirstByteSamplesUs) {
+      checkArgument(throughputSampleWeights.length == throughputSampleBitrates.length);
+      this.bitrateEstimate = bitrateEstimate;
+      this.timeToFirstByteEstimateUs = timeToFirstByteEstimateUs;
+      this.throughputSampleWeights = throughputSampleWeights;
+      this.throughputSampleBitrates = throughputSampleBitrates;
+      this.timeToFirstByteSamplesUs = timeToFirstByteSamplesUs;
+    }
+  }
+
+  private static final String TABLE_NAME = DatabaseProvider.TABLE_PREFIX + "BandwidthPriors";
+  private static final String VERSION_TABLE_INSTANCE_UID = "androidx.media3.BandwidthPriors";
+  private static final int TABLE_VERSION = 1;
+
+  private static final String COLUMN_NETWORK_KEY = "network_key";
+  private static final String COLUMN_BITRATE_ESTIMATE = "bitrate_estimate";
+  private static final String COLUMN_TIME_TO_FIRST_BYTE_ESTIMATE_US = "ttfb_estimate_us";
+  private static final String COLUMN_THROUGHPUT_SAMPLES = "throughput_samples";
+  private static final String COLUMN_TIME_TO_FIRST_BYTE_SAMPLES = "ttfb_samples";
+
+  private static final int COLUMN_INDEX_BITRATE_ESTIMATE = 0;
+  private static final int COLUMN_INDEX_TIME_TO_FIRST_BYTE_ESTIMATE_US = 1;
+  private static final int COLUMN_INDEX_THROUGHPUT_SAMPLES = 2;
+  private static final int COLUMN_INDEX_TIME_TO_FIRST_BYTE_SAMPLES = 3;
+
+  private static final String WHERE_NETWORK_KEY_EQUALS = COLUMN_NETWORK_KEY + " = ?";
+
+  private static final String[] COLUMNS =
+      new String[] {
+        COLUMN_BITRATE_ESTIMATE,
+        COLUMN_TIME_TO_FIRST_BYTE_ESTIMATE_US,
+        COLUMN_THROUGHPUT_SAMPLES,
+        COLUMN_TIME_TO_FIRST_BYTE_SAMPLES
+      };
+
+  private static final String TABLE_SCHEMA =
+      "("
+          + COLUMN_NETWORK_KEY
+          + " TEXT PRIMARY KEY NOT NULL,"
+          + COLUMN_BITRATE_ESTIMATE
+          + " INTEGER NOT NULL,"
+          + COLUMN_TIME_TO_FIRST_BYTE_ESTIMATE_US
+          + " INTEGER NOT NULL,"
+          + COLUMN_THROUGHPUT_SAMPLES
+          + " BLOB NOT NULL,"
+          + COLUMN_TIME_TO_FIRST_BYTE_SAMPLES
+          + " BLOB NOT NULL)";
+
+  // WifiManager.UNKNOWN_SSID is only public from API level 30.
+  private static final String UNKNOWN_SSID = "<unknown ssid>";
+
+  private final DatabaseProvider databaseProvider;
+  private final Object initializationLock;
+
+  private boolean initialized;
+
+  /**
+   * Creates an instance.
+   *
+   * @param databaseProvider Provides the database in which the statistics are stored.
+   */
+  public BandwidthPriorStore(DatabaseProvider databaseProvider) {
+    this.databaseProvider = databaseProvider;
+    initializationLock = new Object();
+  }
+
+  /**
+   * Returns the key under which statistics for the current network are stored.
+   *
+   * <p>The key consists of the network type and, for Wifi networks, a hash of the network's SSID.
+   * The SSID is only available if the app holds the {@code ACCESS_WIFI_STATE} permission, and from
+   * API level 27 also a location permission. If it's unavailable, all Wifi networks share a key.
+   *
+   * @param context A context.
+   * @param networkType The {@link C.NetworkType} of the current network.
+   * @return The network key.
+   */
+  public static String getNetworkKey(Context context, @C.NetworkType int networkType) {
+    String networkKey = "type-" + networkType;
+    if (networkType == C.NETWORK_TYPE_WIFI) {
+      @Nullable String ssid = getWifiSsid(context);
+      if (ssid != null) {
+        networkKey += "-" + Integer.toHexString(ssid.hashCode());
+      }
+    }
+    return networkKey;
+  }
+
+  /**
+   * Returns the statistics stored for a network, or {@code null} if there are none.
+   *
+   * <p>This method may be slow and shouldn't normally be called on the main thread.
+   *
+   * @param networkKey The network key.
+   * @return The stored {@link Prior}, or {@code null}.
+   * @throws DatabaseIOException If an error occurs reading from the database.
+   */
+  @WorkerThread
+  @Nullable
+  public Prior get(String networkKey) throws DatabaseIOException {
+    ensureInitialized();
+    try (Cursor cursor =
+        databaseProvider
+            .getReadableDatabase()
+            .query(
+                TABLE_NAME,
+                COLUMNS,
+                WHERE_NETWORK_KEY_EQUALS,
+                new String[] {networkKey},
+                /* groupBy= */ null,
+                /* having= */ null,
+                /* orderBy= */ null)) {
+      if (!cursor.moveToNext()) {
+        return null;
+      }
+      ByteBuffer throughputSamples =
+          ByteBuffer.wrap(cursor.getBlob(COLUMN_INDEX_THROUGHPUT_SAMPLES));
+      int throughputSampleCount = throughputSamples.remaining() / (4 + 4);
+      int[] throughputSampleWeights = new int[throughputSampleCount];
+      float[] throughputSampleBitrates = new float[throughputSampleCount];
+      for (int i = 0; i < throughputSampleCount; i++) {
+        throughputSampleWeights[i] = throughputSamples.getInt();
+        throughputSampleBitrates[i] = throughputSamples.getFloat();
+      }
+      ByteBuffer timeToFirstByteSamples =
+          ByteBuffer.wrap(cursor.getBlob(COLUMN_INDEX_TIME_TO_FIRST_BYTE_SAMPLES));
+      long[] timeToFirstByteSamplesUs = new long[timeToFirstByteSamples.remaining() / 8];
+      for (int i = 0; i < timeToFirstByteSamplesUs.length; i++) {
+        timeToFirstByteSamplesUs[i] = timeToFirstByteSamples.getLong();
+      }
+      return new Prior(
+          cursor.getLong(COLUMN_INDEX_BITRATE_ESTIMATE),
+          cursor.getLong(COLUMN_INDEX_TIME_TO_FIRST_BYTE_ESTIMATE_US),
+          throughputSampleWeights,
+          throughputSampleBitrates,
+          timeToFirstByteSamplesUs);
+    } catch (SQLException e) {
+      throw new DatabaseIOException(e);
+    }
+  }
+
+  /**
+   * Stores the statistics for a network, replacing any previously stored for it.
+   *
+   * <p>This method may be slow and shouldn't normally be called on the main thread.
+   *
+   * @param networkKey The network key.
+   * @param prior The {@link Prior} to store.
+   * @throws DatabaseIOException If an error occurs writing to the database.
+   */
+  @WorkerThread
+  public void put(String networkKey, Prior prior) throws DatabaseIOException {
+    ensureInitialized();
+    ByteBuffer throughputSamples =
+        ByteBuffer.allocate(prior.throughputSampleWeights.length * (4 + 4));
+    for (int i = 0; i < prior.throughputSampleWeights.length; i++) {
+      throughputSamples.putInt(prior.throughputSampleWeights[i]);
+      throughputSamples.putFloat(prior.throughputSampleBitrates[i]);
+    }
+    ByteBuffer timeToFirstByteSamples =
+        ByteBuffer.allocate(prior.timeToFirstByteSamplesUs.length * 8);
+    for (long timeToFirstByteSampleUs : prior.timeToFirstByteSamplesUs) {
+      timeToFirstByteSamples.putLong(timeToFirstByteSampleUs);
+    }
+    ContentValues values = new ContentValues();
+    values.put(COLUMN_NETWORK_KEY, networkKey);
+    values.put(COLUMN_BITRATE_ESTIMATE, prior.bitrateEstimate);
+    values.put(COLUMN_TIME_TO_FIRST_BYTE_ESTIMATE_US, prior.timeToFirstByteEstimateUs);
+    values.put(COLUMN_THROUGHPUT_SAMPLES, throughputSamples.array());
+    values.put(COLUMN_TIME_TO_FIRST_BYTE_SAMPLES, timeToFirstByteSamples.array());
+    try {
+      SQLiteDatabase writableDatabase = databaseProvider.getWritableDatabase();
+      writableDatabase.replaceOrThrow(TABLE_NAME, /* nullColumnHack= */ null, values);
+    } catch (SQLException e) {
+      throw new DatabaseIOException(e);
+    }
+  }
+
+  /**
+   * Removes the statistics of all networks.
+   *
+   * <p>This method may be slow and shouldn't normally be called on the main thread.
+   *
+   * @throws DatabaseIOException If an error occurs writing to the database.
+   */
+  @WorkerThread
+  public void clear() throws DatabaseIOException {
+    ensureInitialized();
+    try {
+      databaseProvider
+          .getWritableDatabase()
+          .delete(TABLE_NAME, /* whereClause= */ null, /* whereArgs= */ null);
+    } catch (SQLException e) {
+      throw new DatabaseIOException(e);
+    }
+  }
+
+  private void ensureInitialized() throws DatabaseIOException {
+    synchronized (initializationLock) {
+      if (initialized) {
+        return;
+      }
+      try {
+        SQLiteDatabase readableDatabase = databaseProvider.getReadableDatabase();
+        int version =
+            VersionTable.getVersion(
+                readableDatabase, VersionTable.FEATURE_EXTERNAL, VERSION_TABLE_INSTANCE_UID);
+        if (version != TABLE_VERSION) {
+          SQLiteDatabase writableDatabase = databaseProvider.getWritableDatabase();
+          writableDatabase.beginTransactionNonExclusive();
+          try {
+            VersionTable.setVersion(
+                writableDatabase,
+                VersionTable.FEATURE_EXTERNAL,
+                VERSION_TABLE_INSTANCE_UID,
+                TABLE_VERSION);
+            writableDatabase.execSQL("DROP TABLE IF EXISTS " + TABLE_NAME);
+            writableDatabase.execSQL("CREATE TABLE " + TABLE_NAME + " " + TABLE_SCHEMA);
+            writableDatabase.setTransactionSuccessful();
+          } finally {
+            writableDatabase.endTransaction();
+          }
+        }
+        initialized = true;
+      } catch (SQLException e) {
+        throw new DatabaseIOException(e);
+      }
+    }
+  }
+
+  @Nullable
+  @SuppressWarnings("deprecation") // WifiManager.getConnectionInfo is the only pre-API 31 option.
+  private static String getWifiSsid(Context context) {
+    @Nullable
+    WifiManager wifiManager =
+        (WifiManager) context.getApplicationContext().getSystemService(Context.WIFI_SERVICE);
+    if (wifiManager == null) {
+      return null;
+    }
+    try {
+      @Nullable WifiInfo wifiInfo = wifiManager.getConnectionInfo();
+      @Nullable String ssid = wifiInfo == null ? null : wifiInfo.getSSID();
+      return ssid == null || ssid.isEmpty() || UNKNOWN_SSID.equals(ssid) ? null : ssid;
+    } catch (SecurityException e) {
+      // The app doesn't hold the ACCESS_WIFI_STATE permission.
+      return null;
+    }
+  }
+}
@@ -0,0 +1,313 @@
+/*
+ * Copyright 2026 The Android Open Source Project
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package androidx.media3.exoplayer.upstream;
+
+import static java.lang.Math.max;
+
+import androidx.annotation.Nullable;
+import androidx.media3.common.util.Assertions;
+import androidx.media3.common.util.NullableType;
+import androidx.media3.common.util.Util;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+
+/**
+ * Lock-free pool of {@link Allocation Allocations} backing a {@link DefaultAllocator} created with
+ * {@link DefaultAllocator#createWithThreadCaches}.
+ *
+ * <p>Each thread that allocates or releases has its own small cache of free allocations, which it
+ * accesses without any synchronization. Allocations that don't fit in a thread's cache spill over
+ * into a shared, bounded, lock-free ring, from which other threads refill their caches. A loading
+ * thread therefore mostly allocates from its own cache, and the playback thread releasing
+ * allocations from {@code SampleDataQueue.discardDownstreamTo} never contends on a monitor.
+ *
+ * <p>The number of allocations handed out is tracked exactly, so {@link #getAllocatedCount()} can
+ * be compared against the target buffer size. Free allocations held in the thread caches are
+ * counted as available. If {@link #trim()} can't reach the target from the shared ring alone, the
+ * thread caches are asked to flush, which they do the next time their thread accesses the pool.
+ * The caches of threads that have terminated can never flush, so {@link #trim()} stops counting
+ * them and leaves their allocations to the garbage collector.
+ */
+/* package */ final class ConcurrentAllocationPool {
+
+  /**
+   * The capacity of the shared ring. Released allocations that don't fit in the ring are left to
+   * the garbage collector. With the default 64 KiB allocation length this is 256 MiB of free
+   * memory, more than any default target buffer size.
+   */
+  private static final int SHARED_RING_CAPACITY = 4096;
+
+  private static final int SHARED_RING_MASK = SHARED_RING_CAPACITY - 1;
+
+  private final int individualAllocationSize;
+  private final int threadCacheSize;
+  private final ThreadLocal<ThreadCache> threadCache;
+  private final ConcurrentLinkedQueue<ThreadCache> threadCaches;
+
+  private final AtomicReferenceArray<@NullableType Allocation> ringSlots;
+  private final AtomicLongArray ringSequences;
+  private final AtomicLong ringEnqueuePosition;
+  private final AtomicLong ringDequeuePosition;
+
+  private final AtomicInteger allocatedCount;
+  private final AtomicInteger availableCount;
+  private final AtomicInteger trimGeneration;
+  private volatile int targetBufferSize;
+
+  /**
+   * Creates an instance.
+   *
+   * @param individualAllocationSize The length of each individual {@link Allocation}.
+   * @param threadCacheSize The maximum number of free allocations cached by each thread.
+   */
+  public ConcurrentAllocationPool(int individualAllocationSize, int threadCacheSize) {
+    Assertions.checkArgument(individualAllocationSize > 0);
+    Assertions.checkArgument(threadCacheSize > 0);
+    this.individualAllocationSize = individualAllocationSize;
+    this.threadCacheSize = threadCacheSize;
+    threadCache = new ThreadLocal<>();
+    threadCaches = new ConcurrentLinkedQueue<>();
+    ringSlots = new AtomicReferenceArray<>(SHARED_RING_CAPACITY);
+    ringSequences = new AtomicLongArray(SHARED_RING_CAPACITY);
+    for (int i = 0; i < SHARED_RING_CAPACITY; i++) {
+      ringSequences.set(i, i);
+    }
+    ringEnqueuePosition = new AtomicLong();
+    ringDequeuePosition = new AtomicLong();
+    allocatedCount = new AtomicInteger();
+    availableCount = new AtomicInteger();
+    trimGeneration = new AtomicInteger();
+  }
+
+  /** See {@link DefaultAllocator#setTargetBufferSize(int)}. */
+  public void setTargetBufferSize(int targetBufferSize) {
+    boolean targetBufferSizeReduced = targetBufferSize < this.targetBufferSize;
+    this.targetBufferSize = targetBufferSize;
+    if (targetBufferSizeReduced) {
+      trim();
+    }
+  }
+
+  /** See {@link Allocator#allocate()}. */
+  public Allocation allocate() {
+    allocatedCount.incrementAndGet();
+    ThreadCache cache = getThreadCache();
+    if (cache.size == 0) {
+      // Refill up to half of the cache from the shared ring, keeping one allocation to return.
+      int refillCount = max(1, threadCacheSize / 2);
+      while (cache.size < refillCount) {
+        @Nullable Allocation allocation = pollShared();
+        if (allocation == null) {
+          break;
+        }
+        cache.push(allocation);
+      }
+    }
+    if (cache.size > 0) {
+      availableCount.decrementAndGet();
+      return cache.pop();
+    }
+    return new Allocation(new byte[individualAllocationSize], 0);
+  }
+
+  /** See {@link Allocator#release(Allocation)}. */
+  public void release(Allocation allocation) {
+    ThreadCache cache = getThreadCache();
+    releaseToCache(cache, allocation);
+    allocatedCount.decrementAndGet();
+  }
+
+  /** See {@link Allocator#release(Allocator.AllocationNode)}. */
+  public void release(@Nullable Allocator.AllocationNode allocationNode) {
+    ThreadCache cache = getThreadCache();
+    int releasedCount = 0;
+    while (allocationNode != null) {
+      releaseToCache(cache, allocationNode.getAllocation());
+      releasedCount++;
+      allocationNode = allocationNode.next();
+    }
+    allocatedCount.addAndGet(-releasedCount);
+  }
+
+  /** See {@link Allocator#trim()}. */
+  public void trim() {
+    removeTerminatedThreadCaches();
+    if (!trimShared()) {
+      // The remaining excess is held in thread caches. Ask them to flush.
+      trimGeneration.incrementAndGet();
+    }
+  }
+
+  /** Returns the number of allocations currently handed out. */
+  public int getAllocatedCount() {
+    return allocatedCount.get();
+  }
+
+  private ThreadCache getThreadCache() {
+    @Nullable ThreadCache cache = threadCache.get();
+    if (cache == null) {
+      removeTerminatedThreadCaches();
+      cache = new ThreadCache(Thread.currentThread(), threadCacheSize, trimGeneration.get());
+      threadCache.set(cache);
+      threadCaches.add(cache);
+    } else if (cache.generation != trimGeneration.get()) {
+      cache.generation = trimGeneration.get();
+      while (cache.size > 0) {
+        spillToShared(cache.pop());
+      }
+      // Don't ask the other caches to flush again. They already have a pending request.
+      trimShared();
+    }
+    return cache;
+  }
+
+  /**
+   * Drops free allocations from the shared ring until the number of available allocations fits
+   * the target buffer size.
+   *
+   * @return Whether the number of available allocations fits the target buffer size.
+   */
+  private boolean trimShared() {
+    int targetAllocationCount = Util.ceilDivide(targetBufferSize, individualAllocationSize);
+    int targetAvailableCount = max(0, targetAllocationCount - allocatedCount.get());
+    while (availableCount.get() > targetAvailableCount) {
+      if (pollShared() == null) {
+        return false;
+      }
+      availableCount.decrementAndGet();
+    }
+    return true;
+  }
+
+  private void removeTerminatedThreadCaches() {
+    for (ThreadCache cache : threadCaches) {
+      // Once the owner has terminated, its last writes to the cache are visible to this thread.
+      if (!cache.owner.isAlive() && threadCaches.remove(cache)) {
+        availableCount.addAndGet(-cache.size);
+      }
+    }
+  }
+
+  private void releaseToCache(ThreadCache cache, Allocation allocation) {
+    availableCount.incrementAndGet();
+    if (cache.size == threadCacheSize) {
+      // Spill the older half of the cache to the shared ring so other threads can use it.
+      int spillCount = max(1, threadCacheSize / 2);
+      for (int i = 0; i < spillCount; i++) {
+        spillToShared(cache.removeOldest());
+      }
+    }
+    cache.push(allocation);
+  }
+
+  private void spillToShared(Allocation allocation) {
+    if (!offerShared(allocation)) {
+      // The ring is full. Leave the allocation to the garbage collector.
+      availableCount.decrementAndGet();
+    }
+  }
+
+  // Bounded multi-producer multi-consumer ring, after Dmitry Vyukov's array based queue. Each slot
+  // has a sequence number that tells producers and consumers whether the slot is ready for them,
+  // which avoids the ABA problem without allocating a node per operation.
+
+  private boolean offerShared(Allocation allocation) {
+    long position = ringEnqueuePosition.get();
+    while (true) {
+      int index = (int) (position & SHARED_RING_MASK);
+      long difference = ringSequences.get(index) - position;
+      if (difference == 0) {
+        if (ringEnqueuePosition.compareAndSet(position, position + 1)) {
+          ringSlots.set(index, allocation);
+          ringSequences.set(index, position + 1);
+          return true;
+        }
+        position = ringEnqueuePosition.get();
+      } else if (difference < 0) {
+        // Full.
+        return false;
+      } else {
+        position = ringEnqueuePosition.get();
+      }
+    }
+  }
+
+  @Nullable
+  private Allocation pollShared() {
+    long position = ringDequeuePosition.get();
+    while (true) {
+      int index = (int) (position & SHARED_RING_MASK);
+      long difference = ringSequences.get(index) - (position + 1);
+      if (difference == 0) {
+        if (ringDequeuePosition.compareAndSet(position, position + 1)) {
+          Allocation allocation = Assertions.checkNotNull(ringSlots.getAndSet(index, null));
+          ringSequences.set(index, position + SHARED_RING_CAPACITY);
+          return allocation;
+        }
+        position = ringDequeuePosition.get();
+      } else if (difference < 0) {
+        // Empty.
+        return null;
+      } else {
+        position = ringDequeuePosition.get();
+      }
+    }
+  }
+
+  /**
+   * Free allocations cached by a single thread. Only accessed by its owning thread, and by {@link
+   * #removeTerminatedThreadCaches()} once the owning thread has terminated.
+   */
+  private static final class ThreadCache {
+
+    private final Thread owner;
+    private final @NullableType Allocation[] allocations;
+
+    private int start;
+    private int size;
+    private int generation;
+
+    public ThreadCache(Thread owner, int capacity, int generation) {
+      this.owner = owner;
+      allocations = new Allocation[capacity];
+      this.generation = generation;
+    }
+
+    public void push(Allocation allocation) {
+      allocations[(start + size) % allocations.length] = allocation;
+      size++;
+    }
+
+    public Allocation pop() {
+      size--;
+      int index = (start + size) % allocations.length;
+      Allocation allocation = Assertions.checkNotNull(allocations[index]);
+      allocations[index] = null;
+      return allocation;
+    }
+
+    public Allocation removeOldest() {
+      Allocation allocation = Assertions.checkNotNull(allocations[start]);
+      allocations[start] = null;
+      start = (start + 1) % allocations.length;
+      size--;
+      return allocation;
+    }
+  }
+}
@@ -22,22 +22,38 @@ import androidx.media3.common.util.Assertions;
 import androidx.media3.common.util.NullableType;
 import androidx.media3.common.util.UnstableApi;
 import androidx.media3.common.util.Util;
+import java.nio.ByteBuffer;
 import java.util.Arrays;
 
-/** Default implementation of {@link Allocator}. */
+/**
+ * Default implementation of {@link Allocator}.
+ *
+ * <p>Instances created through the constructors guard all state with a single monitor. Instances
+ * created with {@link #createWithThreadCaches} are lock-free, which avoids contention when several
+ * loading threads share the allocator with the playback thread. Instances created with {@link
+ * #createWithDirectBuffers} allocate from direct {@link ByteBuffer} slabs, outside of the Java
+ * heap.
+ */
 @UnstableApi
 public final class DefaultAllocator implements Allocator {
 
   private static final int AVAILABLE_EXTRA_CAPACITY = 100;
 
+  /** The number of allocations carved from each direct buffer slab. */
+  private static final int DIRECT_SLAB_ALLOCATION_COUNT = 16;
+
   private final boolean trimOnReset;
   private final int individualAllocationSize;
   @Nullable private final byte[] initialAllocationBlock;
+  @Nullable private final ConcurrentAllocationPool concurrentAllocationPool;
+  private final boolean useDirectBuffers;
 
   private int targetBufferSize;
   private int allocatedCount;
   private int availableCount;
   private @NullableType Allocation[] availableAllocations;
+  @Nullable private ByteBuffer directSlab;
+  private int directSlabAllocationCount;
 
   /**
    * Constructs an instance without creating any {@link Allocation}s up front.
@@ -79,31 +95,177 @@ public final class DefaultAllocator implements Allocator {
     } else {
       initialAllocationBlock = null;
     }
+    concurrentAllocationPool = null;
+    useDirectBuffers = false;
+  }
+
+  /**
+   * Creates an instance that gives each thread its own cache of free {@link Allocation
+   * Allocations}, backed by a lock-free shared pool.
+   *
+   * <p>None of the methods of the returned instance acquire a lock. This avoids contention between
+   * the loading threads of the individual tracks and the playback thread releasing allocations,
+   * which is significant when several players run at the same time.
+   *
+   * <p>{@link #getTotalBytesAllocated()} is exact, so the instance can be used with {@link
+   * androidx.media3.exoplayer.DefaultLoadControl}. Each thread may hold up to {@code
+   * threadCacheSize} free allocations that are released by {@link #trim()} only the next time that
+   * thread accesses the allocator. Threads waiting on this instance are not notified when
+   * allocations are released.
+   *
+   * @param trimOnReset Whether memory is freed when the allocator is reset. Should be true unless
+   *     the allocator will be re-used by multiple player instances. If set to false, trimming can
+   *     be forced by calling {@link #setTargetBufferSize(int)} manually when required.
+   * @param individualAllocationSize The length of each individual {@link Allocation}.
+   * @param threadCacheSize The maximum number of free {@link Allocation Allocations} cached by each
+   *     thread.
+   * @return The allocator.
+   */
+  public static DefaultAllocator createWithThreadCaches(
+      boolean trimOnReset, int individualAllocationSize, int threadCacheSize) {
+    return new DefaultAllocator(
+        trimOnReset,
+        individualAllocationSize,
+        new ConcurrentAllocationPool(individualAllocationSize, threadCacheSize),
+        /* useDirectBuffers= */ false);
   }
 
-  public synchronized void reset() {
+  /**
+   * Creates an instance whose {@link Allocation Allocations} are backed by {@link
+   * Allocation#directData direct buffers} instead of byte arrays.
+   *
+   * <p>Buffered media is then held outside of the Java heap, which avoids long garbage collection
+   * pauses on devices with little memory. When the decoder input buffer is also a direct buffer,
+   * sample data is copied into it with a native memory copy.
+   *
+   * <p>{@link Allocation Allocations} are carved from larger slabs. The memory of a slab is freed
+   * once all of its allocations have been discarded by {@link #trim()}.
+   *
+   * @param trimOnReset Whether memory is freed when the allocator is reset. Should be true unless
+   *     the allocator will be re-used by multiple player instances. If set to false, trimming can
+   *     be forced by calling {@link #setTargetBufferSize(int)} manually when required.
+   * @param individualAllocationSize The length of each individual {@link Allocation}.
+   * @return The allocator.
+   */
+  public static DefaultAllocator createWithDirectBuffers(
+      boolean trimOnReset, int individualAllocationSize) {
+    return new DefaultAllocator(
+        trimOnReset,
+        individualAllocationSize,
+        /* concurrentAllocationPool= */ null,
+        /* useDirectBuffers= */ true);
+  }
+
+  private DefaultAllocator(
+      boolean trimOnReset,
+      int individualAllocationSize,
+      @Nullable ConcurrentAllocationPool concurrentAllocationPool,
+      boolean useDirectBuffers) {
+    Assertions.checkArgument(individualAllocationSize > 0);
+    this.trimOnReset = trimOnReset;
+    this.individualAllocationSize = individualAllocationSize;
+    this.concurrentAllocationPool = concurrentAllocationPool;
+    this.useDirectBuffers = useDirectBuffers;
+    this.availableAllocations =
+        new Allocation[concurrentAllocationPool == null ? AVAILABLE_EXTRA_CAPACITY : 0];
+    initialAllocationBlock = null;
+  }
+
+  public void reset() {
     if (trimOnReset) {
       setTargetBufferSize(0);
     }
   }
 
-  public synchronized void setTargetBufferSize(int targetBufferSize) {
-    boolean targetBufferSizeReduced = targetBufferSize < this.targetBufferSize;
-    this.targetBufferSize = targetBufferSize;
-    if (targetBufferSizeReduced) {
-      trim();
+  public void setTargetBufferSize(int targetBufferSize) {
+    if (concurrentAllocationPool != null) {
+      concurrentAllocationPool.setTargetBufferSize(targetBufferSize);
+      return;
+    }
+    synchronized (this) {
+      boolean targetBufferSizeReduced = targetBufferSize < this.targetBufferSize;
+      this.targetBufferSize = targetBufferSize;
+      if (targetBufferSizeReduced) {
+        trimLocked();
+      }
     }
   }
 
   @Override
-  public synchronized Allocation allocate() {
+  public Allocation allocate() {
+    if (concurrentAllocationPool != null) {
+      return concurrentAllocationPool.allocate();
+    }
+    synchronized (this) {
+      return allocateLocked();
+    }
+  }
+
+  @Override
+  public void release(Allocation allocation) {
+    if (concurrentAllocationPool != null) {
+      concurrentAllocationPool.release(allocation);
+      return;
+    }
+    synchronized (this) {
+      availableAllocations[availableCount++] = allocation;
+      allocatedCount--;
+      // Wake up threads waiting for the allocated size to drop.
+      notifyAll();
+    }
+  }
+
+  @Override
+  public void release(@Nullable AllocationNode allocationNode) {
+    if (concurrentAllocationPool != null) {
+      concurrentAllocationPool.release(allocationNode);
+      return;
+    }
+    synchronized (this) {
+      while (allocationNode != null) {
+        availableAllocations[availableCount++] = allocationNode.getAllocation();
+        allocatedCount--;
+        allocationNode = allocationNode.next();
+      }
+      // Wake up threads waiting for the allocated size to drop.
+      notifyAll();
+    }
+  }
+
+  @Override
+  public void trim() {
+    if (concurrentAllocationPool != null) {
+      concurrentAllocationPool.trim();
+      return;
+    }
+    synchronized (this) {
+      trimLocked();
+    }
+  }
+
+  @Override
+  public int getTotalBytesAllocated() {
+    if (concurrentAllocationPool != null) {
+      return concurrentAllocationPool.getAllocatedCount() * individualAllocationSize;
+    }
+    synchronized (this) {
+      return allocatedCount * individualAllocationSize;
+    }
+  }
+
+  @Override
+  public int getIndividualAllocationLength() {
+    return individualAllocationSize;
+  }
+
+  private Allocation allocateLocked() {
     allocatedCount++;
     Allocation allocation;
     if (availableCount > 0) {
       allocation = Assertions.checkNotNull(availableAllocations[--availableCount]);
       availableAllocations[availableCount] = null;
     } else {
-      allocation = new Allocation(new byte[individualAllocationSize], 0);
+      allocation = createAllocation();
       if (allocatedCount > availableAllocations.length) {
         // Make availableAllocations be large enough to contain all allocations made by this
         // allocator so that release() does not need to grow the availableAllocations array. See
@@ -114,27 +276,7 @@ public final class DefaultAllocator implements Allocator {
     return allocation;
   }
 
-  @Override
-  public synchronized void release(Allocation allocation) {
-    availableAllocations[availableCount++] = allocation;
-    allocatedCount--;
-    // Wake up threads waiting for the allocated size to drop.
-    notifyAll();
-  }
-
-  @Override
-  public synchronized void release(@Nullable AllocationNode allocationNode) {
-    while (allocationNode != null) {
-      availableAllocations[availableCount++] = allocationNode.getAllocation();
-      allocatedCount--;
-      allocationNode = allocationNode.next();
-    }
-    // Wake up threads waiting for the allocated size to drop.
-    notifyAll();
-  }
-
-  @Override
-  public synchronized void trim() {
+  private void trimLocked() {
     int targetAllocationCount = Util.ceilDivide(targetBufferSize, individualAllocationSize);
     int targetAvailableCount = max(0, targetAllocationCount - allocatedCount);
     if (targetAvailableCount >= availableCount) {
@@ -173,15 +315,24 @@ public final class DefaultAllocator implements Allocator {
     // Discard allocations beyond the target.
     Arrays.fill(availableAllocations, targetAvailableCount, availableCount, null);
     availableCount = targetAvailableCount;
+    if (availableCount == 0 && allocatedCount == 0) {
+      // Let the partially used slab be freed too.
+      directSlab = null;
+    }
   }
 
-  @Override
-  public synchronized int getTotalBytesAllocated() {
-    return allocatedCount * individualAllocationSize;
-  }
-
-  @Override
-  public int getIndividualAllocationLength() {
-    return individualAllocationSize;
+  private Allocation createAllocation() {
+    if (!useDirectBuffers) {
+      return new Allocation(new byte[individualAllocationSize], 0);
+    }
+    @Nullable ByteBuffer slab = directSlab;
+    if (slab == null || directSlabAllocationCount == DIRECT_SLAB_ALLOCATION_COUNT) {
+      slab = ByteBuffer.allocateDirect(DIRECT_SLAB_ALLOCATION_COUNT * individualAllocationSize);
+      directSlab = slab;
+      directSlabAllocationCount = 0;
+    }
+    int offset = directSlabAllocationCount * individualAllocationSize;
+    directSlabAllocationCount++;
+    return new Allocation(slab, offset);
   }
 }
@@ -15,6 +15,8 @@
  */
 package androidx.media3.exoplayer.upstream;
 
+import static java.lang.Math.min;
+
 import android.content.Context;
 import android.os.Handler;
 import androidx.annotation.GuardedBy;
@@ -22,9 +24,11 @@ import androidx.annotation.Nullable;
 import androidx.media3.common.C;
 import androidx.media3.common.util.Assertions;
 import androidx.media3.common.util.Clock;
+import androidx.media3.common.util.Log;
 import androidx.media3.common.util.NetworkTypeObserver;
 import androidx.media3.common.util.UnstableApi;
 import androidx.media3.common.util.Util;
+import androidx.media3.database.DatabaseIOException;
 import androidx.media3.datasource.DataSource;
 import androidx.media3.datasource.DataSpec;
 import androidx.media3.datasource.TransferListener;
@@ -34,7 +38,9 @@ import com.google.common.collect.ImmutableList;
 import com.google.common.collect.ImmutableMap;
 import com.google.errorprone.annotations.CanIgnoreReturnValue;
 import java.util.HashMap;
+import java.util.LinkedHashMap;
 import java.util.Map;
+import java.util.concurrent.Executor;
 
 /**
  * Estimates bandwidth by listening to data transfers.
@@ -43,6 +49,11 @@ import java.util.Map;
  * time a transfer ends. The initial estimate is based on the current operator's network country
  * code or the locale of the user, as well as the network connection type. This can be configured in
  * the {@link Builder}.
+ *
+ * <p>If a {@link BandwidthPriorStore} is set, the meter also estimates the time to first byte, and
+ * periodically persists its recent samples for the current network. When the meter is created or
+ * the network changes, the samples stored for the new network are loaded in the background and used
+ * as the initial estimates, provided no transfer has completed on that network in the meantime.
  */
 @UnstableApi
 public final class DefaultBandwidthMeter implements BandwidthMeter, TransferListener {
@@ -117,6 +128,7 @@ public final class DefaultBandwidthMeter implements BandwidthMeter, TransferList
   private static final int COUNTRY_GROUP_INDEX_5G_SA = 5;
 
   @Nullable private static DefaultBandwidthMeter singletonInstance;
+  @Nullable private static Executor sharedBandwidthPriorExecutor;
 
   /** Builder for a bandwidth meter. */
   public static final class Builder {
@@ -127,6 +139,8 @@ public final class DefaultBandwidthMeter implements BandwidthMeter, TransferList
     private int slidingWindowMaxWeight;
     private Clock clock;
     private boolean resetOnNetworkTypeChange;
+    @Nullable private BandwidthPriorStore bandwidthPriorStore;
+    @Nullable private Executor bandwidthPriorExecutor;
 
     /**
      * Creates a builder with default parameters and without listener.
@@ -224,18 +238,51 @@ public final class DefaultBandwidthMeter implements BandwidthMeter, TransferList
       return this;
     }
 
+    /**
+     * Sets the {@link BandwidthPriorStore} in which the estimates for each network are persisted,
+     * and from which the initial estimates are loaded. The default value is {@code null}, in which
+     * case the initial estimates are always the configured initial bitrate estimates.
+     *
+     * <p>The builder must have been created with a non-null {@link Context} if a store is set.
+     *
+     * @param bandwidthPriorStore The {@link BandwidthPriorStore}, or {@code null}.
+     * @return This builder.
+     */
+    @CanIgnoreReturnValue
+    public Builder setBandwidthPriorStore(@Nullable BandwidthPriorStore bandwidthPriorStore) {
+      this.bandwidthPriorStore = bandwidthPriorStore;
+      return this;
+    }
+
+    /**
+     * Sets the {@link Executor} on which the {@link BandwidthPriorStore} is accessed. The default
+     * value is {@code null}, in which case a single background thread shared by all bandwidth
+     * meters is used.
+     *
+     * @param bandwidthPriorExecutor The {@link Executor}, or {@code null}.
+     * @return This builder.
+     */
+    @CanIgnoreReturnValue
+    public Builder setBandwidthPriorExecutor(@Nullable Executor bandwidthPriorExecutor) {
+      this.bandwidthPriorExecutor = bandwidthPriorExecutor;
+      return this;
+    }
+
     /**
      * Builds the bandwidth meter.
      *
      * @return A bandwidth meter with the configured properties.
      */
     public DefaultBandwidthMeter build() {
+      Assertions.checkState(bandwidthPriorStore == null || context != null);
       return new DefaultBandwidthMeter(
           context,
           initialBitrateEstimates,
           slidingWindowMaxWeight,
           clock,
-          resetOnNetworkTypeChange);
+          resetOnNetworkTypeChange,
+          bandwidthPriorStore,
+          bandwidthPriorExecutor);
     }
 
     private static Map<Integer, Long> getInitialBitrateEstimatesForCountry(String countryCode) {
@@ -284,10 +331,19 @@ public final class DefaultBandwidthMeter implements BandwidthMeter, TransferList
   private static final int ELAPSED_MILLIS_FOR_ESTIMATE = 2000;
   private static final int BYTES_TRANSFERRED_FOR_ESTIMATE = 512 * 1024;
 
+  private static final String TAG = "DefaultBandwidthMeter";
+  private static final int PRIOR_THROUGHPUT_SAMPLE_COUNT = 32;
+  private static final int PRIOR_TIME_TO_FIRST_BYTE_SAMPLE_COUNT = 10;
+  private static final long PRIOR_STORE_INTERVAL_MS = 10_000;
+  private static final int MAX_INITIALIZING_DATA_SPECS = 10;
+
   private final ImmutableMap<Integer, Long> initialBitrateEstimates;
   private final EventDispatcher eventDispatcher;
   private final Clock clock;
   private final boolean resetOnNetworkTypeChange;
+  @Nullable private final Context context;
+  @Nullable private final BandwidthPriorStore bandwidthPriorStore;
+  @Nullable private final Executor bandwidthPriorExecutor;
 
   @GuardedBy("this") // Used in TransferListener methods that are called on a background thread.
   private final SlidingPercentile slidingPercentile;
@@ -313,6 +369,30 @@ public final class DefaultBandwidthMeter implements BandwidthMeter, TransferList
   @GuardedBy("this") // Used in TransferListener methods that are called on a background thread.
   private long lastReportedBitrateEstimate;
 
+  // The fields below are only used if a BandwidthPriorStore is set.
+
+  @GuardedBy("this") // Used in TransferListener methods that are called on a background thread.
+  @Nullable
+  private final SlidingPercentile timeToFirstByteSlidingPercentile;
+
+  @GuardedBy("this") // Used in TransferListener methods that are called on a background thread.
+  @Nullable
+  private final LinkedHashMap<DataSpec, Long> initializingDataSpecs;
+
+  @GuardedBy("this") // Used in TransferListener methods that are called on a background thread.
+  @Nullable
+  private final PriorSampleHistory priorSampleHistory;
+
+  @GuardedBy("this") // Used in TransferListener methods that are called on a background thread.
+  private long timeToFirstByteEstimateUs;
+
+  @GuardedBy("this") // Used in TransferListener methods that are called on a background thread.
+  @Nullable
+  private String networkKey;
+
+  @GuardedBy("this") // Used in TransferListener methods that are called on a background thread.
+  private long lastPriorStoreTimeMs;
+
   private @C.NetworkType int networkType;
   private boolean networkTypeOverrideSet;
   private @C.NetworkType int networkTypeOverride;
@@ -322,12 +402,33 @@ public final class DefaultBandwidthMeter implements BandwidthMeter, TransferList
       Map<Integer, Long> initialBitrateEstimates,
       int maxWeight,
       Clock clock,
-      boolean resetOnNetworkTypeChange) {
+      boolean resetOnNetworkTypeChange,
+      @Nullable BandwidthPriorStore bandwidthPriorStore,
+      @Nullable Executor bandwidthPriorExecutor) {
     this.initialBitrateEstimates = ImmutableMap.copyOf(initialBitrateEstimates);
     this.eventDispatcher = new EventDispatcher();
     this.slidingPercentile = new SlidingPercentile(maxWeight);
     this.clock = clock;
     this.resetOnNetworkTypeChange = resetOnNetworkTypeChange;
+    this.context = context;
+    this.bandwidthPriorStore = bandwidthPriorStore;
+    timeToFirstByteEstimateUs = C.TIME_UNSET;
+    lastPriorStoreTimeMs = C.TIME_UNSET;
+    if (bandwidthPriorStore != null) {
+      this.bandwidthPriorExecutor =
+          bandwidthPriorExecutor != null
+              ? bandwidthPriorExecutor
+              : getSharedBandwidthPriorExecutor();
+      timeToFirstByteSlidingPercentile =
+          new SlidingPercentile(/* maxWeight= */ PRIOR_TIME_TO_FIRST_BYTE_SAMPLE_COUNT);
+      initializingDataSpecs = new LinkedHashMap<>();
+      priorSampleHistory = new PriorSampleHistory();
+    } else {
+      this.bandwidthPriorExecutor = null;
+      timeToFirstByteSlidingPercentile = null;
+      initializingDataSpecs = null;
+      priorSampleHistory = null;
+    }
     if (context != null) {
       NetworkTypeObserver networkTypeObserver = NetworkTypeObserver.getInstance(context);
       networkType = networkTypeObserver.getNetworkType();
@@ -337,6 +438,9 @@ public final class DefaultBandwidthMeter implements BandwidthMeter, TransferList
       networkType = C.NETWORK_TYPE_UNKNOWN;
       bitrateEstimate = getInitialBitrateEstimateForNetworkType(C.NETWORK_TYPE_UNKNOWN);
     }
+    synchronized (this) {
+      maybeLoadPrior(networkType);
+    }
   }
 
   /**
@@ -353,11 +457,23 @@ public final class DefaultBandwidthMeter implements BandwidthMeter, TransferList
     onNetworkTypeChanged(networkType);
   }
 
+  private static synchronized Executor getSharedBandwidthPriorExecutor() {
+    if (sharedBandwidthPriorExecutor == null) {
+      sharedBandwidthPriorExecutor = Util.newSingleThreadExecutor("ExoPlayer:BandwidthPriorStore");
+    }
+    return sharedBandwidthPriorExecutor;
+  }
+
   @Override
   public synchronized long getBitrateEstimate() {
     return bitrateEstimate;
   }
 
+  @Override
+  public synchronized long getTimeToFirstByteEstimateUs() {
+    return timeToFirstByteEstimateUs;
+  }
+
   @Override
   public TransferListener getTransferListener() {
     return this;
@@ -376,13 +492,28 @@ public final class DefaultBandwidthMeter implements BandwidthMeter, TransferList
   }
 
   @Override
-  public void onTransferInitializing(DataSource source, DataSpec dataSpec, boolean isNetwork) {
-    // Do nothing.
+  public synchronized void onTransferInitializing(
+      DataSource source, DataSpec dataSpec, boolean isNetwork) {
+    if (initializingDataSpecs == null || !isNetwork) {
+      return;
+    }
+    if (initializingDataSpecs.size() >= MAX_INITIALIZING_DATA_SPECS) {
+      // Drop the oldest entry, whose transfer most likely failed before it started.
+      initializingDataSpecs.remove(initializingDataSpecs.keySet().iterator().next());
+    }
+    initializingDataSpecs.put(dataSpec, clock.elapsedRealtime());
   }
 
   @Override
   public synchronized void onTransferStart(
       DataSource source, DataSpec dataSpec, boolean isNetwork) {
+    if (initializingDataSpecs != null && isNetwork) {
+      @Nullable Long initializingTimeMs = initializingDataSpecs.remove(dataSpec);
+      if (initializingTimeMs != null) {
+        long timeToFirstByteUs = Util.msToUs(clock.elapsedRealtime() - initializingTimeMs);
+        addTimeToFirstByteSample(timeToFirstByteUs);
+      }
+    }
     if (!isTransferAtFullNetworkSpeed(dataSpec, isNetwork)) {
       return;
     }
@@ -418,6 +549,11 @@ public final class DefaultBandwidthMeter implements BandwidthMeter, TransferList
           || totalBytesTransferred >= BYTES_TRANSFERRED_FOR_ESTIMATE) {
         bitrateEstimate = (long) slidingPercentile.getPercentile(0.5f);
       }
+      if (priorSampleHistory != null) {
+        priorSampleHistory.addThroughputSample(
+            (int) Math.sqrt(sampleBytesTransferred), bitsPerSecond);
+        maybeStorePrior(nowMs);
+      }
       maybeNotifyBandwidthSample(sampleElapsedTimeMs, sampleBytesTransferred, bitrateEstimate);
       sampleStartTimeMs = nowMs;
       sampleBytesTransferred = 0;
@@ -439,6 +575,8 @@ public final class DefaultBandwidthMeter implements BandwidthMeter, TransferList
     }
 
     this.networkType = networkType;
+    // Stop persisting samples under the key of the previous network.
+    networkKey = null;
     if (networkType == C.NETWORK_TYPE_OFFLINE
         || networkType == C.NETWORK_TYPE_UNKNOWN
         || networkType == C.NETWORK_TYPE_OTHER) {
@@ -458,6 +596,103 @@ public final class DefaultBandwidthMeter implements BandwidthMeter, TransferList
     totalBytesTransferred = 0;
     totalElapsedTimeMs = 0;
     slidingPercentile.reset();
+    if (priorSampleHistory != null) {
+      Assertions.checkNotNull(timeToFirstByteSlidingPercentile).reset();
+      Assertions.checkNotNull(initializingDataSpecs).clear();
+      priorSampleHistory.reset();
+      timeToFirstByteEstimateUs = C.TIME_UNSET;
+      lastPriorStoreTimeMs = C.TIME_UNSET;
+    }
+    maybeLoadPrior(networkType);
+  }
+
+  @GuardedBy("this")
+  private void addTimeToFirstByteSample(long timeToFirstByteUs) {
+    Assertions.checkNotNull(timeToFirstByteSlidingPercentile)
+        .addSample(/* weight= */ 1, timeToFirstByteUs);
+    timeToFirstByteEstimateUs = (long) timeToFirstByteSlidingPercentile.getPercentile(0.5f);
+    Assertions.checkNotNull(priorSampleHistory).addTimeToFirstByteSample(timeToFirstByteUs);
+  }
+
+  @GuardedBy("this")
+  private void maybeLoadPrior(@C.NetworkType int networkType) {
+    if (bandwidthPriorStore == null
+        || networkType == C.NETWORK_TYPE_OFFLINE
+        || networkType == C.NETWORK_TYPE_UNKNOWN
+        || networkType == C.NETWORK_TYPE_OTHER) {
+      return;
+    }
+    BandwidthPriorStore bandwidthPriorStore = this.bandwidthPriorStore;
+    Context context = Assertions.checkNotNull(this.context);
+    Assertions.checkNotNull(bandwidthPriorExecutor)
+        .execute(
+            () -> {
+              String networkKey = BandwidthPriorStore.getNetworkKey(context, networkType);
+              @Nullable BandwidthPriorStore.Prior prior = null;
+              try {
+                prior = bandwidthPriorStore.get(networkKey);
+              } catch (DatabaseIOException e) {
+                Log.w(TAG, "Failed to load bandwidth prior", e);
+              }
+              onPriorLoaded(networkType, networkKey, prior);
+            });
+  }
+
+  private synchronized void onPriorLoaded(
+      @C.NetworkType int networkType,
+      String networkKey,
+      @Nullable BandwidthPriorStore.Prior prior) {
+    if (this.networkType != networkType) {
+      // The network changed while the prior was loading.
+      return;
+    }
+    this.networkKey = networkKey;
+    if (prior == null || totalBytesTransferred > 0 || totalElapsedTimeMs > 0) {
+      // Estimates from transfers on the current network take precedence.
+      return;
+    }
+    PriorSampleHistory priorSampleHistory = Assertions.checkNotNull(this.priorSampleHistory);
+    for (int i = 0; i < prior.throughputSampleWeights.length; i++) {
+      slidingPercentile.addSample(
+          prior.throughputSampleWeights[i], prior.throughputSampleBitrates[i]);
+      priorSampleHistory.addThroughputSample(
+          prior.throughputSampleWeights[i], prior.throughputSampleBitrates[i]);
+    }
+    for (long timeToFirstByteSampleUs : prior.timeToFirstByteSamplesUs) {
+      addTimeToFirstByteSample(timeToFirstByteSampleUs);
+    }
+    if (prior.timeToFirstByteSamplesUs.length == 0) {
+      timeToFirstByteEstimateUs = prior.timeToFirstByteEstimateUs;
+    }
+    if (prior.bitrateEstimate > 0) {
+      bitrateEstimate = prior.bitrateEstimate;
+      maybeNotifyBandwidthSample(
+          /* elapsedMs= */ 0, /* bytesTransferred= */ 0, prior.bitrateEstimate);
+    }
+  }
+
+  @GuardedBy("this")
+  private void maybeStorePrior(long nowMs) {
+    @Nullable String networkKey = this.networkKey;
+    if (networkKey == null
+        || (lastPriorStoreTimeMs != C.TIME_UNSET
+            && nowMs - lastPriorStoreTimeMs < PRIOR_STORE_INTERVAL_MS)) {
+      return;
+    }
+    lastPriorStoreTimeMs = nowMs;
+    BandwidthPriorStore bandwidthPriorStore = Assertions.checkNotNull(this.bandwidthPriorStore);
+    BandwidthPriorStore.Prior prior =
+        Assertions.checkNotNull(priorSampleHistory)
+            .toPrior(bitrateEstimate, timeToFirstByteEstimateUs);
+    Assertions.checkNotNull(bandwidthPriorExecutor)
+        .execute(
+            () -> {
+              try {
+                bandwidthPriorStore.put(networkKey, prior);
+              } catch (DatabaseIOException e) {
+                Log.w(TAG, "Failed to store bandwidth prior", e);
+              }
+            });
   }
 
   @GuardedBy("this")
@@ -899,4 +1134,70 @@ public final class DefaultBandwidthMeter implements BandwidthMeter, TransferList
         return new int[] {2, 2, 2, 2, 2, 2};
     }
   }
+
+  /** The most recent samples on the current network, from which stored priors are created. */
+  private static final class PriorSampleHistory {
+
+    private final int[] throughputSampleWeights;
+    private final float[] throughputSampleBitrates;
+    private final long[] timeToFirstByteSamplesUs;
+
+    private int throughputSampleCount;
+    private int nextThroughputSampleIndex;
+    private int timeToFirstByteSampleCount;
+    private int nextTimeToFirstByteSampleIndex;
+
+    public PriorSampleHistory() {
+      throughputSampleWeights = new int[PRIOR_THROUGHPUT_SAMPLE_COUNT];
+      throughputSampleBitrates = new float[PRIOR_THROUGHPUT_SAMPLE_COUNT];
+      timeToFirstByteSamplesUs = new long[PRIOR_TIME_TO_FIRST_BYTE_SAMPLE_COUNT];
+    }
+
+    public void addThroughputSample(int weight, float bitrate) {
+      throughputSampleWeights[nextThroughputSampleIndex] = weight;
+      throughputSampleBitrates[nextThroughputSampleIndex] = bitrate;
+      nextThroughputSampleIndex = (nextThroughputSampleIndex + 1) % PRIOR_THROUGHPUT_SAMPLE_COUNT;
+      throughputSampleCount = min(throughputSampleCount + 1, PRIOR_THROUGHPUT_SAMPLE_COUNT);
+    }
+
+    public void addTimeToFirstByteSample(long timeToFirstByteUs) {
+      timeToFirstByteSamplesUs[nextTimeToFirstByteSampleIndex] = timeToFirstByteUs;
+      nextTimeToFirstByteSampleIndex =
+          (nextTimeToFirstByteSampleIndex + 1) % PRIOR_TIME_TO_FIRST_BYTE_SAMPLE_COUNT;
+      timeToFirstByteSampleCount =
+          min(timeToFirstByteSampleCount + 1, PRIOR_TIME_TO_FIRST_BYTE_SAMPLE_COUNT);
+    }
+
+    public void reset() {
+      throughputSampleCount = 0;
+      nextThroughputSampleIndex = 0;
+      timeToFirstByteSampleCount = 0;
+      nextTimeToFirstByteSampleIndex = 0;
+    }
+
+    public BandwidthPriorStore.Prior toPrior(long bitrateEstimate, long timeToFirstByteEstimateUs) {
+      int[] weights = new int[throughputSampleCount];
+      float[] bitrates = new float[throughputSampleCount];
+      int firstIndex =
+          (nextThroughputSampleIndex - throughputSampleCount + PRIOR_THROUGHPUT_SAMPLE_COUNT)
+              % PRIOR_THROUGHPUT_SAMPLE_COUNT;
+      for (int i = 0; i < throughputSampleCount; i++) {
+        int index = (firstIndex + i) % PRIOR_THROUGHPUT_SAMPLE_COUNT;
+        weights[i] = throughputSampleWeights[index];
+        bitrates[i] = throughputSampleBitrates[index];
+      }
+      long[] timesToFirstByteUs = new long[timeToFirstByteSampleCount];
+      firstIndex =
+          (nextTimeToFirstByteSampleIndex
+                  - timeToFirstByteSampleCount
+                  + PRIOR_TIME_TO_FIRST_BYTE_SAMPLE_COUNT)
+              % PRIOR_TIME_TO_FIRST_BYTE_SAMPLE_COUNT;
+      for (int i = 0; i < timeToFirstByteSampleCount; i++) {
+        timesToFirstByteUs[i] =
+            timeToFirstByteSamplesUs[(firstIndex + i) % PRIOR_TIME_TO_FIRST_BYTE_SAMPLE_COUNT];
+      }
+      return new BandwidthPriorStore.Prior(
+          bitrateEstimate, timeToFirstByteEstimateUs, weights, bitrates, timesToFirstByteUs);
+    }
+  }
 }
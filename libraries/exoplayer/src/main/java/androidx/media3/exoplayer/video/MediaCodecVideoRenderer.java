@@ -181,6 +181,7 @@ public class MediaCodecVideoRenderer extends MediaCodecRenderer
 
   private boolean tunneling;
   private int tunnelingAudioSessionId;
+  private volatile boolean tunnelingInputWakeupsDeferred;
   /* package */ @Nullable OnFrameRenderedListenerV23 tunnelingOnFrameRenderedListener;
   private long lastOutputTimeUs;
   private int pendingOutputStreamOffsetCount;
@@ -890,6 +891,7 @@ public class MediaCodecVideoRenderer extends MediaCodecRenderer
 
   @Override
   protected void onStopped() {
+    tunnelingInputWakeupsDeferred = false;
     maybeNotifyDroppedFrames();
     maybeNotifyVideoFrameProcessingOffset();
     if (videoSink != null) {
@@ -1129,6 +1131,36 @@ public class MediaCodecVideoRenderer extends MediaCodecRenderer
     }
   }
 
+  @Override
+  protected long getDurationToProgressUs(
+      boolean isOnBufferAvailableListenerRegistered, long positionUs, long elapsedRealtimeUs) {
+    long largestQueuedPresentationTimeUs = getLargestQueuedPresentationTimeUs();
+    if (tunneling
+        && isOnBufferAvailableListenerRegistered
+        && getState() == STATE_STARTED
+        && largestQueuedPresentationTimeUs != C.TIME_UNSET) {
+      // In tunneling mode the codec renders the frames, so the renderer only needs to queue more
+      // input before the queued input runs out. Waking up when half of it is consumed leaves
+      // enough margin for new input to be queued, also if samples aren't available right away.
+      long durationUs =
+          (long) ((largestQueuedPresentationTimeUs - positionUs) / getPlaybackSpeed() / 2);
+      // Account for the elapsed time since the start of this iteration of the rendering loop.
+      durationUs -= Util.msToUs(getClock().elapsedRealtime()) - elapsedRealtimeUs;
+      tunnelingInputWakeupsDeferred = durationUs > DEFAULT_DURATION_TO_PROGRESS_US;
+      return max(DEFAULT_DURATION_TO_PROGRESS_US, durationUs);
+    }
+    tunnelingInputWakeupsDeferred = false;
+    return super.getDurationToProgressUs(
+        isOnBufferAvailableListenerRegistered, positionUs, elapsedRealtimeUs);
+  }
+
+  @Override
+  protected boolean shouldWakeUpOnInputBufferAvailable() {
+    // The codec frees an input buffer for every frame it renders, so waking up for each of them
+    // would make the playback thread work once per frame while plenty of input is still queued.
+    return !tunnelingInputWakeupsDeferred;
+  }
+
   @CallSuper
   @Override
   protected void resetCodecStateForFlush() {
@@ -0,0 +1,150 @@
+/*
+ * Copyright 2026 The Android Open Source Project
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package androidx.media3.exoplayer;
+
+import static com.google.common.truth.Truth.assertThat;
+
+import android.content.ComponentCallbacks2;
+import androidx.media3.common.C;
+import androidx.media3.common.MediaItem;
+import androidx.media3.common.Timeline;
+import androidx.media3.exoplayer.analytics.PlayerId;
+import androidx.media3.exoplayer.source.MediaSource;
+import androidx.media3.exoplayer.source.SinglePeriodTimeline;
+import androidx.media3.exoplayer.upstream.DefaultAllocator;
+import androidx.media3.test.utils.FakeClock;
+import androidx.test.ext.junit.runners.AndroidJUnit4;
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+
+/** Unit tests for {@link LoadControlMemoryBudget}. */
+@RunWith(AndroidJUnit4.class)
+public class LoadControlMemoryBudgetTest {
+
+  private static final int BUDGET_BYTES = 1_000_000;
+
+  private FakeClock clock;
+  private LoadControlMemoryBudget memoryBudget;
+
+  @Before
+  public void setUp() {
+    clock = new FakeClock(/* initialTimeMs= */ 0);
+    memoryBudget = new LoadControlMemoryBudget(BUDGET_BYTES, /* focusedShare= */ 0.5f, clock);
+  }
+
+  @Test
+  public void getBudgetBytes_withoutFocus_splitsBudgetEqually() {
+    DefaultLoadControl loadControl1 = buildAndPrepareLoadControl();
+    DefaultLoadControl loadControl2 = buildAndPrepareLoadControl();
+
+    assertThat(memoryBudget.getBudgetBytes(loadControl1)).isEqualTo(500_000);
+    assertThat(memoryBudget.getBudgetBytes(loadControl2)).isEqualTo(500_000);
+  }
+
+  @Test
+  public void getBudgetBytes_withFocus_givesFocusedShareToFocusedLoadControl() {
+    DefaultLoadControl loadControl1 = buildAndPrepareLoadControl();
+    DefaultLoadControl loadControl2 = buildAndPrepareLoadControl();
+    DefaultLoadControl loadControl3 = buildAndPrepareLoadControl();
+
+    memoryBudget.setFocusedLoadControl(loadControl2);
+
+    assertThat(memoryBudget.getBudgetBytes(loadControl1)).isEqualTo(250_000);
+    assertThat(memoryBudget.getBudgetBytes(loadControl2)).isEqualTo(500_000);
+    assertThat(memoryBudget.getBudgetBytes(loadControl3)).isEqualTo(250_000);
+  }
+
+  @Test
+  public void getBudgetBytes_afterLoadControlReleased_rebalancesBudget() {
+    DefaultLoadControl loadControl1 = buildAndPrepareLoadControl();
+    DefaultLoadControl loadControl2 = buildAndPrepareLoadControl();
+    memoryBudget.setFocusedLoadControl(loadControl1);
+
+    loadControl1.onReleased(PlayerId.UNSET);
+
+    assertThat(memoryBudget.getBudgetBytes(loadControl1)).isEqualTo(Integer.MAX_VALUE);
+    assertThat(memoryBudget.getBudgetBytes(loadControl2)).isEqualTo(BUDGET_BYTES);
+  }
+
+  @Test
+  public void onTrimMemory_reducesBudgetUntilRecoveryTimeElapsed() {
+    DefaultLoadControl loadControl = buildAndPrepareLoadControl();
+
+    memoryBudget.onTrimMemory(ComponentCallbacks2.TRIM_MEMORY_RUNNING_CRITICAL);
+    int budgetBytesAfterTrim = memoryBudget.getBudgetBytes(loadControl);
+    clock.advanceTime(LoadControlMemoryBudget.TRIM_MEMORY_RECOVERY_MS);
+    int budgetBytesAfterRecovery = memoryBudget.getBudgetBytes(loadControl);
+
+    assertThat(budgetBytesAfterTrim).isEqualTo(BUDGET_BYTES / 4);
+    assertThat(budgetBytesAfterRecovery).isEqualTo(BUDGET_BYTES);
+  }
+
+  @Test
+  public void shouldContinueLoading_budgetShareReached_returnsFalse() {
+    DefaultAllocator allocator =
+        new DefaultAllocator(/* trimOnReset= */ true, C.DEFAULT_BUFFER_SEGMENT_SIZE);
+    DefaultLoadControl loadControl =
+        new DefaultLoadControl.Builder()
+            .setAllocator(allocator)
+            .setTargetBufferBytes(10 * C.DEFAULT_BUFFER_SEGMENT_SIZE)
+            .setMemoryBudget(
+                new LoadControlMemoryBudget(
+                    /* budgetBytes= */ 4L * C.DEFAULT_BUFFER_SEGMENT_SIZE,
+                    /* focusedShare= */ 0.5f,
+                    clock))
+            .build();
+    loadControl.onPrepared(PlayerId.UNSET);
+
+    for (int i = 0; i < 4; i++) {
+      allocator.allocate();
+    }
+
+    assertThat(
+            loadControl.shouldContinueLoading(
+                createParameters(/* bufferedDurationUs= */ 1_000_000)))
+        .isFalse();
+  }
+
+  private DefaultLoadControl buildAndPrepareLoadControl() {
+    DefaultLoadControl loadControl =
+        new DefaultLoadControl.Builder().setMemoryBudget(memoryBudget).build();
+    loadControl.onPrepared(PlayerId.UNSET);
+    return loadControl;
+  }
+
+  private static LoadControl.Parameters createParameters(long bufferedDurationUs) {
+    Timeline timeline =
+        new SinglePeriodTimeline(
+            /* durationUs= */ 10_000_000L,
+            /* isSeekable= */ true,
+            /* isDynamic= */ false,
+            /* useLiveConfiguration= */ false,
+            /* manifest= */ null,
+            MediaItem.EMPTY);
+    return new LoadControl.Parameters(
+        PlayerId.UNSET,
+        timeline,
+        new MediaSource.MediaPeriodId(
+            timeline.getPeriod(/* periodIndex= */ 0, new Timeline.Period())),
+        /* playbackPositionUs= */ 0L,
+        bufferedDurationUs,
+        /* playbackSpeed= */ 1f,
+        /* playWhenReady= */ false,
+        /* rebuffering= */ false,
+        /* targetLiveOffsetUs= */ C.TIME_UNSET);
+  }
+}
@@ -15,6 +15,7 @@
  */
 package androidx.media3.exoplayer.offline;
 
+import static androidx.media3.test.utils.CacheAsserts.assertCachedData;
 import static com.google.common.truth.Truth.assertThat;
 import static org.junit.Assert.assertThrows;
 
@@ -37,6 +38,8 @@ import androidx.test.core.app.ApplicationProvider;
 import androidx.test.ext.junit.runners.AndroidJUnit4;
 import java.io.File;
 import java.io.IOException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
 import java.util.concurrent.atomic.AtomicBoolean;
 import org.junit.After;
 import org.junit.Before;
@@ -173,6 +176,37 @@ public class ProgressiveDownloaderTest {
     assertThat(progressListener.bytesDownloaded).isEqualTo(2_000_000);
   }
 
+  @Test
+  public void download_withParallelRequests_cachesChunksAsIndependentSpans() throws Exception {
+    Uri uri = Uri.parse("test:///test.mp4");
+    FakeDataSet data = new FakeDataSet().setRandomData(uri, /* length= */ 1000);
+    DataSource.Factory upstreamDataSource = new FakeDataSource.Factory().setFakeDataSet(data);
+    MediaItem mediaItem = MediaItem.fromUri(uri);
+    CacheDataSource.Factory cacheDataSourceFactory =
+        new CacheDataSource.Factory()
+            .setCache(downloadCache)
+            .setUpstreamDataSourceFactory(upstreamDataSource);
+    ExecutorService executor = Executors.newFixedThreadPool(/* nThreads= */ 3);
+    ProgressiveDownloader downloader =
+        new ProgressiveDownloader(
+            mediaItem,
+            cacheDataSourceFactory,
+            executor,
+            /* maxParallelRequests= */ 3,
+            /* chunkSize= */ 100);
+    TestProgressListener progressListener = new TestProgressListener();
+
+    try {
+      downloader.download(progressListener);
+    } finally {
+      executor.shutdown();
+    }
+
+    assertThat(progressListener.bytesDownloaded).isEqualTo(1000);
+    assertThat(downloadCache.getCachedSpans(uri.toString())).hasSize(10);
+    assertCachedData(downloadCache, data);
+  }
+
   private static final class TestProgressListener implements Downloader.ProgressListener {
 
     public long bytesDownloaded;
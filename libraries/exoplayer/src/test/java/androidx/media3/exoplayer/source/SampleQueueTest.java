@@ -25,6 +25,7 @@ import static androidx.media3.exoplayer.source.SampleStream.FLAG_PEEK;
 import static com.google.common.truth.Truth.assertThat;
 import static java.lang.Long.MAX_VALUE;
 import static java.lang.Long.MIN_VALUE;
+import static java.lang.Math.min;
 import static java.util.Arrays.copyOfRange;
 import static org.junit.Assert.assertArrayEquals;
 import static org.mockito.Mockito.when;
@@ -32,6 +33,7 @@ import static org.mockito.Mockito.when;
 import android.os.Looper;
 import androidx.annotation.Nullable;
 import androidx.media3.common.C;
+import androidx.media3.common.DataReader;
 import androidx.media3.common.DrmInitData;
 import androidx.media3.common.Format;
 import androidx.media3.common.MimeTypes;
@@ -420,6 +422,66 @@ public final class SampleQueueTest {
     assertAllocationCount(0);
   }
 
+  @Test
+  public void readMultiSamples_directBufferAllocator() {
+    allocator = DefaultAllocator.createWithDirectBuffers(/* trimOnReset= */ false, ALLOCATION_SIZE);
+    sampleQueue = new SampleQueue(allocator, mockDrmSessionManager, eventDispatcher);
+
+    writeTestData();
+
+    assertAllocationCount(10);
+    assertReadTestData();
+    sampleQueue.discardToRead();
+    assertAllocationCount(0);
+  }
+
+  @Test
+  public void readMultiSamples_directBufferAllocatorAndDirectInputBuffer() {
+    allocator = DefaultAllocator.createWithDirectBuffers(/* trimOnReset= */ false, ALLOCATION_SIZE);
+    sampleQueue = new SampleQueue(allocator, mockDrmSessionManager, eventDispatcher);
+    inputBuffer = new DecoderInputBuffer(DecoderInputBuffer.BUFFER_REPLACEMENT_MODE_DIRECT);
+
+    writeTestData();
+
+    assertReadTestData();
+  }
+
+  @Test
+  public void readMultiSamples_directBufferAllocatorWrittenFromDataReader() throws IOException {
+    allocator = DefaultAllocator.createWithDirectBuffers(/* trimOnReset= */ false, ALLOCATION_SIZE);
+    sampleQueue = new SampleQueue(allocator, mockDrmSessionManager, eventDispatcher);
+    ParsableByteArray source = new ParsableByteArray(DATA);
+    DataReader dataReader =
+        (buffer, offset, length) -> {
+          // Return fewer bytes than requested, to cover partial writes into an allocation.
+          int bytesRead = min(min(length, 3), source.bytesLeft());
+          source.readBytes(buffer, offset, bytesRead);
+          return bytesRead;
+        };
+
+    int bytesWritten = 0;
+    while (bytesWritten < DATA.length) {
+      bytesWritten +=
+          sampleQueue.sampleData(
+              dataReader, DATA.length - bytesWritten, /* allowEndOfInput= */ false);
+    }
+    writeTestSampleMetadata(
+        SAMPLE_SIZES, SAMPLE_OFFSETS, SAMPLE_TIMESTAMPS, SAMPLE_FORMATS, SAMPLE_FLAGS);
+
+    assertReadTestData();
+  }
+
+  @Test
+  public void readEncryptedSample_directBufferAllocator() {
+    allocator = DefaultAllocator.createWithDirectBuffers(/* trimOnReset= */ false, ALLOCATION_SIZE);
+    sampleQueue = new SampleQueue(allocator, mockDrmSessionManager, eventDispatcher);
+    when(mockDrmSession.getState()).thenReturn(DrmSession.STATE_OPENED_WITH_KEYS);
+    writeTestDataWithEncryptedSections();
+
+    assertReadFormat(/* formatRequired= */ false, FORMAT_ENCRYPTED_WITH_EXO_MEDIA_CRYPTO_TYPE);
+    assertReadEncryptedSample(/* sampleIndex= */ 0);
+  }
+
   @Test
   public void readMultiWithSeek() {
     writeTestData();
@@ -1513,7 +1575,6 @@ public final class SampleQueueTest {
   }
 
   /** Writes the specified test data to {@code sampleQueue}. */
-  @SuppressWarnings("ReferenceEquality")
   private void writeTestData(
       byte[] data,
       int[] sampleSizes,
@@ -1522,6 +1583,18 @@ public final class SampleQueueTest {
       Format[] sampleFormats,
       int[] sampleFlags) {
     sampleQueue.sampleData(new ParsableByteArray(data), data.length);
+    writeTestSampleMetadata(
+        sampleSizes, sampleOffsets, sampleTimestamps, sampleFormats, sampleFlags);
+  }
+
+  /** Writes the specified sample metadata to {@code sampleQueue}. */
+  @SuppressWarnings("ReferenceEquality")
+  private void writeTestSampleMetadata(
+      int[] sampleSizes,
+      int[] sampleOffsets,
+      long[] sampleTimestamps,
+      Format[] sampleFormats,
+      int[] sampleFlags) {
     Format format = null;
     for (int i = 0; i < sampleTimestamps.length; i++) {
       if (sampleFormats[i] != format) {
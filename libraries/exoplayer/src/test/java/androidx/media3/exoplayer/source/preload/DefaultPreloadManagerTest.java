@@ -281,6 +281,107 @@ public class DefaultPreloadManagerTest {
     preloadThread.quit();
   }
 
+  @Test
+  public void invalidate_withAdjacentIndexHints_hintedSourcesPreloadedFirstInHintOrder()
+      throws Exception {
+    ArrayList<Integer> targetPreloadStatusControlCallStates = new ArrayList<>();
+    TargetPreloadStatusControl<Integer> targetPreloadStatusControl =
+        rankingData -> {
+          targetPreloadStatusControlCallStates.add(rankingData);
+          return new DefaultPreloadManager.Status(STAGE_SOURCE_PREPARED);
+        };
+    ProgressiveMediaSource.Factory mediaSourceFactory =
+        new ProgressiveMediaSource.Factory(
+            new DefaultDataSource.Factory(ApplicationProvider.getApplicationContext()));
+    HandlerThread preloadThread = new HandlerThread("preload");
+    preloadThread.start();
+    DefaultPreloadManager preloadManager =
+        new DefaultPreloadManager.Builder(context, targetPreloadStatusControl)
+            .setMediaSourceFactory(mediaSourceFactory)
+            .setRenderersFactory(renderersFactory)
+            .setPreloadLooper(preloadThread.getLooper())
+            .build();
+    TestPreloadManagerListener preloadManagerListener = new TestPreloadManagerListener();
+    preloadManager.addListener(preloadManagerListener);
+    MediaItem.Builder mediaItemBuilder = new MediaItem.Builder();
+    for (int i = 0; i < 4; i++) {
+      preloadManager.add(
+          mediaItemBuilder
+              .setMediaId("mediaId" + i)
+              .setUri(Uri.parse("asset://android_asset/media/mp4/sample.mp4"))
+              .build(),
+          /* rankingData= */ i);
+    }
+    preloadManager.setCurrentPlayingIndex(0);
+    preloadManager.setAdjacentIndexHints(ImmutableList.of(3, 1));
+
+    preloadManager.invalidate();
+    shadowOf(preloadThread.getLooper()).idle();
+    runMainLooperUntil(() -> preloadManagerListener.onCompletedMediaItemRecords.size() == 4);
+
+    assertThat(targetPreloadStatusControlCallStates).containsExactly(3, 1, 0, 2).inOrder();
+
+    preloadThread.quit();
+  }
+
+  @Test
+  public void invalidate_withLivePreloadConfiguration_preloadsAtMostMaxWarmSourceCount()
+      throws Exception {
+    ArrayList<Integer> targetPreloadStatusControlCallStates = new ArrayList<>();
+    AtomicInteger currentPlayingItemIndex = new AtomicInteger();
+    TargetPreloadStatusControl<Integer> targetPreloadStatusControl =
+        rankingData -> {
+          targetPreloadStatusControlCallStates.add(rankingData);
+          if (rankingData == currentPlayingItemIndex.get()) {
+            return null;
+          }
+          return new DefaultPreloadManager.Status(STAGE_SOURCE_PREPARED);
+        };
+    ProgressiveMediaSource.Factory mediaSourceFactory =
+        new ProgressiveMediaSource.Factory(
+            new DefaultDataSource.Factory(ApplicationProvider.getApplicationContext()));
+    HandlerThread preloadThread = new HandlerThread("preload");
+    preloadThread.start();
+    DefaultPreloadManager preloadManager =
+        new DefaultPreloadManager.Builder(context, targetPreloadStatusControl)
+            .setMediaSourceFactory(mediaSourceFactory)
+            .setRenderersFactory(renderersFactory)
+            .setPreloadLooper(preloadThread.getLooper())
+            .setLivePreloadConfiguration(
+                new DefaultPreloadManager.LivePreloadConfiguration.Builder()
+                    .setMaxWarmSourceCount(2)
+                    .build())
+            .build();
+    TestPreloadManagerListener preloadManagerListener = new TestPreloadManagerListener();
+    preloadManager.addListener(preloadManagerListener);
+    MediaItem.Builder mediaItemBuilder = new MediaItem.Builder();
+    List<MediaItem> mediaItems = new ArrayList<>();
+    for (int i = 0; i < 4; i++) {
+      MediaItem mediaItem =
+          mediaItemBuilder
+              .setMediaId("mediaId" + i)
+              .setUri(Uri.parse("asset://android_asset/media/mp4/sample.mp4"))
+              .build();
+      mediaItems.add(mediaItem);
+      preloadManager.add(mediaItem, /* rankingData= */ i);
+    }
+    preloadManager.setCurrentPlayingIndex(0);
+    currentPlayingItemIndex.set(0);
+
+    preloadManager.invalidate();
+    shadowOf(preloadThread.getLooper()).idle();
+    runMainLooperUntil(() -> preloadManagerListener.onCompletedMediaItemRecords.size() == 2);
+    shadowOf(preloadThread.getLooper()).idle();
+    shadowOf(Looper.getMainLooper()).idle();
+
+    assertThat(targetPreloadStatusControlCallStates).containsExactly(0, 1, 2).inOrder();
+    assertThat(preloadManagerListener.onCompletedMediaItemRecords)
+        .containsExactly(mediaItems.get(1), mediaItems.get(2))
+        .inOrder();
+
+    preloadThread.quit();
+  }
+
   @Test
   public void invalidate_sourceHandedOverToPlayerDuringPreloading_continuesPreloadingNextSource()
       throws Exception {
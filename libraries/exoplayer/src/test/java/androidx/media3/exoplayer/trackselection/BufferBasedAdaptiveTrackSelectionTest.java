@@ -0,0 +1,294 @@
+/*
+ * Copyright 2026 The Android Open Source Project
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package androidx.media3.exoplayer.trackselection;
+
+import static com.google.common.truth.Truth.assertThat;
+import static org.mockito.Mockito.when;
+import static org.mockito.MockitoAnnotations.initMocks;
+
+import androidx.media3.common.C;
+import androidx.media3.common.Format;
+import androidx.media3.common.MimeTypes;
+import androidx.media3.common.TrackGroup;
+import androidx.media3.datasource.DataSpec;
+import androidx.media3.exoplayer.source.chunk.BaseMediaChunkIterator;
+import androidx.media3.exoplayer.source.chunk.MediaChunkIterator;
+import androidx.media3.exoplayer.upstream.BandwidthMeter;
+import androidx.media3.test.utils.FakeClock;
+import androidx.media3.test.utils.FakeMediaChunk;
+import androidx.test.ext.junit.runners.AndroidJUnit4;
+import com.google.common.collect.ImmutableList;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.mockito.Mock;
+
+/** Unit test for {@link BufferBasedAdaptiveTrackSelection}. */
+@RunWith(AndroidJUnit4.class)
+public final class BufferBasedAdaptiveTrackSelectionTest {
+
+  private static final long TEST_CHUNK_DURATION_US = 2_000_000;
+  private static final long QUEUE_CHUNK_DURATION_US = 5_000_000;
+
+  @Mock private BandwidthMeter mockBandwidthMeter;
+  private FakeClock fakeClock;
+  private Format format1;
+  private Format format2;
+  private Format format3;
+  private TrackGroup trackGroup;
+
+  @Before
+  public void setUp() {
+    initMocks(this);
+    fakeClock = new FakeClock(0);
+    when(mockBandwidthMeter.getTimeToFirstByteEstimateUs()).thenReturn(C.TIME_UNSET);
+    format1 = videoFormat(/* bitrate= */ 500, /* width= */ 320, /* height= */ 240);
+    format2 = videoFormat(/* bitrate= */ 1000, /* width= */ 640, /* height= */ 480);
+    format3 = videoFormat(/* bitrate= */ 2000, /* width= */ 960, /* height= */ 720);
+    trackGroup = new TrackGroup(format1, format2, format3);
+  }
+
+  @Test
+  public void initial_updateSelectedTrack_selectsHighestBitrateWithinBandwidth() {
+    when(mockBandwidthMeter.getBitrateEstimate()).thenReturn(1000L);
+
+    BufferBasedAdaptiveTrackSelection trackSelection = prepareTrackSelection();
+
+    assertThat(trackSelection.getSelectedFormat()).isEqualTo(format2);
+    assertThat(trackSelection.getSelectionReason()).isEqualTo(C.SELECTION_REASON_INITIAL);
+  }
+
+  @Test
+  public void updateSelectedTrack_lowBufferAndBandwidthDrop_switchesDown() {
+    when(mockBandwidthMeter.getBitrateEstimate()).thenReturn(1000L, 500L);
+    BufferBasedAdaptiveTrackSelection trackSelection = prepareTrackSelection();
+
+    updateSelectedTrack(trackSelection, /* bufferedDurationUs= */ 5_000_000);
+
+    assertThat(trackSelection.getSelectedFormat()).isEqualTo(format1);
+    assertThat(trackSelection.getSelectionReason()).isEqualTo(C.SELECTION_REASON_ADAPTIVE);
+  }
+
+  @Test
+  public void updateSelectedTrack_healthyBufferAndBandwidthDrop_keepsSelection() {
+    when(mockBandwidthMeter.getBitrateEstimate()).thenReturn(1000L, 500L);
+    BufferBasedAdaptiveTrackSelection trackSelection = prepareTrackSelection();
+
+    updateSelectedTrack(trackSelection, /* bufferedDurationUs= */ 20_000_000);
+
+    assertThat(trackSelection.getSelectedFormat()).isEqualTo(format2);
+    assertThat(trackSelection.getSelectionReason()).isEqualTo(C.SELECTION_REASON_INITIAL);
+  }
+
+  @Test
+  public void updateSelectedTrack_enteringBufferBasedMode_keepsSelection() {
+    when(mockBandwidthMeter.getBitrateEstimate()).thenReturn(1000L);
+    BufferBasedAdaptiveTrackSelection trackSelection = prepareTrackSelection();
+
+    updateSelectedTrack(
+        trackSelection,
+        /* bufferedDurationUs= */ BufferBasedAdaptiveTrackSelection.DEFAULT_MIN_BUFFER_MS * 1000L);
+
+    assertThat(trackSelection.getSelectedFormat()).isEqualTo(format2);
+  }
+
+  @Test
+  public void updateSelectedTrack_fullBufferAndSufficientBandwidth_switchesUp() {
+    when(mockBandwidthMeter.getBitrateEstimate()).thenReturn(1000L, 2000L);
+    BufferBasedAdaptiveTrackSelection trackSelection = prepareTrackSelection();
+
+    updateSelectedTrack(
+        trackSelection,
+        /* bufferedDurationUs= */ BufferBasedAdaptiveTrackSelection.DEFAULT_BUFFER_TARGET_MS
+            * 1000L);
+
+    assertThat(trackSelection.getSelectedFormat()).isEqualTo(format3);
+    assertThat(trackSelection.getSelectionReason()).isEqualTo(C.SELECTION_REASON_ADAPTIVE);
+  }
+
+  @Test
+  public void updateSelectedTrack_fullBufferAndInsufficientBandwidth_doesNotSwitchUp() {
+    when(mockBandwidthMeter.getBitrateEstimate()).thenReturn(1000L);
+    BufferBasedAdaptiveTrackSelection trackSelection = prepareTrackSelection();
+
+    updateSelectedTrack(
+        trackSelection,
+        /* bufferedDurationUs= */ BufferBasedAdaptiveTrackSelection.DEFAULT_BUFFER_TARGET_MS
+            * 1000L);
+
+    assertThat(trackSelection.getSelectedFormat()).isEqualTo(format2);
+  }
+
+  @Test
+  public void updateSelectedTrack_switchDeferredBySubclass_keepsSelection() {
+    when(mockBandwidthMeter.getBitrateEstimate()).thenReturn(1000L, 2000L);
+    BufferBasedAdaptiveTrackSelection trackSelection =
+        new BufferBasedAdaptiveTrackSelection(
+            trackGroup,
+            selectedAllTracksInGroup(trackGroup),
+            TrackSelection.TYPE_UNSET,
+            mockBandwidthMeter,
+            BufferBasedAdaptiveTrackSelection.DEFAULT_MIN_BUFFER_MS,
+            BufferBasedAdaptiveTrackSelection.DEFAULT_BUFFER_TARGET_MS,
+            /* bandwidthFraction= */ 1f,
+            /* adaptationCheckpoints= */ ImmutableList.of(),
+            fakeClock) {
+          @Override
+          protected boolean shouldDeferSwitching(
+              long bufferedDurationUs,
+              long availableDurationUs,
+              int currentSelectedIndex,
+              Format selectedFormat,
+              long chunkDurationUs) {
+            return true;
+          }
+        };
+    trackSelection.enable();
+    updateSelectedTrack(trackSelection, /* bufferedDurationUs= */ 0);
+
+    updateSelectedTrack(
+        trackSelection,
+        /* bufferedDurationUs= */ BufferBasedAdaptiveTrackSelection.DEFAULT_BUFFER_TARGET_MS
+            * 1000L);
+
+    assertThat(trackSelection.getSelectedFormat()).isEqualTo(format2);
+    assertThat(trackSelection.getSelectionReason()).isEqualTo(C.SELECTION_REASON_INITIAL);
+  }
+
+  @Test
+  public void evaluateQueueSize_bandwidthBasedMode_discardsAfterMinDurationToRetain() {
+    when(mockBandwidthMeter.getBitrateEstimate()).thenReturn(2000L);
+    BufferBasedAdaptiveTrackSelection trackSelection = prepareTrackSelection();
+
+    int queueSize =
+        trackSelection.evaluateQueueSize(
+            /* playbackPositionUs= */ 0, createQueue(format1, /* chunkCount= */ 8));
+
+    // Chunks starting from 25s, the default duration to retain after discarding, are discarded.
+    assertThat(queueSize).isEqualTo(5);
+  }
+
+  @Test
+  public void evaluateQueueSize_bufferBasedMode_retainsBufferTarget() {
+    when(mockBandwidthMeter.getBitrateEstimate()).thenReturn(2000L);
+    BufferBasedAdaptiveTrackSelection trackSelection = prepareTrackSelection();
+    updateSelectedTrack(trackSelection, /* bufferedDurationUs= */ 20_000_000);
+
+    int queueSize =
+        trackSelection.evaluateQueueSize(
+            /* playbackPositionUs= */ 0, createQueue(format1, /* chunkCount= */ 8));
+
+    // Chunks starting from 30s, the buffer target, are discarded.
+    assertThat(queueSize).isEqualTo(6);
+  }
+
+  @Test
+  public void evaluateQueueSize_bufferBasedModeAndHighestQualityQueued_retainsAll() {
+    when(mockBandwidthMeter.getBitrateEstimate()).thenReturn(2000L);
+    BufferBasedAdaptiveTrackSelection trackSelection = prepareTrackSelection();
+    updateSelectedTrack(trackSelection, /* bufferedDurationUs= */ 20_000_000);
+
+    int queueSize =
+        trackSelection.evaluateQueueSize(
+            /* playbackPositionUs= */ 0, createQueue(format3, /* chunkCount= */ 8));
+
+    assertThat(queueSize).isEqualTo(8);
+  }
+
+  private BufferBasedAdaptiveTrackSelection prepareTrackSelection() {
+    BufferBasedAdaptiveTrackSelection trackSelection =
+        new BufferBasedAdaptiveTrackSelection(
+            trackGroup,
+            selectedAllTracksInGroup(trackGroup),
+            TrackSelection.TYPE_UNSET,
+            mockBandwidthMeter,
+            BufferBasedAdaptiveTrackSelection.DEFAULT_MIN_BUFFER_MS,
+            BufferBasedAdaptiveTrackSelection.DEFAULT_BUFFER_TARGET_MS,
+            /* bandwidthFraction= */ 1f,
+            /* adaptationCheckpoints= */ ImmutableList.of(),
+            fakeClock);
+    trackSelection.enable();
+    updateSelectedTrack(trackSelection, /* bufferedDurationUs= */ 0);
+    return trackSelection;
+  }
+
+  private void updateSelectedTrack(
+      BufferBasedAdaptiveTrackSelection trackSelection, long bufferedDurationUs) {
+    trackSelection.updateSelectedTrack(
+        /* playbackPositionUs= */ 0,
+        bufferedDurationUs,
+        /* availableDurationUs= */ C.TIME_UNSET,
+        /* queue= */ Collections.emptyList(),
+        createMediaChunkIterators(trackSelection.getTrackGroup(), TEST_CHUNK_DURATION_US));
+  }
+
+  private static List<FakeMediaChunk> createQueue(Format format, int chunkCount) {
+    List<FakeMediaChunk> queue = new ArrayList<>();
+    for (int i = 0; i < chunkCount; i++) {
+      queue.add(
+          new FakeMediaChunk(
+              format,
+              /* startTimeUs= */ i * QUEUE_CHUNK_DURATION_US,
+              /* endTimeUs= */ (i + 1) * QUEUE_CHUNK_DURATION_US));
+    }
+    return queue;
+  }
+
+  private static MediaChunkIterator[] createMediaChunkIterators(
+      TrackGroup trackGroup, long chunkDurationUs) {
+    MediaChunkIterator[] iterators = new MediaChunkIterator[trackGroup.length];
+    for (int i = 0; i < trackGroup.length; i++) {
+      iterators[i] =
+          new BaseMediaChunkIterator(/* fromIndex= */ 0, /* toIndex= */ 0) {
+            @Override
+            public DataSpec getDataSpec() {
+              return new DataSpec.Builder().setUri("https://test.example").build();
+            }
+
+            @Override
+            public long getChunkStartTimeUs() {
+              return 123_456_789;
+            }
+
+            @Override
+            public long getChunkEndTimeUs() {
+              return 123_456_789 + chunkDurationUs;
+            }
+          };
+    }
+    return iterators;
+  }
+
+  private static int[] selectedAllTracksInGroup(TrackGroup trackGroup) {
+    int[] listIndices = new int[trackGroup.length];
+    for (int i = 0; i < trackGroup.length; i++) {
+      listIndices[i] = i;
+    }
+    return listIndices;
+  }
+
+  private static Format videoFormat(int bitrate, int width, int height) {
+    return new Format.Builder()
+        .setSampleMimeType(MimeTypes.VIDEO_H264)
+        .setAverageBitrate(bitrate)
+        .setWidth(width)
+        .setHeight(height)
+        .build();
+  }
+}
@@ -0,0 +1,115 @@
+/*
+ * Copyright 2026 The Android Open Source Project
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package androidx.media3.exoplayer.upstream;
+
+import static com.google.common.truth.Truth.assertThat;
+
+import androidx.media3.common.C;
+import androidx.media3.database.DatabaseProvider;
+import androidx.media3.exoplayer.upstream.BandwidthPriorStore.Prior;
+import androidx.media3.test.utils.TestUtil;
+import androidx.test.core.app.ApplicationProvider;
+import androidx.test.ext.junit.runners.AndroidJUnit4;
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+
+/** Unit tests for {@link BandwidthPriorStore}. */
+@RunWith(AndroidJUnit4.class)
+public class BandwidthPriorStoreTest {
+
+  private DatabaseProvider databaseProvider;
+  private BandwidthPriorStore bandwidthPriorStore;
+
+  @Before
+  public void setUp() {
+    databaseProvider = TestUtil.getInMemoryDatabaseProvider();
+    bandwidthPriorStore = new BandwidthPriorStore(databaseProvider);
+  }
+
+  @Test
+  public void get_nonExistentNetworkKey_returnsNull() throws Exception {
+    assertThat(bandwidthPriorStore.get("key")).isNull();
+  }
+
+  @Test
+  public void putAndGet_fromNewInstance_returnsStoredPrior() throws Exception {
+    Prior prior =
+        new Prior(
+            /* bitrateEstimate= */ 5_000_000,
+            /* timeToFirstByteEstimateUs= */ 40_000,
+            /* throughputSampleWeights= */ new int[] {100, 200},
+            /* throughputSampleBitrates= */ new float[] {4_000_000f, 6_000_000f},
+            /* timeToFirstByteSamplesUs= */ new long[] {30_000, 40_000, 50_000});
+
+    bandwidthPriorStore.put("key", prior);
+    Prior storedPrior = new BandwidthPriorStore(databaseProvider).get("key");
+
+    assertThat(storedPrior).isNotNull();
+    assertThat(storedPrior.bitrateEstimate).isEqualTo(5_000_000);
+    assertThat(storedPrior.timeToFirstByteEstimateUs).isEqualTo(40_000);
+    assertThat(storedPrior.throughputSampleWeights).asList().containsExactly(100, 200).inOrder();
+    assertThat(storedPrior.throughputSampleBitrates)
+        .isEqualTo(new float[] {4_000_000f, 6_000_000f});
+    assertThat(storedPrior.timeToFirstByteSamplesUs)
+        .asList()
+        .containsExactly(30_000L, 40_000L, 50_000L)
+        .inOrder();
+  }
+
+  @Test
+  public void put_existingNetworkKey_replacesPrior() throws Exception {
+    bandwidthPriorStore.put("key", createPrior(/* bitrateEstimate= */ 1_000_000));
+    bandwidthPriorStore.put("otherKey", createPrior(/* bitrateEstimate= */ 2_000_000));
+
+    bandwidthPriorStore.put("key", createPrior(/* bitrateEstimate= */ 3_000_000));
+
+    assertThat(bandwidthPriorStore.get("key").bitrateEstimate).isEqualTo(3_000_000);
+    assertThat(bandwidthPriorStore.get("otherKey").bitrateEstimate).isEqualTo(2_000_000);
+  }
+
+  @Test
+  public void clear_removesAllPriors() throws Exception {
+    bandwidthPriorStore.put("key", createPrior(/* bitrateEstimate= */ 1_000_000));
+    bandwidthPriorStore.put("otherKey", createPrior(/* bitrateEstimate= */ 2_000_000));
+
+    bandwidthPriorStore.clear();
+
+    assertThat(bandwidthPriorStore.get("key")).isNull();
+    assertThat(bandwidthPriorStore.get("otherKey")).isNull();
+  }
+
+  @Test
+  public void getNetworkKey_differentNetworkTypes_returnsDifferentKeys() {
+    String key4g =
+        BandwidthPriorStore.getNetworkKey(
+            ApplicationProvider.getApplicationContext(), C.NETWORK_TYPE_4G);
+    String keyEthernet =
+        BandwidthPriorStore.getNetworkKey(
+            ApplicationProvider.getApplicationContext(), C.NETWORK_TYPE_ETHERNET);
+
+    assertThat(key4g).isNotEqualTo(keyEthernet);
+  }
+
+  private static Prior createPrior(long bitrateEstimate) {
+    return new Prior(
+        bitrateEstimate,
+        C.TIME_UNSET,
+        /* throughputSampleWeights= */ new int[0],
+        /* throughputSampleBitrates= */ new float[0],
+        /* timeToFirstByteSamplesUs= */ new long[0]);
+  }
+}
@@ -0,0 +1,199 @@
+/*
+ * Copyright 2026 The Android Open Source Project
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package androidx.media3.exoplayer.upstream;
+
+import static com.google.common.truth.Truth.assertThat;
+
+import androidx.test.ext.junit.runners.AndroidJUnit4;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+
+/** Tests for {@link DefaultAllocator}. */
+@RunWith(AndroidJUnit4.class)
+public final class DefaultAllocatorTest {
+
+  private static final int ALLOCATION_SIZE = 16;
+
+  @Test
+  public void allocateAndRelease_tracksTotalBytesAllocated() {
+    DefaultAllocator allocator = new DefaultAllocator(/* trimOnReset= */ true, ALLOCATION_SIZE);
+
+    Allocation allocation1 = allocator.allocate();
+    Allocation allocation2 = allocator.allocate();
+    int bytesAllocatedBeforeRelease = allocator.getTotalBytesAllocated();
+    allocator.release(allocation1);
+
+    assertThat(bytesAllocatedBeforeRelease).isEqualTo(2 * ALLOCATION_SIZE);
+    assertThat(allocator.getTotalBytesAllocated()).isEqualTo(ALLOCATION_SIZE);
+    assertThat(allocator.allocate()).isSameInstanceAs(allocation1);
+    assertThat(allocation2).isNotSameInstanceAs(allocation1);
+  }
+
+  @Test
+  public void reset_withTrimOnReset_discardsAvailableAllocations() {
+    DefaultAllocator allocator = new DefaultAllocator(/* trimOnReset= */ true, ALLOCATION_SIZE);
+    Allocation allocation = allocator.allocate();
+    allocator.release(allocation);
+
+    allocator.reset();
+
+    assertThat(allocator.allocate()).isNotSameInstanceAs(allocation);
+  }
+
+  @Test
+  public void threadCaches_allocateAndRelease_tracksTotalBytesAllocated() {
+    DefaultAllocator allocator =
+        DefaultAllocator.createWithThreadCaches(
+            /* trimOnReset= */ true, ALLOCATION_SIZE, /* threadCacheSize= */ 4);
+
+    List<Allocation> allocations = new ArrayList<>();
+    for (int i = 0; i < 10; i++) {
+      allocations.add(allocator.allocate());
+    }
+    int bytesAllocatedBeforeRelease = allocator.getTotalBytesAllocated();
+    for (int i = 0; i < 6; i++) {
+      allocator.release(allocations.get(i));
+    }
+
+    assertThat(bytesAllocatedBeforeRelease).isEqualTo(10 * ALLOCATION_SIZE);
+    assertThat(allocator.getTotalBytesAllocated()).isEqualTo(4 * ALLOCATION_SIZE);
+    assertThat(allocator.getIndividualAllocationLength()).isEqualTo(ALLOCATION_SIZE);
+  }
+
+  @Test
+  public void threadCaches_releaseThenAllocate_reusesAllocation() {
+    DefaultAllocator allocator =
+        DefaultAllocator.createWithThreadCaches(
+            /* trimOnReset= */ true, ALLOCATION_SIZE, /* threadCacheSize= */ 4);
+    allocator.setTargetBufferSize(100 * ALLOCATION_SIZE);
+    Allocation allocation = allocator.allocate();
+
+    allocator.release(allocation);
+
+    assertThat(allocator.allocate()).isSameInstanceAs(allocation);
+  }
+
+  @Test
+  public void threadCaches_releaseOnOtherThread_reusesAllocationThroughSharedPool()
+      throws InterruptedException {
+    DefaultAllocator allocator =
+        DefaultAllocator.createWithThreadCaches(
+            /* trimOnReset= */ true, ALLOCATION_SIZE, /* threadCacheSize= */ 2);
+    allocator.setTargetBufferSize(100 * ALLOCATION_SIZE);
+    List<Allocation> allocations = new ArrayList<>();
+    for (int i = 0; i < 8; i++) {
+      allocations.add(allocator.allocate());
+    }
+
+    // Releasing more than fits in the releasing thread's cache spills over to the shared pool.
+    Thread releasingThread =
+        new Thread(
+            () -> {
+              for (Allocation allocation : allocations) {
+                allocator.release(allocation);
+              }
+            });
+    releasingThread.start();
+    releasingThread.join();
+
+    assertThat(allocator.getTotalBytesAllocated()).isEqualTo(0);
+    assertThat(allocations).contains(allocator.allocate());
+  }
+
+  @Test
+  public void threadCaches_reset_discardsCachedAllocations() {
+    DefaultAllocator allocator =
+        DefaultAllocator.createWithThreadCaches(
+            /* trimOnReset= */ true, ALLOCATION_SIZE, /* threadCacheSize= */ 4);
+    allocator.setTargetBufferSize(100 * ALLOCATION_SIZE);
+    Allocation allocation = allocator.allocate();
+    allocator.release(allocation);
+
+    allocator.reset();
+
+    assertThat(allocator.allocate()).isNotSameInstanceAs(allocation);
+  }
+
+  @Test
+  public void threadCaches_trimAfterCachingThreadTerminated_keepsAllocationsWithinTarget()
+      throws InterruptedException {
+    DefaultAllocator allocator =
+        DefaultAllocator.createWithThreadCaches(
+            /* trimOnReset= */ true, ALLOCATION_SIZE, /* threadCacheSize= */ 4);
+    allocator.setTargetBufferSize(ALLOCATION_SIZE);
+    // The terminated thread's cache still holds the allocations that it released.
+    Thread cachingThread =
+        new Thread(
+            () -> {
+              List<Allocation> allocations = new ArrayList<>();
+              for (int i = 0; i < 4; i++) {
+                allocations.add(allocator.allocate());
+              }
+              for (Allocation allocation : allocations) {
+                allocator.release(allocation);
+              }
+            });
+    cachingThread.start();
+    cachingThread.join();
+    Allocation allocation = allocator.allocate();
+    allocator.release(allocation);
+
+    allocator.trim();
+
+    // The allocation fits the target, so it's neither flushed from this thread's cache nor trimmed.
+    assertThat(allocator.allocate()).isSameInstanceAs(allocation);
+  }
+
+  @Test
+  public void threadCaches_concurrentAllocateAndRelease_accountingIsExact()
+      throws InterruptedException {
+    DefaultAllocator allocator =
+        DefaultAllocator.createWithThreadCaches(
+            /* trimOnReset= */ true, ALLOCATION_SIZE, /* threadCacheSize= */ 8);
+    Thread[] threads = new Thread[4];
+    for (int i = 0; i < threads.length; i++) {
+      Random random = new Random(/* seed= */ i);
+      threads[i] =
+          new Thread(
+              () -> {
+                ArrayDeque<Allocation> heldAllocations = new ArrayDeque<>();
+                for (int j = 0; j < 10_000; j++) {
+                  if (heldAllocations.isEmpty() || random.nextBoolean()) {
+                    heldAllocations.add(allocator.allocate());
+                  } else {
+                    allocator.release(heldAllocations.remove());
+                  }
+                  if (j % 500 == 0) {
+                    allocator.setTargetBufferSize(random.nextInt(64) * ALLOCATION_SIZE);
+                  }
+                }
+                while (!heldAllocations.isEmpty()) {
+                  allocator.release(heldAllocations.remove());
+                }
+              });
+      threads[i].start();
+    }
+    for (Thread thread : threads) {
+      thread.join();
+    }
+
+    assertThat(allocator.getTotalBytesAllocated()).isEqualTo(0);
+  }
+}
@@ -27,6 +27,7 @@ import android.net.NetworkInfo.DetailedState;
 import android.net.Uri;
 import android.telephony.TelephonyDisplayInfo;
 import android.telephony.TelephonyManager;
+import androidx.annotation.Nullable;
 import androidx.media3.common.C;
 import androidx.media3.common.util.NetworkTypeObserver;
 import androidx.media3.common.util.Util;
@@ -34,8 +35,11 @@ import androidx.media3.datasource.DataSource;
 import androidx.media3.datasource.DataSpec;
 import androidx.media3.test.utils.FakeClock;
 import androidx.media3.test.utils.FakeDataSource;
+import androidx.media3.test.utils.TestUtil;
 import androidx.test.core.app.ApplicationProvider;
 import androidx.test.ext.junit.runners.AndroidJUnit4;
+import java.util.ArrayList;
+import java.util.List;
 import java.util.Random;
 import org.junit.Before;
 import org.junit.Ignore;
@@ -728,6 +732,109 @@ public final class DefaultBandwidthMeterTest {
     assertThat(bitrateEstimateUpdated).isTrue();
   }
 
+  @Test
+  public void initialBitrateEstimate_withStoredPriorForNetwork_isStoredEstimate()
+      throws Exception {
+    setActiveNetworkInfo(networkInfoEthernet);
+    BandwidthPriorStore bandwidthPriorStore =
+        new BandwidthPriorStore(TestUtil.getInMemoryDatabaseProvider());
+    bandwidthPriorStore.put(
+        BandwidthPriorStore.getNetworkKey(
+            ApplicationProvider.getApplicationContext(), C.NETWORK_TYPE_ETHERNET),
+        new BandwidthPriorStore.Prior(
+            /* bitrateEstimate= */ 123_456_789,
+            /* timeToFirstByteEstimateUs= */ 20_000,
+            /* throughputSampleWeights= */ new int[] {1000},
+            /* throughputSampleBitrates= */ new float[] {123_456_789f},
+            /* timeToFirstByteSamplesUs= */ new long[] {20_000}));
+
+    DefaultBandwidthMeter bandwidthMeter =
+        new DefaultBandwidthMeter.Builder(ApplicationProvider.getApplicationContext())
+            .setBandwidthPriorStore(bandwidthPriorStore)
+            .build();
+    long deadlineMs = System.currentTimeMillis() + 10_000;
+    while (bandwidthMeter.getBitrateEstimate() != 123_456_789
+        && System.currentTimeMillis() < deadlineMs) {
+      Thread.sleep(10);
+    }
+
+    assertThat(bandwidthMeter.getBitrateEstimate()).isEqualTo(123_456_789);
+    assertThat(bandwidthMeter.getTimeToFirstByteEstimateUs()).isEqualTo(20_000);
+  }
+
+  @Test
+  public void initialBitrateEstimate_withBandwidthPriorExecutor_loadsPriorOnExecutor()
+      throws Exception {
+    setActiveNetworkInfo(networkInfoEthernet);
+    BandwidthPriorStore bandwidthPriorStore =
+        new BandwidthPriorStore(TestUtil.getInMemoryDatabaseProvider());
+    bandwidthPriorStore.put(
+        BandwidthPriorStore.getNetworkKey(
+            ApplicationProvider.getApplicationContext(), C.NETWORK_TYPE_ETHERNET),
+        new BandwidthPriorStore.Prior(
+            /* bitrateEstimate= */ 123_456_789,
+            /* timeToFirstByteEstimateUs= */ 20_000,
+            /* throughputSampleWeights= */ new int[] {1000},
+            /* throughputSampleBitrates= */ new float[] {123_456_789f},
+            /* timeToFirstByteSamplesUs= */ new long[] {20_000}));
+    List<Runnable> bandwidthPriorTasks = new ArrayList<>();
+
+    DefaultBandwidthMeter bandwidthMeter =
+        new DefaultBandwidthMeter.Builder(ApplicationProvider.getApplicationContext())
+            .setBandwidthPriorStore(bandwidthPriorStore)
+            .setBandwidthPriorExecutor(bandwidthPriorTasks::add)
+            .build();
+    ShadowLooper.idleMainLooper();
+    long bitrateEstimateBeforeLoad = bandwidthMeter.getBitrateEstimate();
+    for (Runnable task : bandwidthPriorTasks) {
+      task.run();
+    }
+
+    assertThat(bandwidthPriorTasks).isNotEmpty();
+    assertThat(bitrateEstimateBeforeLoad).isNotEqualTo(123_456_789);
+    assertThat(bandwidthMeter.getBitrateEstimate()).isEqualTo(123_456_789);
+    assertThat(bandwidthMeter.getTimeToFirstByteEstimateUs()).isEqualTo(20_000);
+  }
+
+  @Test
+  public void transfers_withBandwidthPriorStore_storeEstimatesForNetwork() throws Exception {
+    setActiveNetworkInfo(networkInfoEthernet);
+    FakeClock clock = new FakeClock(/* initialTimeMs= */ 0);
+    BandwidthPriorStore bandwidthPriorStore =
+        new BandwidthPriorStore(TestUtil.getInMemoryDatabaseProvider());
+    String networkKey =
+        BandwidthPriorStore.getNetworkKey(
+            ApplicationProvider.getApplicationContext(), C.NETWORK_TYPE_ETHERNET);
+    DefaultBandwidthMeter bandwidthMeter =
+        new DefaultBandwidthMeter.Builder(ApplicationProvider.getApplicationContext())
+            .setClock(clock)
+            .setBandwidthPriorStore(bandwidthPriorStore)
+            .build();
+    DataSource dataSource = new FakeDataSource();
+    DataSpec dataSpec = new DataSpec(Uri.parse("https://test.com"));
+    // Wait until the meter has looked up the (absent) prior for the network.
+    long deadlineMs = System.currentTimeMillis() + 10_000;
+    @Nullable BandwidthPriorStore.Prior prior = null;
+    while (prior == null && System.currentTimeMillis() < deadlineMs) {
+      bandwidthMeter.onTransferInitializing(dataSource, dataSpec, /* isNetwork= */ true);
+      clock.advanceTime(50);
+      bandwidthMeter.onTransferStart(dataSource, dataSpec, /* isNetwork= */ true);
+      clock.advanceTime(1000);
+      bandwidthMeter.onBytesTransferred(
+          dataSource, dataSpec, /* isNetwork= */ true, /* bytesTransferred= */ 1_000_000);
+      bandwidthMeter.onTransferEnd(dataSource, dataSpec, /* isNetwork= */ true);
+      clock.advanceTime(20_000);
+      Thread.sleep(10);
+      prior = bandwidthPriorStore.get(networkKey);
+    }
+
+    assertThat(prior).isNotNull();
+    assertThat(prior.bitrateEstimate).isEqualTo(8_000_000);
+    assertThat(prior.timeToFirstByteEstimateUs).isEqualTo(50_000);
+    assertThat(prior.throughputSampleBitrates[0]).isEqualTo(8_000_000f);
+    assertThat(bandwidthMeter.getTimeToFirstByteEstimateUs()).isEqualTo(50_000);
+  }
+
   private void setActiveNetworkInfo(NetworkInfo networkInfo) {
     setActiveNetworkInfo(networkInfo, TelephonyDisplayInfo.OVERRIDE_NETWORK_TYPE_NONE);
   }
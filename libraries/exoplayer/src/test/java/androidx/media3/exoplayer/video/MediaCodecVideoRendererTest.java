@@ -1836,6 +1836,160 @@ public class MediaCodecVideoRendererTest {
         .isEqualTo(Format.NO_VALUE);
   }
 
+  @Test
+  public void getDurationToProgressUs_withTunneling_returnsHalfOfQueuedDuration()
+      throws Exception {
+    enableAndStartRendererWithQueuedInput(/* tunneling= */ true);
+
+    long durationToProgressUs =
+        mediaCodecVideoRenderer.getDurationToProgressUs(
+            /* isOnBufferAvailableListenerRegistered= */ true,
+            /* positionUs= */ 0,
+            SystemClock.elapsedRealtime() * 1000);
+
+    assertThat(durationToProgressUs).isEqualTo(100_000L);
+    assertThat(mediaCodecVideoRenderer.shouldWakeUpOnInputBufferAvailable()).isFalse();
+  }
+
+  @Test
+  public void getDurationToProgressUs_withTunnelingAndDoublePlaybackSpeed_returnsScaledDuration()
+      throws Exception {
+    enableAndStartRendererWithQueuedInput(/* tunneling= */ true);
+    mediaCodecVideoRenderer.setPlaybackSpeed(
+        /* currentPlaybackSpeed= */ 2f, /* targetPlaybackSpeed= */ 2f);
+
+    long durationToProgressUs =
+        mediaCodecVideoRenderer.getDurationToProgressUs(
+            /* isOnBufferAvailableListenerRegistered= */ true,
+            /* positionUs= */ 0,
+            SystemClock.elapsedRealtime() * 1000);
+
+    assertThat(durationToProgressUs).isEqualTo(50_000L);
+    assertThat(mediaCodecVideoRenderer.shouldWakeUpOnInputBufferAvailable()).isFalse();
+  }
+
+  @Test
+  public void
+      getDurationToProgressUs_withTunnelingAndPlaybackAdvancement_returnsDurationMinusElapsedTime()
+          throws Exception {
+    enableAndStartRendererWithQueuedInput(/* tunneling= */ true);
+    // Simulate the rendering loop iteration having started 20ms ago.
+    long elapsedRealtimeUs = SystemClock.elapsedRealtime() * 1000 - 20_000;
+
+    long durationToProgressUs =
+        mediaCodecVideoRenderer.getDurationToProgressUs(
+            /* isOnBufferAvailableListenerRegistered= */ true,
+            /* positionUs= */ 0,
+            elapsedRealtimeUs);
+
+    assertThat(durationToProgressUs).isEqualTo(80_000L);
+  }
+
+  @Test
+  public void getDurationToProgressUs_withTunnelingAndLittleQueuedInput_resumesInputWakeups()
+      throws Exception {
+    enableAndStartRendererWithQueuedInput(/* tunneling= */ true);
+    mediaCodecVideoRenderer.getDurationToProgressUs(
+        /* isOnBufferAvailableListenerRegistered= */ true,
+        /* positionUs= */ 0,
+        SystemClock.elapsedRealtime() * 1000);
+    boolean shouldWakeUpWithPlentyOfQueuedInput =
+        mediaCodecVideoRenderer.shouldWakeUpOnInputBufferAvailable();
+
+    long durationToProgressUs =
+        mediaCodecVideoRenderer.getDurationToProgressUs(
+            /* isOnBufferAvailableListenerRegistered= */ true,
+            /* positionUs= */ 180_000,
+            SystemClock.elapsedRealtime() * 1000);
+
+    assertThat(shouldWakeUpWithPlentyOfQueuedInput).isFalse();
+    assertThat(durationToProgressUs).isEqualTo(Renderer.DEFAULT_DURATION_TO_PROGRESS_US);
+    assertThat(mediaCodecVideoRenderer.shouldWakeUpOnInputBufferAvailable()).isTrue();
+  }
+
+  @Test
+  public void getDurationToProgressUs_withTunnelingAndNoBufferListener_returnsDefaultDuration()
+      throws Exception {
+    enableAndStartRendererWithQueuedInput(/* tunneling= */ true);
+
+    long durationToProgressUs =
+        mediaCodecVideoRenderer.getDurationToProgressUs(
+            /* isOnBufferAvailableListenerRegistered= */ false,
+            /* positionUs= */ 0,
+            SystemClock.elapsedRealtime() * 1000);
+
+    assertThat(durationToProgressUs).isEqualTo(Renderer.DEFAULT_DURATION_TO_PROGRESS_US);
+    assertThat(mediaCodecVideoRenderer.shouldWakeUpOnInputBufferAvailable()).isTrue();
+  }
+
+  @Test
+  public void getDurationToProgressUs_withoutTunneling_returnsDefaultDuration() throws Exception {
+    enableAndStartRendererWithQueuedInput(/* tunneling= */ false);
+
+    long durationToProgressUs =
+        mediaCodecVideoRenderer.getDurationToProgressUs(
+            /* isOnBufferAvailableListenerRegistered= */ true,
+            /* positionUs= */ 0,
+            SystemClock.elapsedRealtime() * 1000);
+
+    assertThat(durationToProgressUs).isEqualTo(Renderer.DEFAULT_DURATION_TO_PROGRESS_US);
+    assertThat(mediaCodecVideoRenderer.shouldWakeUpOnInputBufferAvailable()).isTrue();
+  }
+
+  @Test
+  public void getDurationToProgressUs_withTunnelingBeforeStart_returnsDefaultDuration()
+      throws Exception {
+    enableAndStartRendererWithQueuedInput(/* tunneling= */ true);
+    mediaCodecVideoRenderer.stop();
+
+    long durationToProgressUs =
+        mediaCodecVideoRenderer.getDurationToProgressUs(
+            /* isOnBufferAvailableListenerRegistered= */ true,
+            /* positionUs= */ 0,
+            SystemClock.elapsedRealtime() * 1000);
+
+    assertThat(durationToProgressUs).isEqualTo(Renderer.DEFAULT_DURATION_TO_PROGRESS_US);
+    assertThat(mediaCodecVideoRenderer.shouldWakeUpOnInputBufferAvailable()).isTrue();
+  }
+
+  /**
+   * Enables and starts the renderer, and renders until all samples, up to 200ms, are queued to the
+   * codec.
+   */
+  private void enableAndStartRendererWithQueuedInput(boolean tunneling) throws Exception {
+    FakeSampleStream fakeSampleStream =
+        new FakeSampleStream(
+            new DefaultAllocator(/* trimOnReset= */ true, /* individualAllocationSize= */ 1024),
+            /* mediaSourceEventDispatcher= */ null,
+            DrmSessionManager.DRM_UNSUPPORTED,
+            new DrmSessionEventListener.EventDispatcher(),
+            /* initialFormat= */ VIDEO_H264,
+            ImmutableList.of(
+                oneByteSample(/* timeUs= */ 0, C.BUFFER_FLAG_KEY_FRAME),
+                oneByteSample(/* timeUs= */ 50_000),
+                oneByteSample(/* timeUs= */ 100_000),
+                oneByteSample(/* timeUs= */ 150_000),
+                oneByteSample(/* timeUs= */ 200_000),
+                END_OF_STREAM_ITEM));
+    fakeSampleStream.writeData(/* startPositionUs= */ 0);
+    if (tunneling) {
+      mediaCodecVideoRenderer.handleMessage(Renderer.MSG_SET_AUDIO_SESSION_ID, /* message= */ 1);
+    }
+    mediaCodecVideoRenderer.enable(
+        new RendererConfiguration(tunneling),
+        new Format[] {VIDEO_H264},
+        fakeSampleStream,
+        /* positionUs= */ 0,
+        /* joining= */ false,
+        /* mayRenderStartOfStream= */ true,
+        /* startPositionUs= */ 0,
+        /* offsetUs= */ 0,
+        /* mediaPeriodId= */ new MediaSource.MediaPeriodId(new Object()));
+    mediaCodecVideoRenderer.start();
+    mediaCodecVideoRenderer.render(/* positionUs= */ 0, SystemClock.elapsedRealtime() * 1000);
+    mediaCodecVideoRenderer.render(/* positionUs= */ 0, SystemClock.elapsedRealtime() * 1000);
+  }
+
   private static MediaCodecInfo createMediaCodecInfo(String mimeType) {
     return MediaCodecInfo.newInstance(
         /* name= */ mimeType,
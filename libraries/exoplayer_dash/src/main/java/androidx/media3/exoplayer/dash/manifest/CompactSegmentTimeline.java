@@ -0,0 +1,173 @@
+/*
+ * Copyright 2026 The Android Open Source Project
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package androidx.media3.exoplayer.dash.manifest;
+
+import androidx.annotation.Nullable;
+import androidx.media3.common.util.UnstableApi;
+import androidx.media3.common.util.Util;
+import androidx.media3.exoplayer.dash.manifest.SegmentBase.SegmentTimelineElement;
+import java.util.AbstractList;
+import java.util.Arrays;
+
+/**
+ * A segment timeline stored as runs of equal duration segments in primitive arrays.
+ *
+ * <p>Each run corresponds to one S element of the MPD, so a timeline of thousands of segments
+ * that are mostly described with repeat counts takes a few dozen bytes instead of one object per
+ * segment. Elements returned by {@link #get(int)} are created on demand; {@link
+ * SegmentBase.MultiSegmentBase} reads {@link #getStartTime(int)} and {@link #getDuration(int)}
+ * directly instead.
+ */
+@UnstableApi
+public final class CompactSegmentTimeline extends AbstractList<SegmentTimelineElement> {
+
+  /** Builder for {@link CompactSegmentTimeline} instances. */
+  public static final class Builder {
+
+    private int runCount;
+    private int segmentCount;
+    private int[] runFirstIndices;
+    private long[] runStartTimes;
+    private long[] runDurations;
+
+    /** Creates an instance. */
+    public Builder() {
+      runFirstIndices = new int[4];
+      runStartTimes = new long[4];
+      runDurations = new long[4];
+    }
+
+    /**
+     * Appends {@code count} segments of equal duration, the first of which starts at {@code
+     * startTime}.
+     *
+     * @param startTime The start time of the first segment, in the timescale of the enclosing
+     *     element.
+     * @param duration The duration of each segment, in the timescale of the enclosing element.
+     * @param count The number of segments. Nothing is appended if not positive.
+     * @return This builder.
+     */
+    public Builder append(long startTime, long duration, int count) {
+      if (count <= 0) {
+        return this;
+      }
+      if (runCount > 0) {
+        int lastRun = runCount - 1;
+        long lastRunEndTime =
+            runStartTimes[lastRun]
+                + (segmentCount - runFirstIndices[lastRun]) * runDurations[lastRun];
+        if (runDurations[lastRun] == duration && lastRunEndTime == startTime) {
+          // Contiguous with the previous run, so extend it.
+          segmentCount += count;
+          return this;
+        }
+      }
+      if (runCount == runFirstIndices.length) {
+        int newLength = runCount * 2;
+        runFirstIndices = Arrays.copyOf(runFirstIndices, newLength);
+        runStartTimes = Arrays.copyOf(runStartTimes, newLength);
+        runDurations = Arrays.copyOf(runDurations, newLength);
+      }
+      runFirstIndices[runCount] = segmentCount;
+      runStartTimes[runCount] = startTime;
+      runDurations[runCount] = duration;
+      runCount++;
+      segmentCount += count;
+      return this;
+    }
+
+    /** Builds the timeline. */
+    public CompactSegmentTimeline build() {
+      return new CompactSegmentTimeline(
+          segmentCount,
+          Arrays.copyOf(runFirstIndices, runCount),
+          Arrays.copyOf(runStartTimes, runCount),
+          Arrays.copyOf(runDurations, runCount));
+    }
+  }
+
+  private final int segmentCount;
+  private final int[] runFirstIndices;
+  private final long[] runStartTimes;
+  private final long[] runDurations;
+
+  private CompactSegmentTimeline(
+      int segmentCount, int[] runFirstIndices, long[] runStartTimes, long[] runDurations) {
+    this.segmentCount = segmentCount;
+    this.runFirstIndices = runFirstIndices;
+    this.runStartTimes = runStartTimes;
+    this.runDurations = runDurations;
+  }
+
+  /**
+   * Returns the start time of the segment at the given index, in the timescale of the enclosing
+   * element.
+   */
+  public long getStartTime(int index) {
+    int run = getRunIndex(index);
+    return runStartTimes[run] + (index - runFirstIndices[run]) * runDurations[run];
+  }
+
+  /**
+   * Returns the duration of the segment at the given index, in the timescale of the enclosing
+   * element.
+   */
+  public long getDuration(int index) {
+    return runDurations[getRunIndex(index)];
+  }
+
+  @Override
+  public SegmentTimelineElement get(int index) {
+    int run = getRunIndex(index);
+    return new SegmentTimelineElement(
+        runStartTimes[run] + (index - runFirstIndices[run]) * runDurations[run],
+        runDurations[run]);
+  }
+
+  @Override
+  public int size() {
+    return segmentCount;
+  }
+
+  @Override
+  public boolean equals(@Nullable Object o) {
+    if (this == o) {
+      return true;
+    }
+    if (o instanceof CompactSegmentTimeline) {
+      CompactSegmentTimeline that = (CompactSegmentTimeline) o;
+      return segmentCount == that.segmentCount
+          && Arrays.equals(runFirstIndices, that.runFirstIndices)
+          && Arrays.equals(runStartTimes, that.runStartTimes)
+          && Arrays.equals(runDurations, that.runDurations);
+    }
+    return super.equals(o);
+  }
+
+  @Override
+  public int hashCode() {
+    // Must be consistent with List.hashCode() for lists of SegmentTimelineElement.
+    return super.hashCode();
+  }
+
+  private int getRunIndex(int index) {
+    if (index < 0 || index >= segmentCount) {
+      throw new IndexOutOfBoundsException("Index: " + index + ", Size: " + segmentCount);
+    }
+    return Util.binarySearchFloor(
+        runFirstIndices, index, /* inclusive= */ true, /* stayInBounds= */ true);
+  }
+}
@@ -18,6 +18,7 @@ package androidx.media3.exoplayer.dash.manifest;
 import static androidx.media3.exoplayer.dash.manifest.BaseUrl.DEFAULT_DVB_PRIORITY;
 import static androidx.media3.exoplayer.dash.manifest.BaseUrl.DEFAULT_WEIGHT;
 import static androidx.media3.exoplayer.dash.manifest.BaseUrl.PRIORITY_UNSET;
+import static java.lang.Math.max;
 
 import android.net.Uri;
 import android.text.TextUtils;
@@ -88,8 +89,22 @@ public class DashManifestParser extends DefaultHandler
       };
 
   private final XmlPullParserFactory xmlParserFactory;
+  private final boolean useCompactSegmentTimelines;
 
   public DashManifestParser() {
+    this(/* useCompactSegmentTimelines= */ false);
+  }
+
+  /**
+   * Creates an instance.
+   *
+   * @param useCompactSegmentTimelines Whether SegmentTimeline elements are parsed into a {@link
+   *     CompactSegmentTimeline}, which stores runs of segments in primitive arrays rather than one
+   *     {@link SegmentTimelineElement} per segment. If true, {@link #buildSegmentTimelineElement}
+   *     is not called.
+   */
+  public DashManifestParser(boolean useCompactSegmentTimelines) {
+    this.useCompactSegmentTimelines = useCompactSegmentTimelines;
     try {
       xmlParserFactory = XmlPullParserFactory.newInstance();
     } catch (XmlPullParserException e) {
@@ -1273,6 +1288,9 @@ public class DashManifestParser extends DefaultHandler
   protected List<SegmentTimelineElement> parseSegmentTimeline(
       XmlPullParser xpp, long timescale, long periodDurationMs)
       throws XmlPullParserException, IOException {
+    @Nullable
+    CompactSegmentTimeline.Builder compactSegmentTimeline =
+        useCompactSegmentTimelines ? new CompactSegmentTimeline.Builder() : null;
     List<SegmentTimelineElement> segmentTimeline = new ArrayList<>();
     long startTime = 0;
     long elementDuration = C.TIME_UNSET;
@@ -1284,12 +1302,19 @@ public class DashManifestParser extends DefaultHandler
         long newStartTime = parseLong(xpp, "t", C.TIME_UNSET);
         if (havePreviousTimelineElement) {
           startTime =
-              addSegmentTimelineElementsToList(
-                  segmentTimeline,
-                  startTime,
-                  elementDuration,
-                  elementRepeatCount,
-                  /* endTime= */ newStartTime);
+              compactSegmentTimeline != null
+                  ? addSegmentTimelineElementsToBuilder(
+                      compactSegmentTimeline,
+                      startTime,
+                      elementDuration,
+                      elementRepeatCount,
+                      /* endTime= */ newStartTime)
+                  : addSegmentTimelineElementsToList(
+                      segmentTimeline,
+                      startTime,
+                      elementDuration,
+                      elementRepeatCount,
+                      /* endTime= */ newStartTime);
         }
         if (newStartTime != C.TIME_UNSET) {
           startTime = newStartTime;
@@ -1303,14 +1328,23 @@ public class DashManifestParser extends DefaultHandler
     } while (!XmlPullParserUtil.isEndTag(xpp, "SegmentTimeline"));
     if (havePreviousTimelineElement) {
       long periodDuration = Util.scaleLargeTimestamp(periodDurationMs, timescale, 1000);
-      addSegmentTimelineElementsToList(
-          segmentTimeline,
-          startTime,
-          elementDuration,
-          elementRepeatCount,
-          /* endTime= */ periodDuration);
+      if (compactSegmentTimeline != null) {
+        addSegmentTimelineElementsToBuilder(
+            compactSegmentTimeline,
+            startTime,
+            elementDuration,
+            elementRepeatCount,
+            /* endTime= */ periodDuration);
+      } else {
+        addSegmentTimelineElementsToList(
+            segmentTimeline,
+            startTime,
+            elementDuration,
+            elementRepeatCount,
+            /* endTime= */ periodDuration);
+      }
     }
-    return segmentTimeline;
+    return compactSegmentTimeline != null ? compactSegmentTimeline.build() : segmentTimeline;
   }
 
   /**
@@ -1341,6 +1375,25 @@ public class DashManifestParser extends DefaultHandler
     return startTime;
   }
 
+  /**
+   * Adds timeline elements for one S tag to a compact segment timeline.
+   *
+   * <p>See {@link #addSegmentTimelineElementsToList} for the parameters.
+   */
+  private static long addSegmentTimelineElementsToBuilder(
+      CompactSegmentTimeline.Builder segmentTimeline,
+      long startTime,
+      long elementDuration,
+      int elementRepeatCount,
+      long endTime) {
+    int count =
+        elementRepeatCount >= 0
+            ? 1 + elementRepeatCount
+            : (int) Util.ceilDivide(endTime - startTime, elementDuration);
+    segmentTimeline.append(startTime, elementDuration, count);
+    return startTime + max(count, 0) * elementDuration;
+  }
+
   protected SegmentTimelineElement buildSegmentTimelineElement(long startTime, long duration) {
     return new SegmentTimelineElement(startTime, duration);
   }
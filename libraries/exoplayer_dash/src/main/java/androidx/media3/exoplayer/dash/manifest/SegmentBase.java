@@ -15,6 +15,7 @@
  */
 package androidx.media3.exoplayer.dash.manifest;
 
+import static androidx.media3.common.util.Assertions.checkNotNull;
 import static androidx.media3.exoplayer.dash.DashSegmentIndex.INDEX_UNBOUNDED;
 import static java.lang.Math.max;
 import static java.lang.Math.min;
@@ -209,7 +210,7 @@ public abstract class SegmentBase {
     /** See {@link DashSegmentIndex#getDurationUs(long, long)}. */
     public final long getSegmentDurationUs(long sequenceNumber, long periodDurationUs) {
       if (segmentTimeline != null) {
-        long duration = segmentTimeline.get((int) (sequenceNumber - startNumber)).duration;
+        long duration = getTimelineDuration((int) (sequenceNumber - startNumber));
         return (duration * C.MICROS_PER_SECOND) / timescale;
       } else {
         long segmentCount = getSegmentCount(periodDurationUs);
@@ -225,8 +226,7 @@ public abstract class SegmentBase {
       long unscaledSegmentTime;
       if (segmentTimeline != null) {
         unscaledSegmentTime =
-            segmentTimeline.get((int) (sequenceNumber - startNumber)).startTime
-                - presentationTimeOffset;
+            getTimelineStartTime((int) (sequenceNumber - startNumber)) - presentationTimeOffset;
       } else {
         unscaledSegmentTime = (sequenceNumber - startNumber) * duration;
       }
@@ -297,6 +297,20 @@ public abstract class SegmentBase {
 
     /** See {@link DashSegmentIndex#getSegmentCount(long)}. */
     public abstract long getSegmentCount(long periodDurationUs);
+
+    /* package */ final long getTimelineStartTime(int index) {
+      List<SegmentTimelineElement> segmentTimeline = checkNotNull(this.segmentTimeline);
+      return segmentTimeline instanceof CompactSegmentTimeline
+          ? ((CompactSegmentTimeline) segmentTimeline).getStartTime(index)
+          : segmentTimeline.get(index).startTime;
+    }
+
+    /* package */ final long getTimelineDuration(int index) {
+      List<SegmentTimelineElement> segmentTimeline = checkNotNull(this.segmentTimeline);
+      return segmentTimeline instanceof CompactSegmentTimeline
+          ? ((CompactSegmentTimeline) segmentTimeline).getDuration(index)
+          : segmentTimeline.get(index).duration;
+    }
   }
 
   /** A {@link MultiSegmentBase} that uses a SegmentList to define its segments. */
@@ -443,7 +457,7 @@ public abstract class SegmentBase {
     public RangedUri getSegmentUrl(Representation representation, long sequenceNumber) {
       long time;
       if (segmentTimeline != null) {
-        time = segmentTimeline.get((int) (sequenceNumber - startNumber)).startTime;
+        time = getTimelineStartTime((int) (sequenceNumber - startNumber));
       } else {
         time = (sequenceNumber - startNumber) * duration;
       }
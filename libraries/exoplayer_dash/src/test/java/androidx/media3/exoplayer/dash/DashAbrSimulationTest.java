@@ -0,0 +1,99 @@
+/*
+ * Copyright 2026 The Android Open Source Project
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package androidx.media3.exoplayer.dash;
+
+import static com.google.common.truth.Truth.assertThat;
+
+import android.net.Uri;
+import androidx.media3.common.C;
+import androidx.media3.common.Format;
+import androidx.media3.common.TrackGroup;
+import androidx.media3.exoplayer.dash.manifest.AdaptationSet;
+import androidx.media3.exoplayer.dash.manifest.DashManifest;
+import androidx.media3.exoplayer.dash.manifest.DashManifestParser;
+import androidx.media3.exoplayer.trackselection.AdaptiveTrackSelection;
+import androidx.media3.test.utils.AbrSimulator;
+import androidx.media3.test.utils.BandwidthTrace;
+import androidx.media3.test.utils.FakeClock;
+import androidx.media3.test.utils.TestUtil;
+import androidx.test.core.app.ApplicationProvider;
+import androidx.test.ext.junit.runners.AndroidJUnit4;
+import com.google.common.collect.Iterables;
+import java.io.IOException;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+
+/** Tests {@link AdaptiveTrackSelection} with the {@link AbrSimulator} on DASH manifests. */
+@RunWith(AndroidJUnit4.class)
+public final class DashAbrSimulationTest {
+
+  private static final String SAMPLE_MPD_SEGMENT_TEMPLATE = "media/mpd/sample_mpd_segment_template";
+
+  @Test
+  public void run_constantBandwidth_settlesOnHighestSustainableRepresentation() throws IOException {
+    TrackGroup trackGroup = parseVideoTrackGroup(SAMPLE_MPD_SEGMENT_TEMPLATE);
+    FakeClock clock = new FakeClock(/* initialTimeMs= */ 0);
+
+    AbrSimulator.Result result =
+        new AbrSimulator.Builder(
+                trackGroup,
+                BandwidthTrace.constant(/* bitrate= */ 1_500_000, /* timeToFirstByteMs= */ 50))
+            .setClock(clock)
+            .setTrackSelectionFactory(createAdaptiveTrackSelectionFactory(clock))
+            .setMediaDurationMs(120_000)
+            .setChunkDurationMs(4_000)
+            .build()
+            .run();
+
+    // The representations have bitrates of 124, 258, 646, 1171 and 2326 kbps. With the default
+    // bandwidth fraction, 1.5 Mbps sustains 646 kbps but not 1171 kbps.
+    assertThat(trackGroup.length).isEqualTo(5);
+    assertThat(Iterables.getLast(result.playedFormats).bitrate).isEqualTo(646_000);
+    assertThat(result.rebufferCount).isEqualTo(0);
+    for (Format format : result.playedFormats) {
+      assertThat(format.bitrate).isAtMost(646_000);
+    }
+  }
+
+  private static TrackGroup parseVideoTrackGroup(String fileName) throws IOException {
+    DashManifest manifest =
+        new DashManifestParser()
+            .parse(
+                Uri.parse("https://example.com/test.mpd"),
+                TestUtil.getInputStream(ApplicationProvider.getApplicationContext(), fileName));
+    for (AdaptationSet adaptationSet : manifest.getPeriod(0).adaptationSets) {
+      if (adaptationSet.type == C.TRACK_TYPE_VIDEO) {
+        Format[] formats = new Format[adaptationSet.representations.size()];
+        for (int i = 0; i < formats.length; i++) {
+          formats[i] = adaptationSet.representations.get(i).format;
+        }
+        return new TrackGroup(formats);
+      }
+    }
+    throw new IllegalStateException("No video adaptation set in " + fileName);
+  }
+
+  private static AdaptiveTrackSelection.Factory createAdaptiveTrackSelectionFactory(
+      FakeClock clock) {
+    return new AdaptiveTrackSelection.Factory(
+        AdaptiveTrackSelection.DEFAULT_MIN_DURATION_FOR_QUALITY_INCREASE_MS,
+        AdaptiveTrackSelection.DEFAULT_MAX_DURATION_FOR_QUALITY_DECREASE_MS,
+        AdaptiveTrackSelection.DEFAULT_MIN_DURATION_TO_RETAIN_AFTER_DISCARD_MS,
+        AdaptiveTrackSelection.DEFAULT_BANDWIDTH_FRACTION,
+        AdaptiveTrackSelection.DEFAULT_BUFFERED_FRACTION_TO_LIVE_EDGE_FOR_QUALITY_INCREASE,
+        clock);
+  }
+}
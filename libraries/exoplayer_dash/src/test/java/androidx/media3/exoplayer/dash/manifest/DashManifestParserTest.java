@@ -15,6 +15,7 @@
  */
 package androidx.media3.exoplayer.dash.manifest;
 
+import static androidx.media3.common.util.Assertions.checkNotNull;
 import static com.google.common.truth.Truth.assertThat;
 
 import android.net.Uri;
@@ -25,6 +26,7 @@ import androidx.media3.common.Format;
 import androidx.media3.common.Label;
 import androidx.media3.common.MimeTypes;
 import androidx.media3.common.util.Util;
+import androidx.media3.exoplayer.dash.DashSegmentIndex;
 import androidx.media3.exoplayer.dash.manifest.Representation.MultiSegmentRepresentation;
 import androidx.media3.exoplayer.dash.manifest.Representation.SingleSegmentRepresentation;
 import androidx.media3.exoplayer.dash.manifest.SegmentBase.SegmentTimelineElement;
@@ -439,6 +441,82 @@ public class DashManifestParserTest {
     assertNextTag(xpp);
   }
 
+  @Test
+  public void parseSegmentTimeline_withCompactSegmentTimelines_returnsCompactTimeline()
+      throws Exception {
+    DashManifestParser parser = new DashManifestParser(/* useCompactSegmentTimelines= */ true);
+    XmlPullParser xpp = XmlPullParserFactory.newInstance().newPullParser();
+    xpp.setInput(
+        new StringReader(
+            "<SegmentTimeline><S t=\"0\" "
+                + "d=\"96000\" r=\"-1\"/><S t=\"192000\" d=\"48000\" r=\"-1\"/>"
+                + "</SegmentTimeline>"
+                + NEXT_TAG));
+    xpp.next();
+
+    List<SegmentTimelineElement> elements =
+        parser.parseSegmentTimeline(xpp, /* timescale= */ 48000, /* periodDurationMs= */ 10000);
+
+    assertThat(elements).isInstanceOf(CompactSegmentTimeline.class);
+    assertThat(elements)
+        .containsExactly(
+            new SegmentTimelineElement(/* startTime= */ 0, /* duration= */ 96000),
+            new SegmentTimelineElement(/* startTime= */ 96000, /* duration= */ 96000),
+            new SegmentTimelineElement(/* startTime= */ 192000, /* duration= */ 48000),
+            new SegmentTimelineElement(/* startTime= */ 240000, /* duration= */ 48000),
+            new SegmentTimelineElement(/* startTime= */ 288000, /* duration= */ 48000),
+            new SegmentTimelineElement(/* startTime= */ 336000, /* duration= */ 48000),
+            new SegmentTimelineElement(/* startTime= */ 384000, /* duration= */ 48000),
+            new SegmentTimelineElement(/* startTime= */ 432000, /* duration= */ 48000))
+        .inOrder();
+    assertNextTag(xpp);
+  }
+
+  @Test
+  public void parseMediaPresentationDescription_withCompactSegmentTimelines_matchesDefault()
+      throws IOException {
+    Uri uri = Uri.parse("https://example.com/test.mpd");
+    DashManifest expectedManifest =
+        new DashManifestParser()
+            .parse(
+                uri,
+                TestUtil.getInputStream(
+                    ApplicationProvider.getApplicationContext(), SAMPLE_MPD_SEGMENT_TEMPLATE));
+    DashManifest manifest =
+        new DashManifestParser(/* useCompactSegmentTimelines= */ true)
+            .parse(
+                uri,
+                TestUtil.getInputStream(
+                    ApplicationProvider.getApplicationContext(), SAMPLE_MPD_SEGMENT_TEMPLATE));
+
+    List<AdaptationSet> expectedAdaptationSets = expectedManifest.getPeriod(0).adaptationSets;
+    List<AdaptationSet> adaptationSets = manifest.getPeriod(0).adaptationSets;
+    assertThat(adaptationSets).hasSize(expectedAdaptationSets.size());
+    for (int i = 0; i < adaptationSets.size(); i++) {
+      List<Representation> expectedRepresentations =
+          expectedAdaptationSets.get(i).representations;
+      List<Representation> representations = adaptationSets.get(i).representations;
+      assertThat(representations).hasSize(expectedRepresentations.size());
+      for (int j = 0; j < representations.size(); j++) {
+        DashSegmentIndex expectedIndex = checkNotNull(expectedRepresentations.get(j).getIndex());
+        DashSegmentIndex index = checkNotNull(representations.get(j).getIndex());
+        long periodDurationUs = C.TIME_UNSET;
+        long segmentCount = expectedIndex.getSegmentCount(periodDurationUs);
+        assertThat(index.getSegmentCount(periodDurationUs)).isEqualTo(segmentCount);
+        long firstSegmentNum = expectedIndex.getFirstSegmentNum();
+        for (long segmentNum = firstSegmentNum;
+            segmentNum < firstSegmentNum + segmentCount;
+            segmentNum++) {
+          assertThat(index.getTimeUs(segmentNum)).isEqualTo(expectedIndex.getTimeUs(segmentNum));
+          assertThat(index.getDurationUs(segmentNum, periodDurationUs))
+              .isEqualTo(expectedIndex.getDurationUs(segmentNum, periodDurationUs));
+          assertThat(index.getSegmentUrl(segmentNum))
+              .isEqualTo(expectedIndex.getSegmentUrl(segmentNum));
+        }
+      }
+    }
+  }
+
   @Test
   public void parseLabel() throws Exception {
     DashManifestParser parser = new DashManifestParser();
@@ -15,24 +15,32 @@
  */
 package androidx.media3.exoplayer.hls;
 
+import static java.lang.Math.min;
+
 import android.net.Uri;
+import androidx.annotation.GuardedBy;
 import androidx.annotation.Nullable;
 import androidx.media3.common.C;
 import androidx.media3.common.util.Assertions;
+import androidx.media3.common.util.ConditionVariable;
+import androidx.media3.common.util.Util;
 import androidx.media3.datasource.DataSource;
-import androidx.media3.datasource.DataSourceInputStream;
 import androidx.media3.datasource.DataSpec;
 import androidx.media3.datasource.TransferListener;
 import java.io.IOException;
+import java.io.InterruptedIOException;
+import java.security.GeneralSecurityException;
 import java.security.InvalidAlgorithmParameterException;
 import java.security.InvalidKeyException;
 import java.security.Key;
 import java.security.NoSuchAlgorithmException;
 import java.security.spec.AlgorithmParameterSpec;
+import java.util.ArrayDeque;
 import java.util.List;
 import java.util.Map;
+import java.util.concurrent.Executor;
+import java.util.concurrent.RejectedExecutionException;
 import javax.crypto.Cipher;
-import javax.crypto.CipherInputStream;
 import javax.crypto.NoSuchPaddingException;
 import javax.crypto.spec.IvParameterSpec;
 import javax.crypto.spec.SecretKeySpec;
@@ -41,17 +49,44 @@ import javax.crypto.spec.SecretKeySpec;
  * A {@link DataSource} that decrypts data read from an upstream source, encrypted with AES-128 with
  * a 128-bit key and PKCS7 padding.
  *
+ * <p>Encrypted data is read from the upstream source in large chunks and passed to {@link
+ * Cipher#update(byte[], int, int, byte[], int)} directly. Where the caller's buffer is large enough
+ * to hold the decrypted output it's decrypted straight into that buffer, so that no intermediate
+ * copy is made.
+ *
+ * <p>If a decrypt-ahead {@link Executor} is provided, upstream reads and decryption are performed
+ * on that executor instead, so that the next chunk is fetched and decrypted while the caller
+ * consumes the previous one. At most {@link #DECRYPT_AHEAD_CHUNK_COUNT} decrypted chunks are
+ * buffered at any time. When the source is closed, upstream is closed on the closing thread while
+ * the executor may still be reading from it, so that a blocked read doesn't delay the close.
+ *
  * <p>Note that this {@link DataSource} does not support being opened from arbitrary offsets. It is
  * designed specifically for reading whole files as defined in an HLS media playlist. For this
  * reason the implementation is private to the HLS package.
  */
 /* package */ class Aes128DataSource implements DataSource {
 
+  /** The maximum number of bytes of encrypted data read from upstream at a time. */
+  /* package */ static final int CHUNK_SIZE = 64 * 1024;
+
+  /** The maximum number of decrypted chunks buffered ahead of the caller. */
+  /* package */ static final int DECRYPT_AHEAD_CHUNK_COUNT = 4;
+
+  private static final int BLOCK_SIZE = 16;
+
   private final DataSource upstream;
   private final byte[] encryptionKey;
   private final byte[] encryptionIv;
+  @Nullable private final Executor decryptAheadExecutor;
 
-  @Nullable private CipherInputStream cipherInputStream;
+  @Nullable private Cipher cipher;
+  @Nullable private byte[] encryptedBuffer;
+  @Nullable private byte[] decryptedBuffer;
+  private int decryptedPosition;
+  private int decryptedLimit;
+  private boolean inputEnded;
+
+  @Nullable private DecryptAheadLoader decryptAheadLoader;
 
   /**
    * @param upstream The upstream {@link DataSource}.
@@ -59,9 +94,26 @@ import javax.crypto.spec.SecretKeySpec;
    * @param encryptionIv The encryption initialization vector.
    */
   public Aes128DataSource(DataSource upstream, byte[] encryptionKey, byte[] encryptionIv) {
+    this(upstream, encryptionKey, encryptionIv, /* decryptAheadExecutor= */ null);
+  }
+
+  /**
+   * @param upstream The upstream {@link DataSource}.
+   * @param encryptionKey The encryption key.
+   * @param encryptionIv The encryption initialization vector.
+   * @param decryptAheadExecutor An {@link Executor} on which upstream data is read and decrypted
+   *     ahead of the caller, or null to read and decrypt on the calling thread. The executor must
+   *     not run more than one task at a time for the same upstream {@link DataSource}.
+   */
+  public Aes128DataSource(
+      DataSource upstream,
+      byte[] encryptionKey,
+      byte[] encryptionIv,
+      @Nullable Executor decryptAheadExecutor) {
     this.upstream = upstream;
     this.encryptionKey = encryptionKey;
     this.encryptionIv = encryptionIv;
+    this.decryptAheadExecutor = decryptAheadExecutor;
   }
 
   @Override
@@ -88,21 +140,58 @@ import javax.crypto.spec.SecretKeySpec;
       throw new RuntimeException(e);
     }
 
-    DataSourceInputStream inputStream = new DataSourceInputStream(upstream, dataSpec);
-    cipherInputStream = new CipherInputStream(inputStream, cipher);
-    inputStream.open();
+    // Set before opening upstream, so that close() closes upstream even if opening it fails.
+    this.cipher = cipher;
+    decryptedPosition = 0;
+    decryptedLimit = 0;
+    inputEnded = false;
+    if (encryptedBuffer == null) {
+      encryptedBuffer = new byte[CHUNK_SIZE];
+    }
+    upstream.open(dataSpec);
 
+    if (decryptAheadExecutor != null) {
+      DecryptAheadLoader decryptAheadLoader = new DecryptAheadLoader();
+      try {
+        decryptAheadExecutor.execute(decryptAheadLoader);
+        this.decryptAheadLoader = decryptAheadLoader;
+      } catch (RejectedExecutionException e) {
+        // The executor has been shut down. Fall back to decrypting on the calling thread.
+      }
+    }
     return C.LENGTH_UNSET;
   }
 
   @Override
   public final int read(byte[] buffer, int offset, int length) throws IOException {
-    Assertions.checkNotNull(cipherInputStream);
-    int bytesRead = cipherInputStream.read(buffer, offset, length);
-    if (bytesRead < 0) {
+    Assertions.checkNotNull(cipher);
+    if (length == 0) {
+      return 0;
+    }
+    if (decryptAheadLoader != null) {
+      return decryptAheadLoader.read(buffer, offset, length);
+    }
+    if (decryptedPosition < decryptedLimit) {
+      return readDecryptedBuffer(buffer, offset, length);
+    }
+    if (inputEnded) {
+      return C.RESULT_END_OF_INPUT;
+    }
+    int maxInputLength = min(CHUNK_SIZE, length - BLOCK_SIZE);
+    if (maxInputLength >= BLOCK_SIZE && cipher.getOutputSize(maxInputLength) <= length) {
+      // The decrypted output is guaranteed to fit, so decrypt directly into the caller's buffer.
+      return decryptNextChunk(buffer, offset, maxInputLength);
+    }
+    if (decryptedBuffer == null) {
+      decryptedBuffer = new byte[CHUNK_SIZE + BLOCK_SIZE];
+    }
+    int bytesDecrypted = decryptNextChunk(decryptedBuffer, /* offset= */ 0, CHUNK_SIZE);
+    if (bytesDecrypted == C.RESULT_END_OF_INPUT) {
       return C.RESULT_END_OF_INPUT;
     }
-    return bytesRead;
+    decryptedPosition = 0;
+    decryptedLimit = bytesDecrypted;
+    return readDecryptedBuffer(buffer, offset, length);
   }
 
   @Override
@@ -118,13 +207,228 @@ import javax.crypto.spec.SecretKeySpec;
 
   @Override
   public void close() throws IOException {
-    if (cipherInputStream != null) {
-      cipherInputStream = null;
-      upstream.close();
+    if (cipher != null) {
+      @Nullable DecryptAheadLoader decryptAheadLoader = this.decryptAheadLoader;
+      if (decryptAheadLoader != null) {
+        decryptAheadLoader.cancel();
+      }
+      try {
+        // The loader may be blocked reading from upstream, so upstream is closed before waiting for
+        // the loader to finish. Closing it unblocks the read.
+        upstream.close();
+      } finally {
+        if (decryptAheadLoader != null) {
+          decryptAheadLoader.awaitFinished();
+          this.decryptAheadLoader = null;
+        }
+        cipher = null;
+        decryptedPosition = 0;
+        decryptedLimit = 0;
+      }
     }
   }
 
   protected Cipher getCipherInstance() throws NoSuchPaddingException, NoSuchAlgorithmException {
     return Cipher.getInstance("AES/CBC/PKCS7Padding");
   }
+
+  private int readDecryptedBuffer(byte[] buffer, int offset, int length) {
+    int bytesToRead = min(length, decryptedLimit - decryptedPosition);
+    System.arraycopy(
+        Assertions.checkNotNull(decryptedBuffer), decryptedPosition, buffer, offset, bytesToRead);
+    decryptedPosition += bytesToRead;
+    return bytesToRead;
+  }
+
+  /**
+   * Reads encrypted data from upstream and decrypts it into {@code output}, until at least one
+   * decrypted byte is available or the end of the input is reached.
+   *
+   * <p>{@code output} must have space for at least {@code Cipher.getOutputSize(maxInputLength)}
+   * bytes from {@code offset}.
+   *
+   * @return The number of decrypted bytes written to {@code output}, or {@link
+   *     C#RESULT_END_OF_INPUT} if the end of the input has been reached.
+   */
+  private int decryptNextChunk(byte[] output, int offset, int maxInputLength) throws IOException {
+    Cipher cipher = Assertions.checkNotNull(this.cipher);
+    byte[] encryptedBuffer = Assertions.checkNotNull(this.encryptedBuffer);
+    try {
+      while (true) {
+        int bytesRead = upstream.read(encryptedBuffer, /* offset= */ 0, maxInputLength);
+        if (bytesRead == C.RESULT_END_OF_INPUT) {
+          inputEnded = true;
+          int bytesDecrypted = cipher.doFinal(output, offset);
+          return bytesDecrypted > 0 ? bytesDecrypted : C.RESULT_END_OF_INPUT;
+        }
+        int bytesDecrypted =
+            cipher.update(encryptedBuffer, /* inputOffset= */ 0, bytesRead, output, offset);
+        if (bytesDecrypted > 0) {
+          return bytesDecrypted;
+        }
+        // Less than a full block has been read, or the cipher is holding back the final block
+        // until the end of the input is known. Keep reading.
+      }
+    } catch (GeneralSecurityException e) {
+      throw new IOException(e);
+    }
+  }
+
+  /** Reads and decrypts upstream data on the decrypt-ahead executor. */
+  private final class DecryptAheadLoader implements Runnable {
+
+    private final Object lock;
+    private final ConditionVariable finished;
+
+    @GuardedBy("lock")
+    private final ArrayDeque<byte[]> freeBuffers;
+
+    @GuardedBy("lock")
+    private final ArrayDeque<DecryptedChunk> decryptedChunks;
+
+    @GuardedBy("lock")
+    private boolean canceled;
+
+    @Nullable private DecryptedChunk currentChunk;
+    private int currentChunkPosition;
+
+    public DecryptAheadLoader() {
+      lock = new Object();
+      finished = new ConditionVariable();
+      freeBuffers = new ArrayDeque<>(DECRYPT_AHEAD_CHUNK_COUNT);
+      decryptedChunks = new ArrayDeque<>(DECRYPT_AHEAD_CHUNK_COUNT);
+      for (int i = 0; i < DECRYPT_AHEAD_CHUNK_COUNT; i++) {
+        freeBuffers.add(new byte[CHUNK_SIZE + BLOCK_SIZE]);
+      }
+    }
+
+    /** Called on the caller's thread. */
+    public int read(byte[] buffer, int offset, int length) throws IOException {
+      DecryptedChunk currentChunk = this.currentChunk;
+      // Terminal chunks have a length of C.RESULT_END_OF_INPUT, so they're never replaced.
+      if (currentChunk == null || currentChunkPosition == currentChunk.length) {
+        currentChunk = takeNextChunk(currentChunk);
+        this.currentChunk = currentChunk;
+        currentChunkPosition = 0;
+      }
+      if (currentChunk.error != null) {
+        throw currentChunk.error;
+      }
+      if (currentChunk.length == C.RESULT_END_OF_INPUT) {
+        return C.RESULT_END_OF_INPUT;
+      }
+      int bytesToRead = min(length, currentChunk.length - currentChunkPosition);
+      System.arraycopy(currentChunk.data, currentChunkPosition, buffer, offset, bytesToRead);
+      currentChunkPosition += bytesToRead;
+      return bytesToRead;
+    }
+
+    /** Called on the caller's thread. */
+    public void cancel() {
+      synchronized (lock) {
+        canceled = true;
+        lock.notifyAll();
+      }
+    }
+
+    /** Called on the caller's thread, after {@link #cancel()}. */
+    public void awaitFinished() {
+      finished.blockUninterruptible();
+    }
+
+    @Override
+    public void run() {
+      try {
+        while (true) {
+          byte[] output;
+          synchronized (lock) {
+            while (!canceled && freeBuffers.isEmpty()) {
+              lock.wait();
+            }
+            if (canceled) {
+              return;
+            }
+            output = freeBuffers.remove();
+          }
+          DecryptedChunk chunk;
+          try {
+            int bytesDecrypted = decryptNextChunk(output, /* offset= */ 0, CHUNK_SIZE);
+            chunk = new DecryptedChunk(output, bytesDecrypted);
+          } catch (IOException e) {
+            chunk = new DecryptedChunk(output, e);
+          } catch (RuntimeException e) {
+            synchronized (lock) {
+              if (canceled) {
+                // Upstream was closed while it was being read. The result is discarded anyway.
+                return;
+              }
+            }
+            // Hand the failure to the reader, which would otherwise wait for a chunk forever.
+            chunk = new DecryptedChunk(output, new IOException(e));
+          }
+          boolean isTerminal = chunk.error != null || chunk.length == C.RESULT_END_OF_INPUT;
+          synchronized (lock) {
+            decryptedChunks.add(chunk);
+            if (!isTerminal && inputEnded) {
+              // The final decrypted bytes have been produced, so follow them with the end marker.
+              decryptedChunks.add(
+                  new DecryptedChunk(Util.EMPTY_BYTE_ARRAY, C.RESULT_END_OF_INPUT));
+              isTerminal = true;
+            }
+            lock.notifyAll();
+          }
+          if (isTerminal) {
+            return;
+          }
+        }
+      } catch (InterruptedException e) {
+        Thread.currentThread().interrupt();
+        synchronized (lock) {
+          decryptedChunks.add(
+              new DecryptedChunk(Util.EMPTY_BYTE_ARRAY, new InterruptedIOException()));
+          lock.notifyAll();
+        }
+      } finally {
+        finished.open();
+      }
+    }
+
+    private DecryptedChunk takeNextChunk(@Nullable DecryptedChunk consumedChunk)
+        throws InterruptedIOException {
+      synchronized (lock) {
+        if (consumedChunk != null) {
+          freeBuffers.add(consumedChunk.data);
+          lock.notifyAll();
+        }
+        while (decryptedChunks.isEmpty()) {
+          try {
+            lock.wait();
+          } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new InterruptedIOException();
+          }
+        }
+        return decryptedChunks.remove();
+      }
+    }
+  }
+
+  private static final class DecryptedChunk {
+
+    public final byte[] data;
+    public final int length;
+    @Nullable public final IOException error;
+
+    public DecryptedChunk(byte[] data, int length) {
+      this.data = data;
+      this.length = length;
+      this.error = null;
+    }
+
+    public DecryptedChunk(byte[] data, IOException error) {
+      this.data = data;
+      this.length = C.RESULT_END_OF_INPUT;
+      this.error = error;
+    }
+  }
 }
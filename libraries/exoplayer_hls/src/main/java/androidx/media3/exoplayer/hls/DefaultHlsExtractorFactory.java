@@ -22,6 +22,7 @@ import android.annotation.SuppressLint;
 import android.net.Uri;
 import android.text.TextUtils;
 import androidx.annotation.Nullable;
+import androidx.media3.common.C;
 import androidx.media3.common.FileTypes;
 import androidx.media3.common.Format;
 import androidx.media3.common.Metadata;
@@ -294,7 +295,20 @@ public final class DefaultHlsExtractorFactory implements HlsExtractorFactory {
         payloadReaderFactoryFlags |= DefaultTsPayloadReaderFactory.FLAG_IGNORE_H264_STREAM;
       }
     }
+    if ((format.roleFlags & C.ROLE_FLAG_TRICK_PLAY) != 0) {
+      // Only the video keyframes of trick play variants are played, so there's no need to parse
+      // any other stream or to output the remaining video samples. I-frames of trick play variants
+      // are often non-IDR I-frames, which must be treated as keyframes so they aren't dropped.
+      payloadReaderFactoryFlags |=
+          DefaultTsPayloadReaderFactory.FLAG_IGNORE_NON_VIDEO_STREAMS
+              | DefaultTsPayloadReaderFactory.FLAG_KEYFRAMES_ONLY
+              | DefaultTsPayloadReaderFactory.FLAG_ALLOW_NON_IDR_KEYFRAMES;
+    }
     @TsExtractor.Flags int extractorFlags = 0;
+    if ((payloadReaderFactoryFlags & DefaultTsPayloadReaderFactory.FLAG_IGNORE_NON_VIDEO_STREAMS)
+        != 0) {
+      extractorFlags |= TsExtractor.FLAG_ENABLE_FAST_PID_FILTERING;
+    }
     if (!parseSubtitlesDuringExtraction) {
       subtitleParserFactory = SubtitleParser.Factory.UNSUPPORTED;
       extractorFlags |= TsExtractor.FLAG_EMIT_RAW_SUBTITLE_DATA;
@@ -28,6 +28,7 @@ import androidx.annotation.VisibleForTesting;
 import androidx.media3.common.C;
 import androidx.media3.common.Format;
 import androidx.media3.common.MimeTypes;
+import androidx.media3.common.ParserException;
 import androidx.media3.common.TrackGroup;
 import androidx.media3.common.util.TimestampAdjuster;
 import androidx.media3.common.util.UriUtil;
@@ -59,10 +60,12 @@ import java.lang.annotation.Documented;
 import java.lang.annotation.Retention;
 import java.lang.annotation.RetentionPolicy;
 import java.lang.annotation.Target;
+import java.security.GeneralSecurityException;
 import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.Collections;
 import java.util.List;
+import java.util.concurrent.ExecutorService;
 import org.checkerframework.checker.nullness.qual.MonotonicNonNull;
 
 /** Source of Hls (possibly adaptive) chunks. */
@@ -127,6 +130,9 @@ import org.checkerframework.checker.nullness.qual.MonotonicNonNull;
 
   private final HlsExtractorFactory extractorFactory;
   private final DataSource mediaDataSource;
+  private final DataSource mediaChunkDataSource;
+  @Nullable private final HlsSegmentPrefetcher segmentPrefetcher;
+  @Nullable private final ExecutorService decryptAheadExecutor;
   private final DataSource encryptionDataSource;
   private final TimestampAdjusterProvider timestampAdjusterProvider;
   private final Uri[] playlistUrls;
@@ -135,6 +141,7 @@ import org.checkerframework.checker.nullness.qual.MonotonicNonNull;
   private final TrackGroup trackGroup;
   @Nullable private final List<Format> muxedCaptionFormats;
   private final FullSegmentEncryptionKeyCache keyCache;
+  @Nullable private final HlsKeyCache sharedKeyCache;
   private final PlayerId playerId;
   @Nullable private final CmcdConfiguration cmcdConfiguration;
   private final long timestampAdjusterInitializationTimeoutMs;
@@ -151,6 +158,11 @@ import org.checkerframework.checker.nullness.qual.MonotonicNonNull;
   private ExoTrackSelection trackSelection;
   private long liveEdgeInPeriodTimeUs;
   private boolean seenExpectedPlaylistError;
+  @Nullable private HlsMediaChunk lastMediaChunk;
+  @Nullable private Uri lastMediaChunkInitSegmentKeyUri;
+  @Nullable private Uri lastMediaChunkMediaSegmentKeyUri;
+  private long keyReloadChunkIndex;
+  private int keyReloadPartIndex;
 
   /**
    * The time at which the last {@link #getNextChunk(LoadingInfo, long, List, boolean,
@@ -179,6 +191,12 @@ import org.checkerframework.checker.nullness.qual.MonotonicNonNull;
    *     information is available in the multivariant playlist.
    * @param playerId The {@link PlayerId} of the player using this chunk source.
    * @param cmcdConfiguration The {@link CmcdConfiguration} for this chunk source.
+   * @param prefetchSegmentCount The number of upcoming media segments, and their encryption keys,
+   *     to load in parallel ahead of the chunk being loaded, or zero to disable prefetching.
+   * @param decryptAheadEnabled Whether fully encrypted segments are read and decrypted on a
+   *     background thread, ahead of the loading thread consuming the decrypted data.
+   * @param sharedKeyCache An {@link HlsKeyCache} shared with other chunk sources, from which
+   *     encryption keys are obtained before they're requested, or null if keys aren't shared.
    */
   public HlsChunkSource(
       HlsExtractorFactory extractorFactory,
@@ -191,7 +209,10 @@ import org.checkerframework.checker.nullness.qual.MonotonicNonNull;
       long timestampAdjusterInitializationTimeoutMs,
       @Nullable List<Format> muxedCaptionFormats,
       PlayerId playerId,
-      @Nullable CmcdConfiguration cmcdConfiguration) {
+      @Nullable CmcdConfiguration cmcdConfiguration,
+      int prefetchSegmentCount,
+      boolean decryptAheadEnabled,
+      @Nullable HlsKeyCache sharedKeyCache) {
     this.extractorFactory = extractorFactory;
     this.playlistTracker = playlistTracker;
     this.playlistUrls = playlistUrls;
@@ -203,13 +224,25 @@ import org.checkerframework.checker.nullness.qual.MonotonicNonNull;
     this.cmcdConfiguration = cmcdConfiguration;
     this.lastChunkRequestRealtimeMs = C.TIME_UNSET;
     keyCache = new FullSegmentEncryptionKeyCache(KEY_CACHE_SIZE);
+    this.sharedKeyCache = sharedKeyCache;
     scratchSpace = Util.EMPTY_BYTE_ARRAY;
     liveEdgeInPeriodTimeUs = C.TIME_UNSET;
+    keyReloadChunkIndex = C.INDEX_UNSET;
     mediaDataSource = dataSourceFactory.createDataSource(C.DATA_TYPE_MEDIA);
     if (mediaTransferListener != null) {
       mediaDataSource.addTransferListener(mediaTransferListener);
     }
     encryptionDataSource = dataSourceFactory.createDataSource(C.DATA_TYPE_DRM);
+    if (prefetchSegmentCount > 0 && !(mediaDataSource instanceof HlsDecryptingDataSource)) {
+      segmentPrefetcher =
+          new HlsSegmentPrefetcher(dataSourceFactory, mediaTransferListener, prefetchSegmentCount);
+      mediaChunkDataSource = segmentPrefetcher.createDataSource(mediaDataSource);
+    } else {
+      segmentPrefetcher = null;
+      mediaChunkDataSource = mediaDataSource;
+    }
+    decryptAheadExecutor =
+        decryptAheadEnabled ? Util.newSingleThreadExecutor("ExoPlayer:HlsDecryptAhead") : null;
     trackGroup = new TrackGroup(playlistFormats);
     // Use only non-trickplay variants for preparation. See [Internal ref: b/161529098].
     ArrayList<Integer> initialTrackSelection = new ArrayList<>();
@@ -267,6 +300,20 @@ import org.checkerframework.checker.nullness.qual.MonotonicNonNull;
   public void reset() {
     deactivatePlaylistForSelectedTrack();
     fatalError = null;
+    if (segmentPrefetcher != null) {
+      segmentPrefetcher.cancelAll();
+    }
+  }
+
+  /** Releases the source. */
+  public void release() {
+    if (segmentPrefetcher != null) {
+      segmentPrefetcher.release();
+    }
+    if (decryptAheadExecutor != null) {
+      // Already submitted tasks still run, so that open decrypting sources can be closed.
+      decryptAheadExecutor.shutdown();
+    }
   }
 
   /**
@@ -588,10 +635,14 @@ import org.checkerframework.checker.nullness.qual.MonotonicNonNull;
       return;
     }
 
+    if (segmentPrefetcher != null) {
+      prefetchUpcomingSegments(segmentPrefetcher, playlist, segmentBaseHolder);
+    }
+
     out.chunk =
         HlsMediaChunk.createInstance(
             extractorFactory,
-            mediaDataSource,
+            mediaChunkDataSource,
             playlistFormats[selectedTrackIndex],
             startOfPlaylistInPeriodUs,
             playlist,
@@ -609,7 +660,11 @@ import org.checkerframework.checker.nullness.qual.MonotonicNonNull;
             /* initSegmentKey= */ keyCache.get(initSegmentKeyUri),
             shouldSpliceIn,
             playerId,
-            cmcdDataFactory);
+            cmcdDataFactory,
+            decryptAheadExecutor);
+    lastMediaChunk = (HlsMediaChunk) out.chunk;
+    lastMediaChunkInitSegmentKeyUri = initSegmentKeyUri;
+    lastMediaChunkMediaSegmentKeyUri = mediaSegmentKeyUri;
   }
 
   private boolean getIsMuxedAudioAndVideo() {
@@ -664,10 +719,56 @@ import org.checkerframework.checker.nullness.qual.MonotonicNonNull;
     if (chunk instanceof EncryptionKeyChunk) {
       EncryptionKeyChunk encryptionKeyChunk = (EncryptionKeyChunk) chunk;
       scratchSpace = encryptionKeyChunk.getDataHolder();
-      keyCache.put(encryptionKeyChunk.dataSpec.uri, checkNotNull(encryptionKeyChunk.getResult()));
+      byte[] encryptionKey = checkNotNull(encryptionKeyChunk.getResult());
+      keyCache.put(encryptionKeyChunk.dataSpec.uri, encryptionKey);
+      if (sharedKeyCache != null) {
+        sharedKeyCache.put(
+            encryptionKeyChunk.dataSpec.uri,
+            encryptionKey,
+            sharedKeyCache.getTtlMs(encryptionKeyChunk.getResponseHeaders()));
+      }
     }
   }
 
+  /**
+   * Called when the {@link HlsSampleStreamWrapper} encounters an error loading a chunk obtained
+   * from this source.
+   *
+   * <p>If an encrypted media chunk failed to decrypt or to parse, which happens if the key served
+   * from a key URI is rotated, the keys used for it are removed from the key caches. Retrying the
+   * chunk can't succeed, since it keeps decrypting with the keys it was created with. The chunk
+   * should instead be discarded, so that the next chunk for the same segment requests the keys
+   * again. Keys are removed at most once for each segment, so that a segment that fails for other
+   * reasons isn't reloaded indefinitely.
+   *
+   * @param chunk The chunk whose load encountered the error.
+   * @param error The load error.
+   * @return Whether the chunk should be discarded and loaded again with new keys.
+   */
+  public boolean onChunkLoadError(Chunk chunk, IOException error) {
+    if (chunk != lastMediaChunk) {
+      return false;
+    }
+    boolean isEncrypted =
+        lastMediaChunkInitSegmentKeyUri != null || lastMediaChunkMediaSegmentKeyUri != null;
+    // Decrypting with the wrong key usually fails with a padding error, but it may also produce
+    // garbage that the extractor fails to parse.
+    if (!isDecryptionError(error) && !(isEncrypted && error instanceof ParserException)) {
+      return false;
+    }
+    HlsMediaChunk mediaChunk = lastMediaChunk;
+    if (mediaChunk.chunkIndex == keyReloadChunkIndex
+        && mediaChunk.partIndex == keyReloadPartIndex) {
+      // The segment already failed with keys that were requested again.
+      return false;
+    }
+    keyReloadChunkIndex = mediaChunk.chunkIndex;
+    keyReloadPartIndex = mediaChunk.partIndex;
+    removeKey(lastMediaChunkInitSegmentKeyUri);
+    removeKey(lastMediaChunkMediaSegmentKeyUri);
+    return true;
+  }
+
   /**
    * Attempts to exclude the track associated with the given chunk. Exclusion will fail if the track
    * is the only non-excluded track in the selection.
@@ -940,6 +1041,25 @@ import org.checkerframework.checker.nullness.qual.MonotonicNonNull;
       keyCache.put(keyUri, encryptionKey);
       return null;
     }
+    if (sharedKeyCache != null) {
+      encryptionKey = sharedKeyCache.get(keyUri);
+      if (encryptionKey != null) {
+        keyCache.put(keyUri, encryptionKey);
+        return null;
+      }
+    }
+    if (segmentPrefetcher != null) {
+      @Nullable
+      HlsSegmentPrefetcher.PrefetchedKey prefetchedKey = segmentPrefetcher.pollKey(keyUri);
+      if (prefetchedKey != null) {
+        keyCache.put(keyUri, prefetchedKey.key);
+        if (sharedKeyCache != null) {
+          sharedKeyCache.put(
+              keyUri, prefetchedKey.key, sharedKeyCache.getTtlMs(prefetchedKey.responseHeaders));
+        }
+        return null;
+      }
+    }
 
     DataSpec dataSpec =
         new DataSpec.Builder().setUri(keyUri).setFlags(DataSpec.FLAG_ALLOW_GZIP).build();
@@ -960,6 +1080,78 @@ import org.checkerframework.checker.nullness.qual.MonotonicNonNull;
         scratchSpace);
   }
 
+  private void prefetchUpcomingSegments(
+      HlsSegmentPrefetcher segmentPrefetcher,
+      HlsMediaPlaylist playlist,
+      SegmentBaseHolder segmentBaseHolder) {
+    List<DataSpec> upcomingDataSpecs = new ArrayList<>();
+    List<Uri> upcomingKeyUris = new ArrayList<>();
+    // The segment about to be loaded may itself have been prefetched.
+    upcomingDataSpecs.add(createPrefetchDataSpec(playlist, segmentBaseHolder.segmentBase));
+    SegmentBaseHolder holder = segmentBaseHolder;
+    while (upcomingDataSpecs.size() <= segmentPrefetcher.getMaxSegmentCount()) {
+      long nextMediaSequence =
+          holder.partIndex == C.INDEX_UNSET ? holder.mediaSequence + 1 : holder.mediaSequence;
+      int nextPartIndex = holder.partIndex == C.INDEX_UNSET ? C.INDEX_UNSET : holder.partIndex + 1;
+      @Nullable
+      SegmentBaseHolder nextHolder =
+          getNextSegmentHolder(playlist, nextMediaSequence, nextPartIndex);
+      if (nextHolder == null || nextHolder.isPreload) {
+        break;
+      }
+      holder = nextHolder;
+      upcomingDataSpecs.add(createPrefetchDataSpec(playlist, holder.segmentBase));
+      @Nullable Uri keyUri = getFullEncryptionKeyUri(playlist, holder.segmentBase);
+      if (keyUri != null
+          && !keyCache.containsUri(keyUri)
+          && (sharedKeyCache == null || sharedKeyCache.get(keyUri) == null)) {
+        upcomingKeyUris.add(keyUri);
+      }
+    }
+    // Keys that are no longer needed, for example because they were loaded by a key chunk, are
+    // discarded so that the pending keys stay bounded like the pending segments.
+    segmentPrefetcher.retainSegments(upcomingDataSpecs);
+    segmentPrefetcher.retainKeys(upcomingKeyUris);
+    for (int i = 0; i < upcomingKeyUris.size(); i++) {
+      segmentPrefetcher.prefetchKey(upcomingKeyUris.get(i));
+    }
+    for (int i = 1; i < upcomingDataSpecs.size(); i++) {
+      segmentPrefetcher.prefetchSegment(upcomingDataSpecs.get(i));
+    }
+  }
+
+  private void removeKey(@Nullable Uri keyUri) {
+    if (keyUri == null) {
+      return;
+    }
+    keyCache.remove(keyUri);
+    if (sharedKeyCache != null) {
+      sharedKeyCache.remove(keyUri);
+    }
+  }
+
+  private static boolean isDecryptionError(IOException error) {
+    @Nullable Throwable cause = error;
+    while (cause != null) {
+      if (cause instanceof GeneralSecurityException) {
+        return true;
+      }
+      cause = cause.getCause();
+    }
+    return false;
+  }
+
+  private static DataSpec createPrefetchDataSpec(
+      HlsMediaPlaylist playlist, HlsMediaPlaylist.SegmentBase segmentBase) {
+    // Must match the DataSpec of the media chunk created by HlsMediaChunk.createInstance, apart
+    // from the CMCD query parameter, which HlsSegmentPrefetcher ignores.
+    return new DataSpec.Builder()
+        .setUri(UriUtil.resolveToUri(playlist.baseUri, segmentBase.url))
+        .setPosition(segmentBase.byteRangeOffset)
+        .setLength(segmentBase.byteRangeLength)
+        .build();
+  }
+
   @Nullable
   private static Uri getFullEncryptionKeyUri(
       HlsMediaPlaylist playlist, @Nullable HlsMediaPlaylist.SegmentBase segmentBase) {
@@ -0,0 +1,196 @@
+/*
+ * Copyright 2026 The Android Open Source Project
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package androidx.media3.exoplayer.hls;
+
+import static androidx.media3.common.util.Assertions.checkArgument;
+import static androidx.media3.common.util.Assertions.checkNotNull;
+import static java.lang.Math.max;
+
+import android.net.Uri;
+import androidx.annotation.GuardedBy;
+import androidx.annotation.Nullable;
+import androidx.annotation.VisibleForTesting;
+import androidx.media3.common.util.Clock;
+import androidx.media3.common.util.UnstableApi;
+import com.google.common.base.Ascii;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * A thread-safe cache of full-segment AES-128 encryption keys, keyed by key URI, that can be
+ * shared by all {@link HlsMediaSource} instances in a process.
+ *
+ * <p>Without a shared cache, each chunk source holds a few recently used keys and every new
+ * player, channel change or variant switch to a different key URI requests the key again. Keys
+ * found in this cache are used without a request to the key server.
+ *
+ * <p>Keys expire after a time to live. If the key response carries a {@code Cache-Control} header,
+ * its {@code max-age} directive is used as time to live, and a {@code no-store} or {@code
+ * no-cache} directive prevents the key from being cached. Otherwise the default time to live is
+ * used. When the key for a URI is rotated without changing the URI, segments fail to decrypt and
+ * the key is removed, so that it's requested again.
+ *
+ * <p>Once the cache holds {@code maxSize} keys, the least recently used key is evicted.
+ */
+@UnstableApi
+public final class HlsKeyCache {
+
+  /** The default maximum number of keys held by the cache. */
+  public static final int DEFAULT_MAX_SIZE = 64;
+
+  /** The default time for which a key is held, in milliseconds. */
+  public static final long DEFAULT_TTL_MS = 10 * 60 * 1000;
+
+  private static final String HEADER_CACHE_CONTROL = "Cache-Control";
+  private static final String MAX_AGE_DIRECTIVE = "max-age=";
+
+  private final long defaultTtlMs;
+  private final Clock clock;
+
+  @GuardedBy("this")
+  private final LinkedHashMap<Uri, Entry> entries;
+
+  /**
+   * Creates an instance with a maximum size of {@link #DEFAULT_MAX_SIZE} and a default time to
+   * live of {@link #DEFAULT_TTL_MS}.
+   */
+  public HlsKeyCache() {
+    this(DEFAULT_MAX_SIZE, DEFAULT_TTL_MS);
+  }
+
+  /**
+   * Creates an instance.
+   *
+   * @param maxSize The maximum number of keys held by the cache.
+   * @param defaultTtlMs The time for which a key is held if its response doesn't specify one, in
+   *     milliseconds.
+   */
+  public HlsKeyCache(int maxSize, long defaultTtlMs) {
+    this(maxSize, defaultTtlMs, Clock.DEFAULT);
+  }
+
+  @VisibleForTesting
+  /* package */ HlsKeyCache(int maxSize, long defaultTtlMs, Clock clock) {
+    checkArgument(maxSize > 0);
+    checkArgument(defaultTtlMs >= 0);
+    this.defaultTtlMs = defaultTtlMs;
+    this.clock = clock;
+    entries =
+        new LinkedHashMap<Uri, Entry>(
+            /* initialCapacity= */ maxSize + 1, /* loadFactor= */ 1, /* accessOrder= */ true) {
+          @Override
+          protected boolean removeEldestEntry(Map.Entry<Uri, Entry> eldest) {
+            return size() > maxSize;
+          }
+        };
+  }
+
+  /**
+   * Returns the key cached for {@code uri}, or null if no key is cached or the cached key has
+   * expired. The returned array must not be modified.
+   */
+  @Nullable
+  public synchronized byte[] get(Uri uri) {
+    @Nullable Entry entry = entries.get(uri);
+    if (entry == null) {
+      return null;
+    }
+    if (clock.elapsedRealtime() >= entry.expiryRealtimeMs) {
+      entries.remove(uri);
+      return null;
+    }
+    return entry.key;
+  }
+
+  /**
+   * Caches {@code key} for {@code uri} with the default time to live.
+   *
+   * @param uri The key URI.
+   * @param key The key, which must not be modified after this call.
+   */
+  public void put(Uri uri, byte[] key) {
+    put(uri, key, defaultTtlMs);
+  }
+
+  /**
+   * Caches {@code key} for {@code uri}.
+   *
+   * @param uri The key URI.
+   * @param key The key, which must not be modified after this call.
+   * @param ttlMs The time for which the key is held, in milliseconds. If zero, the key isn't
+   *     cached and any key previously cached for {@code uri} is removed.
+   */
+  public synchronized void put(Uri uri, byte[] key, long ttlMs) {
+    checkArgument(ttlMs >= 0);
+    if (ttlMs == 0) {
+      entries.remove(uri);
+      return;
+    }
+    entries.put(
+        checkNotNull(uri), new Entry(checkNotNull(key), clock.elapsedRealtime() + ttlMs));
+  }
+
+  /** Removes the key cached for {@code uri}, if any. */
+  public synchronized void remove(Uri uri) {
+    entries.remove(uri);
+  }
+
+  /** Removes all keys from the cache. */
+  public synchronized void clear() {
+    entries.clear();
+  }
+
+  /**
+   * Returns the time to live for a key, in milliseconds, given the response headers of its
+   * request.
+   */
+  /* package */ long getTtlMs(Map<String, List<String>> responseHeaders) {
+    for (Map.Entry<String, List<String>> header : responseHeaders.entrySet()) {
+      @Nullable String name = header.getKey();
+      if (name == null || !Ascii.equalsIgnoreCase(name, HEADER_CACHE_CONTROL)) {
+        continue;
+      }
+      for (String value : header.getValue()) {
+        for (String directive : value.split(",")) {
+          directive = Ascii.toLowerCase(directive.trim());
+          if (directive.equals("no-store") || directive.equals("no-cache")) {
+            return 0;
+          } else if (directive.startsWith(MAX_AGE_DIRECTIVE)) {
+            try {
+              long maxAgeSeconds = Long.parseLong(directive.substring(MAX_AGE_DIRECTIVE.length()));
+              return max(0, maxAgeSeconds * 1000);
+            } catch (NumberFormatException e) {
+              // Ignore the malformed directive.
+            }
+          }
+        }
+      }
+    }
+    return defaultTtlMs;
+  }
+
+  private static final class Entry {
+
+    public final byte[] key;
+    public final long expiryRealtimeMs;
+
+    public Entry(byte[] key, long expiryRealtimeMs) {
+      this.key = key;
+      this.expiryRealtimeMs = expiryRealtimeMs;
+    }
+  }
+}
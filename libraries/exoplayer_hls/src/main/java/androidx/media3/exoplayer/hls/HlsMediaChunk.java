@@ -46,6 +46,7 @@ import java.io.IOException;
 import java.io.InterruptedIOException;
 import java.math.BigInteger;
 import java.util.List;
+import java.util.concurrent.Executor;
 import java.util.concurrent.TimeoutException;
 import java.util.concurrent.atomic.AtomicInteger;
 import org.checkerframework.checker.nullness.qual.EnsuresNonNull;
@@ -82,6 +83,8 @@ import org.checkerframework.checker.nullness.qual.RequiresNonNull;
    *     otherwise.
    * @param shouldSpliceIn Whether samples for this chunk should be spliced into existing samples.
    * @param cmcdDataFactory The {@link CmcdData.Factory} for generating {@link CmcdData}.
+   * @param decryptAheadExecutor The {@link Executor} on which fully encrypted segments are read and
+   *     decrypted ahead of the loading thread, or null to decrypt on the loading thread.
    */
   public static HlsMediaChunk createInstance(
       HlsExtractorFactory extractorFactory,
@@ -103,7 +106,8 @@ import org.checkerframework.checker.nullness.qual.RequiresNonNull;
       @Nullable byte[] initSegmentKey,
       boolean shouldSpliceIn,
       PlayerId playerId,
-      @Nullable CmcdData.Factory cmcdDataFactory) {
+      @Nullable CmcdData.Factory cmcdDataFactory,
+      @Nullable Executor decryptAheadExecutor) {
     // Media segment.
     HlsMediaPlaylist.SegmentBase mediaSegment = segmentBaseHolder.segmentBase;
     DataSpec dataSpec =
@@ -125,7 +129,9 @@ import org.checkerframework.checker.nullness.qual.RequiresNonNull;
         mediaSegmentEncrypted
             ? getEncryptionIvArray(Assertions.checkNotNull(mediaSegment.encryptionIV))
             : null;
-    DataSource mediaDataSource = buildDataSource(dataSource, mediaSegmentKey, mediaSegmentIv, keyUri);
+    DataSource mediaDataSource =
+        buildDataSource(
+            dataSource, mediaSegmentKey, mediaSegmentIv, keyUri, decryptAheadExecutor);
 
     // Init segment.
     HlsMediaPlaylist.Segment initSegment = mediaSegment.initializationSegment;
@@ -154,7 +160,8 @@ import org.checkerframework.checker.nullness.qual.RequiresNonNull;
         initDataSpec = cmcdData.addToDataSpec(initDataSpec);
       }
 
-      initDataSource = buildDataSource(dataSource, initSegmentKey, initSegmentIv, keyUri);
+      initDataSource =
+          buildDataSource(dataSource, initSegmentKey, initSegmentIv, keyUri, decryptAheadExecutor);
     }
 
     long segmentStartTimeInPeriodUs = startOfPlaylistInPeriodUs + mediaSegment.relativeStartTimeUs;
@@ -674,13 +681,15 @@ import org.checkerframework.checker.nullness.qual.RequiresNonNull;
   private static DataSource buildDataSource(
       DataSource dataSource,
       @Nullable byte[] fullSegmentEncryptionKey,
-      @Nullable byte[] encryptionIv, @Nullable Uri keyUri) {
+      @Nullable byte[] encryptionIv, @Nullable Uri keyUri,
+      @Nullable Executor decryptAheadExecutor) {
     if ((dataSource instanceof HlsDecryptingDataSource) && (keyUri != null)) {
       return ((HlsDecryptingDataSource) dataSource).getDecryptingDataSource(keyUri,
           encryptionIv);
     } else if (fullSegmentEncryptionKey != null) {
       Assertions.checkNotNull(encryptionIv);
-      return new Aes128DataSource(dataSource, fullSegmentEncryptionKey, encryptionIv);
+      return new Aes128DataSource(
+          dataSource, fullSegmentEncryptionKey, encryptionIv, decryptAheadExecutor);
     }
     return dataSource;
   }
@@ -90,6 +90,9 @@ import org.checkerframework.checker.nullness.qual.MonotonicNonNull;
   private final PlayerId playerId;
   private final HlsSampleStreamWrapper.Callback sampleStreamWrapperCallback;
   private final long timestampAdjusterInitializationTimeoutMs;
+  private final int prefetchSegmentCount;
+  private final boolean decryptAheadEnabled;
+  @Nullable private final HlsKeyCache sharedKeyCache;
 
   @Nullable private MediaPeriod.Callback mediaPeriodCallback;
   private int pendingPrepareCount;
@@ -127,6 +130,12 @@ import org.checkerframework.checker.nullness.qual.MonotonicNonNull;
    * @param timestampAdjusterInitializationTimeoutMs The timeout for the loading thread to wait for
    *     the timestamp adjuster to initialize, in milliseconds. A timeout of zero is interpreted as
    *     an infinite timeout.
+   * @param prefetchSegmentCount The number of upcoming media segments to load in parallel ahead of
+   *     the chunk being loaded, or zero to disable prefetching.
+   * @param decryptAheadEnabled Whether fully encrypted segments are decrypted ahead of the loading
+   *     thread on a background thread.
+   * @param sharedKeyCache An {@link HlsKeyCache} shared with other media periods, or null if
+   *     encryption keys aren't shared.
    */
   public HlsMediaPeriod(
       HlsExtractorFactory extractorFactory,
@@ -144,7 +153,10 @@ import org.checkerframework.checker.nullness.qual.MonotonicNonNull;
       @HlsMediaSource.MetadataType int metadataType,
       boolean useSessionKeys,
       PlayerId playerId,
-      long timestampAdjusterInitializationTimeoutMs) {
+      long timestampAdjusterInitializationTimeoutMs,
+      int prefetchSegmentCount,
+      boolean decryptAheadEnabled,
+      @Nullable HlsKeyCache sharedKeyCache) {
     this.extractorFactory = extractorFactory;
     this.playlistTracker = playlistTracker;
     this.dataSourceFactory = dataSourceFactory;
@@ -161,6 +173,9 @@ import org.checkerframework.checker.nullness.qual.MonotonicNonNull;
     this.useSessionKeys = useSessionKeys;
     this.playerId = playerId;
     this.timestampAdjusterInitializationTimeoutMs = timestampAdjusterInitializationTimeoutMs;
+    this.prefetchSegmentCount = prefetchSegmentCount;
+    this.decryptAheadEnabled = decryptAheadEnabled;
+    this.sharedKeyCache = sharedKeyCache;
     sampleStreamWrapperCallback = new SampleStreamWrapperCallback();
     compositeSequenceableLoader = compositeSequenceableLoaderFactory.empty();
     streamWrapperIndices = new IdentityHashMap<>();
@@ -818,7 +833,10 @@ import org.checkerframework.checker.nullness.qual.MonotonicNonNull;
             timestampAdjusterInitializationTimeoutMs,
             muxedCaptionFormats,
             playerId,
-            cmcdConfiguration);
+            cmcdConfiguration,
+            prefetchSegmentCount,
+            decryptAheadEnabled,
+            sharedKeyCache);
     return new HlsSampleStreamWrapper(
         uid,
         trackType,
@@ -15,6 +15,7 @@
  */
 package androidx.media3.exoplayer.hls;
 
+import static androidx.media3.common.util.Assertions.checkArgument;
 import static androidx.media3.common.util.Assertions.checkNotNull;
 import static java.lang.Math.max;
 import static java.lang.Math.min;
@@ -125,6 +126,9 @@ public final class HlsMediaSource extends BaseMediaSource
     private long elapsedRealTimeOffsetMs;
     private long defaultStartOffsetUs;
     private long timestampAdjusterInitializationTimeoutMs;
+    private int prefetchSegmentCount;
+    private boolean decryptAheadEnabled;
+    @Nullable private HlsKeyCache keyCache;
 
     /**
      * Creates a new factory for {@link HlsMediaSource}s.
@@ -391,6 +395,70 @@ public final class HlsMediaSource extends BaseMediaSource
       return this;
     }
 
+    /**
+     * Sets the number of upcoming media segments that are loaded in parallel, ahead of the segment
+     * being loaded. The default value is zero, which disables prefetching.
+     *
+     * <p>Prefetching opens one request per prefetched segment, including requests for the
+     * encryption keys of the prefetched segments, and holds the prefetched segments in memory
+     * until they are consumed. It helps to saturate links with a high round-trip time, for which
+     * the time to first byte of each segment request limits the throughput of a single request.
+     *
+     * <p>Prefetching is not supported if the {@link HlsDataSourceFactory} creates {@link
+     * HlsDecryptingDataSource} instances, in which case this value is ignored.
+     *
+     * @param prefetchSegmentCount The number of segments to prefetch, or zero to disable
+     *     prefetching.
+     * @return This factory, for convenience.
+     */
+    @CanIgnoreReturnValue
+    public Factory setSegmentPrefetchCount(int prefetchSegmentCount) {
+      checkArgument(prefetchSegmentCount >= 0);
+      this.prefetchSegmentCount = prefetchSegmentCount;
+      return this;
+    }
+
+    /**
+     * Sets whether fully encrypted AES-128 segments are read and decrypted on a background thread,
+     * ahead of the loading thread consuming the decrypted data. The default value is {@code false}.
+     *
+     * <p>Decrypting ahead overlaps the network transfer of the next chunk of a segment with the
+     * decryption of the previous one, at the cost of one thread per chunk source and up to 256 KB
+     * of buffered data per segment being loaded.
+     *
+     * <p>This has no effect if the {@link HlsDataSourceFactory} creates {@link
+     * HlsDecryptingDataSource} instances, which perform their own decryption.
+     *
+     * @param decryptAheadEnabled Whether to decrypt segments ahead on a background thread.
+     * @return This factory, for convenience.
+     */
+    @CanIgnoreReturnValue
+    public Factory setDecryptAheadEnabled(boolean decryptAheadEnabled) {
+      this.decryptAheadEnabled = decryptAheadEnabled;
+      return this;
+    }
+
+    /**
+     * Sets the {@link HlsKeyCache} in which full-segment encryption keys are cached. The default
+     * value is {@code null}, in which case keys are only cached by each media period for its own
+     * use.
+     *
+     * <p>Passing the same instance to all factories in the process allows players, including
+     * players created after a channel change, to start loading encrypted segments without
+     * requesting their keys again.
+     *
+     * <p>This has no effect if the {@link HlsDataSourceFactory} creates {@link
+     * HlsDecryptingDataSource} instances, which obtain keys themselves.
+     *
+     * @param keyCache The {@link HlsKeyCache}, or null to not share keys.
+     * @return This factory, for convenience.
+     */
+    @CanIgnoreReturnValue
+    public Factory setKeyCache(@Nullable HlsKeyCache keyCache) {
+      this.keyCache = keyCache;
+      return this;
+    }
+
     /**
      * Sets the offset between {@link SystemClock#elapsedRealtime()} and the time since the Unix
      * epoch. By default, is it set to {@link C#TIME_UNSET}.
@@ -451,7 +519,10 @@ public final class HlsMediaSource extends BaseMediaSource
           metadataType,
           useSessionKeys,
           defaultStartOffsetUs,
-          timestampAdjusterInitializationTimeoutMs);
+          timestampAdjusterInitializationTimeoutMs,
+          prefetchSegmentCount,
+          decryptAheadEnabled,
+          keyCache);
     }
 
     @Override
@@ -473,6 +544,9 @@ public final class HlsMediaSource extends BaseMediaSource
   private final long elapsedRealTimeOffsetMs;
   private final long defaultStartOffsetUs;
   private final long timestampAdjusterInitializationTimeoutMs;
+  private final int prefetchSegmentCount;
+  private final boolean decryptAheadEnabled;
+  @Nullable private final HlsKeyCache keyCache;
 
   private MediaItem.LiveConfiguration liveConfiguration;
   @Nullable private TransferListener mediaTransferListener;
@@ -494,7 +568,10 @@ public final class HlsMediaSource extends BaseMediaSource
       @MetadataType int metadataType,
       boolean useSessionKeys,
       long defaultStartOffsetUs,
-      long timestampAdjusterInitializationTimeoutMs) {
+      long timestampAdjusterInitializationTimeoutMs,
+      int prefetchSegmentCount,
+      boolean decryptAheadEnabled,
+      @Nullable HlsKeyCache keyCache) {
     this.mediaItem = mediaItem;
     this.liveConfiguration = mediaItem.liveConfiguration;
     this.dataSourceFactory = dataSourceFactory;
@@ -510,6 +587,9 @@ public final class HlsMediaSource extends BaseMediaSource
     this.useSessionKeys = useSessionKeys;
     this.defaultStartOffsetUs = defaultStartOffsetUs;
     this.timestampAdjusterInitializationTimeoutMs = timestampAdjusterInitializationTimeoutMs;
+    this.prefetchSegmentCount = prefetchSegmentCount;
+    this.decryptAheadEnabled = decryptAheadEnabled;
+    this.keyCache = keyCache;
   }
 
   @Override
@@ -574,7 +654,10 @@ public final class HlsMediaSource extends BaseMediaSource
         metadataType,
         useSessionKeys,
         getPlayerId(),
-        timestampAdjusterInitializationTimeoutMs);
+        timestampAdjusterInitializationTimeoutMs,
+        prefetchSegmentCount,
+        decryptAheadEnabled,
+        keyCache);
   }
 
   @Override
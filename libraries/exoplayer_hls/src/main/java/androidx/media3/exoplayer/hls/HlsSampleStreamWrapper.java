@@ -580,6 +580,7 @@ import org.checkerframework.checker.nullness.qual.RequiresNonNull;
       }
     }
     chunkSource.reset();
+    chunkSource.release();
     loader.release(this);
     handler.removeCallbacksAndMessages(null);
     released = true;
@@ -944,6 +945,7 @@ import org.checkerframework.checker.nullness.qual.RequiresNonNull;
       long loadDurationMs,
       IOException error,
       int errorCount) {
+    boolean reloadWithNewKeys = chunkSource.onChunkLoadError(loadable, error);
     boolean isMediaChunk = isMediaChunk(loadable);
     if (isMediaChunk
         && !((HlsMediaChunk) loadable).isPublished()
@@ -989,7 +991,24 @@ import org.checkerframework.checker.nullness.qual.RequiresNonNull;
           chunkSource.maybeExcludeTrack(loadable, fallbackSelection.exclusionDurationMs);
     }
 
-    if (exclusionSucceeded) {
+    if (reloadWithNewKeys) {
+      // Retrying would decrypt with the same keys again. Discard the chunk instead, so that it's
+      // loaded again after the keys are requested again.
+      int chunkIndex = mediaChunks.size() - 1;
+      if (chunkIndex >= 0
+          && mediaChunks.get(chunkIndex) == loadable
+          && canDiscardUpstreamMediaChunksFromIndex(chunkIndex)) {
+        discardUpstreamMediaChunksFromIndex(chunkIndex);
+        if (mediaChunks.isEmpty()) {
+          pendingResetPositionUs = lastSeekPositionUs;
+        } else {
+          Iterables.getLast(mediaChunks).invalidateExtractor();
+        }
+        mediaSourceEventDispatcher.upstreamDiscarded(
+            primarySampleQueueType, loadable.startTimeUs, loadable.endTimeUs);
+      }
+      loadErrorAction = Loader.DONT_RETRY;
+    } else if (exclusionSucceeded) {
       if (isMediaChunk && bytesLoaded == 0) {
         HlsMediaChunk removed = mediaChunks.remove(mediaChunks.size() - 1);
         Assertions.checkState(removed == loadable);
@@ -1028,7 +1047,7 @@ import org.checkerframework.checker.nullness.qual.RequiresNonNull;
       loadErrorHandlingPolicy.onLoadTaskConcluded(loadable.loadTaskId);
     }
 
-    if (exclusionSucceeded) {
+    if (exclusionSucceeded || reloadWithNewKeys) {
       if (!prepared) {
         continueLoading(
             new LoadingInfo.Builder().setPlaybackPositionUs(lastSeekPositionUs).build());
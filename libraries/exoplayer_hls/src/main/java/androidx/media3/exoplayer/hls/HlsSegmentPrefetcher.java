@@ -0,0 +1,479 @@
+/*
+ * Copyright 2026 The Android Open Source Project
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package androidx.media3.exoplayer.hls;
+
+import static androidx.media3.common.util.Assertions.checkNotNull;
+import static java.lang.Math.max;
+import static java.lang.Math.min;
+
+import android.net.Uri;
+import androidx.annotation.GuardedBy;
+import androidx.annotation.Nullable;
+import androidx.media3.common.C;
+import androidx.media3.common.util.UriUtil;
+import androidx.media3.datasource.DataSource;
+import androidx.media3.datasource.DataSourceUtil;
+import androidx.media3.datasource.DataSpec;
+import androidx.media3.datasource.TransferListener;
+import androidx.media3.exoplayer.upstream.CmcdConfiguration;
+import java.io.IOException;
+import java.io.InterruptedIOException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+/**
+ * Loads upcoming media segments and encryption keys of an {@link HlsChunkSource} in parallel, ahead
+ * of the chunks that consume them.
+ *
+ * <p>Prefetched segments are held in memory, up to {@link #MAX_SEGMENT_SIZE_BYTES} per segment and
+ * up to the configured number of segments. Media chunks read them through the {@link DataSource}
+ * returned by {@link #createDataSource(DataSource)}, which falls back to the upstream {@link
+ * DataSource} for segments that were not prefetched, or whose prefetch failed.
+ *
+ * <p>Segments are matched by URI and byte range. The CMCD query parameter is ignored, since it's
+ * added to the URI of the media chunk after the segment is prefetched.
+ *
+ * <p>Methods that schedule work are called on the playback thread. {@link
+ * #createDataSource(DataSource) Data sources} are read on the loading thread.
+ */
+/* package */ final class HlsSegmentPrefetcher {
+
+  /**
+   * The maximum size of a prefetched segment, in bytes. Larger segments are loaded by the media
+   * chunk itself.
+   */
+  public static final int MAX_SEGMENT_SIZE_BYTES = 8 * 1024 * 1024;
+
+  private static final int READ_BUFFER_SIZE_BYTES = 32 * 1024;
+
+  /** An encryption key loaded by {@link #prefetchKey(Uri)}. */
+  public static final class PrefetchedKey {
+
+    /** The key. */
+    public final byte[] key;
+
+    /** The response headers of the key request. */
+    public final Map<String, List<String>> responseHeaders;
+
+    private PrefetchedKey(byte[] key, Map<String, List<String>> responseHeaders) {
+      this.key = key;
+      this.responseHeaders = responseHeaders;
+    }
+  }
+
+  private final HlsDataSourceFactory dataSourceFactory;
+  @Nullable private final TransferListener transferListener;
+  private final int maxSegmentCount;
+
+  @GuardedBy("this")
+  private final LinkedHashMap<PrefetchKey, PrefetchTask> segmentTasks;
+
+  @GuardedBy("this")
+  private final Map<Uri, PrefetchTask> keyTasks;
+
+  @GuardedBy("this")
+  @Nullable
+  private ExecutorService executorService;
+
+  /**
+   * Creates an instance.
+   *
+   * @param dataSourceFactory The {@link HlsDataSourceFactory} from which to create the {@link
+   *     DataSource DataSources} used for prefetching.
+   * @param transferListener The transfer listener to inform of prefetch transfers, or null.
+   * @param maxSegmentCount The maximum number of segments that are prefetched concurrently or held
+   *     in memory. Must be positive.
+   */
+  public HlsSegmentPrefetcher(
+      HlsDataSourceFactory dataSourceFactory,
+      @Nullable TransferListener transferListener,
+      int maxSegmentCount) {
+    this.dataSourceFactory = dataSourceFactory;
+    this.transferListener = transferListener;
+    this.maxSegmentCount = maxSegmentCount;
+    segmentTasks = new LinkedHashMap<>();
+    keyTasks = new LinkedHashMap<>();
+  }
+
+  /** Returns the maximum number of segments that are prefetched. */
+  public int getMaxSegmentCount() {
+    return maxSegmentCount;
+  }
+
+  /**
+   * Starts prefetching the media segment with the given {@link DataSpec}, unless it's already
+   * being prefetched. If the maximum number of segments is reached, this call is ignored.
+   */
+  public synchronized void prefetchSegment(DataSpec dataSpec) {
+    PrefetchKey key = new PrefetchKey(dataSpec);
+    if (segmentTasks.containsKey(key) || segmentTasks.size() >= maxSegmentCount) {
+      return;
+    }
+    PrefetchTask task =
+        new PrefetchTask(
+            dataSourceFactory.createDataSource(C.DATA_TYPE_MEDIA),
+            dataSpec,
+            MAX_SEGMENT_SIZE_BYTES);
+    task.future = getExecutorService().submit(task);
+    segmentTasks.put(key, task);
+  }
+
+  /**
+   * Starts prefetching the encryption key with the given {@link Uri}, unless it's already being
+   * prefetched. If the maximum number of keys, which equals the maximum number of segments, is
+   * reached, this call is ignored.
+   */
+  public synchronized void prefetchKey(Uri keyUri) {
+    if (keyTasks.containsKey(keyUri) || keyTasks.size() >= maxSegmentCount) {
+      return;
+    }
+    DataSpec dataSpec =
+        new DataSpec.Builder().setUri(keyUri).setFlags(DataSpec.FLAG_ALLOW_GZIP).build();
+    PrefetchTask task =
+        new PrefetchTask(
+            dataSourceFactory.createDataSource(C.DATA_TYPE_DRM),
+            dataSpec,
+            /* maxSizeBytes= */ READ_BUFFER_SIZE_BYTES);
+    task.future = getExecutorService().submit(task);
+    keyTasks.put(keyUri, task);
+  }
+
+  /**
+   * Returns the prefetched encryption key for the given {@link Uri} and forgets about it, or null
+   * if the key hasn't been prefetched or its prefetch hasn't completed successfully. Never blocks.
+   */
+  @Nullable
+  public synchronized PrefetchedKey pollKey(Uri keyUri) {
+    @Nullable PrefetchTask task = keyTasks.get(keyUri);
+    if (task == null) {
+      return null;
+    }
+    @Nullable byte[] result = task.getResultIfSuccessful();
+    if (result == null && !checkNotNull(task.future).isDone()) {
+      return null;
+    }
+    keyTasks.remove(keyUri);
+    return result != null ? new PrefetchedKey(result, task.responseHeaders) : null;
+  }
+
+  /**
+   * Cancels all pending prefetches and discards all prefetched data, for example after a seek or a
+   * track selection change made the upcoming segments obsolete.
+   */
+  public void cancelAll() {
+    List<PrefetchTask> tasks;
+    synchronized (this) {
+      tasks = new ArrayList<>(segmentTasks.values());
+      tasks.addAll(keyTasks.values());
+      segmentTasks.clear();
+      keyTasks.clear();
+    }
+    cancelTasks(tasks);
+  }
+
+  /**
+   * Discards prefetched segments that won't be consumed because they are not in {@code
+   * upcomingDataSpecs}.
+   */
+  public void retainSegments(List<DataSpec> upcomingDataSpecs) {
+    Set<PrefetchKey> upcomingKeys = new HashSet<>();
+    for (int i = 0; i < upcomingDataSpecs.size(); i++) {
+      upcomingKeys.add(new PrefetchKey(upcomingDataSpecs.get(i)));
+    }
+    List<PrefetchTask> removedTasks;
+    synchronized (this) {
+      removedTasks = removeTasksNotIn(segmentTasks, upcomingKeys);
+    }
+    cancelTasks(removedTasks);
+  }
+
+  /**
+   * Discards prefetched encryption keys that won't be consumed because they are not in {@code
+   * upcomingKeyUris}.
+   */
+  public void retainKeys(Collection<Uri> upcomingKeyUris) {
+    List<PrefetchTask> removedTasks;
+    synchronized (this) {
+      removedTasks = removeTasksNotIn(keyTasks, upcomingKeyUris);
+    }
+    cancelTasks(removedTasks);
+  }
+
+  /** Cancels all prefetches and releases the prefetch threads. */
+  public void release() {
+    cancelAll();
+    @Nullable ExecutorService executorService;
+    synchronized (this) {
+      executorService = this.executorService;
+      this.executorService = null;
+    }
+    if (executorService != null) {
+      executorService.shutdownNow();
+    }
+  }
+
+  /**
+   * Returns a {@link DataSource} that serves prefetched segments from memory and otherwise reads
+   * from {@code upstream}.
+   */
+  public DataSource createDataSource(DataSource upstream) {
+    return new PrefetchingDataSource(upstream);
+  }
+
+  /**
+   * Returns the data of the prefetched segment for the given {@link DataSpec} and forgets about it,
+   * waiting for the prefetch to complete if necessary. Returns null if the segment wasn't
+   * prefetched or its prefetch failed.
+   *
+   * @throws InterruptedIOException If the calling thread is interrupted while waiting.
+   */
+  @Nullable
+  /* package */ byte[] takeSegment(DataSpec dataSpec) throws InterruptedIOException {
+    @Nullable PrefetchTask task;
+    synchronized (this) {
+      task = segmentTasks.remove(new PrefetchKey(dataSpec));
+    }
+    if (task == null) {
+      return null;
+    }
+    try {
+      checkNotNull(task.future).get();
+    } catch (InterruptedException e) {
+      task.cancel();
+      Thread.currentThread().interrupt();
+      throw new InterruptedIOException();
+    } catch (ExecutionException | CancellationException e) {
+      return null;
+    }
+    return task.getResultIfSuccessful();
+  }
+
+  private static <K> List<PrefetchTask> removeTasksNotIn(
+      Map<K, PrefetchTask> tasks, Collection<K> retainedKeys) {
+    List<PrefetchTask> removedTasks = new ArrayList<>();
+    Iterator<Map.Entry<K, PrefetchTask>> iterator = tasks.entrySet().iterator();
+    while (iterator.hasNext()) {
+      Map.Entry<K, PrefetchTask> entry = iterator.next();
+      if (!retainedKeys.contains(entry.getKey())) {
+        removedTasks.add(entry.getValue());
+        iterator.remove();
+      }
+    }
+    return removedTasks;
+  }
+
+  private static void cancelTasks(List<PrefetchTask> tasks) {
+    for (int i = 0; i < tasks.size(); i++) {
+      tasks.get(i).cancel();
+    }
+  }
+
+  @GuardedBy("this")
+  private ExecutorService getExecutorService() {
+    if (executorService == null) {
+      executorService =
+          Executors.newFixedThreadPool(
+              maxSegmentCount, runnable -> new Thread(runnable, "ExoPlayer:HlsSegmentPrefetcher"));
+    }
+    return executorService;
+  }
+
+  private final class PrefetchTask implements Runnable {
+
+    private final DataSource dataSource;
+    private final DataSpec dataSpec;
+    private final int maxSizeBytes;
+
+    @Nullable private Future<?> future;
+    private volatile Map<String, List<String>> responseHeaders;
+    @Nullable private volatile byte[] result;
+    private volatile boolean canceled;
+
+    public PrefetchTask(DataSource dataSource, DataSpec dataSpec, int maxSizeBytes) {
+      this.dataSource = dataSource;
+      this.dataSpec = dataSpec;
+      this.maxSizeBytes = maxSizeBytes;
+      responseHeaders = Collections.emptyMap();
+      if (transferListener != null) {
+        dataSource.addTransferListener(transferListener);
+      }
+    }
+
+    @Override
+    public void run() {
+      try {
+        long length = dataSource.open(dataSpec);
+        responseHeaders = dataSource.getResponseHeaders();
+        if (length != C.LENGTH_UNSET && length > maxSizeBytes) {
+          return;
+        }
+        byte[] data =
+            new byte[length != C.LENGTH_UNSET ? (int) length : READ_BUFFER_SIZE_BYTES];
+        int size = 0;
+        while (!canceled) {
+          if (size == data.length) {
+            if (size >= maxSizeBytes) {
+              // Too large to hold in memory. Let the media chunk load the segment.
+              return;
+            }
+            data =
+                Arrays.copyOf(
+                    data, min(maxSizeBytes, max(READ_BUFFER_SIZE_BYTES, data.length * 2)));
+          }
+          int bytesRead = dataSource.read(data, size, data.length - size);
+          if (bytesRead == C.RESULT_END_OF_INPUT) {
+            result = size == data.length ? data : Arrays.copyOf(data, size);
+            return;
+          }
+          size += bytesRead;
+        }
+      } catch (IOException e) {
+        // Ignore. The media chunk will load the data itself and handle the error.
+      } finally {
+        DataSourceUtil.closeQuietly(dataSource);
+      }
+    }
+
+    @Nullable
+    public byte[] getResultIfSuccessful() {
+      return canceled ? null : result;
+    }
+
+    public void cancel() {
+      canceled = true;
+      if (future != null) {
+        future.cancel(/* mayInterruptIfRunning= */ true);
+      }
+    }
+  }
+
+  private final class PrefetchingDataSource implements DataSource {
+
+    private final DataSource upstream;
+
+    @Nullable private byte[] prefetchedData;
+    @Nullable private Uri uri;
+    private int readPosition;
+    private boolean upstreamOpened;
+
+    public PrefetchingDataSource(DataSource upstream) {
+      this.upstream = upstream;
+    }
+
+    @Override
+    public void addTransferListener(TransferListener transferListener) {
+      upstream.addTransferListener(transferListener);
+    }
+
+    @Override
+    public long open(DataSpec dataSpec) throws IOException {
+      @Nullable byte[] prefetchedData = takeSegment(dataSpec);
+      if (prefetchedData != null) {
+        this.prefetchedData = prefetchedData;
+        uri = dataSpec.uri;
+        readPosition = 0;
+        return prefetchedData.length;
+      }
+      upstreamOpened = true;
+      return upstream.open(dataSpec);
+    }
+
+    @Override
+    public int read(byte[] buffer, int offset, int length) throws IOException {
+      if (prefetchedData == null) {
+        return upstream.read(buffer, offset, length);
+      }
+      if (length == 0) {
+        return 0;
+      }
+      int bytesRemaining = prefetchedData.length - readPosition;
+      if (bytesRemaining == 0) {
+        return C.RESULT_END_OF_INPUT;
+      }
+      int bytesToRead = min(length, bytesRemaining);
+      System.arraycopy(prefetchedData, readPosition, buffer, offset, bytesToRead);
+      readPosition += bytesToRead;
+      return bytesToRead;
+    }
+
+    @Nullable
+    @Override
+    public Uri getUri() {
+      return prefetchedData != null ? uri : upstream.getUri();
+    }
+
+    @Override
+    public Map<String, List<String>> getResponseHeaders() {
+      return prefetchedData != null ? Collections.emptyMap() : upstream.getResponseHeaders();
+    }
+
+    @Override
+    public void close() throws IOException {
+      prefetchedData = null;
+      uri = null;
+      if (upstreamOpened) {
+        upstreamOpened = false;
+        upstream.close();
+      }
+    }
+  }
+
+  private static final class PrefetchKey {
+
+    private final Uri uri;
+    private final long position;
+    private final long length;
+
+    public PrefetchKey(DataSpec dataSpec) {
+      uri = UriUtil.removeQueryParameter(dataSpec.uri, CmcdConfiguration.CMCD_QUERY_PARAMETER_KEY);
+      position = dataSpec.position;
+      length = dataSpec.length;
+    }
+
+    @Override
+    public boolean equals(@Nullable Object o) {
+      if (this == o) {
+        return true;
+      }
+      if (o == null || getClass() != o.getClass()) {
+        return false;
+      }
+      PrefetchKey that = (PrefetchKey) o;
+      return position == that.position && length == that.length && uri.equals(that.uri);
+    }
+
+    @Override
+    public int hashCode() {
+      int result = uri.hashCode();
+      result = 31 * result + (int) (position ^ (position >>> 32));
+      result = 31 * result + (int) (length ^ (length >>> 32));
+      return result;
+    }
+  }
+}
@@ -23,6 +23,23 @@ import androidx.media3.exoplayer.upstream.ParsingLoadable;
 @UnstableApi
 public final class DefaultHlsPlaylistParserFactory implements HlsPlaylistParserFactory {
 
+  private final boolean useIncrementalParsing;
+
+  /** Creates an instance that creates parsers without incremental parsing. */
+  public DefaultHlsPlaylistParserFactory() {
+    this(/* useIncrementalParsing= */ false);
+  }
+
+  /**
+   * Creates an instance.
+   *
+   * @param useIncrementalParsing Whether media playlists are parsed incrementally. See {@link
+   *     HlsPlaylistParser#HlsPlaylistParser(HlsMultivariantPlaylist, HlsMediaPlaylist, boolean)}.
+   */
+  public DefaultHlsPlaylistParserFactory(boolean useIncrementalParsing) {
+    this.useIncrementalParsing = useIncrementalParsing;
+  }
+
   @Override
   public ParsingLoadable.Parser<HlsPlaylist> createPlaylistParser() {
     return new HlsPlaylistParser();
@@ -32,6 +49,7 @@ public final class DefaultHlsPlaylistParserFactory implements HlsPlaylistParserF
   public ParsingLoadable.Parser<HlsPlaylist> createPlaylistParser(
       HlsMultivariantPlaylist multivariantPlaylist,
       @Nullable HlsMediaPlaylist previousMediaPlaylist) {
-    return new HlsPlaylistParser(multivariantPlaylist, previousMediaPlaylist);
+    return new HlsPlaylistParser(
+        multivariantPlaylist, previousMediaPlaylist, useIncrementalParsing);
   }
 }
@@ -0,0 +1,178 @@
+/*
+ * Copyright 2026 The Android Open Source Project
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package androidx.media3.exoplayer.hls.playlist;
+
+import androidx.annotation.Nullable;
+import androidx.media3.common.C;
+import androidx.media3.common.ParserException;
+import java.math.BigDecimal;
+
+/**
+ * Hand-written scanner for the attribute lists of HLS tags, as defined in RFC 8216, Section 4.2.
+ *
+ * <p>Used by {@link HlsPlaylistParser} in incremental mode instead of regular expressions, for the
+ * tags that repeat for every segment of a media playlist.
+ */
+/* package */ final class HlsAttributeScanner {
+
+  private static final String BOOLEAN_TRUE = "YES";
+
+  private HlsAttributeScanner() {}
+
+  /**
+   * Returns the value of an attribute in the attribute list of a tag line, with any surrounding
+   * quotes removed, or {@code null} if the attribute is not present.
+   *
+   * @param line The tag line, for example {@code #EXT-X-KEY:METHOD=AES-128,URI="key"}.
+   * @param name The attribute name, for example {@code URI}.
+   */
+  @Nullable
+  public static String getOptionalAttribute(String line, String name) {
+    int length = line.length();
+    int position = line.indexOf(':') + 1;
+    if (position == 0) {
+      return null;
+    }
+    while (position < length) {
+      while (position < length && line.charAt(position) == ' ') {
+        position++;
+      }
+      int nameStart = position;
+      int equalsIndex = line.indexOf('=', nameStart);
+      if (equalsIndex == -1) {
+        return null;
+      }
+      int valueStart = equalsIndex + 1;
+      int valueEnd;
+      int nextPosition;
+      if (valueStart < length && line.charAt(valueStart) == '"') {
+        valueStart++;
+        valueEnd = line.indexOf('"', valueStart);
+        if (valueEnd == -1) {
+          // Unterminated quoted string.
+          return null;
+        }
+        int commaIndex = line.indexOf(',', valueEnd);
+        nextPosition = commaIndex == -1 ? length : commaIndex + 1;
+      } else {
+        int commaIndex = line.indexOf(',', valueStart);
+        valueEnd = commaIndex == -1 ? length : commaIndex;
+        nextPosition = valueEnd + 1;
+      }
+      if (equalsIndex - nameStart == name.length()
+          && line.regionMatches(nameStart, name, /* otherOffset= */ 0, name.length())) {
+        return line.substring(valueStart, valueEnd).trim();
+      }
+      position = nextPosition;
+    }
+    return null;
+  }
+
+  /**
+   * Returns the value of an attribute, as {@link #getOptionalAttribute}.
+   *
+   * @throws ParserException If the attribute is not present.
+   */
+  public static String getAttribute(String line, String name) throws ParserException {
+    @Nullable String value = getOptionalAttribute(line, name);
+    if (value == null) {
+      throw ParserException.createForMalformedManifest(
+          "Couldn't find " + name + " in " + line, /* cause= */ null);
+    }
+    return value;
+  }
+
+  /**
+   * Returns whether an enumerated-string attribute is {@code YES}, or {@code defaultValue} if the
+   * attribute is not present.
+   */
+  public static boolean getOptionalBooleanAttribute(
+      String line, String name, boolean defaultValue) {
+    @Nullable String value = getOptionalAttribute(line, name);
+    return value == null ? defaultValue : BOOLEAN_TRUE.equals(value);
+  }
+
+  /**
+   * Returns the value of the first field of a tag with a comma separated value, for example the
+   * duration of {@code #EXTINF:<duration>,[<title>]}.
+   */
+  public static String getFirstValue(String line) {
+    int valueStart = line.indexOf(':') + 1;
+    int commaIndex = line.indexOf(',', valueStart);
+    return line.substring(valueStart, commaIndex == -1 ? line.length() : commaIndex).trim();
+  }
+
+  /**
+   * Returns the value following the first comma of a tag with a comma separated value, for
+   * example the title of {@code #EXTINF:<duration>,[<title>]}, or {@code null} if it's empty.
+   */
+  @Nullable
+  public static String getValueAfterFirstComma(String line) {
+    int commaIndex = line.indexOf(',', line.indexOf(':') + 1);
+    if (commaIndex == -1 || commaIndex == line.length() - 1) {
+      return null;
+    }
+    return line.substring(commaIndex + 1);
+  }
+
+  /**
+   * Parses a decimal number of seconds into microseconds, truncating any digits beyond
+   * microsecond precision.
+   *
+   * @throws ParserException If the value is not a decimal number.
+   */
+  public static long parseDecimalSecondsToUs(String value) throws ParserException {
+    int length = value.length();
+    long seconds = 0;
+    long fractionUs = 0;
+    long fractionScaleUs = C.MICROS_PER_SECOND;
+    boolean seenDigit = false;
+    boolean seenPoint = false;
+    for (int i = 0; i < length; i++) {
+      char c = value.charAt(i);
+      if (c >= '0' && c <= '9') {
+        seenDigit = true;
+        if (!seenPoint) {
+          if (seconds > Long.MAX_VALUE / C.MICROS_PER_SECOND / 10) {
+            return parseDecimalSecondsToUsSlow(value);
+          }
+          seconds = seconds * 10 + (c - '0');
+        } else if (fractionScaleUs > 1) {
+          fractionScaleUs /= 10;
+          fractionUs += (c - '0') * fractionScaleUs;
+        }
+      } else if (c == '.' && !seenPoint) {
+        seenPoint = true;
+      } else {
+        // Signs, exponents and anything else are rare enough to leave to BigDecimal.
+        return parseDecimalSecondsToUsSlow(value);
+      }
+    }
+    if (!seenDigit) {
+      throw ParserException.createForMalformedManifest(
+          "Invalid decimal value: " + value, /* cause= */ null);
+    }
+    return seconds * C.MICROS_PER_SECOND + fractionUs;
+  }
+
+  private static long parseDecimalSecondsToUsSlow(String value) throws ParserException {
+    try {
+      return new BigDecimal(value).multiply(new BigDecimal(C.MICROS_PER_SECOND)).longValue();
+    } catch (NumberFormatException e) {
+      throw ParserException.createForMalformedManifest("Invalid decimal value: " + value, e);
+    }
+  }
+}
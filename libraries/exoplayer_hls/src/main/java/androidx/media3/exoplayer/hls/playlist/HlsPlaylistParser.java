@@ -227,6 +227,7 @@ public final class HlsPlaylistParser implements ParsingLoadable.Parser<HlsPlayli
 
   private final HlsMultivariantPlaylist multivariantPlaylist;
   @Nullable private final HlsMediaPlaylist previousMediaPlaylist;
+  private final boolean useIncrementalParsing;
 
   /**
    * Creates an instance where media playlists are parsed without inheriting attributes from a
@@ -248,8 +249,32 @@ public final class HlsPlaylistParser implements ParsingLoadable.Parser<HlsPlayli
   public HlsPlaylistParser(
       HlsMultivariantPlaylist multivariantPlaylist,
       @Nullable HlsMediaPlaylist previousMediaPlaylist) {
+    this(multivariantPlaylist, previousMediaPlaylist, /* useIncrementalParsing= */ false);
+  }
+
+  /**
+   * Creates an instance where parsed media playlists inherit attributes from the given multivariant
+   * playlist.
+   *
+   * <p>With incremental parsing, the tags that repeat for every segment of a media playlist are
+   * parsed without regular expressions, and segments that are unchanged from {@code
+   * previousMediaPlaylist} are reused instead of being allocated again. This reduces the cost of
+   * reloading long live playlists, for which most segments are the same from one reload to the
+   * next.
+   *
+   * @param multivariantPlaylist The multivariant playlist from which media playlists will inherit
+   *     attributes.
+   * @param previousMediaPlaylist The previous media playlist from which the new media playlist may
+   *     inherit skipped or unchanged segments.
+   * @param useIncrementalParsing Whether to use incremental parsing.
+   */
+  public HlsPlaylistParser(
+      HlsMultivariantPlaylist multivariantPlaylist,
+      @Nullable HlsMediaPlaylist previousMediaPlaylist,
+      boolean useIncrementalParsing) {
     this.multivariantPlaylist = multivariantPlaylist;
     this.previousMediaPlaylist = previousMediaPlaylist;
+    this.useIncrementalParsing = useIncrementalParsing;
   }
 
   @Override
@@ -282,7 +307,8 @@ public final class HlsPlaylistParser implements ParsingLoadable.Parser<HlsPlayli
               multivariantPlaylist,
               previousMediaPlaylist,
               new LineIterator(extraLines, reader),
-              uri.toString());
+              uri.toString(),
+              useIncrementalParsing);
         } else {
           extraLines.add(line);
         }
@@ -634,7 +660,8 @@ public final class HlsPlaylistParser implements ParsingLoadable.Parser<HlsPlayli
       HlsMultivariantPlaylist multivariantPlaylist,
       @Nullable HlsMediaPlaylist previousMediaPlaylist,
       LineIterator iterator,
-      String baseUri)
+      String baseUri,
+      boolean useIncrementalParsing)
       throws IOException {
     @HlsMediaPlaylist.PlaylistType int playlistType = HlsMediaPlaylist.PLAYLIST_TYPE_UNKNOWN;
     long startOffsetUs = C.TIME_UNSET;
@@ -764,8 +791,16 @@ public final class HlsPlaylistParser implements ParsingLoadable.Parser<HlsPlayli
               parseStringAttr(line, REGEX_VALUE, variableDefinitions));
         }
       } else if (line.startsWith(TAG_MEDIA_DURATION)) {
-        segmentDurationUs = parseTimeSecondsToUs(line, REGEX_MEDIA_DURATION);
-        segmentTitle = parseOptionalStringAttr(line, REGEX_MEDIA_TITLE, "", variableDefinitions);
+        if (useIncrementalParsing) {
+          segmentDurationUs =
+              HlsAttributeScanner.parseDecimalSecondsToUs(HlsAttributeScanner.getFirstValue(line));
+          @Nullable String title = HlsAttributeScanner.getValueAfterFirstComma(line);
+          segmentTitle =
+              title != null ? replaceVariableReferencesIfAny(title, variableDefinitions) : "";
+        } else {
+          segmentDurationUs = parseTimeSecondsToUs(line, REGEX_MEDIA_DURATION);
+          segmentTitle = parseOptionalStringAttr(line, REGEX_MEDIA_TITLE, "", variableDefinitions);
+        }
       } else if (line.startsWith(TAG_SKIP)) {
         int skippedSegmentCount = parseIntAttr(line, REGEX_SKIPPED_SEGMENTS);
         checkState(previousMediaPlaylist != null && segments.isEmpty());
@@ -804,20 +839,36 @@ public final class HlsPlaylistParser implements ParsingLoadable.Parser<HlsPlayli
           segmentMediaSequence++;
         }
       } else if (line.startsWith(TAG_KEY)) {
-        String method = parseStringAttr(line, REGEX_METHOD, variableDefinitions);
-        String keyFormat =
-            parseOptionalStringAttr(line, REGEX_KEYFORMAT, KEYFORMAT_IDENTITY, variableDefinitions);
+        String method;
+        String keyFormat;
+        if (useIncrementalParsing) {
+          method = scanMethodAttr(line);
+          @Nullable
+          String keyFormatValue = scanOptionalStringAttr(line, "KEYFORMAT", variableDefinitions);
+          keyFormat = keyFormatValue != null ? keyFormatValue : KEYFORMAT_IDENTITY;
+        } else {
+          method = parseStringAttr(line, REGEX_METHOD, variableDefinitions);
+          keyFormat =
+              parseOptionalStringAttr(
+                  line, REGEX_KEYFORMAT, KEYFORMAT_IDENTITY, variableDefinitions);
+        }
         fullSegmentEncryptionKeyUri = null;
         fullSegmentEncryptionIV = null;
         if (METHOD_NONE.equals(method)) {
           currentSchemeDatas.clear();
           cachedDrmInitData = null;
         } else /* !METHOD_NONE.equals(method) */ {
-          fullSegmentEncryptionIV = parseOptionalStringAttr(line, REGEX_IV, variableDefinitions);
+          fullSegmentEncryptionIV =
+              useIncrementalParsing
+                  ? scanOptionalStringAttr(line, "IV", variableDefinitions)
+                  : parseOptionalStringAttr(line, REGEX_IV, variableDefinitions);
           if (KEYFORMAT_IDENTITY.equals(keyFormat)) {
             if (METHOD_AES_128.equals(method)) {
               // The segment is fully encrypted using an identity key.
-              fullSegmentEncryptionKeyUri = parseStringAttr(line, REGEX_URI, variableDefinitions);
+              fullSegmentEncryptionKeyUri =
+                  useIncrementalParsing
+                      ? scanStringAttr(line, "URI", variableDefinitions)
+                      : parseStringAttr(line, REGEX_URI, variableDefinitions);
             } else {
               // Do nothing. Samples are encrypted using an identity key, but this is not supported.
               // Hopefully, a traditional DRM alternative is also provided.
@@ -834,7 +885,11 @@ public final class HlsPlaylistParser implements ParsingLoadable.Parser<HlsPlayli
           }
         }
       } else if (line.startsWith(TAG_BYTERANGE)) {
-        String byteRange = parseStringAttr(line, REGEX_BYTERANGE, variableDefinitions);
+        String byteRange =
+            useIncrementalParsing
+                ? replaceVariableReferencesIfAny(
+                    HlsAttributeScanner.getFirstValue(line), variableDefinitions)
+                : parseStringAttr(line, REGEX_BYTERANGE, variableDefinitions);
         String[] splitByteRange = Util.split(byteRange, "@");
         segmentByteRangeLength = Long.parseLong(splitByteRange[0]);
         if (splitByteRange.length > 1) {
@@ -910,16 +965,35 @@ public final class HlsPlaylistParser implements ParsingLoadable.Parser<HlsPlayli
         String segmentEncryptionIV =
             getSegmentEncryptionIV(
                 segmentMediaSequence, fullSegmentEncryptionKeyUri, fullSegmentEncryptionIV);
-        String url = parseStringAttr(line, REGEX_URI, variableDefinitions);
-        long partDurationUs =
-            (long) (parseDoubleAttr(line, REGEX_ATTR_DURATION) * C.MICROS_PER_SECOND);
-        boolean isIndependent =
-            parseOptionalBooleanAttribute(line, REGEX_INDEPENDENT, /* defaultValue= */ false);
+        String url;
+        long partDurationUs;
+        boolean isIndependent;
+        boolean isGap;
+        @Nullable String byteRange;
+        if (useIncrementalParsing) {
+          url = scanStringAttr(line, "URI", variableDefinitions);
+          partDurationUs =
+              (long)
+                  (Double.parseDouble(HlsAttributeScanner.getAttribute(line, "DURATION"))
+                      * C.MICROS_PER_SECOND);
+          isIndependent =
+              HlsAttributeScanner.getOptionalBooleanAttribute(
+                  line, "INDEPENDENT", /* defaultValue= */ false);
+          isGap =
+              HlsAttributeScanner.getOptionalBooleanAttribute(
+                  line, "GAP", /* defaultValue= */ false);
+          byteRange = scanOptionalStringAttr(line, "BYTERANGE", variableDefinitions);
+        } else {
+          url = parseStringAttr(line, REGEX_URI, variableDefinitions);
+          partDurationUs =
+              (long) (parseDoubleAttr(line, REGEX_ATTR_DURATION) * C.MICROS_PER_SECOND);
+          isIndependent =
+              parseOptionalBooleanAttribute(line, REGEX_INDEPENDENT, /* defaultValue= */ false);
+          isGap = parseOptionalBooleanAttribute(line, REGEX_GAP, /* defaultValue= */ false);
+          byteRange = parseOptionalStringAttr(line, REGEX_ATTR_BYTERANGE, variableDefinitions);
+        }
         // The first part of a segment is always independent if the segments are independent.
         isIndependent |= hasIndependentSegmentsTag && trailingParts.isEmpty();
-        boolean isGap = parseOptionalBooleanAttribute(line, REGEX_GAP, /* defaultValue= */ false);
-        @Nullable
-        String byteRange = parseOptionalStringAttr(line, REGEX_ATTR_BYTERANGE, variableDefinitions);
         long partByteRangeLength = C.LENGTH_UNSET;
         if (byteRange != null) {
           String[] splitByteRange = Util.split(byteRange, "@");
@@ -962,8 +1036,12 @@ public final class HlsPlaylistParser implements ParsingLoadable.Parser<HlsPlayli
         String segmentEncryptionIV =
             getSegmentEncryptionIV(
                 segmentMediaSequence, fullSegmentEncryptionKeyUri, fullSegmentEncryptionIV);
+        long currentSegmentMediaSequence = segmentMediaSequence;
         segmentMediaSequence++;
-        String segmentUri = replaceVariableReferences(line, variableDefinitions);
+        String segmentUri =
+            useIncrementalParsing
+                ? replaceVariableReferencesIfAny(line, variableDefinitions)
+                : replaceVariableReferences(line, variableDefinitions);
         @Nullable Segment inferredInitSegment = urlToInferredInitSegment.get(segmentUri);
         if (segmentByteRangeLength == C.LENGTH_UNSET) {
           // The segment has no byte range defined.
@@ -992,21 +1070,50 @@ public final class HlsPlaylistParser implements ParsingLoadable.Parser<HlsPlayli
           }
         }
 
-        segments.add(
-            new Segment(
-                segmentUri,
-                initializationSegment != null ? initializationSegment : inferredInitSegment,
-                segmentTitle,
-                segmentDurationUs,
-                relativeDiscontinuitySequence,
-                segmentStartTimeUs,
-                cachedDrmInitData,
-                fullSegmentEncryptionKeyUri,
-                segmentEncryptionIV,
-                segmentByteRangeOffset,
-                segmentByteRangeLength,
-                hasGapTag,
-                trailingParts));
+        @Nullable Segment segmentInitializationSegment =
+            initializationSegment != null ? initializationSegment : inferredInitSegment;
+        @Nullable Segment reusableSegment = null;
+        if (useIncrementalParsing && previousMediaPlaylist != null && trailingParts.isEmpty()) {
+          reusableSegment =
+              getReusableSegment(
+                  previousMediaPlaylist,
+                  currentSegmentMediaSequence,
+                  segmentUri,
+                  segmentInitializationSegment,
+                  segmentTitle,
+                  segmentDurationUs,
+                  playlistDiscontinuitySequence + relativeDiscontinuitySequence,
+                  cachedDrmInitData,
+                  fullSegmentEncryptionKeyUri,
+                  segmentEncryptionIV,
+                  segmentByteRangeOffset,
+                  segmentByteRangeLength,
+                  hasGapTag);
+        }
+        if (reusableSegment != null) {
+          if (reusableSegment.relativeStartTimeUs != segmentStartTimeUs
+              || reusableSegment.relativeDiscontinuitySequence != relativeDiscontinuitySequence) {
+            reusableSegment =
+                reusableSegment.copyWith(segmentStartTimeUs, relativeDiscontinuitySequence);
+          }
+          segments.add(reusableSegment);
+        } else {
+          segments.add(
+              new Segment(
+                  segmentUri,
+                  segmentInitializationSegment,
+                  segmentTitle,
+                  segmentDurationUs,
+                  relativeDiscontinuitySequence,
+                  segmentStartTimeUs,
+                  cachedDrmInitData,
+                  fullSegmentEncryptionKeyUri,
+                  segmentEncryptionIV,
+                  segmentByteRangeOffset,
+                  segmentByteRangeLength,
+                  hasGapTag,
+                  trailingParts));
+        }
         segmentStartTimeUs += segmentDurationUs;
         partStartTimeUs = segmentStartTimeUs;
         segmentDurationUs = 0;
@@ -1074,6 +1181,63 @@ public final class HlsPlaylistParser implements ParsingLoadable.Parser<HlsPlayli
     return new DrmInitData(encryptionScheme, playlistSchemeDatas);
   }
 
+  /**
+   * Returns the segment of {@code previousMediaPlaylist} with the given media sequence number if
+   * it's identical to the segment described by the other arguments, ignoring its start time and
+   * relative discontinuity sequence, or null otherwise.
+   */
+  @Nullable
+  private static Segment getReusableSegment(
+      HlsMediaPlaylist previousMediaPlaylist,
+      long segmentMediaSequence,
+      String url,
+      @Nullable Segment initializationSegment,
+      String title,
+      long durationUs,
+      int discontinuitySequence,
+      @Nullable DrmInitData drmInitData,
+      @Nullable String fullSegmentEncryptionKeyUri,
+      @Nullable String encryptionIV,
+      long byteRangeOffset,
+      long byteRangeLength,
+      boolean hasGapTag) {
+    long index = segmentMediaSequence - previousMediaPlaylist.mediaSequence;
+    if (index < 0 || index >= previousMediaPlaylist.segments.size()) {
+      return null;
+    }
+    Segment segment = previousMediaPlaylist.segments.get((int) index);
+    if (!segment.parts.isEmpty()
+        || segment.durationUs != durationUs
+        || segment.byteRangeOffset != byteRangeOffset
+        || segment.byteRangeLength != byteRangeLength
+        || segment.hasGapTag != hasGapTag
+        || previousMediaPlaylist.discontinuitySequence + segment.relativeDiscontinuitySequence
+            != discontinuitySequence
+        || !segment.url.equals(url)
+        || !segment.title.equals(title)
+        || !Util.areEqual(segment.fullSegmentEncryptionKeyUri, fullSegmentEncryptionKeyUri)
+        || !Util.areEqual(segment.encryptionIV, encryptionIV)
+        || !Util.areEqual(segment.drmInitData, drmInitData)
+        || !isSameInitializationSegment(segment.initializationSegment, initializationSegment)) {
+      return null;
+    }
+    return segment;
+  }
+
+  private static boolean isSameInitializationSegment(
+      @Nullable Segment segment, @Nullable Segment other) {
+    if (segment == other) {
+      return true;
+    } else if (segment == null || other == null) {
+      return false;
+    }
+    return segment.byteRangeOffset == other.byteRangeOffset
+        && segment.byteRangeLength == other.byteRangeLength
+        && segment.url.equals(other.url)
+        && Util.areEqual(segment.fullSegmentEncryptionKeyUri, other.fullSegmentEncryptionKeyUri)
+        && Util.areEqual(segment.encryptionIV, other.encryptionIV);
+  }
+
   @Nullable
   private static String getSegmentEncryptionIV(
       long segmentMediaSequence,
@@ -1271,6 +1435,40 @@ public final class HlsPlaylistParser implements ParsingLoadable.Parser<HlsPlayli
     return stringWithReplacements.toString();
   }
 
+  private static String replaceVariableReferencesIfAny(
+      String string, Map<String, String> variableDefinitions) {
+    return variableDefinitions.isEmpty() || !string.contains("{$")
+        ? string
+        : replaceVariableReferences(string, variableDefinitions);
+  }
+
+  private static String scanMethodAttr(String line) throws ParserException {
+    @Nullable String method = HlsAttributeScanner.getOptionalAttribute(line, "METHOD");
+    if (method == null
+        || !(METHOD_NONE.equals(method)
+            || METHOD_AES_128.equals(method)
+            || METHOD_SAMPLE_AES.equals(method)
+            || METHOD_SAMPLE_AES_CENC.equals(method)
+            || METHOD_SAMPLE_AES_CTR.equals(method))) {
+      throw ParserException.createForMalformedManifest(
+          "Couldn't match " + REGEX_METHOD.pattern() + " in " + line, /* cause= */ null);
+    }
+    return method;
+  }
+
+  private static String scanStringAttr(
+      String line, String name, Map<String, String> variableDefinitions) throws ParserException {
+    return replaceVariableReferencesIfAny(
+        HlsAttributeScanner.getAttribute(line, name), variableDefinitions);
+  }
+
+  @Nullable
+  private static String scanOptionalStringAttr(
+      String line, String name, Map<String, String> variableDefinitions) {
+    @Nullable String value = HlsAttributeScanner.getOptionalAttribute(line, name);
+    return value != null ? replaceVariableReferencesIfAny(value, variableDefinitions) : null;
+  }
+
   private static boolean parseOptionalBooleanAttribute(
       String line, Pattern pattern, boolean defaultValue) {
     Matcher matcher = pattern.matcher(line);
@@ -16,17 +16,29 @@
 package androidx.media3.exoplayer.hls;
 
 import static com.google.common.truth.Truth.assertThat;
+import static org.junit.Assert.assertThrows;
 
 import android.net.Uri;
+import androidx.annotation.Nullable;
 import androidx.media3.common.C;
+import androidx.media3.common.util.ConditionVariable;
+import androidx.media3.datasource.ByteArrayDataSource;
 import androidx.media3.datasource.DataSource;
 import androidx.media3.datasource.DataSpec;
 import androidx.media3.datasource.TransferListener;
 import androidx.test.ext.junit.runners.AndroidJUnit4;
+import java.io.ByteArrayOutputStream;
 import java.io.IOException;
+import java.security.GeneralSecurityException;
 import java.security.NoSuchAlgorithmException;
+import java.util.Random;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
 import javax.crypto.Cipher;
 import javax.crypto.NoSuchPaddingException;
+import javax.crypto.spec.IvParameterSpec;
+import javax.crypto.spec.SecretKeySpec;
 import org.junit.Test;
 import org.junit.runner.RunWith;
 
@@ -34,6 +46,9 @@ import org.junit.runner.RunWith;
 @RunWith(AndroidJUnit4.class)
 public class Aes128DataSourceTest {
 
+  private static final byte[] KEY = buildTestData(/* length= */ 16);
+  private static final byte[] IV = buildTestData(/* length= */ 16);
+
   @Test
   public void test_OpenCallsUpstreamOpen_CloseCallsUpstreamClose() throws IOException {
     UpstreamDataSource upstream = new UpstreamDataSource();
@@ -75,12 +90,164 @@ public class Aes128DataSourceTest {
     assertThat(upstream.closedCalled).isTrue();
   }
 
+  @Test
+  public void read_withLargeReadLength_decryptsData() throws Exception {
+    byte[] data = buildTestData(/* length= */ 3 * Aes128DataSource.CHUNK_SIZE + 7);
+    Aes128DataSource testInstance =
+        new TestAes123DataSource(
+            new ByteArrayDataSource(encrypt(data)), KEY, IV, /* decryptAheadExecutor= */ null);
+
+    assertThat(readFully(testInstance, /* readLength= */ 50_000)).isEqualTo(data);
+  }
+
+  @Test
+  public void read_withSmallReadLength_decryptsData() throws Exception {
+    byte[] data = buildTestData(/* length= */ 100_003);
+    Aes128DataSource testInstance =
+        new TestAes123DataSource(
+            new ByteArrayDataSource(encrypt(data)), KEY, IV, /* decryptAheadExecutor= */ null);
+
+    assertThat(readFully(testInstance, /* readLength= */ 5)).isEqualTo(data);
+  }
+
+  @Test
+  public void read_withBlockAlignedData_decryptsData() throws Exception {
+    byte[] data = buildTestData(/* length= */ 4096);
+    Aes128DataSource testInstance =
+        new TestAes123DataSource(
+            new ByteArrayDataSource(encrypt(data)), KEY, IV, /* decryptAheadExecutor= */ null);
+
+    assertThat(readFully(testInstance, /* readLength= */ 4096)).isEqualTo(data);
+  }
+
+  @Test
+  public void read_withDecryptAhead_decryptsData() throws Exception {
+    byte[] data = buildTestData(/* length= */ 10 * Aes128DataSource.CHUNK_SIZE + 1);
+    ExecutorService executor = Executors.newSingleThreadExecutor();
+    try {
+      Aes128DataSource testInstance =
+          new TestAes123DataSource(new ByteArrayDataSource(encrypt(data)), KEY, IV, executor);
+
+      assertThat(readFully(testInstance, /* readLength= */ 10_000)).isEqualTo(data);
+    } finally {
+      executor.shutdown();
+    }
+  }
+
+  @Test
+  public void close_withDecryptAheadBeforeEndOfInput_closesUpstream() throws Exception {
+    byte[] data = buildTestData(/* length= */ 10 * Aes128DataSource.CHUNK_SIZE);
+    ExecutorService executor = Executors.newSingleThreadExecutor();
+    try {
+      ByteArrayDataSource upstream = new ByteArrayDataSource(encrypt(data));
+      Aes128DataSource testInstance = new TestAes123DataSource(upstream, KEY, IV, executor);
+      testInstance.open(new DataSpec(Uri.EMPTY));
+      byte[] buffer = new byte[100];
+      assertThat(testInstance.read(buffer, /* offset= */ 0, buffer.length)).isEqualTo(100);
+
+      testInstance.close();
+
+      assertThat(upstream.getUri()).isNull();
+    } finally {
+      executor.shutdown();
+    }
+  }
+
+  @Test
+  public void close_withDecryptAheadBlockedReadingUpstream_closesUpstreamToUnblockRead()
+      throws Exception {
+    ExecutorService executor = Executors.newSingleThreadExecutor();
+    try {
+      BlockingUpstreamDataSource upstream = new BlockingUpstreamDataSource();
+      Aes128DataSource testInstance = new TestAes123DataSource(upstream, KEY, IV, executor);
+      testInstance.open(new DataSpec(Uri.EMPTY));
+      upstream.readStarted.block();
+
+      testInstance.close();
+
+      assertThat(upstream.closedCalled).isTrue();
+    } finally {
+      executor.shutdown();
+    }
+  }
+
+  @Test
+  public void read_withDecryptAheadAndUpstreamThrowingUncheckedException_throwsIOException()
+      throws Exception {
+    ExecutorService executor = Executors.newSingleThreadExecutor();
+    try {
+      IllegalStateException upstreamException = new IllegalStateException();
+      UpstreamDataSource upstream =
+          new UpstreamDataSource() {
+            @Override
+            public int read(byte[] buffer, int offset, int length) {
+              throw upstreamException;
+            }
+          };
+      Aes128DataSource testInstance = new TestAes123DataSource(upstream, KEY, IV, executor);
+
+      IOException exception =
+          assertThrows(IOException.class, () -> readFully(testInstance, /* readLength= */ 1000));
+
+      assertThat(exception).hasCauseThat().isSameInstanceAs(upstreamException);
+    } finally {
+      executor.shutdown();
+    }
+  }
+
+  @Test
+  public void read_withCorruptPadding_throwsIOException() throws Exception {
+    byte[] encryptedData = encrypt(buildTestData(/* length= */ 1000));
+    encryptedData[encryptedData.length - 1] ^= 0x5A;
+    Aes128DataSource testInstance =
+        new TestAes123DataSource(
+            new ByteArrayDataSource(encryptedData), KEY, IV, /* decryptAheadExecutor= */ null);
+
+    assertThrows(IOException.class, () -> readFully(testInstance, /* readLength= */ 1000));
+  }
+
+  private static byte[] buildTestData(int length) {
+    byte[] data = new byte[length];
+    new Random(length).nextBytes(data);
+    return data;
+  }
+
+  private static byte[] encrypt(byte[] data) throws GeneralSecurityException {
+    Cipher cipher = Cipher.getInstance("AES/CBC/PKCS5Padding");
+    cipher.init(Cipher.ENCRYPT_MODE, new SecretKeySpec(KEY, "AES"), new IvParameterSpec(IV));
+    return cipher.doFinal(data);
+  }
+
+  private static byte[] readFully(DataSource dataSource, int readLength) throws IOException {
+    ByteArrayOutputStream output = new ByteArrayOutputStream();
+    byte[] buffer = new byte[readLength];
+    try {
+      dataSource.open(new DataSpec(Uri.EMPTY));
+      int bytesRead;
+      while ((bytesRead = dataSource.read(buffer, /* offset= */ 0, readLength))
+          != C.RESULT_END_OF_INPUT) {
+        output.write(buffer, /* off= */ 0, bytesRead);
+      }
+    } finally {
+      dataSource.close();
+    }
+    return output.toByteArray();
+  }
+
   private static class TestAes123DataSource extends Aes128DataSource {
 
     public TestAes123DataSource(DataSource upstream, byte[] encryptionKey, byte[] encryptionIv) {
       super(upstream, encryptionKey, encryptionIv);
     }
 
+    public TestAes123DataSource(
+        DataSource upstream,
+        byte[] encryptionKey,
+        byte[] encryptionIv,
+        @Nullable Executor decryptAheadExecutor) {
+      super(upstream, encryptionKey, encryptionIv, decryptAheadExecutor);
+    }
+
     @Override
     protected Cipher getCipherInstance() throws NoSuchPaddingException, NoSuchAlgorithmException {
       try {
@@ -124,4 +291,30 @@ public class Aes128DataSourceTest {
       closedCalled = true;
     }
   }
+
+  private static final class BlockingUpstreamDataSource extends UpstreamDataSource {
+
+    public final ConditionVariable readStarted;
+
+    private final ConditionVariable closed;
+
+    public BlockingUpstreamDataSource() {
+      readStarted = new ConditionVariable();
+      closed = new ConditionVariable();
+    }
+
+    @Override
+    public int read(byte[] buffer, int offset, int length) {
+      readStarted.open();
+      // Like a stalled network read, only return once the source is closed.
+      closed.blockUninterruptible();
+      return C.RESULT_END_OF_INPUT;
+    }
+
+    @Override
+    public void close() {
+      super.close();
+      closed.open();
+    }
+  }
 }
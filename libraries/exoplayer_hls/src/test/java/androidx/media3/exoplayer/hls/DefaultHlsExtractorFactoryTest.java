@@ -18,6 +18,7 @@ package androidx.media3.exoplayer.hls;
 import static com.google.common.truth.Truth.assertThat;
 
 import android.net.Uri;
+import androidx.media3.common.C;
 import androidx.media3.common.Format;
 import androidx.media3.common.MimeTypes;
 import androidx.media3.common.util.TimestampAdjuster;
@@ -29,6 +30,8 @@ import androidx.media3.extractor.mp4.FragmentedMp4Extractor;
 import androidx.media3.extractor.ts.Ac3Extractor;
 import androidx.media3.extractor.ts.TsExtractor;
 import androidx.media3.test.utils.FakeExtractorInput;
+import androidx.media3.test.utils.FakeExtractorOutput;
+import androidx.media3.test.utils.FakeTrackOutput;
 import androidx.media3.test.utils.TestUtil;
 import androidx.test.core.app.ApplicationProvider;
 import androidx.test.ext.junit.runners.AndroidJUnit4;
@@ -257,4 +260,43 @@ public class DefaultHlsExtractorFactoryTest {
     // Transport Stream.
     assertThat(result.extractor.getClass()).isEqualTo(TsExtractor.class);
   }
+
+  @Test
+  public void createExtractor_withTrickPlayFormat_outputsIdrAndNonIdrKeyframesOnly()
+      throws Exception {
+    // The segment has 30 samples, 3 of which are IDR frames and 1 of which is a non-IDR I-frame.
+    ExtractorInput tsExtractorInput =
+        new FakeExtractorInput.Builder()
+            .setData(
+                TestUtil.getByteArray(
+                    ApplicationProvider.getApplicationContext(), "media/ts/sample_h264.ts"))
+            .build();
+    Format trickPlayFormat =
+        new Format.Builder()
+            .setSampleMimeType(MimeTypes.VIDEO_H264)
+            .setRoleFlags(C.ROLE_FLAG_TRICK_PLAY)
+            .build();
+    BundledHlsMediaChunkExtractor result =
+        new DefaultHlsExtractorFactory()
+            .createExtractor(
+                URI_WITH_TS_EXTENSION,
+                trickPlayFormat,
+                /* muxedCaptionFormats= */ null,
+                timestampAdjuster,
+                /* responseHeaders= */ ImmutableMap.of(),
+                tsExtractorInput,
+                PlayerId.UNSET);
+    FakeExtractorOutput output = new FakeExtractorOutput();
+
+    result.init(output);
+    while (result.read(tsExtractorInput)) {}
+
+    assertThat(result.extractor.getClass()).isEqualTo(TsExtractor.class);
+    assertThat(output.numberOfTracks).isEqualTo(1);
+    FakeTrackOutput videoOutput = output.trackOutputs.valueAt(0);
+    videoOutput.assertSampleCount(4);
+    for (int i = 0; i < videoOutput.getSampleCount(); i++) {
+      assertThat(videoOutput.getSampleFlags(i) & C.BUFFER_FLAG_KEY_FRAME).isNotEqualTo(0);
+    }
+  }
 }
@@ -27,9 +27,12 @@ import androidx.media3.common.C;
 import androidx.media3.common.Format;
 import androidx.media3.common.MediaItem;
 import androidx.media3.common.MimeTypes;
+import androidx.media3.common.util.Util;
 import androidx.media3.exoplayer.LoadingInfo;
 import androidx.media3.exoplayer.SeekParameters;
 import androidx.media3.exoplayer.analytics.PlayerId;
+import androidx.media3.exoplayer.source.chunk.Chunk;
+import androidx.media3.exoplayer.source.chunk.DataChunk;
 import androidx.media3.exoplayer.hls.playlist.HlsMediaPlaylist;
 import androidx.media3.exoplayer.hls.playlist.HlsPlaylistParser;
 import androidx.media3.exoplayer.hls.playlist.HlsPlaylistTracker;
@@ -41,8 +44,10 @@ import androidx.test.core.app.ApplicationProvider;
 import androidx.test.ext.junit.runners.AndroidJUnit4;
 import com.google.common.collect.ImmutableList;
 import com.google.common.collect.ImmutableListMultimap;
+import java.io.ByteArrayInputStream;
 import java.io.IOException;
 import java.io.InputStream;
+import java.security.GeneralSecurityException;
 import java.time.Duration;
 import org.junit.Before;
 import org.junit.Test;
@@ -569,7 +574,80 @@ public class HlsChunkSourceTest {
                 + "sid=\"sessionId\",st=v,su,tb=800");
   }
 
+  @Test
+  public void onChunkLoadError_decryptionErrorWithRotatedKey_requestsKeyAgainOncePerSegment()
+      throws IOException {
+    String playlistString =
+        "#EXTM3U\n"
+            + "#EXT-X-TARGETDURATION:4\n"
+            + "#EXT-X-MEDIA-SEQUENCE:2\n"
+            + "#EXT-X-INDEPENDENT-SEGMENTS\n"
+            + "#EXT-X-KEY:METHOD=AES-128,URI=\"key\",IV=0x1566B\n"
+            + "#EXTINF:4,\n"
+            + "2.ts\n"
+            + "#EXTINF:4,\n"
+            + "3.ts\n"
+            + "#EXT-X-ENDLIST\n";
+    HlsMediaPlaylist playlist =
+        (HlsMediaPlaylist)
+            new HlsPlaylistParser()
+                .parse(
+                    PLAYLIST_URI, new ByteArrayInputStream(Util.getUtf8Bytes(playlistString)));
+    when(mockPlaylistTracker.getPlaylistSnapshot(eq(PLAYLIST_URI), anyBoolean()))
+        .thenReturn(playlist);
+    Uri keyUri = Uri.parse("http://example.com/key");
+    HlsKeyCache sharedKeyCache = new HlsKeyCache();
+    sharedKeyCache.put(keyUri, TestUtil.buildTestData(/* length= */ 16, /* seed= */ 1));
+    HlsChunkSource testChunkSource =
+        createHlsChunkSource(/* cmcdConfiguration= */ null, sharedKeyCache);
+    HlsChunkSource.HlsChunkHolder output = new HlsChunkSource.HlsChunkHolder();
+    LoadingInfo loadingInfo =
+        new LoadingInfo.Builder().setPlaybackPositionUs(0).setPlaybackSpeed(1.0f).build();
+    long loadPositionUs = playlistTimeToPeriodTimeUs(0);
+    IOException decryptionError = new IOException(new GeneralSecurityException());
+
+    testChunkSource.getNextChunk(
+        loadingInfo,
+        loadPositionUs,
+        /* queue= */ ImmutableList.of(),
+        /* allowEndOfStream= */ true,
+        output);
+    HlsMediaChunk staleKeyChunk = (HlsMediaChunk) output.chunk;
+    boolean reloadStaleKeyChunk = testChunkSource.onChunkLoadError(staleKeyChunk, decryptionError);
+    output.clear();
+    testChunkSource.getNextChunk(
+        loadingInfo,
+        loadPositionUs,
+        /* queue= */ ImmutableList.of(),
+        /* allowEndOfStream= */ true,
+        output);
+    Chunk keyChunk = output.chunk;
+    // Simulate the server serving the rotated key.
+    sharedKeyCache.put(keyUri, TestUtil.buildTestData(/* length= */ 16, /* seed= */ 2));
+    output.clear();
+    testChunkSource.getNextChunk(
+        loadingInfo,
+        loadPositionUs,
+        /* queue= */ ImmutableList.of(),
+        /* allowEndOfStream= */ true,
+        output);
+    HlsMediaChunk newKeyChunk = (HlsMediaChunk) output.chunk;
+    boolean reloadNewKeyChunk = testChunkSource.onChunkLoadError(newKeyChunk, decryptionError);
+
+    assertThat(reloadStaleKeyChunk).isTrue();
+    assertThat(keyChunk).isInstanceOf(DataChunk.class);
+    assertThat(keyChunk.dataSpec.uri).isEqualTo(keyUri);
+    assertThat(newKeyChunk).isNotSameInstanceAs(staleKeyChunk);
+    assertThat(newKeyChunk.chunkIndex).isEqualTo(staleKeyChunk.chunkIndex);
+    assertThat(reloadNewKeyChunk).isFalse();
+  }
+
   private HlsChunkSource createHlsChunkSource(@Nullable CmcdConfiguration cmcdConfiguration) {
+    return createHlsChunkSource(cmcdConfiguration, /* sharedKeyCache= */ null);
+  }
+
+  private HlsChunkSource createHlsChunkSource(
+      @Nullable CmcdConfiguration cmcdConfiguration, @Nullable HlsKeyCache sharedKeyCache) {
     return new HlsChunkSource(
         new DefaultHlsExtractorFactory(),
         mockPlaylistTracker,
@@ -581,7 +659,10 @@ public class HlsChunkSourceTest {
         /* timestampAdjusterInitializationTimeoutMs= */ 0,
         /* muxedCaptionFormats= */ null,
         PlayerId.UNSET,
-        cmcdConfiguration);
+        cmcdConfiguration,
+        /* prefetchSegmentCount= */ 0,
+        /* decryptAheadEnabled= */ false,
+        sharedKeyCache);
   }
 
   private static long playlistTimeToPeriodTimeUs(long playlistTimeUs) {
@@ -0,0 +1,129 @@
+/*
+ * Copyright 2026 The Android Open Source Project
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package androidx.media3.exoplayer.hls;
+
+import static com.google.common.truth.Truth.assertThat;
+
+import android.net.Uri;
+import androidx.media3.test.utils.FakeClock;
+import androidx.test.ext.junit.runners.AndroidJUnit4;
+import com.google.common.collect.ImmutableList;
+import com.google.common.collect.ImmutableMap;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+
+/** Unit tests for {@link HlsKeyCache}. */
+@RunWith(AndroidJUnit4.class)
+public class HlsKeyCacheTest {
+
+  private static final Uri KEY_URI_1 = Uri.parse("https://example.com/key1");
+  private static final Uri KEY_URI_2 = Uri.parse("https://example.com/key2");
+  private static final Uri KEY_URI_3 = Uri.parse("https://example.com/key3");
+  private static final byte[] KEY_1 = new byte[] {1, 2, 3};
+  private static final byte[] KEY_2 = new byte[] {4, 5, 6};
+  private static final byte[] KEY_3 = new byte[] {7, 8, 9};
+
+  @Test
+  public void get_beforeTtlElapsed_returnsKey() {
+    FakeClock clock = new FakeClock(/* initialTimeMs= */ 0);
+    HlsKeyCache keyCache = new HlsKeyCache(/* maxSize= */ 4, /* defaultTtlMs= */ 1000, clock);
+
+    keyCache.put(KEY_URI_1, KEY_1);
+    clock.advanceTime(999);
+
+    assertThat(keyCache.get(KEY_URI_1)).isEqualTo(KEY_1);
+  }
+
+  @Test
+  public void get_afterTtlElapsed_returnsNull() {
+    FakeClock clock = new FakeClock(/* initialTimeMs= */ 0);
+    HlsKeyCache keyCache = new HlsKeyCache(/* maxSize= */ 4, /* defaultTtlMs= */ 1000, clock);
+
+    keyCache.put(KEY_URI_1, KEY_1);
+    keyCache.put(KEY_URI_2, KEY_2, /* ttlMs= */ 5000);
+    clock.advanceTime(1000);
+
+    assertThat(keyCache.get(KEY_URI_1)).isNull();
+    assertThat(keyCache.get(KEY_URI_2)).isEqualTo(KEY_2);
+  }
+
+  @Test
+  public void put_withZeroTtl_removesExistingKey() {
+    HlsKeyCache keyCache = new HlsKeyCache();
+
+    keyCache.put(KEY_URI_1, KEY_1);
+    keyCache.put(KEY_URI_1, KEY_2, /* ttlMs= */ 0);
+
+    assertThat(keyCache.get(KEY_URI_1)).isNull();
+  }
+
+  @Test
+  public void put_exceedingMaxSize_evictsLeastRecentlyUsedKey() {
+    HlsKeyCache keyCache = new HlsKeyCache(/* maxSize= */ 2, HlsKeyCache.DEFAULT_TTL_MS);
+
+    keyCache.put(KEY_URI_1, KEY_1);
+    keyCache.put(KEY_URI_2, KEY_2);
+    keyCache.get(KEY_URI_1);
+    keyCache.put(KEY_URI_3, KEY_3);
+
+    assertThat(keyCache.get(KEY_URI_1)).isEqualTo(KEY_1);
+    assertThat(keyCache.get(KEY_URI_2)).isNull();
+    assertThat(keyCache.get(KEY_URI_3)).isEqualTo(KEY_3);
+  }
+
+  @Test
+  public void remove_removesKey() {
+    HlsKeyCache keyCache = new HlsKeyCache();
+    keyCache.put(KEY_URI_1, KEY_1);
+    keyCache.put(KEY_URI_2, KEY_2);
+
+    keyCache.remove(KEY_URI_1);
+
+    assertThat(keyCache.get(KEY_URI_1)).isNull();
+    assertThat(keyCache.get(KEY_URI_2)).isEqualTo(KEY_2);
+  }
+
+  @Test
+  public void getTtlMs_withMaxAge_returnsMaxAge() {
+    HlsKeyCache keyCache = new HlsKeyCache(/* maxSize= */ 4, /* defaultTtlMs= */ 1000);
+
+    long ttlMs =
+        keyCache.getTtlMs(
+            ImmutableMap.of("cache-control", ImmutableList.of("private, max-age=30")));
+
+    assertThat(ttlMs).isEqualTo(30_000);
+  }
+
+  @Test
+  public void getTtlMs_withNoStore_returnsZero() {
+    HlsKeyCache keyCache = new HlsKeyCache(/* maxSize= */ 4, /* defaultTtlMs= */ 1000);
+
+    long ttlMs =
+        keyCache.getTtlMs(ImmutableMap.of("Cache-Control", ImmutableList.of("no-store")));
+
+    assertThat(ttlMs).isEqualTo(0);
+  }
+
+  @Test
+  public void getTtlMs_withoutCacheControl_returnsDefaultTtl() {
+    HlsKeyCache keyCache = new HlsKeyCache(/* maxSize= */ 4, /* defaultTtlMs= */ 1000);
+
+    long ttlMs =
+        keyCache.getTtlMs(ImmutableMap.of("Content-Type", ImmutableList.of("binary/octet-stream")));
+
+    assertThat(ttlMs).isEqualTo(1000);
+  }
+}
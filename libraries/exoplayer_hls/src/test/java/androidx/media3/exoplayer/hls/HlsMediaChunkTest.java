@@ -289,6 +289,7 @@ public class HlsMediaChunkTest {
         null,
         shouldSpliceIn,
         PlayerId.UNSET,
+        null,
         null);
   }
 }
@@ -100,7 +100,10 @@ public final class HlsMediaPeriodTest {
               HlsMediaSource.METADATA_TYPE_ID3,
               /* useSessionKeys= */ false,
               PlayerId.UNSET,
-              /* timestampAdjusterInitializationTimeoutMs= */ 0);
+              /* timestampAdjusterInitializationTimeoutMs= */ 0,
+              /* prefetchSegmentCount= */ 0,
+              /* decryptAheadEnabled= */ false,
+              /* sharedKeyCache= */ null);
         };
 
     MediaPeriodAsserts.assertGetStreamKeysAndManifestFilterIntegration(
@@ -0,0 +1,251 @@
+/*
+ * Copyright 2026 The Android Open Source Project
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package androidx.media3.exoplayer.hls;
+
+import static androidx.media3.common.util.Assertions.checkNotNull;
+import static com.google.common.truth.Truth.assertThat;
+
+import android.net.Uri;
+import androidx.media3.common.util.ConditionVariable;
+import androidx.media3.datasource.DataSource;
+import androidx.media3.datasource.DataSourceUtil;
+import androidx.media3.datasource.DataSpec;
+import androidx.media3.datasource.TransferListener;
+import androidx.media3.exoplayer.upstream.CmcdConfiguration;
+import androidx.media3.test.utils.FakeDataSet;
+import androidx.media3.test.utils.FakeDataSource;
+import androidx.media3.test.utils.TestUtil;
+import androidx.test.ext.junit.runners.AndroidJUnit4;
+import com.google.common.collect.ImmutableList;
+import com.google.common.collect.ImmutableMap;
+import java.io.IOException;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicInteger;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+
+/** Tests for {@link HlsSegmentPrefetcher}. */
+@RunWith(AndroidJUnit4.class)
+public class HlsSegmentPrefetcherTest {
+
+  private static final Uri SEGMENT_1_URI = Uri.parse("https://example.com/1.ts");
+  private static final Uri SEGMENT_2_URI = Uri.parse("https://example.com/2.ts");
+  private static final Uri KEY_URI = Uri.parse("https://example.com/key");
+  private static final Uri KEY_2_URI = Uri.parse("https://example.com/key2");
+  private static final Uri KEY_3_URI = Uri.parse("https://example.com/key3");
+
+  private byte[] segment1Data;
+  private byte[] segment2Data;
+  private byte[] keyData;
+  private FakeDataSet fakeDataSet;
+  private TransferEndedListener transferEndedListener;
+  private HlsSegmentPrefetcher segmentPrefetcher;
+
+  @Before
+  public void setUp() {
+    segment1Data = TestUtil.buildTestData(/* length= */ 100_000, /* seed= */ 1);
+    segment2Data = TestUtil.buildTestData(/* length= */ 10, /* seed= */ 2);
+    keyData = TestUtil.buildTestData(/* length= */ 16, /* seed= */ 3);
+    fakeDataSet =
+        new FakeDataSet()
+            .setData(SEGMENT_1_URI, segment1Data)
+            .setData(SEGMENT_2_URI, segment2Data)
+            .setData(KEY_URI, keyData)
+            .setData(KEY_2_URI, keyData)
+            .setData(KEY_3_URI, keyData);
+    transferEndedListener = new TransferEndedListener();
+    segmentPrefetcher =
+        new HlsSegmentPrefetcher(
+            new DefaultHlsDataSourceFactory(
+                new FakeDataSource.Factory().setFakeDataSet(fakeDataSet)),
+            transferEndedListener,
+            /* maxSegmentCount= */ 2);
+  }
+
+  @After
+  public void tearDown() {
+    segmentPrefetcher.release();
+  }
+
+  @Test
+  public void readPrefetchedSegment_servesDataWithoutOpeningUpstream() throws IOException {
+    DataSpec dataSpec = new DataSpec(SEGMENT_1_URI);
+    FakeDataSource upstream = new FakeDataSource(fakeDataSet);
+    DataSource dataSource = segmentPrefetcher.createDataSource(upstream);
+
+    segmentPrefetcher.prefetchSegment(dataSpec);
+    dataSource.open(dataSpec);
+    byte[] data = DataSourceUtil.readToEnd(dataSource);
+    dataSource.close();
+
+    assertThat(data).isEqualTo(segment1Data);
+    assertThat(upstream.getAndClearOpenedDataSpecs()).isEmpty();
+  }
+
+  @Test
+  public void readSegmentNotPrefetched_readsFromUpstream() throws IOException {
+    DataSpec dataSpec = new DataSpec(SEGMENT_2_URI);
+    FakeDataSource upstream = new FakeDataSource(fakeDataSet);
+    DataSource dataSource = segmentPrefetcher.createDataSource(upstream);
+
+    segmentPrefetcher.prefetchSegment(new DataSpec(SEGMENT_1_URI));
+    dataSource.open(dataSpec);
+    byte[] data = DataSourceUtil.readToEnd(dataSource);
+    dataSource.close();
+
+    assertThat(data).isEqualTo(segment2Data);
+    assertThat(upstream.getAndClearOpenedDataSpecs()).hasLength(1);
+  }
+
+  @Test
+  public void readSegment_afterRetainSegmentsDropsIt_readsFromUpstream() throws IOException {
+    DataSpec dataSpec = new DataSpec(SEGMENT_1_URI);
+    FakeDataSource upstream = new FakeDataSource(fakeDataSet);
+    DataSource dataSource = segmentPrefetcher.createDataSource(upstream);
+
+    segmentPrefetcher.prefetchSegment(dataSpec);
+    segmentPrefetcher.retainSegments(/* upcomingDataSpecs= */ ImmutableList.of());
+    dataSource.open(dataSpec);
+    byte[] data = DataSourceUtil.readToEnd(dataSource);
+    dataSource.close();
+
+    assertThat(data).isEqualTo(segment1Data);
+    assertThat(upstream.getAndClearOpenedDataSpecs()).hasLength(1);
+  }
+
+  @Test
+  public void readPrefetchedSegment_withCmcdQueryParameter_servesDataWithoutOpeningUpstream()
+      throws IOException {
+    DataSpec cmcdDataSpec =
+        new DataSpec(
+            SEGMENT_1_URI
+                .buildUpon()
+                .appendQueryParameter(CmcdConfiguration.CMCD_QUERY_PARAMETER_KEY, "bl=0,br=800")
+                .build());
+    FakeDataSource upstream = new FakeDataSource(fakeDataSet);
+    DataSource dataSource = segmentPrefetcher.createDataSource(upstream);
+
+    segmentPrefetcher.prefetchSegment(new DataSpec(SEGMENT_1_URI));
+    dataSource.open(cmcdDataSpec);
+    byte[] data = DataSourceUtil.readToEnd(dataSource);
+    dataSource.close();
+
+    assertThat(data).isEqualTo(segment1Data);
+    assertThat(upstream.getAndClearOpenedDataSpecs()).isEmpty();
+  }
+
+  @Test
+  public void pollKey_afterPrefetchKey_returnsKey() {
+    segmentPrefetcher.prefetchKey(KEY_URI);
+
+    transferEndedListener.blockUntilTransfersEnded(/* transferCount= */ 1);
+    assertThat(checkNotNull(segmentPrefetcher.pollKey(KEY_URI)).key).isEqualTo(keyData);
+    assertThat(segmentPrefetcher.pollKey(KEY_URI)).isNull();
+  }
+
+  @Test
+  public void pollKey_afterPrefetchKey_returnsResponseHeaders() {
+    Map<String, List<String>> responseHeaders =
+        ImmutableMap.of("Cache-Control", ImmutableList.of("max-age=60"));
+    HlsSegmentPrefetcher keyPrefetcher =
+        new HlsSegmentPrefetcher(
+            dataType ->
+                new FakeDataSource(fakeDataSet) {
+                  @Override
+                  public Map<String, List<String>> getResponseHeaders() {
+                    return responseHeaders;
+                  }
+                },
+            transferEndedListener,
+            /* maxSegmentCount= */ 2);
+
+    try {
+      keyPrefetcher.prefetchKey(KEY_URI);
+      transferEndedListener.blockUntilTransfersEnded(/* transferCount= */ 1);
+
+      HlsSegmentPrefetcher.PrefetchedKey prefetchedKey =
+          checkNotNull(keyPrefetcher.pollKey(KEY_URI));
+      assertThat(prefetchedKey.key).isEqualTo(keyData);
+      assertThat(prefetchedKey.responseHeaders).isEqualTo(responseHeaders);
+    } finally {
+      keyPrefetcher.release();
+    }
+  }
+
+  @Test
+  public void prefetchKey_maxKeyCountReached_ignoresKey() {
+    segmentPrefetcher.prefetchKey(KEY_URI);
+    segmentPrefetcher.prefetchKey(KEY_2_URI);
+    segmentPrefetcher.prefetchKey(KEY_3_URI);
+
+    transferEndedListener.blockUntilTransfersEnded(/* transferCount= */ 2);
+    assertThat(checkNotNull(segmentPrefetcher.pollKey(KEY_URI)).key).isEqualTo(keyData);
+    assertThat(checkNotNull(segmentPrefetcher.pollKey(KEY_2_URI)).key).isEqualTo(keyData);
+    assertThat(segmentPrefetcher.pollKey(KEY_3_URI)).isNull();
+  }
+
+  @Test
+  public void pollKey_afterRetainKeysDropsIt_returnsNull() {
+    segmentPrefetcher.prefetchKey(KEY_URI);
+    segmentPrefetcher.prefetchKey(KEY_2_URI);
+    transferEndedListener.blockUntilTransfersEnded(/* transferCount= */ 2);
+
+    segmentPrefetcher.retainKeys(ImmutableList.of(KEY_2_URI));
+
+    assertThat(segmentPrefetcher.pollKey(KEY_URI)).isNull();
+    assertThat(checkNotNull(segmentPrefetcher.pollKey(KEY_2_URI)).key).isEqualTo(keyData);
+  }
+
+  private static final class TransferEndedListener implements TransferListener {
+
+    private final ConditionVariable transferEnded;
+    private final AtomicInteger transferEndCount;
+
+    public TransferEndedListener() {
+      transferEnded = new ConditionVariable();
+      transferEndCount = new AtomicInteger();
+    }
+
+    public void blockUntilTransfersEnded(int transferCount) {
+      while (true) {
+        transferEnded.close();
+        if (transferEndCount.get() >= transferCount) {
+          return;
+        }
+        assertThat(transferEnded.block(/* timeoutMs= */ 10_000)).isTrue();
+      }
+    }
+
+    @Override
+    public void onTransferInitializing(DataSource source, DataSpec dataSpec, boolean isNetwork) {}
+
+    @Override
+    public void onTransferStart(DataSource source, DataSpec dataSpec, boolean isNetwork) {}
+
+    @Override
+    public void onBytesTransferred(
+        DataSource source, DataSpec dataSpec, boolean isNetwork, int bytesTransferred) {}
+
+    @Override
+    public void onTransferEnd(DataSource source, DataSpec dataSpec, boolean isNetwork) {
+      transferEndCount.incrementAndGet();
+      transferEnded.open();
+    }
+  }
+}
@@ -1472,4 +1472,170 @@ public class HlsMediaPlaylistParserTest {
       assertThat(playlist.segments.get(i - 1).url).isEqualTo("long_path" + i + ".ts");
     }
   }
+
+  @Test
+  public void parseMediaPlaylist_withIncrementalParsing_matchesRegexParsing() throws IOException {
+    Uri playlistUri = Uri.parse("https://example.com/test.m3u8");
+    String playlistString =
+        "#EXTM3U\n"
+            + "#EXT-X-VERSION:6\n"
+            + "#EXT-X-TARGETDURATION:4\n"
+            + "#EXT-X-MEDIA-SEQUENCE:100\n"
+            + "#EXT-X-DEFINE:NAME=\"base\",VALUE=\"https://cdn.example.com\"\n"
+            + "#EXT-X-KEY:METHOD=AES-128,URI=\"{$base}/key?a=1,b=2\",IV=0x1566B\n"
+            + "#EXTINF:4.00008,Segment title, with comma\n"
+            + "#EXT-X-BYTERANGE:51370@0\n"
+            + "{$base}/segment100.ts\n"
+            + "#EXT-X-KEY:METHOD=NONE\n"
+            + "#EXT-X-DISCONTINUITY\n"
+            + "#EXTINF:3.9,\n"
+            + "#EXT-X-BYTERANGE:51501\n"
+            + "segment100.ts\n"
+            + "#EXT-X-GAP\n"
+            + "#EXTINF:4,\n"
+            + "segment102.ts\n"
+            + "#EXT-X-PART:DURATION=2.00000,INDEPENDENT=YES,URI=\"part103.1.ts\"\n"
+            + "#EXT-X-PART:DURATION=2.00000,URI=\"part103.2.ts\",BYTERANGE=\"1000@10\",GAP=YES\n"
+            + "#EXTINF:4.00000,\n"
+            + "segment103.ts\n";
+
+    HlsMediaPlaylist expectedPlaylist =
+        (HlsMediaPlaylist)
+            new HlsPlaylistParser()
+                .parse(playlistUri, new ByteArrayInputStream(Util.getUtf8Bytes(playlistString)));
+    HlsMediaPlaylist playlist =
+        (HlsMediaPlaylist)
+            new HlsPlaylistParser(
+                    HlsMultivariantPlaylist.EMPTY,
+                    /* previousMediaPlaylist= */ null,
+                    /* useIncrementalParsing= */ true)
+                .parse(playlistUri, new ByteArrayInputStream(Util.getUtf8Bytes(playlistString)));
+
+    assertThat(playlist.segments).hasSize(expectedPlaylist.segments.size());
+    for (int i = 0; i < expectedPlaylist.segments.size(); i++) {
+      Segment expectedSegment = expectedPlaylist.segments.get(i);
+      Segment segment = playlist.segments.get(i);
+      assertThat(segment.url).isEqualTo(expectedSegment.url);
+      assertThat(segment.title).isEqualTo(expectedSegment.title);
+      assertThat(segment.durationUs).isEqualTo(expectedSegment.durationUs);
+      assertThat(segment.relativeStartTimeUs).isEqualTo(expectedSegment.relativeStartTimeUs);
+      assertThat(segment.relativeDiscontinuitySequence)
+          .isEqualTo(expectedSegment.relativeDiscontinuitySequence);
+      assertThat(segment.fullSegmentEncryptionKeyUri)
+          .isEqualTo(expectedSegment.fullSegmentEncryptionKeyUri);
+      assertThat(segment.encryptionIV).isEqualTo(expectedSegment.encryptionIV);
+      assertThat(segment.byteRangeOffset).isEqualTo(expectedSegment.byteRangeOffset);
+      assertThat(segment.byteRangeLength).isEqualTo(expectedSegment.byteRangeLength);
+      assertThat(segment.hasGapTag).isEqualTo(expectedSegment.hasGapTag);
+      assertThat(segment.parts).hasSize(expectedSegment.parts.size());
+      for (int j = 0; j < expectedSegment.parts.size(); j++) {
+        HlsMediaPlaylist.Part expectedPart = expectedSegment.parts.get(j);
+        HlsMediaPlaylist.Part part = segment.parts.get(j);
+        assertThat(part.url).isEqualTo(expectedPart.url);
+        assertThat(part.durationUs).isEqualTo(expectedPart.durationUs);
+        assertThat(part.isIndependent).isEqualTo(expectedPart.isIndependent);
+        assertThat(part.hasGapTag).isEqualTo(expectedPart.hasGapTag);
+        assertThat(part.byteRangeOffset).isEqualTo(expectedPart.byteRangeOffset);
+        assertThat(part.byteRangeLength).isEqualTo(expectedPart.byteRangeLength);
+      }
+    }
+    assertThat(playlist.segments.get(0).title).isEqualTo("Segment title, with comma");
+    assertThat(playlist.segments.get(0).fullSegmentEncryptionKeyUri)
+        .isEqualTo("https://cdn.example.com/key?a=1,b=2");
+    assertThat(playlist.segments.get(0).url).isEqualTo("https://cdn.example.com/segment100.ts");
+  }
+
+  @Test
+  public void parseMediaPlaylist_withIncrementalParsing_reusesUnchangedSegments()
+      throws IOException {
+    Uri playlistUri = Uri.parse("https://example.com/test.m3u8");
+    String previousPlaylistString =
+        "#EXTM3U\n"
+            + "#EXT-X-TARGETDURATION:4\n"
+            + "#EXT-X-MEDIA-SEQUENCE:263\n"
+            + "#EXTINF:4.00008,\n"
+            + "fileSequence263.ts\n"
+            + "#EXTINF:4.00008,\n"
+            + "fileSequence264.ts\n"
+            + "#EXTINF:4.00008,\n"
+            + "fileSequence265.ts\n";
+    String playlistString =
+        "#EXTM3U\n"
+            + "#EXT-X-TARGETDURATION:4\n"
+            + "#EXT-X-MEDIA-SEQUENCE:263\n"
+            + "#EXTINF:4.00008,\n"
+            + "fileSequence263.ts\n"
+            + "#EXTINF:4.00008,\n"
+            + "fileSequence264.ts\n"
+            + "#EXTINF:4.00008,\n"
+            + "fileSequence265-replaced.ts\n"
+            + "#EXTINF:4.00008,\n"
+            + "fileSequence266.ts\n";
+    HlsMediaPlaylist previousPlaylist =
+        (HlsMediaPlaylist)
+            new HlsPlaylistParser()
+                .parse(
+                    playlistUri,
+                    new ByteArrayInputStream(Util.getUtf8Bytes(previousPlaylistString)));
+
+    HlsMediaPlaylist playlist =
+        (HlsMediaPlaylist)
+            new HlsPlaylistParser(
+                    HlsMultivariantPlaylist.EMPTY,
+                    previousPlaylist,
+                    /* useIncrementalParsing= */ true)
+                .parse(playlistUri, new ByteArrayInputStream(Util.getUtf8Bytes(playlistString)));
+
+    assertThat(playlist.segments).hasSize(4);
+    assertThat(playlist.segments.get(0)).isSameInstanceAs(previousPlaylist.segments.get(0));
+    assertThat(playlist.segments.get(1)).isSameInstanceAs(previousPlaylist.segments.get(1));
+    assertThat(playlist.segments.get(2)).isNotSameInstanceAs(previousPlaylist.segments.get(2));
+    assertThat(playlist.segments.get(2).url).isEqualTo("fileSequence265-replaced.ts");
+    assertThat(playlist.segments.get(3).url).isEqualTo("fileSequence266.ts");
+  }
+
+  @Test
+  public void parseMediaPlaylist_withIncrementalParsingAndSlidingWindow_rebasesReusedSegments()
+      throws IOException {
+    Uri playlistUri = Uri.parse("https://example.com/test.m3u8");
+    String previousPlaylistString =
+        "#EXTM3U\n"
+            + "#EXT-X-TARGETDURATION:4\n"
+            + "#EXT-X-MEDIA-SEQUENCE:263\n"
+            + "#EXTINF:4.00008,\n"
+            + "fileSequence263.ts\n"
+            + "#EXT-X-DISCONTINUITY\n"
+            + "#EXTINF:4.00008,\n"
+            + "fileSequence264.ts\n";
+    String playlistString =
+        "#EXTM3U\n"
+            + "#EXT-X-TARGETDURATION:4\n"
+            + "#EXT-X-MEDIA-SEQUENCE:264\n"
+            + "#EXT-X-DISCONTINUITY-SEQUENCE:1\n"
+            + "#EXTINF:4.00008,\n"
+            + "fileSequence264.ts\n"
+            + "#EXTINF:4.00008,\n"
+            + "fileSequence265.ts\n";
+    HlsMediaPlaylist previousPlaylist =
+        (HlsMediaPlaylist)
+            new HlsPlaylistParser()
+                .parse(
+                    playlistUri,
+                    new ByteArrayInputStream(Util.getUtf8Bytes(previousPlaylistString)));
+
+    HlsMediaPlaylist playlist =
+        (HlsMediaPlaylist)
+            new HlsPlaylistParser(
+                    HlsMultivariantPlaylist.EMPTY,
+                    previousPlaylist,
+                    /* useIncrementalParsing= */ true)
+                .parse(playlistUri, new ByteArrayInputStream(Util.getUtf8Bytes(playlistString)));
+
+    assertThat(playlist.segments).hasSize(2);
+    Segment rebasedSegment = playlist.segments.get(0);
+    assertThat(rebasedSegment.url).isEqualTo("fileSequence264.ts");
+    assertThat(rebasedSegment.relativeStartTimeUs).isEqualTo(0);
+    assertThat(rebasedSegment.relativeDiscontinuitySequence).isEqualTo(0);
+    assertThat(playlist.segments.get(1).relativeStartTimeUs).isEqualTo(4000080);
+  }
 }
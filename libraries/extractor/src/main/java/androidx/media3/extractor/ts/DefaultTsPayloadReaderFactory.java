@@ -43,7 +43,8 @@ public final class DefaultTsPayloadReaderFactory implements TsPayloadReader.Fact
    * #FLAG_ALLOW_NON_IDR_KEYFRAMES}, {@link #FLAG_IGNORE_AAC_STREAM}, {@link
    * #FLAG_IGNORE_H264_STREAM}, {@link #FLAG_DETECT_ACCESS_UNITS}, {@link
    * #FLAG_IGNORE_SPLICE_INFO_STREAM}, {@link #FLAG_OVERRIDE_CAPTION_DESCRIPTORS},
-   * {@link #FLAG_IGNORE_DEFAULT_ID3_TRACK}, and {@link #FLAG_ENABLE_HDMV_DTS_AUDIO_STREAMS}.
+   * {@link #FLAG_IGNORE_DEFAULT_ID3_TRACK}, {@link #FLAG_ENABLE_HDMV_DTS_AUDIO_STREAMS}, {@link
+   * #FLAG_IGNORE_NON_VIDEO_STREAMS} and {@link #FLAG_KEYFRAMES_ONLY}.
    */
   @Documented
   @Retention(RetentionPolicy.SOURCE)
@@ -58,7 +59,9 @@ public final class DefaultTsPayloadReaderFactory implements TsPayloadReader.Fact
         FLAG_IGNORE_SPLICE_INFO_STREAM,
         FLAG_OVERRIDE_CAPTION_DESCRIPTORS,
         FLAG_IGNORE_DEFAULT_ID3_TRACK,
-        FLAG_ENABLE_HDMV_DTS_AUDIO_STREAMS
+        FLAG_ENABLE_HDMV_DTS_AUDIO_STREAMS,
+        FLAG_IGNORE_NON_VIDEO_STREAMS,
+        FLAG_KEYFRAMES_ONLY
       })
   public @interface Flags {}
 
@@ -114,6 +117,21 @@ public final class DefaultTsPayloadReaderFactory implements TsPayloadReader.Fact
    */
   public static final int FLAG_IGNORE_DEFAULT_ID3_TRACK = 1 << 7;
 
+  /**
+   * Prevents the creation of readers for any elementary stream that isn't a video stream, so that
+   * the {@link TsExtractor} skips the packets of those streams without any PES or section parsing.
+   * This flag should be enabled when only the video track will be played, for example when loading
+   * I-frame only variants for trick play.
+   */
+  public static final int FLAG_IGNORE_NON_VIDEO_STREAMS = 1 << 8;
+
+  /**
+   * When extracting H.264 and H.265 samples, whether to drop all samples that aren't keyframes
+   * instead of outputting them. Whether a sample is a keyframe is determined in the same way as
+   * without this flag, so {@link #FLAG_ALLOW_NON_IDR_KEYFRAMES} also applies.
+   */
+  public static final int FLAG_KEYFRAMES_ONLY = 1 << 9;
+
   private static final int DESCRIPTOR_TAG_CAPTION_SERVICE = 0x86;
 
   private final @Flags int flags;
@@ -154,6 +172,9 @@ public final class DefaultTsPayloadReaderFactory implements TsPayloadReader.Fact
   @Override
   @Nullable
   public TsPayloadReader createPayloadReader(int streamType, EsInfo esInfo) {
+    if (isSet(FLAG_IGNORE_NON_VIDEO_STREAMS) && !isVideoStreamType(streamType)) {
+      return null;
+    }
     switch (streamType) {
       case TsExtractor.TS_STREAM_TYPE_MPA:
       case TsExtractor.TS_STREAM_TYPE_MPA_LSF:
@@ -195,9 +216,10 @@ public final class DefaultTsPayloadReaderFactory implements TsPayloadReader.Fact
                 new H264Reader(
                     buildSeiReader(esInfo),
                     isSet(FLAG_ALLOW_NON_IDR_KEYFRAMES),
-                    isSet(FLAG_DETECT_ACCESS_UNITS)));
+                    isSet(FLAG_DETECT_ACCESS_UNITS),
+                    isSet(FLAG_KEYFRAMES_ONLY)));
       case TsExtractor.TS_STREAM_TYPE_H265:
-        return new PesReader(new H265Reader(buildSeiReader(esInfo)));
+        return new PesReader(new H265Reader(buildSeiReader(esInfo), isSet(FLAG_KEYFRAMES_ONLY)));
       case TsExtractor.TS_STREAM_TYPE_SPLICE_INFO:
         return isSet(FLAG_IGNORE_SPLICE_INFO_STREAM)
             ? null
@@ -217,6 +239,19 @@ public final class DefaultTsPayloadReaderFactory implements TsPayloadReader.Fact
     }
   }
 
+  private static boolean isVideoStreamType(int streamType) {
+    switch (streamType) {
+      case TsExtractor.TS_STREAM_TYPE_H262:
+      case TsExtractor.TS_STREAM_TYPE_DC2_H262:
+      case TsExtractor.TS_STREAM_TYPE_H263:
+      case TsExtractor.TS_STREAM_TYPE_H264:
+      case TsExtractor.TS_STREAM_TYPE_H265:
+        return true;
+      default:
+        return false;
+    }
+  }
+
   /**
    * If {@link #FLAG_OVERRIDE_CAPTION_DESCRIPTORS} is set, returns a {@link SeiReader} for {@link
    * #closedCaptionFormats}. If unset, parses the PMT descriptor information and returns a {@link
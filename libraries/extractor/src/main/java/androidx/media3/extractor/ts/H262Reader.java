@@ -134,7 +134,7 @@ public final class H262Reader implements ElementaryStreamReader {
     output.sampleData(data, data.bytesLeft());
 
     while (true) {
-      int startCodeOffset = NalUnitUtil.findNalUnit(dataArray, offset, limit, prefixFlags);
+      int startCodeOffset = NalUnitScanner.findNalUnit(dataArray, offset, limit, prefixFlags);
 
       if (startCodeOffset == limit) {
         // We've scanned to the end of the data without finding another start code.
@@ -48,6 +48,7 @@ public final class H264Reader implements ElementaryStreamReader {
   private final SeiReader seiReader;
   private final boolean allowNonIdrKeyframes;
   private final boolean detectAccessUnits;
+  private final boolean keyframesOnly;
   private final NalUnitTargetBuffer sps;
   private final NalUnitTargetBuffer pps;
   private final NalUnitTargetBuffer sei;
@@ -78,9 +79,26 @@ public final class H264Reader implements ElementaryStreamReader {
    *     slice headers. Pass {@code false} if the stream contains access unit delimiters (AUDs).
    */
   public H264Reader(SeiReader seiReader, boolean allowNonIdrKeyframes, boolean detectAccessUnits) {
+    this(seiReader, allowNonIdrKeyframes, detectAccessUnits, /* keyframesOnly= */ false);
+  }
+
+  /**
+   * @param seiReader An SEI reader for consuming closed caption channels.
+   * @param allowNonIdrKeyframes Whether to treat samples consisting of non-IDR I slices as
+   *     synchronization samples (key-frames).
+   * @param detectAccessUnits Whether to split the input stream into access units (samples) based on
+   *     slice headers. Pass {@code false} if the stream contains access unit delimiters (AUDs).
+   * @param keyframesOnly Whether to drop samples that aren't keyframes instead of outputting them.
+   */
+  public H264Reader(
+      SeiReader seiReader,
+      boolean allowNonIdrKeyframes,
+      boolean detectAccessUnits,
+      boolean keyframesOnly) {
     this.seiReader = seiReader;
     this.allowNonIdrKeyframes = allowNonIdrKeyframes;
     this.detectAccessUnits = detectAccessUnits;
+    this.keyframesOnly = keyframesOnly;
     prefixFlags = new boolean[3];
     sps = new NalUnitTargetBuffer(NalUnitUtil.H264_NAL_UNIT_TYPE_SPS, 128);
     pps = new NalUnitTargetBuffer(NalUnitUtil.H264_NAL_UNIT_TYPE_PPS, 128);
@@ -109,7 +127,8 @@ public final class H264Reader implements ElementaryStreamReader {
     idGenerator.generateNewId();
     formatId = idGenerator.getFormatId();
     output = extractorOutput.track(idGenerator.getTrackId(), C.TRACK_TYPE_VIDEO);
-    sampleReader = new SampleReader(output, allowNonIdrKeyframes, detectAccessUnits);
+    sampleReader =
+        new SampleReader(output, allowNonIdrKeyframes, detectAccessUnits, keyframesOnly);
     seiReader.createTracks(extractorOutput, idGenerator);
   }
 
@@ -133,7 +152,7 @@ public final class H264Reader implements ElementaryStreamReader {
 
     // Scan the appended data, processing NAL units as they are encountered
     while (true) {
-      int nalUnitOffset = NalUnitUtil.findNalUnit(dataArray, offset, limit, prefixFlags);
+      int nalUnitOffset = NalUnitScanner.findNalUnit(dataArray, offset, limit, prefixFlags);
 
       if (nalUnitOffset == limit) {
         // We've scanned to the end of the data without finding the start of another NAL unit.
@@ -292,6 +311,7 @@ public final class H264Reader implements ElementaryStreamReader {
     private final TrackOutput output;
     private final boolean allowNonIdrKeyframes;
     private final boolean detectAccessUnits;
+    private final boolean keyframesOnly;
     private final SparseArray<NalUnitUtil.SpsData> sps;
     private final SparseArray<NalUnitUtil.PpsData> pps;
     private final ParsableNalUnitBitArray bitArray;
@@ -318,10 +338,14 @@ public final class H264Reader implements ElementaryStreamReader {
     private boolean sampleReleasedByEndOfStream;
 
     public SampleReader(
-        TrackOutput output, boolean allowNonIdrKeyframes, boolean detectAccessUnits) {
+        TrackOutput output,
+        boolean allowNonIdrKeyframes,
+        boolean detectAccessUnits,
+        boolean keyframesOnly) {
       this.output = output;
       this.allowNonIdrKeyframes = allowNonIdrKeyframes;
       this.detectAccessUnits = detectAccessUnits;
+      this.keyframesOnly = keyframesOnly;
       sps = new SparseArray<>();
       pps = new SparseArray<>();
       previousSliceHeader = new SliceHeaderData();
@@ -584,7 +608,8 @@ public final class H264Reader implements ElementaryStreamReader {
     }
 
     private void outputSample(int offset) {
-      if (sampleTimeUs == C.TIME_UNSET) {
+      if (sampleTimeUs == C.TIME_UNSET || (keyframesOnly && !sampleIsKeyframe)) {
+        // The sample data stays in the output without being committed, so it's never read.
         return;
       }
       @C.BufferFlags int flags = sampleIsKeyframe ? C.BUFFER_FLAG_KEY_FRAME : 0;
@@ -50,6 +50,7 @@ public final class H265Reader implements ElementaryStreamReader {
   private boolean hasOutputFormat;
 
   // State that should be reset on seek.
+  private final boolean keyframesOnly;
   private final boolean[] prefixFlags;
   private final NalUnitTargetBuffer vps;
   private final NalUnitTargetBuffer sps;
@@ -68,7 +69,16 @@ public final class H265Reader implements ElementaryStreamReader {
    * @param seiReader An SEI reader for consuming closed caption channels.
    */
   public H265Reader(SeiReader seiReader) {
+    this(seiReader, /* keyframesOnly= */ false);
+  }
+
+  /**
+   * @param seiReader An SEI reader for consuming closed caption channels.
+   * @param keyframesOnly Whether to drop samples that aren't keyframes instead of outputting them.
+   */
+  public H265Reader(SeiReader seiReader, boolean keyframesOnly) {
     this.seiReader = seiReader;
+    this.keyframesOnly = keyframesOnly;
     prefixFlags = new boolean[3];
     vps = new NalUnitTargetBuffer(NalUnitUtil.H265_NAL_UNIT_TYPE_VPS, 128);
     sps = new NalUnitTargetBuffer(NalUnitUtil.H265_NAL_UNIT_TYPE_SPS, 128);
@@ -100,7 +110,7 @@ public final class H265Reader implements ElementaryStreamReader {
     idGenerator.generateNewId();
     formatId = idGenerator.getFormatId();
     output = extractorOutput.track(idGenerator.getTrackId(), C.TRACK_TYPE_VIDEO);
-    sampleReader = new SampleReader(output);
+    sampleReader = new SampleReader(output, keyframesOnly);
     seiReader.createTracks(extractorOutput, idGenerator);
   }
 
@@ -125,7 +135,7 @@ public final class H265Reader implements ElementaryStreamReader {
 
       // Scan the appended data, processing NAL units as they are encountered
       while (offset < limit) {
-        int nalUnitOffset = NalUnitUtil.findNalUnit(dataArray, offset, limit, prefixFlags);
+        int nalUnitOffset = NalUnitScanner.findNalUnit(dataArray, offset, limit, prefixFlags);
 
         if (nalUnitOffset == limit) {
           // We've scanned to the end of the data without finding the start of another NAL unit.
@@ -296,6 +306,7 @@ public final class H265Reader implements ElementaryStreamReader {
     private static final int FIRST_SLICE_FLAG_OFFSET = 2;
 
     private final TrackOutput output;
+    private final boolean keyframesOnly;
 
     // Per NAL unit state. A sample consists of one or more NAL units.
     private long nalUnitPosition;
@@ -316,8 +327,9 @@ public final class H265Reader implements ElementaryStreamReader {
     // as opposed to been pushed by the next NAL_UNIT_TYPE_AUD or forced by detectAccessUnits
     private boolean sampleReleasedByEndOfStream;
 
-    public SampleReader(TrackOutput output) {
+    public SampleReader(TrackOutput output, boolean keyframesOnly) {
       this.output = output;
+      this.keyframesOnly = keyframesOnly;
     }
 
     public void reset() {
@@ -418,7 +430,8 @@ public final class H265Reader implements ElementaryStreamReader {
     }
 
     private void outputSample(int offset) {
-      if (sampleTimeUs == C.TIME_UNSET) {
+      if (sampleTimeUs == C.TIME_UNSET || (keyframesOnly && !sampleIsKeyframe)) {
+        // The sample data stays in the output without being committed, so it's never read.
         return;
       }
       @C.BufferFlags int flags = sampleIsKeyframe ? C.BUFFER_FLAG_KEY_FRAME : 0;
@@ -0,0 +1,134 @@
+/*
+ * Copyright 2026 The Android Open Source Project
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package androidx.media3.extractor.ts;
+
+import androidx.media3.common.C;
+import androidx.media3.common.util.Assertions;
+import androidx.media3.container.NalUnitUtil;
+import java.nio.ByteBuffer;
+
+/**
+ * Finds NAL unit start code prefixes ({@code 0x000001}) in elementary stream data.
+ *
+ * <p>This is a drop-in replacement for {@link NalUnitUtil#findNalUnit(byte[], int, int,
+ * boolean[])} that returns identical results and updates the prefix flags identically. Instead of
+ * testing each byte, it loads eight bytes at a time and skips words that contain no zero byte,
+ * which in coded slice data is the vast majority of words. Only words containing a zero byte are
+ * checked byte by byte.
+ */
+/* package */ final class NalUnitScanner {
+
+  private static final int WORD_LENGTH = 8;
+  private static final long LOW_BITS = 0x0101010101010101L;
+  private static final long HIGH_BITS = 0x8080808080808080L;
+
+  private NalUnitScanner() {}
+
+  /**
+   * Finds the first NAL unit in {@code data}.
+   *
+   * @param data The data to search.
+   * @param startOffset The offset (inclusive) in the data to start the search.
+   * @param endOffset The offset (exclusive) in the data to end the search.
+   * @param prefixFlags A boolean array whose first three elements are used to store the state
+   *     required to detect NAL units where the NAL unit prefix spans array boundaries. The array
+   *     must be at least 3 elements long.
+   * @return The offset of the NAL unit, or {@code endOffset} if a NAL unit was not found.
+   * @see NalUnitUtil#findNalUnit(byte[], int, int, boolean[])
+   */
+  public static int findNalUnit(
+      byte[] data, int startOffset, int endOffset, boolean[] prefixFlags) {
+    int length = endOffset - startOffset;
+
+    Assertions.checkState(length >= 0);
+    if (length == 0) {
+      return endOffset;
+    }
+
+    if (prefixFlags[0]) {
+      NalUnitUtil.clearPrefixFlags(prefixFlags);
+      return startOffset - 3;
+    } else if (length > 1 && prefixFlags[1] && data[startOffset] == 1) {
+      NalUnitUtil.clearPrefixFlags(prefixFlags);
+      return startOffset - 2;
+    } else if (length > 2
+        && prefixFlags[2]
+        && data[startOffset] == 0
+        && data[startOffset + 1] == 1) {
+      NalUnitUtil.clearPrefixFlags(prefixFlags);
+      return startOffset - 1;
+    }
+
+    int nalUnitOffset = findStartCodePrefix(data, startOffset, endOffset);
+    if (nalUnitOffset != C.INDEX_UNSET) {
+      NalUnitUtil.clearPrefixFlags(prefixFlags);
+      return nalUnitOffset;
+    }
+
+    // True if the last three bytes in the data seen so far are {0,0,1}.
+    prefixFlags[0] =
+        length > 2
+            ? (data[endOffset - 3] == 0 && data[endOffset - 2] == 0 && data[endOffset - 1] == 1)
+            : length == 2
+                ? (prefixFlags[2] && data[endOffset - 2] == 0 && data[endOffset - 1] == 1)
+                : (prefixFlags[1] && data[endOffset - 1] == 1);
+    // True if the last two bytes in the data seen so far are {0,0}.
+    prefixFlags[1] =
+        length > 1
+            ? data[endOffset - 2] == 0 && data[endOffset - 1] == 0
+            : prefixFlags[2] && data[endOffset - 1] == 0;
+    // True if the last byte in the data seen so far is {0}.
+    prefixFlags[2] = data[endOffset - 1] == 0;
+
+    return endOffset;
+  }
+
+  /**
+   * Returns the offset of the first {@code 0x000001} sequence that lies entirely within {@code
+   * [startOffset, endOffset - 1)}, or {@link C#INDEX_UNSET} if there is none.
+   *
+   * <p>As in {@link NalUnitUtil#findNalUnit(byte[], int, int, boolean[])}, a sequence ending at
+   * the last byte isn't returned. It's reported through the prefix flags by the next call instead.
+   */
+  private static int findStartCodePrefix(byte[] data, int startOffset, int endOffset) {
+    int limit = endOffset - 3;
+    int position = startOffset;
+    if (endOffset - startOffset >= 2 * WORD_LENGTH) {
+      ByteBuffer buffer = ByteBuffer.wrap(data);
+      while (position + WORD_LENGTH <= endOffset) {
+        long word = buffer.getLong(position);
+        // Classic zero byte test: non-zero if and only if at least one byte of the word is zero.
+        if (((word - LOW_BITS) & ~word & HIGH_BITS) == 0) {
+          // Every start code prefix begins with a zero byte, so none begins in this word.
+          position += WORD_LENGTH;
+          continue;
+        }
+        int wordEnd = position + WORD_LENGTH;
+        for (; position < wordEnd && position < limit; position++) {
+          if (data[position] == 0 && data[position + 1] == 0 && data[position + 2] == 1) {
+            return position;
+          }
+        }
+      }
+    }
+    for (; position < limit; position++) {
+      if (data[position] == 0 && data[position + 1] == 0 && data[position + 2] == 1) {
+        return position;
+      }
+    }
+    return C.INDEX_UNSET;
+  }
+}
@@ -92,15 +92,15 @@ public final class TsExtractor implements Extractor {
   public static final int MODE_HLS = 2;
 
   /**
-   * Flags controlling the behavior of the extractor. Possible flag value is {@link
-   * #FLAG_EMIT_RAW_SUBTITLE_DATA}.
+   * Flags controlling the behavior of the extractor. Possible flag values are {@link
+   * #FLAG_EMIT_RAW_SUBTITLE_DATA} and {@link #FLAG_ENABLE_FAST_PID_FILTERING}.
    */
   @Documented
   @Retention(RetentionPolicy.SOURCE)
   @Target(TYPE_USE)
   @IntDef(
       flag = true,
-      value = {FLAG_EMIT_RAW_SUBTITLE_DATA})
+      value = {FLAG_EMIT_RAW_SUBTITLE_DATA, FLAG_ENABLE_FAST_PID_FILTERING})
   public @interface Flags {}
 
   /**
@@ -109,6 +109,15 @@ public final class TsExtractor implements Extractor {
    */
   public static final int FLAG_EMIT_RAW_SUBTITLE_DATA = 1;
 
+  /**
+   * Flag to read the input in larger batches and to skip all buffered packets of PIDs without a
+   * payload reader in a single call to {@link #read}, before any header or payload parsing. This
+   * is most effective in combination with a payload reader factory that doesn't create readers for
+   * unused streams, such as {@link DefaultTsPayloadReaderFactory} with {@link
+   * DefaultTsPayloadReaderFactory#FLAG_IGNORE_NON_VIDEO_STREAMS}.
+   */
+  public static final int FLAG_ENABLE_FAST_PID_FILTERING = 1 << 1;
+
   /**
    * @deprecated Use {@link #newFactory(SubtitleParser.Factory)} instead.
    */
@@ -157,6 +166,7 @@ public final class TsExtractor implements Extractor {
   private static final long HEVC_FORMAT_IDENTIFIER = 0x48455643;
 
   private static final int BUFFER_SIZE = TS_PACKET_SIZE * 50;
+  private static final int FAST_PID_FILTERING_BUFFER_SIZE = TS_PACKET_SIZE * 512;
   private static final int SNIFF_TS_PACKET_COUNT = 5;
 
   private final @Mode int mode;
@@ -164,6 +174,7 @@ public final class TsExtractor implements Extractor {
   private final int timestampSearchBytes;
   private final List<TimestampAdjuster> timestampAdjusters;
   private final ParsableByteArray tsPacketBuffer;
+  private final int bufferSize;
   private final SparseIntArray continuityCounters;
   private final TsPayloadReader.Factory payloadReaderFactory;
   private final SubtitleParser.Factory subtitleParserFactory;
@@ -339,7 +350,11 @@ public final class TsExtractor implements Extractor {
       timestampAdjusters = new ArrayList<>();
       timestampAdjusters.add(timestampAdjuster);
     }
-    tsPacketBuffer = new ParsableByteArray(new byte[BUFFER_SIZE], 0);
+    bufferSize =
+        (extractorFlags & FLAG_ENABLE_FAST_PID_FILTERING) != 0
+            ? FAST_PID_FILTERING_BUFFER_SIZE
+            : BUFFER_SIZE;
+    tsPacketBuffer = new ParsableByteArray(new byte[bufferSize], 0);
     trackIds = new SparseBooleanArray();
     trackPids = new SparseBooleanArray();
     tsPayloadReaders = new SparseArray<>();
@@ -476,6 +491,12 @@ public final class TsExtractor implements Extractor {
 
     int endOfPacket = findEndOfFirstTsPacketInBuffer();
     int limit = tsPacketBuffer.limit();
+    if ((extractorFlags & FLAG_ENABLE_FAST_PID_FILTERING) != 0) {
+      while (endOfPacket <= limit && isPacketWithoutPayloadReader()) {
+        tsPacketBuffer.setPosition(endOfPacket);
+        endOfPacket = findEndOfFirstTsPacketInBuffer();
+      }
+    }
     if (endOfPacket > limit) {
       return RESULT_CONTINUE;
     }
@@ -571,7 +592,7 @@ public final class TsExtractor implements Extractor {
   private boolean fillBufferWithAtLeastOnePacket(ExtractorInput input) throws IOException {
     byte[] data = tsPacketBuffer.getData();
     // Shift bytes to the start of the buffer if there isn't enough space left at the end.
-    if (BUFFER_SIZE - tsPacketBuffer.getPosition() < TS_PACKET_SIZE) {
+    if (bufferSize - tsPacketBuffer.getPosition() < TS_PACKET_SIZE) {
       int bytesLeft = tsPacketBuffer.bytesLeft();
       if (bytesLeft > 0) {
         System.arraycopy(data, tsPacketBuffer.getPosition(), data, 0, bytesLeft);
@@ -581,7 +602,7 @@ public final class TsExtractor implements Extractor {
     // Read more bytes until we have at least one packet.
     while (tsPacketBuffer.bytesLeft() < TS_PACKET_SIZE) {
       int limit = tsPacketBuffer.limit();
-      int read = input.read(data, limit, BUFFER_SIZE - limit);
+      int read = input.read(data, limit, bufferSize - limit);
       if (read == C.RESULT_END_OF_INPUT) {
         return false;
       }
@@ -618,6 +639,22 @@ public final class TsExtractor implements Extractor {
     return endOfPacket;
   }
 
+  /**
+   * Returns whether the TS packet at the current position of the packet buffer would be discarded
+   * by {@link #read} without any processing, because it has a transport error, has no payload or
+   * belongs to a PID without a payload reader.
+   */
+  private boolean isPacketWithoutPayloadReader() {
+    byte[] data = tsPacketBuffer.getData();
+    int position = tsPacketBuffer.getPosition();
+    if ((data[position + 1] & 0x80) != 0 // transport_error_indicator
+        || (data[position + 3] & 0x10) == 0) { // No payload.
+      return true;
+    }
+    int pid = ((data[position + 1] & 0x1F) << 8) | (data[position + 2] & 0xFF);
+    return tsPayloadReaders.get(pid) == null;
+  }
+
   private boolean shouldConsumePacketPayload(int packetPid) {
     return mode == MODE_HLS
         || tracksEnded
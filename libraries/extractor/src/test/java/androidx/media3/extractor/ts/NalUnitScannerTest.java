@@ -0,0 +1,121 @@
+/*
+ * Copyright 2026 The Android Open Source Project
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package androidx.media3.extractor.ts;
+
+import static com.google.common.truth.Truth.assertThat;
+
+import androidx.media3.container.NalUnitUtil;
+import androidx.test.ext.junit.runners.AndroidJUnit4;
+import java.util.Arrays;
+import java.util.Random;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+
+/**
+ * Tests for {@link NalUnitScanner}, checking that it behaves identically to {@link
+ * NalUnitUtil#findNalUnit(byte[], int, int, boolean[])}.
+ */
+@RunWith(AndroidJUnit4.class)
+public final class NalUnitScannerTest {
+
+  @Test
+  public void findNalUnit_startCodeAtEachPositionOfLongData_matchesNalUnitUtil() {
+    for (int startCodePosition = 0; startCodePosition < 40; startCodePosition++) {
+      byte[] data = new byte[43];
+      Arrays.fill(data, (byte) 0xAB);
+      data[startCodePosition] = 0;
+      data[startCodePosition + 1] = 0;
+      data[startCodePosition + 2] = 1;
+
+      assertSameResults(data, /* startOffset= */ 0, data.length, new boolean[3], new boolean[3]);
+      assertThat(NalUnitScanner.findNalUnit(data, 0, data.length, new boolean[3]))
+          .isEqualTo(startCodePosition);
+    }
+  }
+
+  @Test
+  public void findNalUnit_zeroBytesWithoutStartCode_returnsEndOffset() {
+    byte[] data = new byte[64];
+    for (int i = 0; i < data.length; i++) {
+      data[i] = (byte) (i % 3 == 0 ? 0 : 2);
+    }
+
+    assertThat(NalUnitScanner.findNalUnit(data, 0, data.length, new boolean[3]))
+        .isEqualTo(data.length);
+  }
+
+  @Test
+  public void findNalUnit_startCodeSpanningCalls_matchesNalUnitUtil() {
+    byte[] data = new byte[] {5, 5, 5, 5, 5, 0, 0, 1, 5, 5, 5, 5, 5, 5, 5, 5, 5, 5, 5, 5};
+    for (int split = 1; split < data.length; split++) {
+      boolean[] expectedPrefixFlags = new boolean[3];
+      boolean[] actualPrefixFlags = new boolean[3];
+
+      assertSameResults(data, /* startOffset= */ 0, split, expectedPrefixFlags, actualPrefixFlags);
+      assertSameResults(data, split, data.length, expectedPrefixFlags, actualPrefixFlags);
+    }
+  }
+
+  @Test
+  public void findNalUnit_randomDataInRandomChunks_matchesNalUnitUtil() {
+    Random random = new Random(/* seed= */ 0);
+    for (int iteration = 0; iteration < 2000; iteration++) {
+      byte[] data = new byte[random.nextInt(300)];
+      for (int i = 0; i < data.length; i++) {
+        // Bias towards 0 and 1 so that start codes and near misses are frequent.
+        int choice = random.nextInt(10);
+        data[i] = (byte) (choice < 4 ? 0 : choice < 6 ? 1 : random.nextInt(256));
+      }
+      boolean[] expectedPrefixFlags = new boolean[3];
+      boolean[] actualPrefixFlags = new boolean[3];
+      int chunkStart = 0;
+      while (chunkStart < data.length) {
+        int chunkEnd = chunkStart + 1 + random.nextInt(data.length - chunkStart);
+        // Scan the chunk in the same way as the elementary stream readers do.
+        int offset = chunkStart;
+        while (true) {
+          int expectedOffset =
+              NalUnitUtil.findNalUnit(data, offset, chunkEnd, expectedPrefixFlags);
+          int actualOffset = NalUnitScanner.findNalUnit(data, offset, chunkEnd, actualPrefixFlags);
+          assertThat(actualOffset).isEqualTo(expectedOffset);
+          assertThat(actualPrefixFlags).isEqualTo(expectedPrefixFlags);
+          if (actualOffset == chunkEnd) {
+            break;
+          }
+          offset = Math.max(offset, actualOffset + 3);
+          if (offset >= chunkEnd) {
+            break;
+          }
+        }
+        chunkStart = chunkEnd;
+      }
+    }
+  }
+
+  private static void assertSameResults(
+      byte[] data,
+      int startOffset,
+      int endOffset,
+      boolean[] expectedPrefixFlags,
+      boolean[] actualPrefixFlags) {
+    int expectedOffset =
+        NalUnitUtil.findNalUnit(data, startOffset, endOffset, expectedPrefixFlags);
+    int actualOffset = NalUnitScanner.findNalUnit(data, startOffset, endOffset, actualPrefixFlags);
+
+    assertThat(actualOffset).isEqualTo(expectedOffset);
+    assertThat(actualPrefixFlags).isEqualTo(expectedPrefixFlags);
+  }
+}
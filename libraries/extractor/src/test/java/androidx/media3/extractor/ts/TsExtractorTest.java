@@ -18,6 +18,8 @@ package androidx.media3.extractor.ts;
 import static androidx.media3.extractor.mp4.FragmentedMp4Extractor.FLAG_EMIT_RAW_SUBTITLE_DATA;
 import static androidx.media3.extractor.ts.DefaultTsPayloadReaderFactory.FLAG_DETECT_ACCESS_UNITS;
 import static androidx.media3.extractor.ts.DefaultTsPayloadReaderFactory.FLAG_ENABLE_HDMV_DTS_AUDIO_STREAMS;
+import static androidx.media3.extractor.ts.DefaultTsPayloadReaderFactory.FLAG_IGNORE_NON_VIDEO_STREAMS;
+import static androidx.media3.extractor.ts.DefaultTsPayloadReaderFactory.FLAG_KEYFRAMES_ONLY;
 import static androidx.media3.extractor.ts.TsExtractor.DEFAULT_TIMESTAMP_SEARCH_BYTES;
 import static androidx.media3.extractor.ts.TsExtractor.MODE_MULTI_PMT;
 import static androidx.media3.extractor.ts.TsExtractor.MODE_SINGLE_PMT;
@@ -27,6 +29,7 @@ import android.util.SparseArray;
 import androidx.annotation.Nullable;
 import androidx.media3.common.C;
 import androidx.media3.common.Format;
+import androidx.media3.common.MimeTypes;
 import androidx.media3.common.util.ParsableByteArray;
 import androidx.media3.common.util.TimestampAdjuster;
 import androidx.media3.extractor.Extractor;
@@ -441,6 +444,114 @@ public final class TsExtractorTest {
     assertThat(factory.sdtReader.consumedSdts).isEqualTo(2);
   }
 
+  @Test
+  public void fastPidFilteringWithVideoOnlyReaders_outputsSameVideoSamples() throws Exception {
+    FakeExtractorOutput expectedOutput =
+        extractAll(
+            new TsExtractor(
+                MODE_SINGLE_PMT,
+                TsExtractor.FLAG_EMIT_RAW_SUBTITLE_DATA,
+                SubtitleParser.Factory.UNSUPPORTED,
+                new TimestampAdjuster(0),
+                new DefaultTsPayloadReaderFactory(0),
+                DEFAULT_TIMESTAMP_SEARCH_BYTES),
+            "media/ts/sample_h264_mpeg_audio.ts");
+
+    FakeExtractorOutput output =
+        extractAll(
+            new TsExtractor(
+                MODE_SINGLE_PMT,
+                TsExtractor.FLAG_EMIT_RAW_SUBTITLE_DATA
+                    | TsExtractor.FLAG_ENABLE_FAST_PID_FILTERING,
+                SubtitleParser.Factory.UNSUPPORTED,
+                new TimestampAdjuster(0),
+                new DefaultTsPayloadReaderFactory(FLAG_IGNORE_NON_VIDEO_STREAMS),
+                DEFAULT_TIMESTAMP_SEARCH_BYTES),
+            "media/ts/sample_h264_mpeg_audio.ts");
+
+    assertThat(expectedOutput.numberOfTracks).isGreaterThan(1);
+    FakeTrackOutput expectedVideoOutput = getVideoTrackOutput(expectedOutput);
+    FakeTrackOutput videoOutput = getVideoTrackOutput(output);
+    assertThat(output.numberOfTracks).isEqualTo(1);
+    assertThat(videoOutput.getSampleCount()).isEqualTo(expectedVideoOutput.getSampleCount());
+    for (int i = 0; i < videoOutput.getSampleCount(); i++) {
+      assertThat(videoOutput.getSampleTimeUs(i)).isEqualTo(expectedVideoOutput.getSampleTimeUs(i));
+      assertThat(videoOutput.getSampleData(i)).isEqualTo(expectedVideoOutput.getSampleData(i));
+    }
+  }
+
+  @Test
+  public void keyframesOnly_outputsOnlyKeyframes() throws Exception {
+    FakeTrackOutput expectedVideoOutput =
+        getVideoTrackOutput(
+            extractAll(
+                new TsExtractor(
+                    MODE_SINGLE_PMT,
+                    TsExtractor.FLAG_EMIT_RAW_SUBTITLE_DATA,
+                    SubtitleParser.Factory.UNSUPPORTED,
+                    new TimestampAdjuster(0),
+                    new DefaultTsPayloadReaderFactory(0),
+                    DEFAULT_TIMESTAMP_SEARCH_BYTES),
+                "media/ts/sample_h264.ts"));
+
+    FakeTrackOutput videoOutput =
+        getVideoTrackOutput(
+            extractAll(
+                new TsExtractor(
+                    MODE_SINGLE_PMT,
+                    TsExtractor.FLAG_EMIT_RAW_SUBTITLE_DATA,
+                    SubtitleParser.Factory.UNSUPPORTED,
+                    new TimestampAdjuster(0),
+                    new DefaultTsPayloadReaderFactory(FLAG_KEYFRAMES_ONLY),
+                    DEFAULT_TIMESTAMP_SEARCH_BYTES),
+                "media/ts/sample_h264.ts"));
+
+    List<Long> expectedKeyframeTimesUs = new ArrayList<>();
+    for (int i = 0; i < expectedVideoOutput.getSampleCount(); i++) {
+      if ((expectedVideoOutput.getSampleFlags(i) & C.BUFFER_FLAG_KEY_FRAME) != 0) {
+        expectedKeyframeTimesUs.add(expectedVideoOutput.getSampleTimeUs(i));
+      }
+    }
+    List<Long> keyframeTimesUs = new ArrayList<>();
+    for (int i = 0; i < videoOutput.getSampleCount(); i++) {
+      assertThat(videoOutput.getSampleFlags(i) & C.BUFFER_FLAG_KEY_FRAME).isNotEqualTo(0);
+      keyframeTimesUs.add(videoOutput.getSampleTimeUs(i));
+    }
+    assertThat(expectedKeyframeTimesUs).isNotEmpty();
+    assertThat(expectedKeyframeTimesUs.size()).isLessThan(expectedVideoOutput.getSampleCount());
+    assertThat(keyframeTimesUs).isEqualTo(expectedKeyframeTimesUs);
+  }
+
+  private static FakeExtractorOutput extractAll(TsExtractor tsExtractor, String fileName)
+      throws Exception {
+    FakeExtractorInput input =
+        new FakeExtractorInput.Builder()
+            .setData(TestUtil.getByteArray(ApplicationProvider.getApplicationContext(), fileName))
+            .build();
+    FakeExtractorOutput output = new FakeExtractorOutput();
+    tsExtractor.init(output);
+    PositionHolder seekPositionHolder = new PositionHolder();
+    int readResult = Extractor.RESULT_CONTINUE;
+    while (readResult != Extractor.RESULT_END_OF_INPUT) {
+      readResult = tsExtractor.read(input, seekPositionHolder);
+      if (readResult == Extractor.RESULT_SEEK) {
+        input.setPosition((int) seekPositionHolder.position);
+      }
+    }
+    return output;
+  }
+
+  private static FakeTrackOutput getVideoTrackOutput(FakeExtractorOutput output) {
+    for (int i = 0; i < output.trackOutputs.size(); i++) {
+      FakeTrackOutput trackOutput = output.trackOutputs.valueAt(i);
+      if (trackOutput.lastFormat != null
+          && MimeTypes.isVideo(trackOutput.lastFormat.sampleMimeType)) {
+        return trackOutput;
+      }
+    }
+    throw new IllegalStateException("No video track");
+  }
+
   private static ExtractorAsserts.ExtractorFactory getExtractorFactory(
       boolean subtitlesParsedDuringExtraction) {
     return getExtractorFactory(
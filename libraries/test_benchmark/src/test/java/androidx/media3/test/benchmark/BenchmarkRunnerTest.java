@@ -0,0 +1,76 @@
+/*
+ * Copyright 2026 The Android Open Source Project
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package androidx.media3.test.benchmark;
+
+import static com.google.common.truth.Truth.assertThat;
+import static org.junit.Assume.assumeFalse;
+
+import androidx.test.ext.junit.runners.AndroidJUnit4;
+import java.io.File;
+import java.util.Collection;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.openjdk.jmh.profile.GCProfiler;
+import org.openjdk.jmh.results.RunResult;
+import org.openjdk.jmh.results.format.ResultFormatType;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.options.ChainedOptionsBuilder;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+import org.openjdk.jmh.runner.options.TimeValue;
+
+/**
+ * Entry point that runs the JMH benchmarks in this module inside the Robolectric sandbox.
+ *
+ * <p>The benchmarks are only run if the {@code media3.benchmark.include} system property is set to
+ * a JMH include regex. See the module README for details.
+ */
+@RunWith(AndroidJUnit4.class)
+public final class BenchmarkRunnerTest {
+
+  private static final String INCLUDE_PROPERTY = "media3.benchmark.include";
+  private static final String RESULT_FILE_PROPERTY = "media3.benchmark.resultFile";
+
+  @Test
+  public void runBenchmarks() throws Exception {
+    String include = System.getProperty(INCLUDE_PROPERTY, "");
+    assumeFalse("Benchmarks not requested", include.isEmpty());
+
+    ChainedOptionsBuilder options =
+        new OptionsBuilder()
+            .include(BenchmarkRunnerTest.class.getPackage().getName() + ".*" + include + ".*")
+            // The Robolectric sandbox (and the Android classes it provides) can't be forked into a
+            // new JVM, so run the benchmarks in-process.
+            .forks(0)
+            .warmupIterations(3)
+            .warmupTime(TimeValue.seconds(2))
+            .measurementIterations(5)
+            .measurementTime(TimeValue.seconds(2))
+            .addProfiler(GCProfiler.class)
+            .shouldFailOnError(true);
+    String resultFile = System.getProperty(RESULT_FILE_PROPERTY, "");
+    if (!resultFile.isEmpty()) {
+      File parent = new File(resultFile).getParentFile();
+      if (parent != null) {
+        parent.mkdirs();
+      }
+      options.result(resultFile).resultFormat(ResultFormatType.JSON);
+    }
+
+    Collection<RunResult> results = new Runner(options.build()).run();
+
+    assertThat(results).isNotEmpty();
+  }
+}
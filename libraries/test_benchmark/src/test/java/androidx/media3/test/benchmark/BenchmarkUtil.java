@@ -0,0 +1,31 @@
+/*
+ * Copyright 2026 The Android Open Source Project
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package androidx.media3.test.benchmark;
+
+import androidx.media3.test.utils.TestUtil;
+import androidx.test.core.app.ApplicationProvider;
+import java.io.IOException;
+
+/** Utility methods for benchmarks. */
+/* package */ final class BenchmarkUtil {
+
+  /** Returns the contents of the given {@code test_data} asset. */
+  public static byte[] getAsset(String fileName) throws IOException {
+    return TestUtil.getByteArray(ApplicationProvider.getApplicationContext(), fileName);
+  }
+
+  private BenchmarkUtil() {}
+}
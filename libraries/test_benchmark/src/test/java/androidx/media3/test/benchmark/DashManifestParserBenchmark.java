@@ -0,0 +1,60 @@
+/*
+ * Copyright 2026 The Android Open Source Project
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package androidx.media3.test.benchmark;
+
+import android.net.Uri;
+import androidx.media3.exoplayer.dash.manifest.DashManifest;
+import androidx.media3.exoplayer.dash.manifest.DashManifestParser;
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+
+/** Measures the throughput of {@link DashManifestParser}. */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+public class DashManifestParserBenchmark {
+
+  @Param({
+    "media/mpd/sample_mpd_segment_template",
+    "media/mpd/sample_mpd_live",
+    "media/mpd/sample_mpd_event_stream",
+    "media/mpd/sample_mpd_vod"
+  })
+  public String fileName;
+
+  private Uri manifestUri;
+  private byte[] data;
+
+  @Setup
+  public void setUp() throws IOException {
+    manifestUri = Uri.parse("https://example.com/test.mpd");
+    data = BenchmarkUtil.getAsset(fileName);
+  }
+
+  @Benchmark
+  public DashManifest parse() throws IOException {
+    return new DashManifestParser().parse(manifestUri, new ByteArrayInputStream(data));
+  }
+}
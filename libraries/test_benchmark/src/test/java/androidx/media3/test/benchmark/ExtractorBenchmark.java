@@ -0,0 +1,106 @@
+/*
+ * Copyright 2026 The Android Open Source Project
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package androidx.media3.test.benchmark;
+
+import android.net.Uri;
+import androidx.media3.common.C;
+import androidx.media3.datasource.ByteArrayDataSource;
+import androidx.media3.datasource.DataSpec;
+import androidx.media3.extractor.DefaultExtractorInput;
+import androidx.media3.extractor.Extractor;
+import androidx.media3.extractor.ExtractorInput;
+import androidx.media3.extractor.NoOpExtractorOutput;
+import androidx.media3.extractor.PositionHolder;
+import androidx.media3.extractor.mkv.MatroskaExtractor;
+import androidx.media3.extractor.mp4.FragmentedMp4Extractor;
+import androidx.media3.extractor.text.SubtitleParser;
+import androidx.media3.extractor.ts.TsExtractor;
+import java.io.IOException;
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+
+/**
+ * Measures the throughput of extracting a complete file held in memory.
+ *
+ * <p>Samples are discarded by the {@link NoOpExtractorOutput}, so the results only include the
+ * cost of the extractor itself.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+public class ExtractorBenchmark {
+
+  @Param({
+    "media/ts/sample_h264.ts",
+    "media/ts/bbb_2500ms.ts",
+    "media/mp4/sample_fragmented.mp4",
+    "media/mkv/sample.mkv"
+  })
+  public String fileName;
+
+  private byte[] data;
+
+  @Setup
+  public void setUp() throws IOException {
+    data = BenchmarkUtil.getAsset(fileName);
+  }
+
+  @Benchmark
+  public long extract() throws IOException {
+    Extractor extractor = createExtractor(fileName);
+    extractor.init(new NoOpExtractorOutput());
+    ByteArrayDataSource dataSource = new ByteArrayDataSource(data);
+    PositionHolder positionHolder = new PositionHolder();
+    ExtractorInput input = openInput(dataSource, /* position= */ 0);
+    int readResult = Extractor.RESULT_CONTINUE;
+    while (readResult != Extractor.RESULT_END_OF_INPUT) {
+      readResult = extractor.read(input, positionHolder);
+      if (readResult == Extractor.RESULT_SEEK) {
+        dataSource.close();
+        input = openInput(dataSource, positionHolder.position);
+      }
+    }
+    dataSource.close();
+    extractor.release();
+    return input.getPosition();
+  }
+
+  private static Extractor createExtractor(String fileName) {
+    if (fileName.endsWith(".ts")) {
+      return new TsExtractor(SubtitleParser.Factory.UNSUPPORTED);
+    } else if (fileName.endsWith(".mp4")) {
+      return new FragmentedMp4Extractor(SubtitleParser.Factory.UNSUPPORTED);
+    } else if (fileName.endsWith(".mkv")) {
+      return new MatroskaExtractor(SubtitleParser.Factory.UNSUPPORTED);
+    }
+    throw new IllegalArgumentException(fileName);
+  }
+
+  private static ExtractorInput openInput(ByteArrayDataSource dataSource, long position)
+      throws IOException {
+    DataSpec dataSpec = new DataSpec.Builder().setUri(Uri.EMPTY).setPosition(position).build();
+    long length = dataSource.open(dataSpec);
+    return new DefaultExtractorInput(
+        dataSource, position, length == C.LENGTH_UNSET ? C.LENGTH_UNSET : position + length);
+  }
+}
@@ -0,0 +1,107 @@
+/*
+ * Copyright 2026 The Android Open Source Project
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package androidx.media3.test.benchmark;
+
+import android.net.Uri;
+import androidx.media3.common.util.Util;
+import androidx.media3.exoplayer.hls.playlist.HlsPlaylist;
+import androidx.media3.exoplayer.hls.playlist.HlsPlaylistParser;
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+
+/** Measures the throughput of {@link HlsPlaylistParser}. */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+public class HlsPlaylistParserBenchmark {
+
+  /**
+   * Name of a {@code test_data} playlist, or {@link #LIVE_DVR_WINDOW} for a generated live media
+   * playlist with a 6 hour window of 2 second segments.
+   */
+  @Param({
+    "media/m3u8/media_playlist",
+    "media/m3u8/live_low_latency_segments_and_parts",
+    "media/m3u8/live_low_latency_multivariant_with_audio_renditions",
+    LIVE_DVR_WINDOW
+  })
+  public String fileName;
+
+  private static final String LIVE_DVR_WINDOW = "live_dvr_window";
+  private static final int LIVE_DVR_WINDOW_SEGMENT_COUNT = 6 * 60 * 60 / 2;
+
+  private Uri playlistUri;
+  private byte[] data;
+
+  @Setup
+  public void setUp() throws IOException {
+    playlistUri = Uri.parse("https://example.com/test.m3u8");
+    data =
+        fileName.equals(LIVE_DVR_WINDOW)
+            ? Util.getUtf8Bytes(createLiveDvrWindowPlaylist(LIVE_DVR_WINDOW_SEGMENT_COUNT))
+            : BenchmarkUtil.getAsset(fileName);
+  }
+
+  @Benchmark
+  public HlsPlaylist parse() throws IOException {
+    return new HlsPlaylistParser().parse(playlistUri, new ByteArrayInputStream(data));
+  }
+
+  private static String createLiveDvrWindowPlaylist(int segmentCount) {
+    long firstMediaSequence = 1_000_000;
+    StringBuilder playlist =
+        new StringBuilder()
+            .append("#EXTM3U\n")
+            .append("#EXT-X-VERSION:6\n")
+            .append("#EXT-X-TARGETDURATION:2\n")
+            .append("#EXT-X-MEDIA-SEQUENCE:")
+            .append(firstMediaSequence)
+            .append('\n')
+            .append("#EXT-X-DISCONTINUITY-SEQUENCE:12\n");
+    for (int i = 0; i < segmentCount; i++) {
+      long mediaSequence = firstMediaSequence + i;
+      if (i % 1800 == 0) {
+        // Rotate the key every hour, as is common for live channels.
+        playlist
+            .append("#EXT-X-KEY:METHOD=AES-128,URI=\"https://keys.example.com/key?id=")
+            .append(mediaSequence / 1800)
+            .append("\",IV=0x")
+            .append(Util.formatInvariant("%032x", mediaSequence))
+            .append('\n');
+      }
+      playlist
+          .append("#EXT-X-PROGRAM-DATE-TIME:")
+          .append(
+              Util.formatInvariant(
+                  "2026-01-01T%02d:%02d:%02d.000Z", i / 1800, (i / 30) % 60, (i * 2) % 60))
+          .append('\n')
+          .append("#EXTINF:2.002,\n")
+          .append("segment_")
+          .append(mediaSequence)
+          .append(".ts\n");
+    }
+    return playlist.toString();
+  }
+}
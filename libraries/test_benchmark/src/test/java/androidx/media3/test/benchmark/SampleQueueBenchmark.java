@@ -0,0 +1,120 @@
+/*
+ * Copyright 2026 The Android Open Source Project
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package androidx.media3.test.benchmark;
+
+import androidx.media3.common.C;
+import androidx.media3.common.Format;
+import androidx.media3.common.MimeTypes;
+import androidx.media3.common.util.ParsableByteArray;
+import androidx.media3.decoder.DecoderInputBuffer;
+import androidx.media3.exoplayer.FormatHolder;
+import androidx.media3.exoplayer.source.SampleQueue;
+import androidx.media3.exoplayer.upstream.DefaultAllocator;
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+
+/**
+ * Measures the throughput of writing samples to, and reading them back from, a {@link
+ * SampleQueue}.
+ *
+ * <p>Each invocation writes and then reads one second of samples, so the results cover both the
+ * loading thread and the playback thread side of the queue, including the {@link
+ * DefaultAllocator}.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+public class SampleQueueBenchmark {
+
+  private static final Format VIDEO_FORMAT =
+      new Format.Builder().setSampleMimeType(MimeTypes.VIDEO_H264).build();
+  private static final int SAMPLES_PER_SECOND = 30;
+
+  /** The bitrate of the written samples, in bits per second. */
+  @Param({"2000000", "20000000"})
+  public int bitrate;
+
+  /** The number of bytes written in each {@link SampleQueue#sampleData} call. */
+  @Param({"188", "65536"})
+  public int writeSize;
+
+  private DefaultAllocator allocator;
+  private SampleQueue sampleQueue;
+  private ParsableByteArray sampleData;
+  private FormatHolder formatHolder;
+  private DecoderInputBuffer inputBuffer;
+  private long timeUs;
+
+  @Setup
+  public void setUp() {
+    allocator = new DefaultAllocator(/* trimOnReset= */ true, C.DEFAULT_BUFFER_SEGMENT_SIZE);
+    sampleQueue = SampleQueue.createWithoutDrm(allocator);
+    sampleQueue.format(VIDEO_FORMAT);
+    sampleData = new ParsableByteArray(writeSize);
+    formatHolder = new FormatHolder();
+    inputBuffer = new DecoderInputBuffer(DecoderInputBuffer.BUFFER_REPLACEMENT_MODE_NORMAL);
+    inputBuffer.ensureSpaceForWrite(bitrate / 8 / SAMPLES_PER_SECOND);
+  }
+
+  @TearDown
+  public void tearDown() {
+    sampleQueue.release();
+    allocator.reset();
+  }
+
+  @Benchmark
+  public long writeAndRead() {
+    int sampleSize = bitrate / 8 / SAMPLES_PER_SECOND;
+    for (int i = 0; i < SAMPLES_PER_SECOND; i++) {
+      int remaining = sampleSize;
+      while (remaining > 0) {
+        int length = Math.min(remaining, writeSize);
+        sampleData.setPosition(0);
+        sampleQueue.sampleData(sampleData, length);
+        remaining -= length;
+      }
+      sampleQueue.sampleMetadata(
+          timeUs,
+          i == 0 ? C.BUFFER_FLAG_KEY_FRAME : 0,
+          sampleSize,
+          /* offset= */ 0,
+          /* cryptoData= */ null);
+      timeUs += C.MICROS_PER_SECOND / SAMPLES_PER_SECOND;
+    }
+    long bytesRead = 0;
+    while (true) {
+      inputBuffer.clear();
+      int result =
+          sampleQueue.read(
+              formatHolder, inputBuffer, /* readFlags= */ 0, /* loadingFinished= */ false);
+      if (result == C.RESULT_NOTHING_READ) {
+        break;
+      } else if (result == C.RESULT_BUFFER_READ) {
+        bytesRead += inputBuffer.data.position();
+      }
+    }
+    sampleQueue.discardToRead();
+    return bytesRead;
+  }
+}
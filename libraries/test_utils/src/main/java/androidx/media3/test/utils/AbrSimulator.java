@@ -0,0 +1,570 @@
+/*
+ * Copyright 2026 The Android Open Source Project
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package androidx.media3.test.utils;
+
+import static androidx.media3.common.util.Assertions.checkArgument;
+import static androidx.media3.common.util.Assertions.checkNotNull;
+import static androidx.media3.common.util.Assertions.checkState;
+import static java.lang.Math.max;
+import static java.lang.Math.min;
+
+import android.os.Handler;
+import androidx.annotation.Nullable;
+import androidx.media3.common.C;
+import androidx.media3.common.Format;
+import androidx.media3.common.Timeline;
+import androidx.media3.common.TrackGroup;
+import androidx.media3.common.util.UnstableApi;
+import androidx.media3.common.util.Util;
+import androidx.media3.datasource.TransferListener;
+import androidx.media3.exoplayer.DefaultLoadControl;
+import androidx.media3.exoplayer.source.MediaSource.MediaPeriodId;
+import androidx.media3.exoplayer.source.chunk.MediaChunk;
+import androidx.media3.exoplayer.source.chunk.MediaChunkIterator;
+import androidx.media3.exoplayer.trackselection.AdaptiveTrackSelection;
+import androidx.media3.exoplayer.trackselection.ExoTrackSelection;
+import androidx.media3.exoplayer.upstream.BandwidthMeter;
+import androidx.media3.exoplayer.upstream.DefaultBandwidthMeter;
+import androidx.media3.exoplayer.upstream.SlidingPercentile;
+import com.google.common.collect.ImmutableList;
+import com.google.errorprone.annotations.CanIgnoreReturnValue;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Random;
+
+/**
+ * Deterministic offline simulation of adaptive streaming, for evaluating {@link
+ * ExoTrackSelection.Factory track selection} changes without playing on real devices.
+ *
+ * <p>The simulator loads the chunks of a {@link FakeAdaptiveDataSet} one after the other, as a
+ * chunk source does. Before each load, it calls {@link ExoTrackSelection#evaluateQueueSize} and
+ * {@link ExoTrackSelection#updateSelectedTrack} with the simulated buffer state, and it downloads
+ * the chunk of the selected track at the throughput of a {@link BandwidthTrace}. Playback
+ * consumes the buffer in real time, stalls when the buffer runs out, and starts or resumes once
+ * enough media is buffered, following the same buffer durations as {@link DefaultLoadControl}.
+ *
+ * <p>The track selection sees a fake {@link BandwidthMeter} that estimates throughput and time to
+ * first byte from the simulated transfers, in the same way as {@link DefaultBandwidthMeter}. Time
+ * is driven by a {@link FakeClock}, which should also be passed to track selection factories that
+ * take a {@link androidx.media3.common.util.Clock}:
+ *
+ * <pre>{@code
+ * FakeClock clock = new FakeClock(0);
+ * AbrSimulator.Result result =
+ *     new AbrSimulator.Builder(trackGroup, BandwidthTrace.fromAsset(context, "traces/lte.csv"))
+ *         .setClock(clock)
+ *         .setTrackSelectionFactory(new AdaptiveTrackSelection.Factory(..., clock))
+ *         .build()
+ *         .run();
+ * }</pre>
+ *
+ * <p>The formats of the {@link TrackGroup} can be taken from a manifest parsed with the parser of
+ * the respective module, for example from the representations of a DASH manifest in {@code
+ * test_data}.
+ */
+@UnstableApi
+public final class AbrSimulator {
+
+  /** Builder for {@link AbrSimulator} instances. */
+  public static final class Builder {
+
+    private final TrackGroup trackGroup;
+    private final BandwidthTrace bandwidthTrace;
+
+    private ExoTrackSelection.Factory trackSelectionFactory;
+    @Nullable private FakeClock clock;
+    private long mediaDurationUs;
+    private long chunkDurationUs;
+    private double chunkSizeStdDevPercent;
+    private long initialBitrateEstimate;
+    private long minBufferUs;
+    private long maxBufferUs;
+    private long bufferForPlaybackUs;
+    private long bufferForPlaybackAfterRebufferUs;
+    private boolean buildCalled;
+
+    /**
+     * Creates a builder.
+     *
+     * @param trackGroup The {@link TrackGroup} containing the formats to choose from.
+     * @param bandwidthTrace The {@link BandwidthTrace} to replay.
+     */
+    public Builder(TrackGroup trackGroup, BandwidthTrace bandwidthTrace) {
+      this.trackGroup = trackGroup;
+      this.bandwidthTrace = bandwidthTrace;
+      trackSelectionFactory = new AdaptiveTrackSelection.Factory();
+      mediaDurationUs = 600 * C.MICROS_PER_SECOND;
+      chunkDurationUs = 4 * C.MICROS_PER_SECOND;
+      initialBitrateEstimate = DefaultBandwidthMeter.DEFAULT_INITIAL_BITRATE_ESTIMATE;
+      minBufferUs = Util.msToUs(DefaultLoadControl.DEFAULT_MIN_BUFFER_MS);
+      maxBufferUs = Util.msToUs(DefaultLoadControl.DEFAULT_MAX_BUFFER_MS);
+      bufferForPlaybackUs = Util.msToUs(DefaultLoadControl.DEFAULT_BUFFER_FOR_PLAYBACK_MS);
+      bufferForPlaybackAfterRebufferUs =
+          Util.msToUs(DefaultLoadControl.DEFAULT_BUFFER_FOR_PLAYBACK_AFTER_REBUFFER_MS);
+    }
+
+    /**
+     * Sets the {@link ExoTrackSelection.Factory} whose track selection is evaluated. The default
+     * is an {@link AdaptiveTrackSelection.Factory} with default parameters.
+     */
+    @CanIgnoreReturnValue
+    public Builder setTrackSelectionFactory(ExoTrackSelection.Factory trackSelectionFactory) {
+      checkState(!buildCalled);
+      this.trackSelectionFactory = trackSelectionFactory;
+      return this;
+    }
+
+    /**
+     * Sets the {@link FakeClock} that drives the simulation. The clock must not be advanced by
+     * anything else during the simulation. By default, a new {@link FakeClock} is used.
+     */
+    @CanIgnoreReturnValue
+    public Builder setClock(FakeClock clock) {
+      checkState(!buildCalled);
+      this.clock = clock;
+      return this;
+    }
+
+    /** Sets the duration of the simulated media, in milliseconds. The default is 10 minutes. */
+    @CanIgnoreReturnValue
+    public Builder setMediaDurationMs(long mediaDurationMs) {
+      checkState(!buildCalled);
+      checkArgument(mediaDurationMs > 0);
+      this.mediaDurationUs = Util.msToUs(mediaDurationMs);
+      return this;
+    }
+
+    /** Sets the duration of each chunk, in milliseconds. The default is 4 seconds. */
+    @CanIgnoreReturnValue
+    public Builder setChunkDurationMs(long chunkDurationMs) {
+      checkState(!buildCalled);
+      checkArgument(chunkDurationMs > 0);
+      this.chunkDurationUs = Util.msToUs(chunkDurationMs);
+      return this;
+    }
+
+    /**
+     * Sets the standard deviation of the chunk sizes around the average size given by the format
+     * bitrates, in percent. The variation is pseudo-random with a fixed seed. The default is 0.
+     */
+    @CanIgnoreReturnValue
+    public Builder setChunkSizeStdDevPercent(double chunkSizeStdDevPercent) {
+      checkState(!buildCalled);
+      checkArgument(chunkSizeStdDevPercent >= 0);
+      this.chunkSizeStdDevPercent = chunkSizeStdDevPercent;
+      return this;
+    }
+
+    /**
+     * Sets the bitrate estimate of the fake {@link BandwidthMeter} before enough data has been
+     * transferred, in bits per second. The default is {@link
+     * DefaultBandwidthMeter#DEFAULT_INITIAL_BITRATE_ESTIMATE}.
+     */
+    @CanIgnoreReturnValue
+    public Builder setInitialBitrateEstimate(long initialBitrateEstimate) {
+      checkState(!buildCalled);
+      checkArgument(initialBitrateEstimate > 0);
+      this.initialBitrateEstimate = initialBitrateEstimate;
+      return this;
+    }
+
+    /**
+     * Sets the buffer durations, with the same meaning as in {@link
+     * DefaultLoadControl.Builder#setBufferDurationsMs}. The defaults are those of {@link
+     * DefaultLoadControl}.
+     */
+    @CanIgnoreReturnValue
+    public Builder setBufferDurationsMs(
+        int minBufferMs,
+        int maxBufferMs,
+        int bufferForPlaybackMs,
+        int bufferForPlaybackAfterRebufferMs) {
+      checkState(!buildCalled);
+      checkArgument(0 <= bufferForPlaybackMs && bufferForPlaybackMs <= minBufferMs);
+      checkArgument(
+          0 <= bufferForPlaybackAfterRebufferMs && bufferForPlaybackAfterRebufferMs <= minBufferMs);
+      checkArgument(minBufferMs <= maxBufferMs);
+      this.minBufferUs = Util.msToUs(minBufferMs);
+      this.maxBufferUs = Util.msToUs(maxBufferMs);
+      this.bufferForPlaybackUs = Util.msToUs(bufferForPlaybackMs);
+      this.bufferForPlaybackAfterRebufferUs = Util.msToUs(bufferForPlaybackAfterRebufferMs);
+      return this;
+    }
+
+    /** Builds the {@link AbrSimulator}. */
+    public AbrSimulator build() {
+      checkState(!buildCalled);
+      buildCalled = true;
+      return new AbrSimulator(this);
+    }
+  }
+
+  /** The result of a simulation. */
+  public static final class Result {
+
+    /**
+     * The formats of the played chunks, in playback order. Chunks that were loaded and then
+     * discarded before being played are not included.
+     */
+    public final ImmutableList<Format> playedFormats;
+
+    /** The bitrate of the first played chunk, in bits per second. */
+    public final int startupBitrate;
+
+    /** The average bitrate of the played chunks weighted by their duration, in bits per second. */
+    public final long averageBitrate;
+
+    /** The number of format changes between consecutive played chunks. */
+    public final int switchCount;
+
+    /** The time from the start of the simulation until playback started, in milliseconds. */
+    public final long startupTimeMs;
+
+    /** The number of times playback stalled after it started. */
+    public final int rebufferCount;
+
+    /** The total time playback stalled after it started, in milliseconds. */
+    public final long rebufferTimeMs;
+
+    /** The number of loaded chunks that were discarded before being played. */
+    public final int discardedChunkCount;
+
+    private Result(
+        ImmutableList<Format> playedFormats,
+        int startupBitrate,
+        long averageBitrate,
+        int switchCount,
+        long startupTimeMs,
+        int rebufferCount,
+        long rebufferTimeMs,
+        int discardedChunkCount) {
+      this.playedFormats = playedFormats;
+      this.startupBitrate = startupBitrate;
+      this.averageBitrate = averageBitrate;
+      this.switchCount = switchCount;
+      this.startupTimeMs = startupTimeMs;
+      this.rebufferCount = rebufferCount;
+      this.rebufferTimeMs = rebufferTimeMs;
+      this.discardedChunkCount = discardedChunkCount;
+    }
+
+    @Override
+    public String toString() {
+      return "Result{startupBitrate="
+          + startupBitrate
+          + ", averageBitrate="
+          + averageBitrate
+          + ", switchCount="
+          + switchCount
+          + ", startupTimeMs="
+          + startupTimeMs
+          + ", rebufferCount="
+          + rebufferCount
+          + ", rebufferTimeMs="
+          + rebufferTimeMs
+          + ", discardedChunkCount="
+          + discardedChunkCount
+          + "}";
+    }
+  }
+
+  private final TrackGroup trackGroup;
+  private final BandwidthTrace bandwidthTrace;
+  private final ExoTrackSelection.Factory trackSelectionFactory;
+  private final FakeClock clock;
+  private final long clockStartTimeMs;
+  private final FakeAdaptiveDataSet dataSet;
+  private final SimulatedBandwidthMeter bandwidthMeter;
+  private final long minBufferUs;
+  private final long maxBufferUs;
+  private final long bufferForPlaybackUs;
+  private final long bufferForPlaybackAfterRebufferUs;
+  private final List<MediaChunk> queue;
+  private final List<Format> playedFormats;
+
+  private boolean runCalled;
+  private long timeUs;
+  private long playbackPositionUs;
+  private long loadedUntilUs;
+  private boolean loadingFinished;
+  private boolean playing;
+  private long startupTimeUs;
+  private int rebufferCount;
+  private long rebufferTimeUs;
+  private int discardedChunkCount;
+  private long playedBits;
+
+  private AbrSimulator(Builder builder) {
+    trackGroup = builder.trackGroup;
+    bandwidthTrace = builder.bandwidthTrace;
+    trackSelectionFactory = builder.trackSelectionFactory;
+    clock = builder.clock != null ? builder.clock : new FakeClock(/* initialTimeMs= */ 0);
+    clockStartTimeMs = clock.elapsedRealtime();
+    dataSet =
+        new FakeAdaptiveDataSet.Factory(
+                builder.chunkDurationUs, builder.chunkSizeStdDevPercent, new Random(/* seed= */ 0))
+            .createDataSet(trackGroup, builder.mediaDurationUs);
+    bandwidthMeter = new SimulatedBandwidthMeter(builder.initialBitrateEstimate);
+    minBufferUs = builder.minBufferUs;
+    maxBufferUs = builder.maxBufferUs;
+    bufferForPlaybackUs = builder.bufferForPlaybackUs;
+    bufferForPlaybackAfterRebufferUs = builder.bufferForPlaybackAfterRebufferUs;
+    queue = new ArrayList<>();
+    playedFormats = new ArrayList<>();
+    startupTimeUs = C.TIME_UNSET;
+  }
+
+  /**
+   * Runs the simulation until all media has been played. May only be called once.
+   *
+   * @return The {@link Result} of the simulation.
+   */
+  public Result run() {
+    checkState(!runCalled);
+    runCalled = true;
+    int[] tracks = new int[trackGroup.length];
+    for (int i = 0; i < tracks.length; i++) {
+      tracks[i] = i;
+    }
+    ExoTrackSelection trackSelection =
+        checkNotNull(
+            trackSelectionFactory.createTrackSelections(
+                new ExoTrackSelection.Definition[] {
+                  new ExoTrackSelection.Definition(trackGroup, tracks)
+                },
+                bandwidthMeter,
+                new MediaPeriodId(/* periodUid= */ new Object()),
+                Timeline.EMPTY)[0]);
+    trackSelection.enable();
+
+    int nextChunkIndex = 0;
+    int chunkCount = dataSet.getChunkCount();
+    while (nextChunkIndex < chunkCount) {
+      long bufferedDurationUs = loadedUntilUs - playbackPositionUs;
+      if (playing && bufferedDurationUs >= maxBufferUs) {
+        advanceTime(bufferedDurationUs - minBufferUs);
+      }
+
+      int queueSize = trackSelection.evaluateQueueSize(playbackPositionUs, queue);
+      queueSize = max(queueSize, getPlayingChunkCount());
+      if (queueSize < queue.size()) {
+        MediaChunk firstDiscardedChunk = queue.get(queueSize);
+        nextChunkIndex = dataSet.getChunkIndexByPosition(firstDiscardedChunk.startTimeUs);
+        loadedUntilUs = firstDiscardedChunk.startTimeUs;
+        discardedChunkCount += queue.size() - queueSize;
+        queue.subList(queueSize, queue.size()).clear();
+      }
+
+      trackSelection.updateSelectedTrack(
+          playbackPositionUs,
+          /* bufferedDurationUs= */ loadedUntilUs - playbackPositionUs,
+          /* availableDurationUs= */ C.TIME_UNSET,
+          Collections.unmodifiableList(queue),
+          createMediaChunkIterators(nextChunkIndex));
+      int trackIndex = trackSelection.getSelectedIndexInTrackGroup();
+      long bytes =
+          checkNotNull(dataSet.getData(dataSet.getUri(trackIndex)))
+              .getSegments()
+              .get(nextChunkIndex)
+              .length;
+      loadChunk(bytes);
+
+      long chunkStartTimeUs = dataSet.getStartTime(nextChunkIndex);
+      long chunkEndTimeUs = chunkStartTimeUs + dataSet.getChunkDuration(nextChunkIndex);
+      queue.add(
+          new FakeMediaChunk(
+              trackSelection.getSelectedFormat(),
+              chunkStartTimeUs,
+              chunkEndTimeUs,
+              trackSelection.getSelectionReason()));
+      loadedUntilUs = chunkEndTimeUs;
+      nextChunkIndex++;
+      loadingFinished = nextChunkIndex == chunkCount;
+      maybeStartPlayback();
+    }
+    advanceTime(loadedUntilUs - playbackPositionUs);
+    trackSelection.disable();
+    return buildResult();
+  }
+
+  private MediaChunkIterator[] createMediaChunkIterators(int chunkIndex) {
+    MediaChunkIterator[] iterators = new MediaChunkIterator[trackGroup.length];
+    for (int i = 0; i < iterators.length; i++) {
+      iterators[i] =
+          new FakeAdaptiveDataSet.Iterator(dataSet, /* trackGroupIndex= */ i, chunkIndex);
+    }
+    return iterators;
+  }
+
+  private int getPlayingChunkCount() {
+    int playingChunkCount = 0;
+    while (playingChunkCount < queue.size()
+        && queue.get(playingChunkCount).startTimeUs <= playbackPositionUs) {
+      playingChunkCount++;
+    }
+    return playingChunkCount;
+  }
+
+  private void loadChunk(long bytes) {
+    long requestTimeUs = timeUs;
+    long timeToFirstByteUs = bandwidthTrace.getTimeToFirstByteUs(requestTimeUs);
+    long transferStartTimeUs = requestTimeUs + timeToFirstByteUs;
+    long transferEndTimeUs = bandwidthTrace.getTransferEndTimeUs(transferStartTimeUs, bytes);
+    advanceTime(transferEndTimeUs - requestTimeUs);
+    bandwidthMeter.onTransfer(
+        timeToFirstByteUs,
+        /* transferDurationUs= */ transferEndTimeUs - transferStartTimeUs,
+        bytes);
+  }
+
+  private void maybeStartPlayback() {
+    if (playing) {
+      return;
+    }
+    long bufferedDurationUs = loadedUntilUs - playbackPositionUs;
+    long requiredBufferUs =
+        startupTimeUs == C.TIME_UNSET ? bufferForPlaybackUs : bufferForPlaybackAfterRebufferUs;
+    if (loadingFinished || bufferedDurationUs >= requiredBufferUs) {
+      playing = true;
+      if (startupTimeUs == C.TIME_UNSET) {
+        startupTimeUs = timeUs;
+      }
+    }
+  }
+
+  private void advanceTime(long durationUs) {
+    if (durationUs <= 0) {
+      return;
+    }
+    if (loadingFinished && !playing) {
+      playing = true;
+    }
+    if (playing) {
+      long playedDurationUs = min(durationUs, loadedUntilUs - playbackPositionUs);
+      playbackPositionUs += playedDurationUs;
+      if (playedDurationUs < durationUs && !loadingFinished) {
+        playing = false;
+        rebufferCount++;
+        rebufferTimeUs += durationUs - playedDurationUs;
+      }
+    } else if (startupTimeUs != C.TIME_UNSET) {
+      rebufferTimeUs += durationUs;
+    }
+    timeUs += durationUs;
+    clock.advanceTime(clockStartTimeMs + Util.usToMs(timeUs) - clock.elapsedRealtime());
+    removePlayedChunks();
+  }
+
+  private void removePlayedChunks() {
+    while (!queue.isEmpty() && queue.get(0).endTimeUs <= playbackPositionUs) {
+      MediaChunk chunk = queue.remove(0);
+      playedFormats.add(chunk.trackFormat);
+      playedBits += (long) chunk.trackFormat.bitrate * (chunk.endTimeUs - chunk.startTimeUs);
+    }
+  }
+
+  private Result buildResult() {
+    int switchCount = 0;
+    for (int i = 1; i < playedFormats.size(); i++) {
+      if (!playedFormats.get(i).equals(playedFormats.get(i - 1))) {
+        switchCount++;
+      }
+    }
+    return new Result(
+        ImmutableList.copyOf(playedFormats),
+        /* startupBitrate= */ playedFormats.isEmpty()
+            ? Format.NO_VALUE
+            : playedFormats.get(0).bitrate,
+        /* averageBitrate= */ playbackPositionUs == 0 ? 0 : playedBits / playbackPositionUs,
+        switchCount,
+        Util.usToMs(startupTimeUs),
+        rebufferCount,
+        Util.usToMs(rebufferTimeUs),
+        discardedChunkCount);
+  }
+
+  /**
+   * A {@link BandwidthMeter} that estimates throughput from the simulated transfers with a sliding
+   * percentile, and time to first byte with an exponentially weighted average.
+   */
+  private static final class SimulatedBandwidthMeter implements BandwidthMeter {
+
+    private static final long ELAPSED_US_FOR_ESTIMATE = 2_000_000;
+    private static final long BYTES_TRANSFERRED_FOR_ESTIMATE = 512 * 1024;
+    private static final double TIME_TO_FIRST_BYTE_SMOOTHING_FACTOR = 0.85;
+
+    private final SlidingPercentile slidingPercentile;
+
+    private long bitrateEstimate;
+    private long timeToFirstByteEstimateUs;
+    private long totalElapsedTimeUs;
+    private long totalBytesTransferred;
+
+    public SimulatedBandwidthMeter(long initialBitrateEstimate) {
+      slidingPercentile =
+          new SlidingPercentile(DefaultBandwidthMeter.DEFAULT_SLIDING_WINDOW_MAX_WEIGHT);
+      bitrateEstimate = initialBitrateEstimate;
+      timeToFirstByteEstimateUs = C.TIME_UNSET;
+    }
+
+    public void onTransfer(long timeToFirstByteUs, long transferDurationUs, long bytes) {
+      timeToFirstByteEstimateUs =
+          timeToFirstByteEstimateUs == C.TIME_UNSET
+              ? timeToFirstByteUs
+              : (long)
+                  (TIME_TO_FIRST_BYTE_SMOOTHING_FACTOR * timeToFirstByteEstimateUs
+                      + (1 - TIME_TO_FIRST_BYTE_SMOOTHING_FACTOR) * timeToFirstByteUs);
+      if (transferDurationUs <= 0) {
+        return;
+      }
+      totalElapsedTimeUs += transferDurationUs;
+      totalBytesTransferred += bytes;
+      float bitsPerSecond = (bytes * 8f * C.MICROS_PER_SECOND) / transferDurationUs;
+      slidingPercentile.addSample((int) Math.sqrt(bytes), bitsPerSecond);
+      if (totalElapsedTimeUs >= ELAPSED_US_FOR_ESTIMATE
+          || totalBytesTransferred >= BYTES_TRANSFERRED_FOR_ESTIMATE) {
+        bitrateEstimate = (long) slidingPercentile.getPercentile(0.5f);
+      }
+    }
+
+    @Override
+    public long getBitrateEstimate() {
+      return bitrateEstimate;
+    }
+
+    @Override
+    public long getTimeToFirstByteEstimateUs() {
+      return timeToFirstByteEstimateUs;
+    }
+
+    @Nullable
+    @Override
+    public TransferListener getTransferListener() {
+      return null;
+    }
+
+    @Override
+    public void addEventListener(Handler eventHandler, EventListener eventListener) {
+      // Do nothing.
+    }
+
+    @Override
+    public void removeEventListener(EventListener eventListener) {
+      // Do nothing.
+    }
+  }
+}
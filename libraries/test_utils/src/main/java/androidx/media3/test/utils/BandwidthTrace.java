@@ -0,0 +1,168 @@
+/*
+ * Copyright 2026 The Android Open Source Project
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package androidx.media3.test.utils;
+
+import static androidx.media3.common.util.Assertions.checkArgument;
+
+import android.content.Context;
+import androidx.media3.common.C;
+import androidx.media3.common.util.UnstableApi;
+import androidx.media3.common.util.Util;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * A recorded network throughput trace that can be replayed by an {@link AbrSimulator}.
+ *
+ * <p>A trace is a sequence of samples. Each sample has a duration, the throughput available during
+ * that time and the time to first byte of requests started during that time. The trace loops when
+ * it is replayed beyond its end.
+ *
+ * <p>The text format read by {@link #parse(String)} has one sample per line, with comma-separated
+ * duration in milliseconds, throughput in bits per second and, optionally, time to first byte in
+ * milliseconds. Empty lines and lines starting with {@code #} are ignored. For example:
+ *
+ * <pre>
+ * # durationMs,bitrate,timeToFirstByteMs
+ * 10000,5000000,40
+ * 2000,300000,250
+ * </pre>
+ */
+@UnstableApi
+public final class BandwidthTrace {
+
+  private final long[] sampleStartTimesUs;
+  private final long[] bitrates;
+  private final long[] timesToFirstByteUs;
+  private final long durationUs;
+
+  /**
+   * Returns a trace read from an asset file in the format described in the class documentation.
+   *
+   * @param context A {@link Context}.
+   * @param fileName The name of the asset file.
+   * @throws IOException If the asset can't be read.
+   * @throws IllegalArgumentException If the asset isn't a valid trace.
+   */
+  public static BandwidthTrace fromAsset(Context context, String fileName) throws IOException {
+    return parse(TestUtil.getString(context, fileName));
+  }
+
+  /**
+   * Returns a trace parsed from a string in the format described in the class documentation.
+   *
+   * @param trace The trace.
+   * @throws IllegalArgumentException If {@code trace} isn't a valid trace.
+   */
+  public static BandwidthTrace parse(String trace) {
+    List<long[]> samples = new ArrayList<>();
+    for (String line : Util.split(trace, "\n")) {
+      line = line.trim();
+      if (line.isEmpty() || line.startsWith("#")) {
+        continue;
+      }
+      String[] fields = Util.split(line, ",");
+      checkArgument(fields.length == 2 || fields.length == 3, "Invalid trace line: " + line);
+      long durationMs = Long.parseLong(fields[0].trim());
+      long bitrate = Long.parseLong(fields[1].trim());
+      long timeToFirstByteMs = fields.length == 3 ? Long.parseLong(fields[2].trim()) : 0;
+      samples.add(new long[] {durationMs, bitrate, timeToFirstByteMs});
+    }
+    return new BandwidthTrace(samples);
+  }
+
+  /**
+   * Returns a trace with a constant throughput and time to first byte.
+   *
+   * @param bitrate The throughput, in bits per second.
+   * @param timeToFirstByteMs The time to first byte, in milliseconds.
+   */
+  public static BandwidthTrace constant(long bitrate, long timeToFirstByteMs) {
+    List<long[]> samples = new ArrayList<>();
+    samples.add(new long[] {/* durationMs= */ 1000, bitrate, timeToFirstByteMs});
+    return new BandwidthTrace(samples);
+  }
+
+  private BandwidthTrace(List<long[]> samples) {
+    checkArgument(!samples.isEmpty(), "Empty trace");
+    int sampleCount = samples.size();
+    sampleStartTimesUs = new long[sampleCount];
+    bitrates = new long[sampleCount];
+    timesToFirstByteUs = new long[sampleCount];
+    long startTimeUs = 0;
+    boolean hasThroughput = false;
+    for (int i = 0; i < sampleCount; i++) {
+      long[] sample = samples.get(i);
+      checkArgument(sample[0] > 0 && sample[1] >= 0 && sample[2] >= 0, "Invalid trace sample");
+      sampleStartTimesUs[i] = startTimeUs;
+      bitrates[i] = sample[1];
+      timesToFirstByteUs[i] = Util.msToUs(sample[2]);
+      startTimeUs += Util.msToUs(sample[0]);
+      hasThroughput |= sample[1] > 0;
+    }
+    checkArgument(hasThroughput, "Trace without throughput");
+    durationUs = startTimeUs;
+  }
+
+  /** Returns the duration of one loop of the trace, in microseconds. */
+  public long getDurationUs() {
+    return durationUs;
+  }
+
+  /** Returns the throughput at {@code timeUs}, in bits per second. */
+  public long getBitrate(long timeUs) {
+    return bitrates[getSampleIndex(timeUs)];
+  }
+
+  /** Returns the time to first byte of a request started at {@code timeUs}, in microseconds. */
+  public long getTimeToFirstByteUs(long timeUs) {
+    return timesToFirstByteUs[getSampleIndex(timeUs)];
+  }
+
+  /**
+   * Returns the time at which a transfer of {@code bytes} that starts receiving data at {@code
+   * startTimeUs} ends, in microseconds.
+   */
+  public long getTransferEndTimeUs(long startTimeUs, long bytes) {
+    double remainingBits = bytes * 8d;
+    long timeUs = startTimeUs;
+    while (remainingBits > 0) {
+      int sampleIndex = getSampleIndex(timeUs);
+      long sampleEndOffsetUs =
+          sampleIndex + 1 < sampleStartTimesUs.length
+              ? sampleStartTimesUs[sampleIndex + 1]
+              : durationUs;
+      long sampleEndTimeUs = timeUs - (timeUs % durationUs) + sampleEndOffsetUs;
+      long bitrate = bitrates[sampleIndex];
+      double sampleBits = (double) bitrate * (sampleEndTimeUs - timeUs) / C.MICROS_PER_SECOND;
+      if (bitrate > 0 && sampleBits >= remainingBits) {
+        return timeUs + (long) Math.ceil(remainingBits * C.MICROS_PER_SECOND / bitrate);
+      }
+      remainingBits -= sampleBits;
+      timeUs = sampleEndTimeUs;
+    }
+    return timeUs;
+  }
+
+  private int getSampleIndex(long timeUs) {
+    return Util.binarySearchFloor(
+        sampleStartTimesUs,
+        timeUs % durationUs,
+        /* inclusive= */ true,
+        /* stayInBounds= */ true);
+  }
+}
@@ -0,0 +1,148 @@
+/*
+ * Copyright 2026 The Android Open Source Project
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package androidx.media3.test.utils;
+
+import static com.google.common.truth.Truth.assertThat;
+
+import androidx.media3.common.Format;
+import androidx.media3.common.MimeTypes;
+import androidx.media3.common.TrackGroup;
+import androidx.media3.exoplayer.trackselection.AdaptiveTrackSelection;
+import androidx.media3.exoplayer.trackselection.ExoTrackSelection;
+import androidx.media3.exoplayer.trackselection.FixedTrackSelection;
+import androidx.test.ext.junit.runners.AndroidJUnit4;
+import com.google.common.collect.Iterables;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+
+/** Unit test for {@link AbrSimulator}. */
+@RunWith(AndroidJUnit4.class)
+public final class AbrSimulatorTest {
+
+  private static final Format FORMAT_500K = videoFormat(/* bitrate= */ 500_000);
+  private static final Format FORMAT_1M = videoFormat(/* bitrate= */ 1_000_000);
+  private static final Format FORMAT_2M = videoFormat(/* bitrate= */ 2_000_000);
+  private static final TrackGroup TRACK_GROUP = new TrackGroup(FORMAT_500K, FORMAT_1M, FORMAT_2M);
+
+  @Test
+  public void run_highConstantBandwidth_switchesUpWithoutRebuffering() {
+    FakeClock clock = new FakeClock(/* initialTimeMs= */ 0);
+    AbrSimulator.Result result =
+        new AbrSimulator.Builder(
+                TRACK_GROUP,
+                BandwidthTrace.constant(/* bitrate= */ 10_000_000, /* timeToFirstByteMs= */ 50))
+            .setClock(clock)
+            .setTrackSelectionFactory(createAdaptiveTrackSelectionFactory(clock))
+            .setMediaDurationMs(60_000)
+            .setChunkDurationMs(4_000)
+            .build()
+            .run();
+
+    assertThat(result.playedFormats).hasSize(15);
+    assertThat(result.startupBitrate).isEqualTo(500_000);
+    assertThat(result.startupTimeMs).isEqualTo(250);
+    assertThat(Iterables.getLast(result.playedFormats)).isEqualTo(FORMAT_2M);
+    assertThat(result.switchCount).isAtLeast(1);
+    assertThat(result.averageBitrate).isGreaterThan(500_000);
+    assertThat(result.rebufferCount).isEqualTo(0);
+    assertThat(result.rebufferTimeMs).isEqualTo(0);
+  }
+
+  @Test
+  public void run_bandwidthCollapse_reportsRebuffering() {
+    BandwidthTrace trace =
+        BandwidthTrace.parse(
+            "# durationMs,bitrate,timeToFirstByteMs\n5000,10000000,50\n600000,100000,50");
+    FakeClock clock = new FakeClock(/* initialTimeMs= */ 0);
+    AbrSimulator.Result result =
+        new AbrSimulator.Builder(TRACK_GROUP, trace)
+            .setClock(clock)
+            .setTrackSelectionFactory(createAdaptiveTrackSelectionFactory(clock))
+            .setMediaDurationMs(60_000)
+            .build()
+            .run();
+
+    assertThat(result.rebufferCount).isGreaterThan(0);
+    assertThat(result.rebufferTimeMs).isGreaterThan(0);
+  }
+
+  @Test
+  public void run_sameInputs_isDeterministic() {
+    BandwidthTrace trace = BandwidthTrace.parse("3000,4000000,100\n3000,800000,300\n");
+
+    AbrSimulator.Result result1 = runWithVariableChunkSizes(trace);
+    AbrSimulator.Result result2 = runWithVariableChunkSizes(trace);
+
+    assertThat(result1.playedFormats).isEqualTo(result2.playedFormats);
+    assertThat(result1.startupTimeMs).isEqualTo(result2.startupTimeMs);
+    assertThat(result1.rebufferTimeMs).isEqualTo(result2.rebufferTimeMs);
+    assertThat(result1.discardedChunkCount).isEqualTo(result2.discardedChunkCount);
+  }
+
+  @Test
+  public void run_withCustomTrackSelectionFactory_usesFactory() {
+    ExoTrackSelection.Factory fixedHighestBitrateFactory =
+        (definitions, bandwidthMeter, mediaPeriodId, timeline) ->
+            new ExoTrackSelection[] {
+              new FixedTrackSelection(definitions[0].group, /* track= */ 2)
+            };
+
+    AbrSimulator.Result result =
+        new AbrSimulator.Builder(
+                TRACK_GROUP,
+                BandwidthTrace.constant(/* bitrate= */ 1_000_000, /* timeToFirstByteMs= */ 0))
+            .setTrackSelectionFactory(fixedHighestBitrateFactory)
+            .setMediaDurationMs(20_000)
+            .setChunkDurationMs(4_000)
+            .build()
+            .run();
+
+    assertThat(result.startupBitrate).isEqualTo(2_000_000);
+    assertThat(result.averageBitrate).isEqualTo(2_000_000);
+    assertThat(result.switchCount).isEqualTo(0);
+    assertThat(result.startupTimeMs).isEqualTo(8_000);
+    assertThat(result.rebufferCount).isGreaterThan(0);
+  }
+
+  private static AbrSimulator.Result runWithVariableChunkSizes(BandwidthTrace trace) {
+    FakeClock clock = new FakeClock(/* initialTimeMs= */ 0);
+    return new AbrSimulator.Builder(TRACK_GROUP, trace)
+        .setClock(clock)
+        .setTrackSelectionFactory(createAdaptiveTrackSelectionFactory(clock))
+        .setMediaDurationMs(120_000)
+        .setChunkSizeStdDevPercent(30)
+        .build()
+        .run();
+  }
+
+  private static AdaptiveTrackSelection.Factory createAdaptiveTrackSelectionFactory(
+      FakeClock clock) {
+    return new AdaptiveTrackSelection.Factory(
+        AdaptiveTrackSelection.DEFAULT_MIN_DURATION_FOR_QUALITY_INCREASE_MS,
+        AdaptiveTrackSelection.DEFAULT_MAX_DURATION_FOR_QUALITY_DECREASE_MS,
+        AdaptiveTrackSelection.DEFAULT_MIN_DURATION_TO_RETAIN_AFTER_DISCARD_MS,
+        AdaptiveTrackSelection.DEFAULT_BANDWIDTH_FRACTION,
+        AdaptiveTrackSelection.DEFAULT_BUFFERED_FRACTION_TO_LIVE_EDGE_FOR_QUALITY_INCREASE,
+        clock);
+  }
+
+  private static Format videoFormat(int bitrate) {
+    return new Format.Builder()
+        .setSampleMimeType(MimeTypes.VIDEO_H264)
+        .setAverageBitrate(bitrate)
+        .build();
+  }
+}
@@ -0,0 +1,64 @@
+/*
+ * Copyright 2026 The Android Open Source Project
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package androidx.media3.test.utils;
+
+import static com.google.common.truth.Truth.assertThat;
+import static org.junit.Assert.assertThrows;
+
+import androidx.test.ext.junit.runners.AndroidJUnit4;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+
+/** Unit test for {@link BandwidthTrace}. */
+@RunWith(AndroidJUnit4.class)
+public final class BandwidthTraceTest {
+
+  private static final String TRACE =
+      "# durationMs,bitrate,timeToFirstByteMs\n1000,8000000,10\n\n1000,0,20\n";
+
+  @Test
+  public void parse_returnsLoopingSamples() {
+    BandwidthTrace trace = BandwidthTrace.parse(TRACE);
+
+    assertThat(trace.getDurationUs()).isEqualTo(2_000_000);
+    assertThat(trace.getBitrate(/* timeUs= */ 500_000)).isEqualTo(8_000_000);
+    assertThat(trace.getBitrate(/* timeUs= */ 1_500_000)).isEqualTo(0);
+    assertThat(trace.getBitrate(/* timeUs= */ 2_500_000)).isEqualTo(8_000_000);
+    assertThat(trace.getTimeToFirstByteUs(/* timeUs= */ 1_200_000)).isEqualTo(20_000);
+  }
+
+  @Test
+  public void getTransferEndTimeUs_withinSample_returnsTransferDuration() {
+    BandwidthTrace trace = BandwidthTrace.parse(TRACE);
+
+    assertThat(trace.getTransferEndTimeUs(/* startTimeUs= */ 0, /* bytes= */ 1_000_000))
+        .isEqualTo(1_000_000);
+  }
+
+  @Test
+  public void getTransferEndTimeUs_acrossSamples_skipsSamplesWithoutThroughput() {
+    BandwidthTrace trace = BandwidthTrace.parse(TRACE);
+
+    assertThat(trace.getTransferEndTimeUs(/* startTimeUs= */ 0, /* bytes= */ 1_500_000))
+        .isEqualTo(2_500_000);
+  }
+
+  @Test
+  public void parse_invalidLine_throwsIllegalArgumentException() {
+    assertThrows(IllegalArgumentException.class, () -> BandwidthTrace.parse("1000"));
+    assertThrows(IllegalArgumentException.class, () -> BandwidthTrace.parse("1000,0"));
+  }
+}